@@ -69,13 +69,16 @@ import android.widget.TextView;
 import com.st.BlueMS.R;
 import com.st.BlueMS.demos.util.DemoWithNetFragment;
 import com.st.BlueMS.demos.util.bluevoice.AsrAsyncRequest;
+import com.st.BlueMS.demos.util.bluevoice.AsrStreamingRequest;
 import com.st.BlueMS.demos.util.bluevoice.AudioBuffer;
+import com.st.BlueMS.demos.util.bluevoice.AudioPlayer;
 import com.st.BlueMS.demos.util.bluevoice.GoogleAsrKey;
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Features.FeatureAudioADPCM;
 import com.st.BlueSTSDK.Features.FeatureAudioADPCMSync;
 import com.st.BlueSTSDK.Node;
 import com.st.BlueSTSDK.Utils.BVAudioSyncManager;
+import com.st.BlueSTSDK.Utils.VoiceActivityDetector;
 import com.st.BlueSTSDK.gui.demos.DemoDescriptionAnnotation;
 
 import java.util.ArrayList;
@@ -97,6 +100,9 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
             ".ASR_RESULTS";
 
     private static final int AUDIO_SAMPLING_FREQ = 8000;
+
+    /** max time that the received audio waits before being played */
+    private static final int PLAYBACK_MAX_LATENCY_MS = 60;
     private static final int MAX_RECORDING_TIME_S = 5;
 
 
@@ -106,39 +112,128 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
      */
     private FeatureAudioADPCM  mAudio;
     private AudioManager mAudioManager;
-    private AudioTrack mAudioTrack;
+    private AudioPlayer mAudioPlayer;
     private GoogleAsrKey mAsrKey;
-    private boolean mIsRecording;
-    private AudioBuffer mRecordedAudio;
+    private volatile boolean mIsRecording;
+    /** true when the record button is pressed: the speech found by the vad is recorded */
+    private volatile boolean mIsListening;
+    /** true if the speech found by the vad is recorded without press the record button */
+    private volatile boolean mVoiceActivation;
+    /** finds the speech in the audio, used only by the ble thread */
+    private VoiceActivityDetector mVad;
+    private volatile AudioBuffer mRecordedAudio;
     private AsrAsyncRequest mAsrService;
+    /** request where the audio is sent while it is recorded */
+    private volatile AsrStreamingRequest mAsrStream;
     private BVAudioSyncManager mBVAudioSyncManager = new BVAudioSyncManager();
+    /**
+     * true if the audio was not passed to the player during the recording, used only by the
+     * ble thread
+     */
+    private boolean mPlaybackInterrupted;
 
     /**
-     * listener for the audio feature, it will updates the audio values and if playback is active,
-     * it write this data in the AudioTrack {@code audioTrack}.
+     * listener for the audio feature, it passes the decoded audio to the vad, that keeps the
+     * noise estimation updated, and if the recording is not active it passes the audio to the
+     * player. It runs in the ble thread, so it only copies the samples.
      */
-    private final Feature.FeatureListener mAudioListener = new Feature.FeatureListener() {
+    private final FeatureAudioADPCM.AudioListener mAudioListener =
+            new FeatureAudioADPCM.AudioListener() {
 
         @Override
-        public void onUpdate(final Feature f, final Feature.Sample sample) {
-            short audioSample[] = FeatureAudioADPCM.getAudio(sample);
-
-            if(mIsRecording){
-                final int nRecordedSample = mRecordedAudio.append(audioSample);
-                if(mRecordedAudio.isFull()){
+        public void onAudioUpdate(FeatureAudioADPCM f, short pcmData[], int nSamples,
+                                  boolean isResync) {
+            synchronized (mVad) {
+                mVad.process(pcmData, 0, nSamples);
+                boolean recordEnabled = isRecordEnabled();
+                if (recordEnabled && !mIsRecording && mVad.isSpeech()) {
+                    //record enabled during the speech, or the previous recording is full
+                    startRecording();
+                } else if (!recordEnabled && mIsRecording) {
+                    //the record button was released during the speech
                     sendAsrRequest();
                 }
-                updateGui(new Runnable() {
-                    @Override
-                    public void run() {
-                        mRecordBar.setProgress(nRecordedSample);
-                    }
-                });
-            }else{
-                playAudio(audioSample);
             }
+            if(mIsRecording){
+                mPlaybackInterrupted=true;
+                return;
+            }
+            if(mPlaybackInterrupted){
+                //the frames arrived during the recording were not played
+                mAudioPlayer.restartStream();
+                mPlaybackInterrupted=false;
+            }
+            mAudioPlayer.write(pcmData,0,isResync);
+        }
+
+    };
+
+    /**
+     * listener for the vad, it records only the speech segments: the recording starts with the
+     * speech and the segment audio is recorded and sent to the asr service, without the silence
+     * before and after the speech.
+     */
+    private final VoiceActivityDetector.SpeechListener mSpeechListener =
+            new VoiceActivityDetector.SpeechListener() {
+        @Override
+        public void onSpeechStart(VoiceActivityDetector vad) {
+            if(isRecordEnabled())
+                startRecording();
+        }
+
+        @Override
+        public void onSpeechAudio(VoiceActivityDetector vad, short[] data, int offset,
+                                  int length) {
+            AudioBuffer recordedAudio = mRecordedAudio;
+            AsrStreamingRequest asrStream = mAsrStream;
+            if(!mIsRecording || recordedAudio==null)
+                return;
+            if(asrStream!=null && !recordedAudio.isFull())
+                asrStream.append(data,offset,length);
+            final int nRecordedSample = recordedAudio.append(data,offset,length);
+            if(recordedAudio.isFull()){
+                sendAsrRequest();
+            }
+            updateGui(new Runnable() {
+                @Override
+                public void run() {
+                    mRecordBar.setProgress(nRecordedSample);
+                }
+            });
         }
 
+        @Override
+        public void onSpeechEnd(VoiceActivityDetector vad) {
+            sendAsrRequest();
+        }
+    };
+
+    /**
+     * callback for the streaming asr request, it is called by the upload thread so it moves the
+     * notification in the ui thread
+     */
+    private final AsrAsyncRequest.AsrAsyncRequestCallback mAsrStreamCallback =
+            new AsrAsyncRequest.AsrAsyncRequestCallback() {
+        @Override
+        public void onRequestSend() {
+            updateGui(new Runnable() {
+                @Override
+                public void run() {
+                    BlueVoiceFragment.this.onRequestSend();
+                }
+            });
+        }
+
+        @Override
+        public void onRequestRespond(@AsrAsyncRequest.Status final int status,
+                                     final String response) {
+            updateGui(new Runnable() {
+                @Override
+                public void run() {
+                    BlueVoiceFragment.this.onRequestRespond(status,response);
+                }
+            });
+        }
     };
 
     /////////////////////////////////////////// AUDIO SYNC /////////////////////////////////////////
@@ -184,11 +279,16 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
         super.onCreate(savedInstanceState);
         setHasOptionsMenu(true);
 
-        mAudioTrack= new AudioTrack(AudioManager.STREAM_MUSIC, AUDIO_SAMPLING_FREQ,
+        int minBufferSize = AudioTrack.getMinBufferSize(AUDIO_SAMPLING_FREQ,
+                AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, AUDIO_SAMPLING_FREQ,
                 AudioFormat.CHANNEL_OUT_MONO,
                 AudioFormat.ENCODING_PCM_16BIT,
-                FeatureAudioADPCM.AUDIO_PACKAGE_SIZE,
+                Math.max(minBufferSize, 2*FeatureAudioADPCM.AUDIO_PACKAGE_SIZE),
                 AudioTrack.MODE_STREAM);
+        mAudioPlayer = new AudioPlayer(audioTrack,AUDIO_SAMPLING_FREQ,
+                FeatureAudioADPCM.AUDIO_PACKAGE_SIZE,PLAYBACK_MAX_LATENCY_MS);
+        mVad = new VoiceActivityDetector(AUDIO_SAMPLING_FREQ,mSpeechListener);
     }
 
     @Override
@@ -255,18 +355,17 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
         mRecButton.setOnTouchListener(new View.OnTouchListener() {
             @Override
             public boolean onTouch(View view, MotionEvent motionEvent) {
-                if(motionEvent.getAction() == MotionEvent.ACTION_DOWN && !mIsRecording){
-                    mRecordedAudio = new AudioBuffer(AUDIO_SAMPLING_FREQ,MAX_RECORDING_TIME_S);
-                    mRecordBar.setMax(mRecordedAudio.getBufferLength());
-                    mRequestStatus.setText(R.string.blueVoice_recording);
-                    mRecordBar.setVisibility(View.VISIBLE);
-                    mRecordBarText.setVisibility(View.VISIBLE);
-                    mIsRecording=true;
-
+                if(motionEvent.getAction() == MotionEvent.ACTION_DOWN && !mIsListening){
+                    if(!mIsRecording)
+                        mRequestStatus.setText(R.string.blueVoice_listening);
+                    mIsListening=true;
                     return true;
                 }
-                if(motionEvent.getAction() == MotionEvent.ACTION_UP && mIsRecording){
-                    sendAsrRequest();
+                if(motionEvent.getAction() == MotionEvent.ACTION_UP && mIsListening){
+                    //the ble thread sends the speech already recorded
+                    mIsListening=false;
+                    if(!mIsRecording)
+                        mRequestStatus.setText("");
                     return true;
                 }
                 return false;
@@ -274,9 +373,47 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
         });
     }
 
-    void sendAsrRequest(){
+    /**
+     * @return true if the speech found by the vad has to be recorded
+     */
+    private boolean isRecordEnabled(){
+        return mIsListening || mVoiceActivation;
+    }
+
+    /**
+     * start to record the audio and open the streaming request to the asr service
+     */
+    synchronized void startRecording(){
+        if(mIsRecording || mAsrService==null)
+            return;
+        final AudioBuffer recordedAudio = new AudioBuffer(AUDIO_SAMPLING_FREQ,
+                MAX_RECORDING_TIME_S);
+        mRecordedAudio = recordedAudio;
+        mAsrStream = mAsrService.startStreamingRequest(AUDIO_SAMPLING_FREQ,
+                mAsrStreamCallback);
+        mIsRecording=true;
+        updateGui(new Runnable() {
+            @Override
+            public void run() {
+                mRecordBar.setMax(recordedAudio.getBufferLength());
+                mRequestStatus.setText(R.string.blueVoice_recording);
+                mRecordBar.setVisibility(View.VISIBLE);
+                mRecordBarText.setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    /**
+     * stop the recording and close the streaming request, the audio is already sent so only
+     * the recognition result remains to wait
+     */
+    synchronized void sendAsrRequest(){
+        AsrStreamingRequest asrStream = mAsrStream;
+        if(asrStream==null)
+            return;
         mIsRecording=false;
-        mAsrService.sendRequest(mRecordedAudio);
+        mAsrStream=null;
+        asrStream.finish();
         mRecordedAudio =null;
         updateGui(new Runnable() {
             @Override
@@ -290,15 +427,49 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
 
     }
 
+    /**
+     * stop the recording and delete the streaming request without waiting the result
+     */
+    synchronized void cancelRecording(){
+        AsrStreamingRequest asrStream = mAsrStream;
+        mIsRecording=false;
+        mAsrStream=null;
+        mRecordedAudio=null;
+        if(asrStream!=null)
+            asrStream.cancel();
+        updateGui(new Runnable() {
+            @Override
+            public void run() {
+                mRecordBar.setVisibility(View.GONE);
+                mRecordBarText.setVisibility(View.GONE);
+                mRecordBar.setProgress(0);
+            }
+        });
+    }
+
+    /**
+     * close the open recording and restart the voice activity detector, the next audio stream
+     * can have a different noise level
+     */
+    private void stopVoiceActivityDetection(){
+        mIsListening=false;
+        cancelRecording();
+        synchronized (mVad) {
+            mVad.stop();
+            mVad.reset();
+        }
+    }
+
     @Override
     public void onStart() {
         super.onStart();
-        mAudioTrack.play();
+        mAudioPlayer.start();
     }
 
     public void onStop(){
         super.onStop();
-        stopAudioTrack();
+        mAudioPlayer.stop();
+        stopVoiceActivityDetection();
     }
 
     private void restoreGuiStatus(Bundle savedInstanceState) {
@@ -350,6 +521,7 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
 
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.menu_bluevoice_feature_demo, menu);
+        menu.findItem(R.id.voiceActivation).setChecked(mVoiceActivation);
         super.onCreateOptionsMenu(menu, inflater);
     }
 
@@ -360,6 +532,11 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
             buildAskAsrKeyDialog().show();
             return true;
         }
+        if(id == R.id.voiceActivation){
+            item.setChecked(!item.isChecked());
+            mVoiceActivation = item.isChecked();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
@@ -368,7 +545,7 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
         mAudio = node.getFeature(FeatureAudioADPCM.class);
         mAudioSync = node.getFeature(FeatureAudioADPCMSync.class);
         if(mAudio!=null && mAudioSync!=null) {
-            mAudio.addFeatureListener(mAudioListener);
+            mAudio.addAudioListener(mAudioListener);
             mBVAudioSyncManager.reinitResetFlag();
             mAudio.setAudioSyncManager(mBVAudioSyncManager);
             node.enableNotification(mAudio);
@@ -390,7 +567,7 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
     protected void disableNeedNotification(@NonNull Node node) {
 
         if(mAudio!=null) {
-            mAudio.removeFeatureListener(mAudioListener);
+            mAudio.removeAudioListener(mAudioListener);
             node.disableNotification(mAudio);
         }
         if(mAudioSync!=null) {
@@ -398,6 +575,8 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
             node.disableNotification(mAudioSync);
         }
 
+        stopVoiceActivityDetection();
+
         if(mAsrSnackbar!=null)
             mAsrSnackbar.dismiss();
 
@@ -410,19 +589,6 @@ public class BlueVoiceFragment extends DemoWithNetFragment implements AsrAsyncRe
 
     }//disableNeedNotification
 
-    private void stopAudioTrack(){
-        synchronized(this) {
-            mAudioTrack.pause();
-            mAudioTrack.flush();
-        }
-    }
-
-    void playAudio(short sample[]){
-        synchronized (this) {
-            mAudioTrack.write(sample, 0, sample.length);
-        }
-    }
-
     private void enableASR(){
 
         if(!isOnline()){
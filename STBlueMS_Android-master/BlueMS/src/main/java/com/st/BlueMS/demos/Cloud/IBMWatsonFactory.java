@@ -56,6 +56,7 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.List;
 
 public class IBMWatsonFactory implements MqttClientConnectionFactory {
 
@@ -136,8 +137,11 @@ public class IBMWatsonFactory implements MqttClientConnectionFactory {
 
     /**
      * class that publish on all the sample to the cloud using the mqtt protocol
+     * <p>it can be registered also as a {@link Feature.FeatureBatchListener}, in that case each
+     * sample of the batch is published as a separate message</p>
      */
-    public static class IBMWatsonMqttFeatureListener implements Feature.FeatureListener {
+    public static class IBMWatsonMqttFeatureListener implements Feature.FeatureListener,
+            Feature.FeatureBatchListener {
 
         private MqttAndroidClient mBroker;
 
@@ -171,6 +175,12 @@ public class IBMWatsonFactory implements MqttClientConnectionFactory {
             }
 
         }
+
+        @Override
+        public void onUpdate(Feature f, List<Feature.Sample> samples) {
+            for(Feature.Sample sample : samples)
+                onUpdate(f,sample);
+        }
     }
 
 }
@@ -59,30 +59,32 @@ public class JSONSampleSerializer{
      * put a scalar field to the root object
      * @param obj root object
      * @param field filed to add
-     * @param value value to add
+     * @param sample sample that contains the value to add
+     * @param index index of the value to add
      * @throws JSONException
      */
-    private static void addScalarField(JSONObject obj, Field field, Number value)
+    private static void addScalarField(JSONObject obj, Field field, Feature.Sample sample,
+                                       int index)
             throws JSONException {
         String fieldName = field.getName();
         switch (field.getType()){
             case Float:
-                obj.put(fieldName,value.floatValue());
+                obj.put(fieldName,sample.getFloat(index));
                 break;
             case Int64:
             case UInt32:
-                obj.put(fieldName,value.longValue());
+                obj.put(fieldName,sample.getLong(index));
                 break;
             case Int32:
             case UInt16:
-                obj.put(fieldName,value.intValue());
+                obj.put(fieldName,sample.getInt(index));
                 break;
             case Int16:
             case UInt8:
-                obj.put(fieldName,value.shortValue());
+                obj.put(fieldName,sample.getShort(index));
                 break;
             case Int8:
-                obj.put(fieldName,value.byteValue());
+                obj.put(fieldName,sample.getByte(index));
                 break;
         }//switch
     }//addScalarField
@@ -91,15 +93,17 @@ public class JSONSampleSerializer{
      * add an array of value to the object
      * @param obj root object
      * @param field name of the filed
-     * @param data data to add
+     * @param sample sample that contains the data to add
      * @param startIndex index where find the fist valid data
      * @throws JSONException
      */
-    private static void addArrayField(JSONObject obj,Field field,Number data[], int startIndex)
+    private static void addArrayField(JSONObject obj,Field field,Feature.Sample sample,
+                                      int startIndex)
             throws JSONException {
         String fieldName = field.getName();
-        for(int i=startIndex;i<data.length;i++){
-            obj.accumulate(fieldName,data[i].byteValue());
+        int nData = sample.getDataLength();
+        for(int i=startIndex;i<nData;i++){
+            obj.accumulate(fieldName,sample.getByte(i));
         }
     }
 
@@ -113,14 +117,14 @@ public class JSONSampleSerializer{
     public static JSONObject serialize(Feature.Sample sample) throws JSONException {
         JSONObject obj = new JSONObject();
         obj.put(TIMESTAMP,sample.timestamp);
-        int nField = sample.data.length;
+        int nField = sample.getDataLength();
         for(int i=0;i<nField;i++){
             Field field = sample.dataDesc[i];
             if(field.getType() == Field.Type.ByteArray){
-                addArrayField(obj,field,sample.data,i);
+                addArrayField(obj,field,sample,i);
                 break;
             }else
-                addScalarField(obj,field,sample.data[i]);
+                addScalarField(obj,field,sample,i);
         }
         return obj;
     }
@@ -610,7 +610,7 @@ public class EnvironmentalSensorsFragment extends DemoFragment {
         @Override
         public void onClick(View v) {
             for(Feature f: mFeatures) {
-                Node node = f.getParentNode();
+                Node node = (Node) f.getParentNode();
                 if (node != null)
                     node.readFeature(f);
             }//if
@@ -96,7 +96,7 @@ public class MultipleLogFragment extends DemoFragment {
     public void disableAllNotification(){
         for(int i =0; i < mFeatureListAdapter.getItemCount();i++){
             final Feature f = mFeatureListAdapter.getItem(i);
-            final Node  n= f.getParentNode();
+            final Node  n= (Node) f.getParentNode();
             if(n.isEnableNotification(f)){
                 n.disableNotification(f);
                 FeatureListViewAdapter.ViewHolder vh = (FeatureListViewAdapter.ViewHolder)
@@ -135,7 +135,7 @@ public class MultipleLogFragment extends DemoFragment {
                 holder.mFeature.removeFeatureListener(holder.mUpdateFeatureValue);
             //enable for the new ones
             final Feature f = mAvailableFeature.get(position);
-            final Node node = f.getParentNode();
+            final Node node = (Node) f.getParentNode();
             holder.mFeature = f;
             holder.mFeatureNameLabel.setText(f.getName());
             if(node.isEnableNotification(f)) {
@@ -182,7 +182,7 @@ public class MultipleLogFragment extends DemoFragment {
                 mEnableLogButton.setOnClickListener(new View.OnClickListener() {
                     @Override
                     public void onClick(View v) {
-                        final Node node = mFeature.getParentNode();
+                        final Node node = (Node) mFeature.getParentNode();
                         if(node.isEnableNotification(mFeature)){
                             mFeature.removeFeatureListener(mUpdateFeatureValue);
                             node.disableNotification(mFeature);
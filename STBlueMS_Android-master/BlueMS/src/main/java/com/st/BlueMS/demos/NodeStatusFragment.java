@@ -41,8 +41,6 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -63,18 +61,7 @@ import com.st.BlueSTSDK.gui.demos.DemoFragment;
 public class NodeStatusFragment extends DemoFragment implements Node.BleConnectionParamUpdateListener {
     private static long RSSI_UPDATE_PERIOD_MS=500;
 
-    private Handler mUpdateRssiRequestQueue;
     private TextView mRssiText;
-    private Runnable mAskNewRssi = new Runnable() {
-        @Override
-        public void run() {
-            Node n = getNode();
-            if(n!=null){
-                n.readRssi();
-                mUpdateRssiRequestQueue.postDelayed(mAskNewRssi,RSSI_UPDATE_PERIOD_MS);
-            }//if
-        }//run
-    };
 
     private Feature mBatteryFeature;
     private TextView mBatteryStatusText;
@@ -134,14 +121,6 @@ public class NodeStatusFragment extends DemoFragment implements Node.BleConnecti
     }
 
 
-    @Override
-    public void onCreate (Bundle savedInstanceState){
-        super.onCreate(savedInstanceState);
-        HandlerThread looper = new HandlerThread(NodeStatusFragment.class.getName()+".UpdateRssi");
-        looper.start();
-        mUpdateRssiRequestQueue = new Handler(looper.getLooper());
-    }
-
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -166,7 +145,7 @@ public class NodeStatusFragment extends DemoFragment implements Node.BleConnecti
     protected void enableNeededNotification(@NonNull Node node) {
         mBatteryFeature = node.getFeature(FeatureBattery.class);
         node.addBleConnectionParamListener(this);
-        mUpdateRssiRequestQueue.postDelayed(mAskNewRssi, RSSI_UPDATE_PERIOD_MS);
+        node.startRssiPolling(RSSI_UPDATE_PERIOD_MS);
         if(mBatteryFeature!=null){
             mBatteryFeature.addFeatureListener(mBatteryListener);
             node.enableNotification(mBatteryFeature);
@@ -178,7 +157,7 @@ public class NodeStatusFragment extends DemoFragment implements Node.BleConnecti
     @Override
     protected void disableNeedNotification(@NonNull Node node) {
         node.removeBleConnectionParamListener(this);
-        mUpdateRssiRequestQueue.removeCallbacks(mAskNewRssi);
+        node.stopRssiPolling();
         if(mBatteryFeature!=null){
             mBatteryFeature.removeFeatureListener(mBatteryListener);
             node.disableNotification(mBatteryFeature);
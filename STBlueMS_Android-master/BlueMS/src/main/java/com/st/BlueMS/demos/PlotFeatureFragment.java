@@ -336,11 +336,11 @@ public class PlotFeatureFragment extends DemoFragment implements View.OnClickLis
                 }
 
                 // add the data and remove the all sample
-                final int dataLength = Math.min(sample.data.length,mPlottedData.length);
+                final int dataLength = Math.min(sample.getDataLength(),mPlottedData.length);
                 for (int i = 0; i < dataLength; i++) {
                     SimpleXYSeries serie = mPlottedData[i];
                     final long currentRelativeTime = dataTimeMs-mFirstTimestamp;
-                    serie.addLast(currentRelativeTime, sample.data[i]);
+                    serie.addLast(currentRelativeTime, sample.getFloat(i));
                     //we we insert more data than the maximum we remove the oldest
                     //we use a wile since the maxDiplaySample can change during the execution
                     while ((serie.size()!=0) &&
@@ -87,7 +87,7 @@ public class FeatureListViewAdapter extends
     public void onBindViewHolder(final ViewHolder holder, int position) {
         //enable for the new ones
         final Feature f = mAvailableFeature.get(position);
-        final Node node = f.getParentNode();
+        final Node node = (Node) f.getParentNode();
         holder.feature = f;
         holder.featureNameLabel.setText(f.getName());
         holder.enableLogButton.setChecked(node.isEnableNotification(f));
@@ -40,21 +40,14 @@ package com.st.BlueMS.demos.util.bluevoice;
 import android.os.AsyncTask;
 import android.support.annotation.IntDef;
 
-import org.json.JSONException;
-
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.net.HttpURLConnection;
-import java.net.URL;
 
 public class AsrAsyncRequest {
 
-    private static final int IO_TIMEOUT_MS =10000;
-    private static final String ASR_URL ="https://www.google.com/speech-api/v2/recognize" +
-                    "?xjerr=1&client=chromium&lang=en-US&key=";
-
     @IntDef({NO_ERROR,IO_CONNECTION_ERROR,
             RESPONSE_ERROR,REQUEST_FAILED,NOT_RECOGNIZED})
     @Retention(RetentionPolicy.SOURCE)
@@ -65,7 +58,6 @@ public class AsrAsyncRequest {
     public static final int RESPONSE_ERROR = 2;
     public static final int REQUEST_FAILED = 3;
     public static final int NOT_RECOGNIZED = 4;
-    private static final float MIN_CONFIDENCE = 0.75f;
 
     public interface AsrAsyncRequestCallback{
         /**
@@ -81,51 +73,59 @@ public class AsrAsyncRequest {
         void onRequestRespond(@Status int status, String response);
     }
 
-    private GoogleAsrKey mKey;
+    private AsrRecognizer mRecognizer;
 
     private AsrAsyncRequestCallback mCallback;
 
     public AsrAsyncRequest(GoogleAsrKey key, AsrAsyncRequestCallback callback){
-        mKey=key;
+        this(new GoogleAsrRecognizer(key),callback);
+    }
+
+    public AsrAsyncRequest(AsrRecognizer recognizer, AsrAsyncRequestCallback callback){
+        mRecognizer=recognizer;
         mCallback=callback;
     }
 
+    /**
+     * send a recorded audio
+     * @param record audio to recognize
+     */
     public void sendRequest(AudioBuffer record){
        new UploadMessageTask().execute(record);
     }
 
-    private class UploadMessageTask extends AsyncTask<AudioBuffer,Void,
-            UploadMessageTask.AsrResult> {
-
-        class AsrResult{
-            @AsrAsyncRequest.Status int status;
-            String result;
-
-            AsrResult( @AsrAsyncRequest.Status int status,  String result){
-                this.status = status;
-                this.result=result;
-            }
+    /**
+     * open a request where the audio is sent while it is recorded, the callback methods are
+     * called by the upload thread
+     * @param samplingRate sampling rate of the audio
+     * @param callback object notified when the audio is sent and when the response arrives
+     * @return started request where append the audio
+     */
+    public AsrStreamingRequest startStreamingRequest(int samplingRate,
+                                                     AsrAsyncRequestCallback callback){
+        AsrStreamingRequest request = new AsrStreamingRequest(mRecognizer,samplingRate,callback);
+        request.start();
+        return request;
+    }
 
-            AsrResult( @AsrAsyncRequest.Status int status){
-                this(status,null);
-            }
+    /**
+     * wait the response of a request where the audio was sent and parse it
+     * @param recognizer service that parses the response
+     * @param con request where the audio was sent
+     * @return recognition result
+     */
+    static AsrRecognizer.Result readResult(AsrRecognizer recognizer, HttpURLConnection con){
+        try {
+            if(con.getResponseCode()!=HttpURLConnection.HTTP_OK)
+                return new AsrRecognizer.Result(RESPONSE_ERROR);
+            return recognizer.parseResponse(con);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new AsrRecognizer.Result(IO_CONNECTION_ERROR);
         }
+    }
 
-        private HttpURLConnection createUrlRequest(AudioBuffer buffer)
-                throws IOException {
-            HttpURLConnection con = (HttpURLConnection) new URL(ASR_URL+mKey.getKey()).openConnection();
-            con.setDefaultUseCaches(false);
-            con.setConnectTimeout(IO_TIMEOUT_MS);
-            con.setReadTimeout(IO_TIMEOUT_MS);
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Content-Type", "audio/l16; rate="+buffer.getSamplingRate());
-            con.setDoInput(true);
-            con.setDoOutput(true);
-            con.setChunkedStreamingMode(0);
-            con.setInstanceFollowRedirects(true);
-
-            return con;
-        }
+    private class UploadMessageTask extends AsyncTask<AudioBuffer,Void,AsrRecognizer.Result> {
 
         private void appendData(HttpURLConnection con, AudioBuffer buffer) throws IOException {
             OutputStream os = con.getOutputStream();
@@ -133,51 +133,24 @@ public class AsrAsyncRequest {
             os.close();
         }
 
-        private boolean hasCorrectResponse(HttpURLConnection conn) throws IOException {
-            return conn.getResponseCode()==HttpURLConnection.HTTP_OK;
-        }
-
-        private AsrResult extractBestAnswer(HttpURLConnection con){
-            AsrResponseParser parser;
-            try {
-                parser = new AsrResponseParser(con.getInputStream());
-            } catch (IOException e) {
-                e.printStackTrace();
-                return new AsrResult(IO_CONNECTION_ERROR);
-            } catch (JSONException e) {
-                e.printStackTrace();
-                return new AsrResult(NOT_RECOGNIZED);
-            }
-
-            if(parser.getTranscript()==null || parser.getConfidence()<MIN_CONFIDENCE)
-                return new AsrResult(NOT_RECOGNIZED);
-            else
-                return new AsrResult(NO_ERROR,parser.getTranscript());
-
-        }
-
         @Override
-        protected AsrResult doInBackground(AudioBuffer... params) {
+        protected AsrRecognizer.Result doInBackground(AudioBuffer... params) {
             AudioBuffer buffer = params[0];
             HttpURLConnection con;
             try {
-                con = createUrlRequest(buffer);
+                con = mRecognizer.createRequest(buffer.getSamplingRate());
                 appendData(con, buffer);
                 con.connect();
-                if(hasCorrectResponse(con)){
-                    return extractBestAnswer(con);
-                }else{
-                    return new AsrResult(RESPONSE_ERROR);
-                }
+                return readResult(mRecognizer,con);
             } catch (IOException e) {
                 e.printStackTrace();
-                return new AsrResult(IO_CONNECTION_ERROR);
+                return new AsrRecognizer.Result(IO_CONNECTION_ERROR);
             }
         }
 
         @Override
-        protected void onPostExecute(AsrResult s) {
-            mCallback.onRequestRespond(s.status,s.result);
+        protected void onPostExecute(AsrRecognizer.Result s) {
+            mCallback.onRequestRespond(s.status,s.transcript);
         }
 
         @Override
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017  STMicroelectronics – All rights reserved
+ * The STMicroelectronics corporate logo is a trademark of STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions
+ *   and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of
+ *   conditions and the following disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name nor trademarks of STMicroelectronics International N.V. nor any other
+ *   STMicroelectronics company nor the names of its contributors may be used to endorse or
+ *   promote products derived from this software without specific prior written permission.
+ *
+ * - All of the icons, pictures, logos and other images that are provided with the source code
+ *   in a directory whose title begins with st_images may only be used for internal purposes and
+ *   shall not be redistributed to any third party or modified in any way.
+ *
+ * - Any redistributions in binary form shall not include the capability to display any of the
+ *   icons, pictures, logos and other images that are provided with the source code in a directory
+ *   whose title begins with st_images.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ */
+package com.st.BlueMS.demos.util.bluevoice;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Service that converts the audio in text: it creates the http request where the audio is
+ * posted and reads the text from the response.
+ */
+public interface AsrRecognizer {
+
+    /**
+     * result of the recognition
+     */
+    class Result {
+        public final @AsrAsyncRequest.Status int status;
+        public final @Nullable String transcript;
+
+        public Result(@AsrAsyncRequest.Status int status, @Nullable String transcript){
+            this.status = status;
+            this.transcript = transcript;
+        }
+
+        public Result(@AsrAsyncRequest.Status int status){
+            this(status,null);
+        }
+    }
+
+    /**
+     * create the request where post the audio, the request must use the chunked streaming mode
+     * @param samplingRate sampling rate of the audio, sent as 16 bit little endian PCM
+     * @return request not connected
+     * @throws IOException if the request can't be created
+     */
+    HttpURLConnection createRequest(int samplingRate) throws IOException;
+
+    /**
+     * read the text from the response, it is called only if the response code is HTTP_OK
+     * @param request request where the audio was posted
+     * @return recognized text or the error status
+     * @throws IOException if the response can't be read
+     */
+    Result parseResponse(HttpURLConnection request) throws IOException;
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017  STMicroelectronics – All rights reserved
+ * The STMicroelectronics corporate logo is a trademark of STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions
+ *   and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of
+ *   conditions and the following disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name nor trademarks of STMicroelectronics International N.V. nor any other
+ *   STMicroelectronics company nor the names of its contributors may be used to endorse or
+ *   promote products derived from this software without specific prior written permission.
+ *
+ * - All of the icons, pictures, logos and other images that are provided with the source code
+ *   in a directory whose title begins with st_images may only be used for internal purposes and
+ *   shall not be redistributed to any third party or modified in any way.
+ *
+ * - Any redistributions in binary form shall not include the capability to display any of the
+ *   icons, pictures, logos and other images that are provided with the source code in a directory
+ *   whose title begins with st_images.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ */
+package com.st.BlueMS.demos.util.bluevoice;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Request that sends the audio to the recognizer while it is recorded.
+ * <p>
+ * The request is opened by {@link #start()}, the audio passed to
+ * {@link #append(short[], int, int)} is converted in 16 bit little endian chunks that an upload
+ * thread writes in the request body. When {@link #finish()} is called the last chunk is sent, the
+ * body is closed and the response is read, so the result arrives after the recognition time
+ * without waiting the upload of the whole audio.
+ * </p>
+ * The callback methods are called by the upload thread.
+ */
+public class AsrStreamingRequest {
+
+    /** audio sent with a single write: 100ms */
+    private static final int CHUNKS_PER_SECOND = 10;
+
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    /** chunk that closes the request body */
+    private static final byte END_OF_AUDIO[] = new byte[0];
+
+    private final AsrRecognizer mRecognizer;
+    private final int mSamplingRate;
+    private final AsrAsyncRequest.AsrAsyncRequestCallback mCallback;
+
+    private final BlockingQueue<byte[]> mChunks = new LinkedBlockingQueue<>();
+    private final int mChunkSize;
+    private ByteBuffer mCurrentChunk;
+    private boolean mIsFinished;
+    /** true when the upload thread doesn't read the chunks anymore */
+    private volatile boolean mIsClosed;
+
+    private Thread mUploadThread;
+
+    /**
+     * @param recognizer service that converts the audio in text
+     * @param samplingRate sampling rate of the audio
+     * @param callback object notified when the audio is sent and when the response arrives
+     */
+    public AsrStreamingRequest(AsrRecognizer recognizer, int samplingRate,
+                               AsrAsyncRequest.AsrAsyncRequestCallback callback){
+        mRecognizer = recognizer;
+        mSamplingRate = samplingRate;
+        mCallback = callback;
+        mChunkSize = Math.max(1,samplingRate/CHUNKS_PER_SECOND)*BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * open the request in a new thread
+     */
+    public synchronized void start(){
+        if(mUploadThread!=null)
+            return;
+        mUploadThread = new UploadThread();
+        mUploadThread.start();
+    }
+
+    /**
+     * add audio to the request, it doesn't block: the audio is sent by the upload thread
+     * @param data audio samples
+     * @param offset index of the first sample
+     * @param length number of samples
+     */
+    public synchronized void append(short data[], int offset, int length){
+        if(mIsFinished || mIsClosed)
+            return;
+        for(int i=0;i<length;i++){
+            if(mCurrentChunk==null)
+                mCurrentChunk = ByteBuffer.allocate(mChunkSize).order(ByteOrder.LITTLE_ENDIAN);
+            mCurrentChunk.putShort(data[offset+i]);
+            if(!mCurrentChunk.hasRemaining())
+                sendCurrentChunk();
+        }//for
+    }
+
+    private void sendCurrentChunk(){
+        if(mCurrentChunk==null || mCurrentChunk.position()==0)
+            return;
+        byte chunk[] = mCurrentChunk.array();
+        if(mCurrentChunk.hasRemaining()) {
+            chunk = new byte[mCurrentChunk.position()];
+            System.arraycopy(mCurrentChunk.array(),0,chunk,0,chunk.length);
+        }
+        mChunks.offer(chunk);
+        mCurrentChunk=null;
+    }
+
+    /**
+     * send the remaining audio and close the request body, the audio appended after this call is
+     * ignored
+     */
+    public synchronized void finish(){
+        if(mIsFinished)
+            return;
+        mIsFinished=true;
+        sendCurrentChunk();
+        mChunks.offer(END_OF_AUDIO);
+    }
+
+    /**
+     * stop the request without notify the result
+     */
+    public synchronized void cancel(){
+        mIsFinished=true;
+        if(mUploadThread!=null)
+            mUploadThread.interrupt();
+    }
+
+    /**
+     * thread that writes the chunks in the request and reads the response
+     */
+    private class UploadThread extends Thread{
+
+        UploadThread(){
+            super("AsrStreamingRequest");
+        }
+
+        @Override
+        public void run() {
+            HttpURLConnection con = null;
+            AsrRecognizer.Result result;
+            try {
+                con = mRecognizer.createRequest(mSamplingRate);
+                OutputStream os = con.getOutputStream();
+                byte chunk[];
+                while ((chunk = mChunks.take()) != END_OF_AUDIO) {
+                    os.write(chunk);
+                    //send the chunk now, without wait the next one
+                    os.flush();
+                }//while
+                os.close();
+                mCallback.onRequestSend();
+                result = AsrAsyncRequest.readResult(mRecognizer,con);
+            } catch (IOException e) {
+                e.printStackTrace();
+                result = new AsrRecognizer.Result(AsrAsyncRequest.IO_CONNECTION_ERROR);
+            } catch (InterruptedException e) {
+                //request canceled
+                return;
+            } finally {
+                mIsClosed=true;
+                mChunks.clear();
+                if(con!=null)
+                    con.disconnect();
+            }
+            if(!isInterrupted())
+                mCallback.onRequestRespond(result.status,result.transcript);
+        }
+    }//UploadThread
+
+}
@@ -39,19 +39,76 @@ package com.st.BlueMS.demos.util.bluevoice;
 
 import android.media.AudioTrack;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 
+/**
+ * Buffer where record the audio, the samples are stored in chunks allocated when the previous
+ * one is full.
+ * <p>
+ * The chunks contain the samples already in little endian order, so the audio is written as
+ * PCM or WAV with a bulk write for each chunk. For long recordings the buffer can move the
+ * chunks in a memory mapped file after a maximum memory length: if the file can't be mapped the
+ * audio is kept in memory.
+ * </p>
+ * The samples appended after the max length are dropped and counted in
+ * {@link #getDroppedSamples()}.
+ */
 public class AudioBuffer {
 
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    /** samples in each chunk */
+    private static final int CHUNK_LENGTH = 4096;
+    private static final int CHUNK_SIZE = CHUNK_LENGTH*BYTES_PER_SAMPLE;
+
+    private static final int WAV_HEADER_SIZE = 44;
+
     private int mSamplingRate;
+    private final int mMaxLength;
 
-    private short mData[];
+    /** little endian chunks, all full except the last one */
+    private final ArrayList<ByteBuffer> mChunks = new ArrayList<>();
+    /** view of the last chunk where append the samples */
+    private ShortBuffer mLastChunk;
     private int mLastWriteData;
+    private long mDroppedSamples;
 
+    private final File mSpillFile;
+    private final int mMaxMemoryLength;
+    private RandomAccessFile mSpill;
+    private int mNSpilledChunks;
+
+    /**
+     * create a buffer that keeps all the audio in memory
+     * @param samplingRate audio sampling rate, in Hz
+     * @param maxLengthSec max audio length, in seconds
+     */
     public AudioBuffer(int samplingRate, int maxLengthSec){
+        this(samplingRate,maxLengthSec,null,0);
+    }
+
+    /**
+     * create a buffer that moves the audio in a file after a max memory length, the file is
+     * deleted by {@link #release()}
+     * @param samplingRate audio sampling rate, in Hz
+     * @param maxLengthSec max audio length, in seconds
+     * @param spillFile file where store the audio that doesn't stay in memory, null for keep all
+     *                  the audio in memory
+     * @param maxMemorySec seconds of audio kept in memory before using the file
+     */
+    public AudioBuffer(int samplingRate, int maxLengthSec, File spillFile, int maxMemorySec){
         mSamplingRate=samplingRate;
-        mData = new short[samplingRate*maxLengthSec];
+        mMaxLength = samplingRate*maxLengthSec;
+        mSpillFile = spillFile;
+        mMaxMemoryLength = samplingRate*maxMemorySec;
         mLastWriteData=0;
     }
 
@@ -60,34 +117,175 @@ public class AudioBuffer {
     }
 
     public int append(short data[]){
+        return append(data,0,data.length);
+    }
+
+    /**
+     * add samples at the end of the buffer
+     * @param data audio samples
+     * @param offset index of the first sample to add
+     * @param length number of samples to add
+     * @return number of samples in the buffer
+     */
+    public int append(short data[], int offset, int length){
         synchronized (this) {
-            int size = Math.min(mData.length - mLastWriteData, data.length);
-            System.arraycopy(data, 0, mData, mLastWriteData, size);
+            int size = Math.min(mMaxLength - mLastWriteData, length);
+            mDroppedSamples += length-size;
+            int copied = 0;
+            while(copied<size){
+                if(mLastChunk==null || !mLastChunk.hasRemaining())
+                    mLastChunk = newChunk();
+                int n = Math.min(size-copied,mLastChunk.remaining());
+                mLastChunk.put(data, offset+copied, n);
+                copied+=n;
+            }//while
             mLastWriteData += size;
             return mLastWriteData;
         }
     }
 
+    /**
+     * allocate a new chunk in memory or in the spill file
+     * @return view of the chunk where write the samples
+     */
+    private ShortBuffer newChunk(){
+        ByteBuffer chunk = null;
+        if(mSpillFile!=null && mLastWriteData>=mMaxMemoryLength){
+            try {
+                chunk = mapChunk();
+            } catch (IOException e) {
+                //keep the audio in memory
+                chunk = null;
+            }
+        }//if
+        if(chunk==null)
+            chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        mChunks.add(chunk);
+        return chunk.asShortBuffer();
+    }
+
+    private ByteBuffer mapChunk() throws IOException {
+        if(mSpill==null)
+            mSpill = new RandomAccessFile(mSpillFile,"rw");
+        ByteBuffer chunk = mSpill.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                (long)mNSpilledChunks*CHUNK_SIZE,CHUNK_SIZE);
+        mNSpilledChunks++;
+        return chunk;
+    }
 
     public boolean isFull() {
-        return mData.length==mLastWriteData;
+        return mMaxLength==mLastWriteData;
     }
 
     public int getBufferLength() {
-        return mData.length;
+        return mMaxLength;
+    }
+
+    /**
+     * @return number of samples in the buffer
+     */
+    public synchronized int getLength(){
+        return mLastWriteData;
+    }
+
+    /**
+     * @return number of samples not stored because the buffer was full
+     */
+    public synchronized long getDroppedSamples(){
+        return mDroppedSamples;
     }
 
+    /**
+     * @return number of chunks stored in the spill file
+     */
+    public synchronized int getNSpilledChunks(){
+        return mNSpilledChunks;
+    }
+
+    /**
+     * write the audio as 16 bit little endian PCM, with a write for each chunk
+     * @param out stream where write the audio
+     * @throws IOException if an error happen writing the stream
+     */
     public void writeLittleEndianTo(OutputStream out) throws IOException {
         synchronized (this) {
-            for (int i = 0; i < mLastWriteData; i++) {
-                short temp = mData[i];
-                out.write(temp & 0x00FF);
-                out.write(temp >> 8);
-            }
+            byte copy[] = null;
+            int remaining = mLastWriteData*BYTES_PER_SAMPLE;
+            for(ByteBuffer chunk : mChunks){
+                int size = Math.min(remaining,CHUNK_SIZE);
+                if(chunk.hasArray()) {
+                    out.write(chunk.array(), chunk.arrayOffset(), size);
+                }else{
+                    //mapped chunk
+                    if(copy==null)
+                        copy = new byte[CHUNK_SIZE];
+                    ByteBuffer data = chunk.duplicate();
+                    data.clear();
+                    data.get(copy,0,size);
+                    out.write(copy,0,size);
+                }
+                remaining-=size;
+            }//for
+        }
+    }
+
+    /**
+     * write the audio as a WAV file: a 44 bytes header followed by the 16 bit PCM data
+     * @param out stream where write the audio
+     * @throws IOException if an error happen writing the stream
+     */
+    public void writeWavTo(OutputStream out) throws IOException {
+        synchronized (this) {
+            int dataSize = mLastWriteData*BYTES_PER_SAMPLE;
+            ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.put(new byte[]{'R','I','F','F'})
+                    .putInt(WAV_HEADER_SIZE-8+dataSize)
+                    .put(new byte[]{'W','A','V','E','f','m','t',' '})
+                    .putInt(16) // format chunk size
+                    .putShort((short) 1) // PCM
+                    .putShort((short) 1) // mono
+                    .putInt(mSamplingRate)
+                    .putInt(mSamplingRate*BYTES_PER_SAMPLE) // byte rate
+                    .putShort((short) BYTES_PER_SAMPLE) // block align
+                    .putShort((short) (8*BYTES_PER_SAMPLE)) // bits per sample
+                    .put(new byte[]{'d','a','t','a'})
+                    .putInt(dataSize);
+            out.write(header.array());
+            writeLittleEndianTo(out);
         }
     }
 
     synchronized public void writeTo(AudioTrack out){
-        out.write(mData,0,mLastWriteData);
+        short copy[] = new short[Math.min(mLastWriteData,CHUNK_LENGTH)];
+        int remaining = mLastWriteData;
+        for(ByteBuffer chunk : mChunks){
+            int size = Math.min(remaining,CHUNK_LENGTH);
+            chunk.asShortBuffer().get(copy,0,size);
+            out.write(copy,0,size);
+            remaining-=size;
+        }//for
+    }
+
+    /**
+     * remove the audio and delete the spill file
+     */
+    public synchronized void release(){
+        mChunks.clear();
+        mLastChunk=null;
+        mLastWriteData=0;
+        mNSpilledChunks=0;
+        if(mSpill!=null){
+            try {
+                mSpill.close();
+            } catch (IOException e) {
+                //the file is deleted anyway
+            }
+            mSpill=null;
+        }//if
+        if(mSpillFile!=null)
+            //noinspection ResultOfMethodCallIgnored
+            mSpillFile.delete();
     }
 }
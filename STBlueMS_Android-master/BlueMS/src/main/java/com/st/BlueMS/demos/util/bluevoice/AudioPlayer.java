@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017  STMicroelectronics – All rights reserved
+ * The STMicroelectronics corporate logo is a trademark of STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions
+ *   and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of
+ *   conditions and the following disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name nor trademarks of STMicroelectronics International N.V. nor any other
+ *   STMicroelectronics company nor the names of its contributors may be used to endorse or
+ *   promote products derived from this software without specific prior written permission.
+ *
+ * - All of the icons, pictures, logos and other images that are provided with the source code
+ *   in a directory whose title begins with st_images may only be used for internal purposes and
+ *   shall not be redistributed to any third party or modified in any way.
+ *
+ * - Any redistributions in binary form shall not include the capability to display any of the
+ *   icons, pictures, logos and other images that are provided with the source code in a directory
+ *   whose title begins with st_images.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ */
+
+package com.st.BlueMS.demos.util.bluevoice;
+
+import android.media.AudioTrack;
+import android.os.Process;
+
+import com.st.BlueSTSDK.Utils.AudioJitterBuffer;
+
+/**
+ * Play the audio received from the node: the decoded frames are put in a jitter buffer by the
+ * thread that receives them and a dedicated thread with audio priority moves them in the
+ * AudioTrack, concealing the frames that are lost or arrive too late.
+ * The playback thread writes a frame each time the AudioTrack has space for it, so the audio
+ * output gives the timing and the latency added by the jitter buffer is at most the max latency.
+ */
+public class AudioPlayer {
+
+    private final AudioTrack mAudioTrack;
+    private final AudioJitterBuffer mBuffer;
+
+    private PlaybackThread mPlaybackThread;
+
+    /**
+     * @param audioTrack audio track in streaming mode, where play the audio
+     * @param samplingFreq audio sampling frequency, in Hz
+     * @param frameLength number of samples received in each frame
+     * @param maxLatencyMs max time that a frame waits before being played, in milliseconds
+     */
+    public AudioPlayer(AudioTrack audioTrack, int samplingFreq, int frameLength,
+                       int maxLatencyMs){
+        mAudioTrack = audioTrack;
+        mBuffer = new AudioJitterBuffer(samplingFreq,frameLength,maxLatencyMs);
+    }
+
+    /**
+     * add a frame to play, it uses the current time as arrival time of the frame
+     * @param data audio samples, the frame length samples are read
+     * @param offset index of the first sample
+     * @param isResync true if the frame was decoded after a new synchronization of the decoder
+     */
+    public void write(short data[], int offset, boolean isResync){
+        mBuffer.put(data,offset,System.nanoTime(),isResync);
+    }
+
+    /**
+     * discard the frames not yet played and restart the arrival time estimation, it must be
+     * called before writing the frames of a stream that was interrupted
+     */
+    public void restartStream(){
+        mBuffer.reset();
+    }
+
+    /**
+     * start the audio track and the playback thread
+     */
+    public synchronized void start(){
+        if(mPlaybackThread!=null)
+            return;
+        mBuffer.reset();
+        mAudioTrack.play();
+        mPlaybackThread = new PlaybackThread();
+        mPlaybackThread.start();
+    }
+
+    /**
+     * stop the playback thread and the audio track, the samples not played are discarded
+     */
+    public synchronized void stop(){
+        if(mPlaybackThread==null)
+            return;
+        mPlaybackThread.interrupt();
+        try {
+            mPlaybackThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mPlaybackThread=null;
+        mAudioTrack.pause();
+        mAudioTrack.flush();
+        mBuffer.reset();
+    }
+
+    /**
+     * thread that moves the frames from the jitter buffer to the audio track
+     */
+    private class PlaybackThread extends Thread{
+
+        private final short mFrame[] = new short[mBuffer.getFrameLength()];
+
+        PlaybackThread(){
+            super("AudioPlayer");
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+            while(!isInterrupted()){
+                //if there are no frames it returns the concealed audio
+                mBuffer.get(mFrame,0);
+                //it blocks when the audio track buffer is full
+                mAudioTrack.write(mFrame,0,mFrame.length);
+            }
+        }
+    }//PlaybackThread
+
+}
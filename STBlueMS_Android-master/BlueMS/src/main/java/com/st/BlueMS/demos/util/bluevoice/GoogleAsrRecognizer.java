@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017  STMicroelectronics – All rights reserved
+ * The STMicroelectronics corporate logo is a trademark of STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions
+ *   and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of
+ *   conditions and the following disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name nor trademarks of STMicroelectronics International N.V. nor any other
+ *   STMicroelectronics company nor the names of its contributors may be used to endorse or
+ *   promote products derived from this software without specific prior written permission.
+ *
+ * - All of the icons, pictures, logos and other images that are provided with the source code
+ *   in a directory whose title begins with st_images may only be used for internal purposes and
+ *   shall not be redistributed to any third party or modified in any way.
+ *
+ * - Any redistributions in binary form shall not include the capability to display any of the
+ *   icons, pictures, logos and other images that are provided with the source code in a directory
+ *   whose title begins with st_images.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ */
+package com.st.BlueMS.demos.util.bluevoice;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Recognizer that uses the Google speech api
+ */
+public class GoogleAsrRecognizer implements AsrRecognizer {
+
+    private static final int IO_TIMEOUT_MS =10000;
+    private static final String ASR_URL ="https://www.google.com/speech-api/v2/recognize" +
+                    "?xjerr=1&client=chromium&lang=en-US&key=";
+    private static final float MIN_CONFIDENCE = 0.75f;
+
+    private GoogleAsrKey mKey;
+
+    public GoogleAsrRecognizer(GoogleAsrKey key){
+        mKey=key;
+    }
+
+    @Override
+    public HttpURLConnection createRequest(int samplingRate) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL(ASR_URL+mKey.getKey()).openConnection();
+        con.setDefaultUseCaches(false);
+        con.setConnectTimeout(IO_TIMEOUT_MS);
+        con.setReadTimeout(IO_TIMEOUT_MS);
+        con.setRequestMethod("POST");
+        con.setRequestProperty("Content-Type", "audio/l16; rate="+samplingRate);
+        con.setDoInput(true);
+        con.setDoOutput(true);
+        con.setChunkedStreamingMode(0);
+        con.setInstanceFollowRedirects(true);
+
+        return con;
+    }
+
+    @Override
+    public Result parseResponse(HttpURLConnection con) throws IOException {
+        AsrResponseParser parser;
+        try {
+            parser = new AsrResponseParser(con.getInputStream());
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return new Result(AsrAsyncRequest.NOT_RECOGNIZED);
+        }
+
+        if(parser.getTranscript()==null || parser.getConfidence()<MIN_CONFIDENCE)
+            return new Result(AsrAsyncRequest.NOT_RECOGNIZED);
+        else
+            return new Result(AsrAsyncRequest.NO_ERROR,parser.getTranscript());
+    }
+}
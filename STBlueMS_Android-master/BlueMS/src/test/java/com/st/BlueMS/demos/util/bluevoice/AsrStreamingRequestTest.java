@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017  STMicroelectronics – All rights reserved
+ * The STMicroelectronics corporate logo is a trademark of STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice, this list of conditions
+ *   and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice, this list of
+ *   conditions and the following disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name nor trademarks of STMicroelectronics International N.V. nor any other
+ *   STMicroelectronics company nor the names of its contributors may be used to endorse or
+ *   promote products derived from this software without specific prior written permission.
+ *
+ * - All of the icons, pictures, logos and other images that are provided with the source code
+ *   in a directory whose title begins with st_images may only be used for internal purposes and
+ *   shall not be redistributed to any third party or modified in any way.
+ *
+ * - Any redistributions in binary form shall not include the capability to display any of the
+ *   icons, pictures, logos and other images that are provided with the source code in a directory
+ *   whose title begins with st_images.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ */
+package com.st.BlueMS.demos.util.bluevoice;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsrStreamingRequestTest {
+
+    private static final int SAMPLING_RATE = 8000;
+
+    /**
+     * recognizer that posts the audio to the local server and returns the response body as
+     * transcript
+     */
+    private static class LocalRecognizer implements AsrRecognizer{
+
+        private final URL mUrl;
+
+        LocalRecognizer(URL url){
+            mUrl = url;
+        }
+
+        @Override
+        public HttpURLConnection createRequest(int samplingRate) throws IOException {
+            HttpURLConnection con = (HttpURLConnection) mUrl.openConnection();
+            con.setRequestMethod("POST");
+            con.setRequestProperty("Content-Type", "audio/l16; rate="+samplingRate);
+            con.setDoInput(true);
+            con.setDoOutput(true);
+            con.setChunkedStreamingMode(0);
+            return con;
+        }
+
+        @Override
+        public Result parseResponse(HttpURLConnection request) throws IOException {
+            InputStream in = request.getInputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte buffer[] = new byte[256];
+            int n;
+            while((n=in.read(buffer))>0)
+                body.write(buffer,0,n);
+            return new Result(AsrAsyncRequest.NO_ERROR,body.toString("UTF-8"));
+        }
+    }
+
+    /**
+     * callback that stores the result
+     */
+    private static class ResultCallback implements AsrAsyncRequest.AsrAsyncRequestCallback{
+
+        final CountDownLatch requestSend = new CountDownLatch(1);
+        final CountDownLatch response = new CountDownLatch(1);
+        volatile int status;
+        volatile String transcript;
+
+        @Override
+        public void onRequestSend() {
+            requestSend.countDown();
+        }
+
+        @Override
+        public void onRequestRespond(@AsrAsyncRequest.Status int status, String response) {
+            this.status = status;
+            this.transcript = response;
+            this.response.countDown();
+        }
+    }
+
+    /**
+     * server that reads the audio and answers with the number of samples and the sum of them
+     */
+    private static class AudioHandler implements HttpHandler{
+
+        final CountDownLatch firstChunkReceived = new CountDownLatch(1);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte buffer[] = new byte[256];
+            int n;
+            while((n=in.read(buffer))>0) {
+                body.write(buffer, 0, n);
+                firstChunkReceived.countDown();
+            }
+            ByteBuffer audio = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+            long sum=0;
+            int nSamples=0;
+            while(audio.remaining()>=2){
+                sum+=audio.getShort();
+                nSamples++;
+            }
+            byte response[] = (nSamples+" "+sum).getBytes("UTF-8");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK,response.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(response);
+            out.close();
+        }
+    }
+
+    private HttpServer mServer;
+    private AudioHandler mHandler;
+    private URL mUrl;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1",0),0);
+        mHandler = new AudioHandler();
+        mServer.createContext("/asr",mHandler);
+        mServer.start();
+        mUrl = new URL("http://127.0.0.1:"+mServer.getAddress().getPort()+"/asr");
+    }
+
+    @After
+    public void stopServer(){
+        mServer.stop(0);
+    }
+
+    private static short[] audioPackage(int value){
+        short data[] = new short[40];
+        for(int i=0;i<data.length;i++)
+            data[i]=(short)value;
+        return data;
+    }
+
+    @Test
+    public void theAudioIsSentBeforeTheRecordingEnds() throws InterruptedException {
+        ResultCallback callback = new ResultCallback();
+        AsrStreamingRequest request = new AsrStreamingRequest(new LocalRecognizer(mUrl),
+                SAMPLING_RATE,callback);
+        request.start();
+        //200ms of audio
+        for(int i=0;i<40;i++)
+            request.append(audioPackage(1),0,40);
+
+        Assert.assertTrue(mHandler.firstChunkReceived.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1,callback.response.getCount());
+
+        request.finish();
+        Assert.assertTrue(callback.response.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0,callback.requestSend.getCount());
+    }
+
+    @Test
+    public void theResponseContainsAllTheAudio() throws InterruptedException {
+        ResultCallback callback = new ResultCallback();
+        AsrStreamingRequest request = new AsrStreamingRequest(new LocalRecognizer(mUrl),
+                SAMPLING_RATE,callback);
+        request.start();
+        //the last chunk is not full
+        for(int i=0;i<25;i++)
+            request.append(audioPackage(i),0,40);
+        request.finish();
+        request.append(audioPackage(1000),0,40);
+
+        Assert.assertTrue(callback.response.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(AsrAsyncRequest.NO_ERROR,callback.status);
+        Assert.assertEquals((25*40)+" "+(40*(24*25/2)),callback.transcript);
+    }
+
+    @Test
+    public void aServerErrorIsNotified() throws InterruptedException {
+        mServer.removeContext("/asr");
+        ResultCallback callback = new ResultCallback();
+        AsrStreamingRequest request = new AsrStreamingRequest(new LocalRecognizer(mUrl),
+                SAMPLING_RATE,callback);
+        request.start();
+        request.append(audioPackage(1),0,40);
+        request.finish();
+
+        Assert.assertTrue(callback.response.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(AsrAsyncRequest.RESPONSE_ERROR,callback.status);
+    }
+
+    @Test
+    public void aConnectionErrorIsNotified() throws InterruptedException {
+        mServer.stop(0);
+        ResultCallback callback = new ResultCallback();
+        AsrStreamingRequest request = new AsrStreamingRequest(new LocalRecognizer(mUrl),
+                SAMPLING_RATE,callback);
+        request.start();
+        request.append(audioPackage(1),0,40);
+        request.finish();
+
+        Assert.assertTrue(callback.response.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(AsrAsyncRequest.IO_CONNECTION_ERROR,callback.status);
+    }
+
+}
@@ -45,16 +45,25 @@ import junit.framework.Assert;
 
 import static org.junit.Assert.*;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 
 public class AudioBufferTest {
 
@@ -101,20 +110,118 @@ public class AudioBufferTest {
         Assert.assertEquals(dataSize,buf.append(new short[0]));
     }
 
+    @Test
+    public void appendWithOffsetCopiesOnlyTheRange() throws IOException {
+        AudioBuffer buf = new AudioBuffer(10,1);
+        Assert.assertEquals(1,buf.append(new short[]{0x0A0B,0x0102,0x0C0D},1,1));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        buf.writeLittleEndianTo(os);
+
+        assertArrayEquals(new byte[]{0x02,0x01},os.toByteArray());
+    }
+
     @Test
     public void writeToExtractTheInsertedData() throws IOException {
         AudioBuffer buf = new AudioBuffer(10,1);
         short data[] = new short[]{0x0102,0x0304};
         buf.append(data);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        buf.writeLittleEndianTo(os);
+
+        assertArrayEquals(new byte[]{0x02,0x01,0x04,0x03},os.toByteArray());
+    }
+
+    @Test
+    public void writeToUsesABulkWriteForEachChunk() throws IOException {
+        AudioBuffer buf = new AudioBuffer(8000,2);
+        short data[] = new short[10000];
+        for(int i=0;i<data.length;i++)
+            data[i]=(short)i;
+        Assert.assertEquals(data.length,buf.append(data));
         OutputStream os = mock(OutputStream.class);
 
         buf.writeLittleEndianTo(os);
 
-        verify(os).write(0x02);
-        verify(os).write(0x01);
+        verify(os,never()).write(anyInt());
+        verify(os,times(3)).write(any(byte[].class),anyInt(),anyInt());
+    }
+
+    @Test
+    public void samplesAreInOrderBetweenChunks() throws IOException {
+        AudioBuffer buf = new AudioBuffer(8000,2);
+        short data[] = new short[100];
+        for(int i=0;i<100;i++){
+            for(int j=0;j<data.length;j++)
+                data[j]=(short)(i*data.length+j);
+            buf.append(data);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        buf.writeLittleEndianTo(os);
+
+        ShortBuffer samples = ByteBuffer.wrap(os.toByteArray()).order(ByteOrder.LITTLE_ENDIAN)
+                .asShortBuffer();
+        Assert.assertEquals(100*data.length,samples.remaining());
+        for(int i=0;i<samples.remaining();i++)
+            Assert.assertEquals((short)i,samples.get(i));
+    }
+
+    @Test
+    public void samplesOverTheMaxLengthAreCounted(){
+        AudioBuffer buf = new AudioBuffer(10,1);
+        buf.append(new short[7]);
+        buf.append(new short[7]);
+        Assert.assertTrue(buf.isFull());
+        Assert.assertEquals(4,buf.getDroppedSamples());
+    }
+
+    @Test
+    public void writeWavAddsTheHeader() throws IOException {
+        AudioBuffer buf = new AudioBuffer(8000,1);
+        buf.append(new short[]{0x0102,0x0304});
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        buf.writeWavTo(os);
+
+        ByteBuffer wav = ByteBuffer.wrap(os.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(48,wav.remaining());
+        Assert.assertEquals("RIFF",new String(os.toByteArray(),0,4,"US-ASCII"));
+        Assert.assertEquals(40,wav.getInt(4));
+        Assert.assertEquals("WAVE",new String(os.toByteArray(),8,4,"US-ASCII"));
+        Assert.assertEquals(1,wav.getShort(22));
+        Assert.assertEquals(8000,wav.getInt(24));
+        Assert.assertEquals(16,wav.getShort(34));
+        Assert.assertEquals("data",new String(os.toByteArray(),36,4,"US-ASCII"));
+        Assert.assertEquals(4,wav.getInt(40));
+        Assert.assertEquals(0x0102,wav.getShort(44));
+        Assert.assertEquals(0x0304,wav.getShort(46));
+    }
+
+    @Test
+    public void theAudioOverTheMemoryLengthIsStoredInTheFile() throws IOException {
+        File spill = File.createTempFile("audio",".pcm");
+        AudioBuffer buf = new AudioBuffer(8000,4,spill,1);
+        short data[] = new short[8000];
+        for(int i=0;i<3;i++){
+            for(int j=0;j<data.length;j++)
+                data[j]=(short)(i*data.length+j);
+            buf.append(data);
+        }
+        Assert.assertTrue(buf.getNSpilledChunks()>0);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        buf.writeLittleEndianTo(os);
+
+        ShortBuffer samples = ByteBuffer.wrap(os.toByteArray()).order(ByteOrder.LITTLE_ENDIAN)
+                .asShortBuffer();
+        Assert.assertEquals(3*data.length,samples.remaining());
+        for(int i=0;i<samples.remaining();i++)
+            Assert.assertEquals((short)i,samples.get(i));
 
-        verify(os).write(0x04);
-        verify(os).write(0x03);
+        buf.release();
+        Assert.assertFalse(spill.exists());
     }
 
 
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+/**
+ * Give to the benchmarks the access to the package protected methods used by the node for
+ * update a feature
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class FeatureBenchmarkAccess {
+
+    /**
+     * parse the data without notify the result, as {@link Feature#extractData(long, byte[], int)}
+     * @param f feature that parses the data
+     * @param timestamp data timestamp
+     * @param data array where read the data
+     * @param dataOffset offset where start to read the data
+     * @return sample built by the feature, can be null
+     */
+    public static Feature.Sample extractData(Feature f, long timestamp, byte data[],
+                                             int dataOffset){
+        return f.extractData(timestamp, data, dataOffset).getNewSample();
+    }
+
+    /**
+     * parse the data and notify the sample to the listeners, as the node does
+     * @param f feature to update
+     * @param timestamp data timestamp
+     * @param data array where read the data
+     * @param dataOffset offset where start to read the data
+     * @return number of read bytes
+     */
+    public static int update(Feature f, long timestamp, byte data[], int dataOffset){
+        return f.update(timestamp, data, dataOffset);
+    }
+
+    //static class
+    private FeatureBenchmarkAccess(){}
+
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import com.st.BlueSTSDK.Utils.ADPCMEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode speed of the {@link ADPCMEngine}, each operation decodes an audio package of 20 bytes
+ * into 40 samples, as done by the audio feature for each notification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ADPCMEngineBenchmark {
+
+    /** number of audio packages used by the benchmark */
+    private static final int N_PACKAGE = 64;
+
+    /** size of an audio package */
+    private static final int PACKAGE_SIZE = 20;
+
+    private ADPCMEngine mEngine;
+
+    private byte mPackages[][];
+
+    private int mNextPackage;
+
+    /** samples decoded from the last package */
+    private short mSamples[];
+
+    /** samples decoded from the last package, stored as the feature does */
+    private long mLongSamples[];
+
+    @Setup
+    public void createData(){
+        mEngine = new ADPCMEngine();
+        Random rnd = new Random(42);
+        mPackages = new byte[N_PACKAGE][PACKAGE_SIZE];
+        for(byte pkg[] : mPackages)
+            rnd.nextBytes(pkg);
+        mSamples = new short[PACKAGE_SIZE*2];
+        mLongSamples = new long[PACKAGE_SIZE*2];
+    }
+
+    private byte[] nextPackage(){
+        byte pkg[] = mPackages[mNextPackage];
+        mNextPackage = (mNextPackage+1) % N_PACKAGE;
+        return pkg;
+    }
+
+    /**
+     * decode into a reused array
+     */
+    @Benchmark
+    public short[] decodePackage(){
+        byte data[] = nextPackage();
+        for (int i=0; i<PACKAGE_SIZE; i++) {
+            mSamples[2*i] = mEngine.decode((byte)(data[i] & 0x0F));
+            mSamples[(2*i)+1] = mEngine.decode((byte)((data[i] >> 4) & 0x0F));
+        }
+        return mSamples;
+    }
+
+    /**
+     * decode the whole package into a reused array, as done by the audio feature
+     */
+    @Benchmark
+    public short[] decodePackageBulk(){
+        mEngine.decode(nextPackage(),0,PACKAGE_SIZE,mSamples,0);
+        return mSamples;
+    }
+
+    /**
+     * decode into a new long array, as done by the audio feature before the audio listener
+     */
+    @Benchmark
+    public long[] decodePackageNewArray(){
+        byte data[] = nextPackage();
+        long samples[] = new long[PACKAGE_SIZE*2];
+        for (int i=0; i<PACKAGE_SIZE; i++) {
+            samples[2*i] = mEngine.decode((byte)(data[i] & 0x0F));
+            samples[(2*i)+1] = mEngine.decode((byte)((data[i] >> 4) & 0x0F));
+        }
+        return samples;
+    }
+
+}
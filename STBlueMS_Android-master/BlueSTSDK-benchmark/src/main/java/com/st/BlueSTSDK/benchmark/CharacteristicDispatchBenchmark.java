@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding the object that handles a characteristic notification, as the node exposes
+ * more characteristics.
+ * <p>The node routes the notifications with a map keyed by the characteristic UUID (the
+ * CharacteristicRouter of the android module, that can't be used here): the benchmark builds the
+ * same map and compares it with the linear scan that was done before, where each notification
+ * compared its UUID with all the known characteristics.</p>
+ * <p>Each operation dispatches a notification of the next characteristic, the UUIDs are new
+ * objects as the ones built by the transport callbacks, so the lookup can not use the identity.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharacteristicDispatchBenchmark {
+
+    /** uuid of the feature characteristics, without the feature mask */
+    private static final String FEATURE_UUID_FORMAT = "%08x-0001-11e1-ac36-0002a5d5c51b";
+
+    /** object that handles the characteristic data, it counts the notifications */
+    private static class Handler{
+        long nChanged;
+
+        void onChanged(UUID characteristic, byte value[]){
+            nChanged++;
+        }
+    }//Handler
+
+    /** characteristic and its handler, as the list scanned before the router */
+    private static class CharHandler{
+        final UUID uuid;
+        final Handler handler;
+
+        CharHandler(UUID uuid, Handler handler) {
+            this.uuid = uuid;
+            this.handler = handler;
+        }
+    }//CharHandler
+
+    /** number of characteristics exported by the node */
+    @Param({"1", "4", "16", "64", "256"})
+    public int nCharacteristic;
+
+    private Map<UUID,Handler> mRouter;
+
+    private List<CharHandler> mCharList;
+
+    /** uuids notified by the node, one for each characteristic */
+    private UUID mNotified[];
+
+    private int mNextNotified;
+
+    private final byte mValue[] = new byte[20];
+
+    @Setup
+    public void buildIndex(){
+        mRouter = new HashMap<>();
+        mCharList = new ArrayList<>(nCharacteristic);
+        mNotified = new UUID[nCharacteristic];
+        for(int i=0;i<nCharacteristic;i++){
+            UUID uuid = UUID.fromString(String.format(FEATURE_UUID_FORMAT,i+1));
+            Handler handler = new Handler();
+            mRouter.put(uuid,handler);
+            mCharList.add(new CharHandler(uuid,handler));
+            mNotified[i] = new UUID(uuid.getMostSignificantBits(),uuid.getLeastSignificantBits());
+        }//for
+        mNextNotified=0;
+    }
+
+    private UUID nextNotified(){
+        UUID uuid = mNotified[mNextNotified];
+        mNextNotified = (mNextNotified+1) % mNotified.length;
+        return uuid;
+    }
+
+    /**
+     * one lookup in the uuid index, as the node does
+     */
+    @Benchmark
+    public boolean router(){
+        UUID characteristic = nextNotified();
+        Handler handler = mRouter.get(characteristic);
+        if(handler==null)
+            return false;
+        handler.onChanged(characteristic,mValue);
+        return true;
+    }
+
+    /**
+     * scan all the characteristics, as the node did before the router
+     */
+    @Benchmark
+    public boolean linearScan(){
+        UUID characteristic = nextNotified();
+        boolean found = false;
+        for(CharHandler charHandler : mCharList){
+            if(charHandler.uuid.equals(characteristic)){
+                charHandler.handler.onChanged(characteristic,mValue);
+                found = true;
+            }//if
+        }//for
+        return found;
+    }
+
+}
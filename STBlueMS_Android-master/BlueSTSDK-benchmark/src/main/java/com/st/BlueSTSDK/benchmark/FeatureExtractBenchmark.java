@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.FeatureBenchmarkAccess;
+import com.st.BlueSTSDK.FeatureNode;
+import com.st.BlueSTSDK.Features.FeatureAcceleration;
+import com.st.BlueSTSDK.Features.FeatureActivity;
+import com.st.BlueSTSDK.Features.FeatureBattery;
+import com.st.BlueSTSDK.Features.FeatureCarryPosition;
+import com.st.BlueSTSDK.Features.FeatureCompass;
+import com.st.BlueSTSDK.Features.FeatureDirectionOfArrival;
+import com.st.BlueSTSDK.Features.FeatureFreeFall;
+import com.st.BlueSTSDK.Features.FeatureGyroscope;
+import com.st.BlueSTSDK.Features.FeatureHumidity;
+import com.st.BlueSTSDK.Features.FeatureLuminosity;
+import com.st.BlueSTSDK.Features.FeatureMagnetometer;
+import com.st.BlueSTSDK.Features.FeatureMemsGesture;
+import com.st.BlueSTSDK.Features.FeatureMemsSensorFusion;
+import com.st.BlueSTSDK.Features.FeatureMicLevel;
+import com.st.BlueSTSDK.Features.FeatureMotionIntensity;
+import com.st.BlueSTSDK.Features.FeaturePedometer;
+import com.st.BlueSTSDK.Features.FeaturePressure;
+import com.st.BlueSTSDK.Features.FeatureProximity;
+import com.st.BlueSTSDK.Features.FeatureProximityGesture;
+import com.st.BlueSTSDK.Features.FeatureSwitch;
+import com.st.BlueSTSDK.Features.FeatureTemperature;
+import com.st.BlueSTSDK.Features.standardCharacteristics.FeatureHeartRate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing speed of the features, each operation extracts a sample from a notification payload
+ * without notify it. The payload has the size sent by the node for that feature.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureExtractBenchmark {
+
+    @Param({"Acceleration", "Activity", "Battery", "CarryPosition", "Compass",
+            "DirectionOfArrival", "FreeFall", "Gyroscope", "HeartRate", "Humidity", "Luminosity",
+            "Magnetometer", "MemsGesture", "MemsSensorFusion", "MicLevel", "MotionIntensity",
+            "Pedometer", "Pressure", "Proximity", "ProximityGesture", "Switch", "Temperature"})
+    public String feature;
+
+    private Feature mFeature;
+
+    /** notification payload, without the timestamp */
+    private byte mData[];
+
+    private long mTimestamp;
+
+    /**
+     * build the feature to test and a random payload of the size that it parses
+     */
+    @Setup
+    public void createFeature(){
+        FeatureNode node = new BenchmarkNode();
+        int payloadSize;
+        switch (feature){
+            case "Acceleration":
+                mFeature = new FeatureAcceleration(node);
+                payloadSize = 6;
+                break;
+            case "Activity":
+                mFeature = new FeatureActivity(node);
+                payloadSize = 1;
+                break;
+            case "Battery":
+                mFeature = new FeatureBattery(node);
+                payloadSize = 7;
+                break;
+            case "CarryPosition":
+                mFeature = new FeatureCarryPosition(node);
+                payloadSize = 1;
+                break;
+            case "Compass":
+                mFeature = new FeatureCompass(node);
+                payloadSize = 2;
+                break;
+            case "DirectionOfArrival":
+                mFeature = new FeatureDirectionOfArrival(node);
+                payloadSize = 2;
+                break;
+            case "FreeFall":
+                mFeature = new FeatureFreeFall(node);
+                payloadSize = 1;
+                break;
+            case "Gyroscope":
+                mFeature = new FeatureGyroscope(node);
+                payloadSize = 6;
+                break;
+            case "HeartRate":
+                mFeature = new FeatureHeartRate(node);
+                payloadSize = 7;
+                break;
+            case "Humidity":
+                mFeature = new FeatureHumidity(node);
+                payloadSize = 2;
+                break;
+            case "Luminosity":
+                mFeature = new FeatureLuminosity(node);
+                payloadSize = 2;
+                break;
+            case "Magnetometer":
+                mFeature = new FeatureMagnetometer(node);
+                payloadSize = 6;
+                break;
+            case "MemsGesture":
+                mFeature = new FeatureMemsGesture(node);
+                payloadSize = 1;
+                break;
+            case "MemsSensorFusion":
+                mFeature = new FeatureMemsSensorFusion(node);
+                payloadSize = 16;
+                break;
+            case "MicLevel":
+                mFeature = new FeatureMicLevel(node);
+                payloadSize = 2;
+                break;
+            case "MotionIntensity":
+                mFeature = new FeatureMotionIntensity(node);
+                payloadSize = 1;
+                break;
+            case "Pedometer":
+                mFeature = new FeaturePedometer(node);
+                payloadSize = 6;
+                break;
+            case "Pressure":
+                mFeature = new FeaturePressure(node);
+                payloadSize = 4;
+                break;
+            case "Proximity":
+                mFeature = new FeatureProximity(node);
+                //the feature reads an UInt32 and reports 5 read bytes
+                payloadSize = 5;
+                break;
+            case "ProximityGesture":
+                mFeature = new FeatureProximityGesture(node);
+                payloadSize = 1;
+                break;
+            case "Switch":
+                mFeature = new FeatureSwitch(node);
+                payloadSize = 1;
+                break;
+            case "Temperature":
+                mFeature = new FeatureTemperature(node);
+                payloadSize = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown feature: "+feature);
+        }//switch
+        mData = new byte[payloadSize];
+        new Random(42).nextBytes(mData);
+        if(mFeature instanceof FeatureHeartRate)
+            //16 bit heart rate, energy expended and RR interval: the longest payload
+            mData[0] = 0x19;
+        mTimestamp = 0;
+    }
+
+    @Benchmark
+    public Feature.Sample extractData(){
+        return FeatureBenchmarkAccess.extractData(mFeature, mTimestamp++, mData, 0);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.FeatureBenchmarkAccess;
+import com.st.BlueSTSDK.FeatureDispatcher;
+import com.st.BlueSTSDK.Features.FeatureAcceleration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a feature update as done by the node: the data are parsed, the sample is queued in
+ * the feature dispatcher and notified to all the listeners.
+ * <p>the dispatcher runs the listeners in the benchmark thread, in this way each operation
+ * measures the whole notification path and no update is dropped</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureUpdateBenchmark {
+
+    /** executor that runs the dispatcher task in the caller thread */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    @Param({"1", "2", "4", "8"})
+    public int nListener;
+
+    private Feature mFeature;
+
+    /** accelerometer payload: 3 Int16 values */
+    private byte mData[];
+
+    private long mTimestamp;
+
+    /** last sample received by each listener, so the notification can not be removed */
+    private Feature.Sample mLastSample[];
+
+    @Setup
+    public void createFeature(){
+        FeatureDispatcher.setExecutor(DIRECT_EXECUTOR);
+        mFeature = new FeatureAcceleration(new BenchmarkNode());
+        mLastSample = new Feature.Sample[nListener];
+        for(int i=0;i<nListener;i++){
+            final int listenerIndex = i;
+            mFeature.addFeatureListener(new Feature.FeatureListener() {
+                @Override
+                public void onUpdate(Feature f, Feature.Sample sample) {
+                    mLastSample[listenerIndex] = sample;
+                }
+            });
+        }//for
+        mData = new byte[6];
+        new Random(42).nextBytes(mData);
+        mTimestamp = 0;
+    }
+
+    @TearDown
+    public void restoreExecutor(){
+        FeatureDispatcher.setExecutor(null);
+    }
+
+    @Benchmark
+    public int update(){
+        return FeatureBenchmarkAccess.update(mFeature, mTimestamp++, mData, 0);
+    }
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import com.st.BlueSTSDK.Utils.NumberConversion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode and encode speed of the {@link NumberConversion} functions, used by all the features
+ * for parse the node data. Each operation decodes a single value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberConversionBenchmark {
+
+    /** number of value decoded by each benchmark call */
+    private static final int N_VALUE = 256;
+
+    /** raw data to decode, it contains N_VALUE values of 4 bytes */
+    private byte mData[];
+
+    @Setup
+    public void createData(){
+        mData = new byte[N_VALUE*4];
+        new Random(42).nextBytes(mData);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianInt16(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.bytesToInt16(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianUInt16(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.bytesToUInt16(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianInt32(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.bytesToInt32(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianUInt32(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.bytesToUInt32(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianFloat(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.bytesToFloat(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void bigEndianInt32(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.BigEndian.bytesToInt32(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void bigEndianFloat(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.BigEndian.bytesToFloat(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void uint8(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.byteToUInt8(mData,i*4));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianInt16ToBytes(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.int16ToBytes((short)i));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_VALUE)
+    public void littleEndianFloatToBytes(Blackhole bh){
+        for(int i=0;i<N_VALUE;i++)
+            bh.consume(NumberConversion.LittleEndian.floatToBytes(i));
+    }
+
+}
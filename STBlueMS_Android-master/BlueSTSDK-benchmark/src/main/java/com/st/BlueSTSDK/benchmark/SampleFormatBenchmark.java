@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.benchmark;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+import com.st.BlueSTSDK.Log.CSVSampleFormat;
+import com.st.BlueSTSDK.Utils.FastNumberFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speed of the conversion of a sample in a text line, each operation formats one sample.
+ * <p>the csv benchmarks use the same code of the csv logger, the db export benchmark
+ * formats the values as the db exporter does with the columns of a row</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleFormatBenchmark {
+
+    /** decimals used by the db exporter for the float columns */
+    private static final int DB_FLOAT_DECIMALS = 6;
+
+    /** separator used by the db exporter */
+    private static final String DB_SEPARATOR = ", ";
+
+    private static final Field INT_FIELDS[] = new Field[]{
+            new Field("X", "mg", Field.Type.Int16, 2000, -2000),
+            new Field("Y", "mg", Field.Type.Int16, 2000, -2000),
+            new Field("Z", "mg", Field.Type.Int16, 2000, -2000)
+    };
+
+    private static final Field FLOAT_FIELDS[] = new Field[]{
+            new Field("qi", null, Field.Type.Float, 1, -1),
+            new Field("qj", null, Field.Type.Float, 1, -1),
+            new Field("qk", null, Field.Type.Float, 1, -1),
+            new Field("qs", null, Field.Type.Float, 1, -1)
+    };
+
+    /** accelerometer like sample */
+    private Feature.Sample mIntSample;
+
+    /** sensor fusion like sample */
+    private Feature.Sample mFloatSample;
+
+    /** raw data logged with the int sample */
+    private byte mRawData[];
+
+    /** line buffer, reused as the loggers do */
+    private StringBuilder mLine;
+
+    @Setup
+    public void createSamples(){
+        mIntSample = new Feature.Sample(1234, new long[]{-981, 12, 1003}, INT_FIELDS);
+        mFloatSample = new Feature.Sample(1234,
+                new float[]{0.0123f, -0.7071f, 0.0456f, 0.7054f}, FLOAT_FIELDS);
+        mRawData = new byte[]{0x2B, (byte) 0xFC, 0x0C, 0x00, (byte) 0xEB, 0x03};
+        mLine = new StringBuilder(256);
+    }
+
+    @Benchmark
+    public int csvLineInt(){
+        mLine.setLength(0);
+        return CSVSampleFormat.appendLine(mLine, 5000, "Node", mRawData, mIntSample).length();
+    }
+
+    @Benchmark
+    public int csvLineFloat(){
+        mLine.setLength(0);
+        return CSVSampleFormat.appendLine(mLine, 5000, "Node", null, mFloatSample).length();
+    }
+
+    @Benchmark
+    public int dbExportLineFloat(){
+        StringBuilder line = mLine;
+        line.setLength(0);
+        line.append(5000).append(DB_SEPARATOR);
+        line.append("Node").append(DB_SEPARATOR);
+        line.append(mFloatSample.timestamp).append(DB_SEPARATOR);
+        int nValues = mFloatSample.getDataLength();
+        for(int i=0;i<nValues;i++)
+            FastNumberFormat.appendFixed(line, mFloatSample.getFloat(i), DB_FLOAT_DECIMALS)
+                    .append(DB_SEPARATOR);
+        return line.append('\n').length();
+    }
+
+}
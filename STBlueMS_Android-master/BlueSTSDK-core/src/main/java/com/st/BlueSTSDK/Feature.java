@@ -0,0 +1,1101 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contains the data and the description of the data exported by the node
+ * <p>
+ * When you have a new sensor in the node you have to extend this class and implement the
+ * method {@link Feature#extractData(long, byte[], int)}  that will extract the information from the raw
+ * data arrived from the node. This class will manage the notification and listener subscrition.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public abstract class Feature {
+
+    /**
+     * pool of thread used for notify to the listeners the events that are not a new sample
+     * <p>the samples are notified by the {@link FeatureDispatcher}</p>
+     */
+    protected static final ExecutorService sThreadPool = Executors.newCachedThreadPool();
+    //protected static final ExecutorService sThreadPool = Executors.newFixedThreadPool(4);
+
+    /**
+     * list of listener for the feature change.
+     * <p> is a thread safe list, so a listener can subscribe itself from a callback </p>
+     * @see com.st.BlueSTSDK.Feature.FeatureListener
+     */
+    protected final CopyOnWriteArrayList<FeatureListener> mFeatureListener = new CopyOnWriteArrayList<>();
+    /**
+     * list of listener for logging the received data
+     * <p> is a thread safe list, so a listener can subscribe itself from a callback </p>
+     * @see com.st.BlueSTSDK.Feature.FeatureLoggerListener
+     */
+    private final CopyOnWriteArrayList<FeatureLoggerListener> mFeatureLogger = new CopyOnWriteArrayList<>();
+    /**
+     * list of batch listener for the feature change
+     * @see com.st.BlueSTSDK.Feature.FeatureBatchListener
+     */
+    private final CopyOnWriteArrayList<FeatureBatcher> mFeatureBatchListener = new CopyOnWriteArrayList<>();
+    /**
+     * list of batch listener for logging the received data
+     * @see com.st.BlueSTSDK.Feature.FeatureLoggerBatchListener
+     */
+    private final CopyOnWriteArrayList<FeatureBatcher> mFeatureBatchLogger = new CopyOnWriteArrayList<>();
+    /**
+     * object that deliver in order the updates to the listeners and to the loggers
+     */
+    private final FeatureDispatcher mDispatcher = new FeatureDispatcher(this);
+    /**
+     * read/write lock used for avoid that someone read the feature data while an update is
+     * running
+     */
+    private final ReentrantReadWriteLock mRwLock = new ReentrantReadWriteLock();
+    /**
+     * lock to use before read a data
+     */
+    private final ReentrantReadWriteLock.ReadLock mReadLock = mRwLock.readLock();
+    /**
+     * lock to acquire before change the data
+     */
+    protected final ReentrantReadWriteLock.WriteLock mWriteLock = mRwLock.writeLock();
+    /**
+     * local time of the last update, automatically update from the default update method
+     */
+    protected Date mLastUpdate;
+
+    /**
+     * last data received from the node
+     */
+    protected Sample mLastSample;
+
+    /**
+     * node that will update this feature
+     */
+    protected FeatureNode mParent;
+    /**
+     * feature name
+     */
+    private String mName;
+    /**
+     * if the node export this feature, its possible that a node has a feature but doesn't
+     * export it
+     */
+    private boolean mIsEnabled;
+
+    /**
+     * array of feature field that describe the feature data with the name,
+     * unit and min/max value for each feature field
+     */
+    protected Field[] mDataDesc;
+
+    /**
+     * check if the sample has valid data in the index position
+     * @param s sample to test
+     * @param index index to test
+     * @return true if sample is not null and has a non null value into the index position
+     */
+    protected static boolean hasValidIndex(Sample s, int index){
+        return ((s != null) && s.hasValue(index));
+    }
+
+    /**
+     * build a new disabled feature, that doesn't need to be initialized in the node side
+     *
+     * @param name     name of the feature
+     * @param n        node that will update this feature
+     * @param dataDesc description of the data that belong to this feature
+     */
+    public Feature(String name, FeatureNode n, Field dataDesc[]) {
+        mName = name;
+        mParent = n;
+        mIsEnabled = false;
+        mDataDesc = dataDesc;
+    }//
+
+    /**
+     * add a new listener for the update of this feature
+     *
+     * @param listener listener class
+     */
+    public void addFeatureListener(FeatureListener listener) {
+        if (listener != null)
+            mFeatureListener.addIfAbsent(listener);
+    }//addFeatureListener
+
+    /**
+     * remove a listener for the update of this feature
+     *
+     * @param listener listener to remove
+     */
+    public void removeFeatureListener(FeatureListener listener) {
+        mFeatureListener.remove(listener);
+    }
+
+    /**
+     * add a new object where log the update of this feature
+     *
+     * @param logger new logger to update when the feature has an update
+     */
+    public void addFeatureLoggerListener(FeatureLoggerListener logger) {
+        if (logger != null)
+            mFeatureLogger.addIfAbsent(logger);
+    }
+
+    /**
+     * remove a logger listener
+     *
+     * @param logger listener to remove
+     */
+    public void removeFeatureLoggerListener(FeatureLoggerListener logger) {
+        mFeatureLogger.remove(logger);
+    }
+
+    /**
+     * search the batcher associated to a listener
+     * @param batchers list where search
+     * @param listener listener to search
+     * @return batcher that deliver the data to the listener, or null
+     */
+    private static FeatureBatcher findBatcher(List<FeatureBatcher> batchers,
+                                                        Object listener){
+        for(FeatureBatcher batcher : batchers){
+            if(batcher.getListener()==listener)
+                return batcher;
+        }//for
+        return null;
+    }
+
+    /**
+     * remove the batcher associated to the listener and close it, the pending samples are
+     * delivered by a background thread
+     * @param batchers list where search
+     * @param listener listener to remove
+     * @param onRemoved task run after the last batch is delivered, can be null
+     */
+    private static void removeBatcher(List<FeatureBatcher> batchers, Object listener,
+                                      Runnable onRemoved){
+        FeatureBatcher batcher = findBatcher(batchers,listener);
+        if(batcher==null){
+            if(onRemoved!=null)
+                onRemoved.run();
+            return;
+        }//if
+        batchers.remove(batcher);
+        batcher.close(onRemoved);
+    }
+
+    /**
+     * add a listener that receive the feature updates in groups
+     * <p>a batch is delivered when it contains maxBatchSize samples or when its first sample
+     * waited more than maxLatencyMs, whichever comes first</p>
+     *
+     * @param listener listener class
+     * @param maxBatchSize max number of samples inside a batch
+     * @param maxLatencyMs max time that a sample can wait before being delivered, if <=0 the
+     *                     batch is delivered only when it is full
+     * @throws IllegalArgumentException if maxBatchSize is not positive
+     */
+    public void addFeatureBatchListener(FeatureBatchListener listener, int maxBatchSize,
+                                        long maxLatencyMs) {
+        if (listener == null)
+            return;
+        synchronized (mFeatureBatchListener) {
+            if (findBatcher(mFeatureBatchListener, listener) == null)
+                mFeatureBatchListener.add(new FeatureBatcher.UpdateBatcher(this, listener,
+                        maxBatchSize, maxLatencyMs));
+        }
+    }//addFeatureBatchListener
+
+    /**
+     * remove a batch listener, the samples not yet delivered are sent to the listener by a
+     * background thread
+     *
+     * @param listener listener to remove
+     */
+    public void removeFeatureBatchListener(FeatureBatchListener listener) {
+        removeFeatureBatchListener(listener,null);
+    }
+
+    /**
+     * remove a batch listener, the samples not yet delivered are sent to the listener by a
+     * background thread
+     *
+     * @param listener listener to remove
+     * @param onRemoved task run after the last batch is delivered, can be null
+     */
+    public void removeFeatureBatchListener(FeatureBatchListener listener,
+                                           Runnable onRemoved) {
+        synchronized (mFeatureBatchListener) {
+            removeBatcher(mFeatureBatchListener, listener, onRemoved);
+        }
+    }
+
+    /**
+     * add a logger that receive the feature updates in groups
+     * <p>a batch is delivered when it contains maxBatchSize samples or when its first sample
+     * waited more than maxLatencyMs, whichever comes first</p>
+     *
+     * @param logger new logger to update when the feature has an update
+     * @param maxBatchSize max number of samples inside a batch
+     * @param maxLatencyMs max time that a sample can wait before being delivered, if <=0 the
+     *                     batch is delivered only when it is full
+     * @throws IllegalArgumentException if maxBatchSize is not positive
+     */
+    public void addFeatureLoggerBatchListener(FeatureLoggerBatchListener logger,
+                                              int maxBatchSize, long maxLatencyMs) {
+        if (logger == null)
+            return;
+        synchronized (mFeatureBatchLogger) {
+            if (findBatcher(mFeatureBatchLogger, logger) == null)
+                mFeatureBatchLogger.add(new FeatureBatcher.LoggerBatcher(this, logger,
+                        maxBatchSize, maxLatencyMs));
+        }
+    }
+
+    /**
+     * remove a batch logger, the samples not yet delivered are sent to the logger by a
+     * background thread
+     *
+     * @param logger logger to remove
+     */
+    public void removeFeatureLoggerBatchListener(FeatureLoggerBatchListener logger) {
+        removeFeatureLoggerBatchListener(logger,null);
+    }
+
+    /**
+     * remove a batch logger, the samples not yet delivered are sent to the logger by a
+     * background thread
+     *
+     * @param logger logger to remove
+     * @param onRemoved task run after the last batch is delivered, for example for close the
+     *                  logger, can be null
+     */
+    public void removeFeatureLoggerBatchListener(FeatureLoggerBatchListener logger,
+                                                 Runnable onRemoved) {
+        synchronized (mFeatureBatchLogger) {
+            removeBatcher(mFeatureBatchLogger, logger, onRemoved);
+        }
+    }
+
+    /**
+     * date of the last update
+     *
+     * @return date of the last update
+     */
+    public Date getLastUpdate() {
+        return mLastUpdate; //no need to lock since we are just returning a reference
+    }
+
+    /**
+     * get the feature name
+     *
+     * @return feature name
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * node that will update this feature
+     *
+     * @return node that will update this feature
+     */
+    public FeatureNode getParentNode() {
+        return mParent;
+    }
+
+    /**
+     * true if the node export the data of this feature
+     * <p> a Node can export a feature in the advertise without having the equivalent
+     * characteristics</p>
+     *
+     * @return true if the node export the data of this feature, false otherwise
+     */
+    public boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * Get the description of the data field of this feature.
+     * <p>From the returned data you can know the name and units of the corrispondig data in the
+     * array returned by the getFieldData </p>
+     *
+     * @return data description of the feature
+     */
+    public Field[] getFieldsDesc() {
+        return mDataDesc;
+    }//getFieldsDesc
+
+    /**
+     * return the last timestamp and the data received from the device
+     * <p>the returned object is a copy of the last sample, the primitive values are shared
+     * with it since they are never changed</p>
+     * @return last data received from the feature or null
+     */
+    public Sample getSample(){
+        if(mLastSample!=null)
+            //no need to lock since we are just returning a reference
+            return new Sample(mLastSample);
+        else
+            return null;
+    }
+
+    /**
+     * change the status of this feature
+     *
+     * @param enable new feature status
+     */
+    void setEnable(boolean enable) {
+        mIsEnabled = enable;
+    }//setEnable
+
+    /**
+     * tell if someone will receive the samples built by {@link #extractData(long, byte[], int)},
+     * a feature can use it for avoid to build a sample that nobody reads
+     * @return true if there is at least a listener or a logger, also batched
+     */
+    protected boolean hasSampleListeners(){
+        return !mFeatureListener.isEmpty() || !mFeatureBatchListener.isEmpty() ||
+                !mFeatureLogger.isEmpty() || !mFeatureBatchLogger.isEmpty();
+    }//hasSampleListeners
+
+    /**
+     * call the method {@link com.st.BlueSTSDK.Feature.FeatureListener#onUpdate(Feature,
+     * Feature.Sample)} for each listener that subscribe to this feature.
+     * <p> the calls are done by the feature dispatcher, outside the caller thread, the samples
+     * are notified in the same order that they are passed to this method</p>
+     * <p>
+     * If you extend the method overwrite the method {@link Feature#update_priv(long, byte[], int)}
+     * you have to call this method for notify to the user the new sample
+     * </p>
+     * @param sample new data that we have to notify to the listener
+     */
+    protected void notifyUpdate(final Sample sample) {
+        if(!mFeatureListener.isEmpty() || !mFeatureBatchListener.isEmpty())
+            mDispatcher.postUpdate(sample);
+    }//notifyUpdate
+
+    /**
+     * call the listeners with the new sample, it is called by the dispatcher thread
+     * @param sample new data that we have to notify to the listener
+     */
+    void dispatchUpdate(Sample sample){
+        for (FeatureListener listener : mFeatureListener)
+            listener.onUpdate(this, sample);
+        for (FeatureBatcher batcher : mFeatureBatchListener)
+            batcher.append(null, sample);
+    }//dispatchUpdate
+
+    /**
+     * notify to all the logger that we parse new package
+     * <p> each {@link com.st.BlueSTSDK.Feature.FeatureLoggerListener#logFeatureUpdate(byte[], Sample)}
+     * will run by the feature dispatcher, in the same order of the {@link Feature#notifyUpdate(Sample)}
+     * calls </p>
+     * <p>
+     * if you overwrite the method {@link com.st.BlueSTSDK.Feature#update_priv(long, byte[],
+     * int)} you have to call this method after that you update the data,
+     * if you want that your feature can be logged
+     * </p>
+     *
+     * @param rawData raw data that we have used for extract the feature field, can be null
+     * @param sample sample that we have to log
+     */
+    protected void logFeatureUpdate(final byte rawData[],final Sample sample) {
+        if(!mFeatureLogger.isEmpty() || !mFeatureBatchLogger.isEmpty())
+            mDispatcher.postLog(rawData, sample);
+    }//logRawData
+
+    /**
+     * call the loggers with the new sample, it is called by the dispatcher thread
+     * @param rawData raw data used for extract the sample
+     * @param sample sample to log
+     */
+    void dispatchLog(byte rawData[], Sample sample){
+        for (FeatureLoggerListener listener : mFeatureLogger)
+            listener.logFeatureUpdate(this, rawData, sample);
+        for (FeatureBatcher batcher : mFeatureBatchLogger)
+            batcher.append(rawData, sample);
+    }//dispatchLog
+
+    /**
+     * object that notify the feature updates, it can be used for read the queue depth and the
+     * dispatch latency
+     * @return feature dispatcher
+     */
+    public FeatureDispatcher getDispatcher(){
+        return mDispatcher;
+    }
+
+    /**
+     * update the feature internal data and notify the update to the listener
+     * <p>
+     * if you overwrite this method, remember to update the the timestamp,
+     * the lastUpdate value and to acquire the write lock, when you finish you should to call
+     * the  {@link Feature#notifyUpdate(Sample)} and {@link Feature#logFeatureUpdate(byte[], Sample)}
+     * for notify the update to the user </p>
+     * <p> This method will be called by a package protected method called by the node,
+     * in this way we can permit only to the node to call the update method,
+     * without export this functionality to the final user</p>
+     *
+     * @param timeStamp  package timestamp
+     * @param data       array of data where we will extract  the data
+     * @param dataOffset data offset fo the data array where we have to read
+     * @return number of read byte
+     */
+    protected int update_priv(long timeStamp, byte[] data, int dataOffset) {
+        //acquire the write permission
+        Sample newSample; //keep a reference for the notification
+        mWriteLock.lock(); // made the update atomic
+            mLastUpdate = new Date();
+            ExtractResult res = extractData(timeStamp, data, dataOffset);
+            newSample = res.newSample;
+            if(newSample!=null)
+                mLastSample = newSample;
+        mWriteLock.unlock();
+
+        //the feature didn't build a sample for this package
+        if(newSample==null)
+            return res.nReadByte;
+
+        //notify to all the listener that the new data arrived
+        notifyUpdate(newSample);
+
+        //pass to the log only the byte that we have read
+        if(!mFeatureLogger.isEmpty() || !mFeatureBatchLogger.isEmpty())
+            logFeatureUpdate(java.util.Arrays.copyOfRange(data, dataOffset,
+                    dataOffset + res.nReadByte), newSample);
+
+        return res.nReadByte;
+    }//update
+
+    /**
+     * this method is called by the node when receive new data from this feature
+     * @param timeStamp  package timestamp
+     * @param data       array of data where we will extract  the data
+     * @param dataOffset data offset fo the data array where we have to read
+     * @return number of read byte
+     */
+    int update(long timeStamp,byte[] data, int dataOffset) {
+        return update_priv(timeStamp,data,dataOffset);
+    }
+
+    /**
+     * parse the command response data
+     * @param timeStamp device time stamp of when the response was send
+     * @param commandType id of the request that the feature did
+     * @param data data attached to the response
+     * <p> it is implemented as an empty method, it is an optional abstract method</p>
+     */
+    protected void parseCommandResponse(int timeStamp,byte commandType,byte[] data){}
+
+
+    /**
+     * notify to the feature that the node receive a response from a command send from this feature
+     * @param timeStamp device time stamp of when the response was send
+     * @param commandType id of the request that the feature did
+     * @param data data attached to the response
+     */
+    void commandResponseReceived(int timeStamp,byte commandType, byte[] data){
+        parseCommandResponse(timeStamp,commandType,data);
+    }
+
+    /**
+     * class used for return the data and the number of bytes read
+     */
+    protected class ExtractResult{
+        /** number of read bytes */
+        final int nReadByte;
+        /** data extracted from the byte stream */
+        final Sample newSample;
+
+        /**
+         * create a new object
+         * @param newSample data extracted, null if the feature doesn't build a sample for this
+         *                  package: the last sample is not changed and nothing is notified
+         * @param nReadByte number of byte used for extract the data
+         */
+        public ExtractResult(Sample newSample,int nReadByte){
+            this.nReadByte=nReadByte;
+            this.newSample=newSample;
+        }//ExtractResult
+
+        /**
+         * number of read bytes
+         * @return number of bytes used for extract the data
+         */
+        public int getReadBytes() {
+            return nReadByte;
+        }//getReadBytes
+
+        /**
+         * data extracted by the feature
+         * @return data extracted by the raw bytes stream
+         */
+        public Sample getNewSample(){
+            return newSample;
+        }
+    }//ExtractResult
+
+    /**
+     * extract the Feature data from a raw byte stream
+     *<p>
+     * You have to parse the data inside the {@code data} field skipping the first {@code
+     * dataOffset} byte. </p>
+     *<p>
+     * This method have to exact the data create a {@link com.st.BlueSTSDK.Feature
+     * .Sample} and return a Extract result containing it</p>
+     *<p>
+     * The method that call this one will manage the lock acquisition/release and to
+     * notify to the user the new sample</p>
+     *
+     * @param timestamp data timestamp
+     * @param data       array where read the data
+     * @param dataOffset offset where start to read the data
+     * @return number of read byte and data extracted
+     */
+    abstract protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset);
+
+    /**
+     * in case the corrispondig characteristics has the write permission you can send some data
+     * to the feature
+     * @param data raw data to write
+     * @return true if the write command is send correctly, false otherwise
+     */
+    protected boolean writeData(byte[] data) {
+        return mParent.writeFeatureData(this, data);
+    }//writeData
+
+    /**
+     * this method can be used for send data to the command characteristic,
+     * @param commandType integer that identify the command to execute
+     * @param data array of data to send as command parameters, can be an empty array
+     * @return true if the node has the command characteristic
+     */
+    protected boolean sendCommand(byte commandType,byte[] data){
+        return mParent.sendCommandMessage(this,commandType,data);
+    }
+
+
+    /**
+     * print the last data received by this feature
+     * @return string with the feature data
+     */
+    @Override
+    public String toString(){
+        //create the string with the feature data
+        Sample sample = mLastSample; //keep a reference for be secure to be thread safe
+        if(sample==null)
+            return mName+":\n\tNo Data";
+        //else
+        if(sample.getDataLength()==0){
+            return mName+":\n\tNo Data";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(mName).append(":\n\tTimestamp: ").append(sample.timestamp).append('\n');
+        Number data[] = sample.getData();
+        for (int i = 0; i < data.length-1; i++) {
+            sb.append('\t').append(mDataDesc[i].getName())
+                    .append(": ").append(data[i]).append('\n');
+        }//for
+        sb.append('\t').append(mDataDesc[data.length-1].getName())
+                .append(": ").append(data[data.length-1]);
+
+        return sb.toString();
+    }
+
+    /**
+     * Interface used for notify that the feature updates its data
+     *
+     * @author STMicroelectronics - Central Labs.
+     */
+    public interface FeatureListener {
+
+        /**
+         * this method is called when the feature update its internal value
+         *
+         * @param f feature that has received an update
+         * @param sample new data received from the feature
+         */
+        void onUpdate( Feature f, Sample sample);
+
+    }//FeatureListener
+
+    /**
+     * Interface used for receive the feature updates in groups of samples
+     * @see Feature#addFeatureBatchListener(FeatureBatchListener, int, long)
+     *
+     * @author STMicroelectronics - Central Labs.
+     */
+    public interface FeatureBatchListener {
+
+        /**
+         * this method is called when a batch of updates is ready
+         *
+         * @param f feature that has received the updates
+         * @param samples new data received from the feature, in the arrival order. The list is
+         *                owned by the listener
+         */
+        void onUpdate(Feature f, List<Sample> samples);
+
+    }//FeatureBatchListener
+
+    /**
+     * This class permit to dump the feature data, both in raw format (the same that that we
+     * receive from the node) and after that we parse it
+     *
+     * @author STMicroelectronics - Central Labs.
+     */
+    public interface FeatureLoggerListener {
+
+        /**
+         *Call when we have to log some data
+         *
+         * <p> the rawData array can be null if we extract multiple feature data that are notify
+         * to the user in different moment. in that case the only in the first call we will have
+         * a rawData!=null </p>
+         *
+         * @param feature feature that has updated
+         * @param rawData raw data that used for update the feature
+         * @param sample data extracted by the feature
+         *
+         */
+        void logFeatureUpdate( Feature feature, byte[] rawData,
+                               Sample sample);
+    }
+
+    /**
+     * Interface used for log the feature data in groups of samples
+     * @see Feature#addFeatureLoggerBatchListener(FeatureLoggerBatchListener, int, long)
+     *
+     * @author STMicroelectronics - Central Labs.
+     */
+    public interface FeatureLoggerBatchListener {
+
+        /**
+         * Call when we have to log a group of samples
+         *
+         * <p> the list are owned by the logger, the raw data in the position i are the ones used
+         * for extract the sample in the position i, and can be null as described in
+         * {@link FeatureLoggerListener#logFeatureUpdate(Feature, byte[], Sample)}</p>
+         *
+         * @param feature feature that has updated
+         * @param rawData raw data that used for update the feature
+         * @param samples data extracted by the feature, in the arrival order
+         */
+        void logFeatureUpdate(Feature feature, List<byte[]> rawData, List<Sample> samples);
+    }
+
+    /**
+     * Class that contains the last data from the node
+     * <p>
+     * The values can be stored in a {@code Number} array or, for avoid to allocate an object for
+     * each value, in primitive columns: the values with a {@link Field.Type#Float} type are
+     * stored in a {@code float} array, all the others in a {@code long} array.
+     * Use the typed accessors ({@link Sample#getFloat(int)}, {@link Sample#getLong(int)}, ...)
+     * for read the values without boxing them.
+     * </p>
+     */
+    public static class Sample{
+
+        /**
+         * Data time stamp send with the data
+         */
+        public final long timestamp;
+
+        /**
+         * description of the data field
+         */
+        public final Field[] dataDesc;
+
+        /**
+         * Unix timestamp of the moment the notification arrive at the device
+         */
+        public final long notificationTime;
+
+        /**
+         * values stored as float, null if the sample doesn't use this column
+         */
+        private final float[] mFloatData;
+
+        /**
+         * values stored as long, null if the sample doesn't use this column
+         */
+        private final long[] mLongData;
+
+        /**
+         * number of values inside the sample
+         */
+        private final int mLength;
+
+        /**
+         * boxed view of the sample values, for the primitive samples it is built the first time
+         * that someone ask for it
+         */
+        private volatile Number[] mData;
+
+        /**
+         * @param timestamp data timestamp
+         * @param data feature data
+         * @param dataDesc description for each field data
+         */
+        public Sample(long timestamp,Number[] data, Field[] dataDesc) {
+            this.timestamp = timestamp;
+            this.dataDesc=dataDesc;
+            mData = data;
+            mLength = data.length;
+            mFloatData = null;
+            mLongData = null;
+            notificationTime = System.currentTimeMillis();
+        }
+
+        public Sample(Number[] data,Field[] dataDesc) {
+            this(0,data,dataDesc);
+        }
+
+        /**
+         * build a sample where all the values are stored as float
+         * @param timestamp data timestamp
+         * @param data feature data, the array is not copied
+         * @param dataDesc description for each field data
+         */
+        public Sample(long timestamp,float[] data, Field[] dataDesc) {
+            this(timestamp,data,null,data.length,dataDesc);
+        }
+
+        /**
+         * build a sample where all the values are stored as long
+         * @param timestamp data timestamp
+         * @param data feature data, the array is not copied
+         * @param dataDesc description for each field data
+         */
+        public Sample(long timestamp,long[] data, Field[] dataDesc) {
+            this(timestamp,null,data,data.length,dataDesc);
+        }
+
+        /**
+         * build a sample with both float and integer values, the value in the position i is read
+         * from {@code floatData} if the type of the field i is {@link Field.Type#Float}, from
+         * {@code longData} otherwise.
+         * @param timestamp data timestamp
+         * @param floatData float values, the array is not copied
+         * @param longData integer values, the array is not copied
+         * @param dataDesc description for each field data
+         * @throws IllegalArgumentException if the two arrays have different length
+         */
+        public Sample(long timestamp,float[] floatData, long[] longData,
+                      Field[] dataDesc) {
+            this(timestamp,floatData,longData,floatData.length,dataDesc);
+            if(floatData.length!=longData.length)
+                throw new IllegalArgumentException("floatData and longData must have the same length");
+        }
+
+        private Sample(long timestamp, float[] floatData, long[] longData,
+                       int length, Field[] dataDesc){
+            this.timestamp = timestamp;
+            this.dataDesc = dataDesc;
+            mFloatData = floatData;
+            mLongData = longData;
+            mLength = length;
+            mData = null;
+            notificationTime = System.currentTimeMillis();
+        }
+
+        /**
+         * create a copy of the class, it is used for avoid that the user change the internal data
+         * <p>the primitive columns are never changed after the creation so they are shared with
+         * the copy, only the samples build with a Number array need to copy the array</p>
+         * @param copyMe object to copy
+         */
+        public Sample(Sample copyMe) {
+            this.timestamp =copyMe.timestamp;
+            this.notificationTime =copyMe.notificationTime;
+            this.dataDesc = copyMe.dataDesc;
+            mFloatData = copyMe.mFloatData;
+            mLongData = copyMe.mLongData;
+            mLength = copyMe.mLength;
+            mData = isBoxed(copyMe) ? copyMe.mData.clone() : null;
+        }
+
+        private static boolean isBoxed(Sample s){
+            return s.mFloatData==null && s.mLongData==null;
+        }
+
+        /**
+         * @return number of values inside the sample
+         */
+        public int getDataLength(){
+            return mLength;
+        }
+
+        /**
+         * tell if the sample has a valid value in a specific position
+         * @param index value index
+         * @return true if index is a valid position and the value is not null
+         */
+        public boolean hasValue(int index){
+            if(index<0 || index>=mLength)
+                return false;
+            return !isBoxed(this) || mData[index]!=null;
+        }
+
+        /**
+         * tell if the value in the position index is stored in the float column
+         */
+        private boolean isFloatValue(int index){
+            if(mLongData==null)
+                return true;
+            if(mFloatData==null)
+                return false;
+            Field desc = getFieldDesc(index);
+            return desc!=null && desc.getType()==Field.Type.Float;
+        }
+
+        /**
+         * get the description of a value, if the sample has more values than descriptions the
+         * last one is used
+         */
+        private Field getFieldDesc(int index){
+            if(dataDesc==null || dataDesc.length==0)
+                return null;
+            return dataDesc[Math.min(index,dataDesc.length-1)];
+        }
+
+        /**
+         * @param index value index
+         * @return the value in the position index as a float
+         */
+        public float getFloat(int index){
+            if(isBoxed(this))
+                return mData[index].floatValue();
+            if(isFloatValue(index))
+                return mFloatData[index];
+            return mLongData[index];
+        }
+
+        /**
+         * @param index value index
+         * @return the value in the position index as a long
+         */
+        public long getLong(int index){
+            if(isBoxed(this))
+                return mData[index].longValue();
+            if(isFloatValue(index))
+                return (long) mFloatData[index];
+            return mLongData[index];
+        }
+
+        /**
+         * @param index value index
+         * @return the value in the position index as an int
+         */
+        public int getInt(int index){
+            if(isBoxed(this))
+                return mData[index].intValue();
+            return (int) getLong(index);
+        }
+
+        /**
+         * @param index value index
+         * @return the value in the position index as a short
+         */
+        public short getShort(int index){
+            if(isBoxed(this))
+                return mData[index].shortValue();
+            return (short) getLong(index);
+        }
+
+        /**
+         * @param index value index
+         * @return the value in the position index as a byte
+         */
+        public byte getByte(int index){
+            if(isBoxed(this))
+                return mData[index].byteValue();
+            return (byte) getLong(index);
+        }
+
+        /**
+         * append the text of a value to a string, the text is equal to the one returned by
+         * {@code getData()[index].toString()} but the primitive values are not boxed
+         * <p>nothing is appended if the value is null</p>
+         * @param out string where append the value
+         * @param index value index
+         * @return the out parameter
+         */
+        public StringBuilder appendValue(StringBuilder out, int index){
+            if(isBoxed(this)) {
+                Number value = mData[index];
+                if(value instanceof Float)
+                    return out.append(value.floatValue());
+                if(value instanceof Double)
+                    return out.append(value.doubleValue());
+                if(value instanceof Integer || value instanceof Long ||
+                        value instanceof Short || value instanceof Byte)
+                    return out.append(value.longValue());
+                return value!=null ? out.append(value.toString()) : out;
+            }//if
+            if(isFloatValue(index))
+                return out.append(mFloatData[index]);
+            long value = mLongData[index];
+            Field desc = getFieldDesc(index);
+            if(desc==null)
+                return out.append(value);
+            //same conversion used by boxValue
+            switch (desc.getType()){
+                case Float:
+                    return out.append((float) value);
+                case Int32:
+                case UInt16:
+                    return out.append((int) value);
+                case Int16:
+                case UInt8:
+                case ByteArray:
+                    return out.append((short) value);
+                case Int8:
+                    return out.append((byte) value);
+                case Int64:
+                case UInt32:
+                default:
+                    return out.append(value);
+            }//switch
+        }//appendValue
+
+        /**
+         * feature data as an array of Number
+         * <p>For the samples stored in primitive columns the array is built the first time this
+         * method is called, the changes made to the returned array are not visible using the
+         * typed accessors. Prefer {@link Sample#getFloat(int)}/{@link Sample#getLong(int)} when
+         * you have to read the data at high rate.</p>
+         * @return feature data
+         */
+        public Number[] getData(){
+            Number[] data = mData;
+            if(data==null){
+                data = new Number[mLength];
+                for(int i=0;i<mLength;i++){
+                    data[i]=boxValue(i);
+                }
+                mData=data;
+            }
+            return data;
+        }
+
+        /**
+         * box the value using the type declared by its field description
+         */
+        private Number boxValue(int index){
+            if(isFloatValue(index))
+                return mFloatData[index];
+            long value = mLongData[index];
+            Field desc = getFieldDesc(index);
+            if(desc==null)
+                return value;
+            switch (desc.getType()){
+                case Float:
+                    return (float) value;
+                case Int32:
+                case UInt16:
+                    return (int) value;
+                case Int16:
+                case UInt8:
+                //the byte array fields are also used for export the audio samples
+                case ByteArray:
+                    return (short) value;
+                case Int8:
+                    return (byte) value;
+                case Int64:
+                case UInt32:
+                default:
+                    return value;
+            }
+        }
+
+        /**
+         * compare the value in the same position of two samples
+         */
+        private static boolean valueEquals(Sample a, Sample b,int index){
+            boolean aHasValue = a.hasValue(index);
+            if(aHasValue!=b.hasValue(index))
+                return false;
+            if(!aHasValue)
+                return true;
+            if(a.isFloatValueOrBoxedFloat(index) || b.isFloatValueOrBoxedFloat(index))
+                return Float.compare(a.getFloat(index),b.getFloat(index))==0;
+            return a.getLong(index)==b.getLong(index);
+        }
+
+        private boolean isFloatValueOrBoxedFloat(int index){
+            if(isBoxed(this))
+                return mData[index] instanceof Float || mData[index] instanceof Double;
+            return isFloatValue(index);
+        }
+
+        /**
+         * two samples are equals if they have the same timestamp and the same values, the values
+         * are compared by value and not by type
+         */
+        @Override
+        public boolean equals(Object o) {
+            if(o==null)
+                return false;
+            if(o instanceof Sample){
+                Sample s = (Sample)o;
+                if(s.timestamp != timestamp || s.mLength!=mLength)
+                    return false;
+                for(int i=0;i<mLength;i++){
+                    if(!valueEquals(this,s,i))
+                        return false;
+                }
+                return true;
+            }//if
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31*(int)(timestamp^(timestamp>>>32))+mLength;
+        }
+
+        @Override
+        public String toString(){
+            return "Timestamp: "+timestamp +" Data: "+Arrays.toString(getData());
+        }
+    }
+}
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Collect the feature updates and deliver them to a batch listener when the batch reaches its
+ * max size or when the first collected sample is older than the max latency, whichever comes
+ * first.
+ * <p>The full batches are put in a queue while holding the batcher lock and they are delivered
+ * outside the lock by a single thread at a time, so they arrive in order also when a size flush
+ * and a latency flush happen at the same time.</p>
+ * <p>The full batches are delivered by the thread that appends the last sample, the batches
+ * flushed for latency or for closing are delivered by the {@link FeatureDispatcher} executor:
+ * the timer thread only moves the batch in the ready queue.</p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+abstract class FeatureBatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(FeatureBatcher.class.getCanonicalName());
+
+    /**
+     * thread used for find the batches that reach the max latency, it is a daemon thread since
+     * it is shared by all the features and it must not keep the application alive
+     */
+    private static final ScheduledExecutorService sFlushTimer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread timer = new Thread(runnable,"FeatureBatcherTimer");
+                    timer.setDaemon(true);
+                    return timer;
+                }
+            });
+
+    /**
+     * batch ready to be delivered
+     */
+    private static class Batch{
+        final List<byte[]> rawData;
+        final List<Feature.Sample> samples;
+
+        Batch(List<byte[]> rawData, List<Feature.Sample> samples) {
+            this.rawData = rawData;
+            this.samples = samples;
+        }
+    }//Batch
+
+    /**
+     * feature that produce the samples
+     */
+    protected final Feature mFeature;
+
+    /**
+     * max number of samples inside a batch
+     */
+    private final int mMaxBatchSize;
+
+    /**
+     * max time that a sample can wait inside the batch, if <=0 the batch is flushed only when full
+     */
+    private final long mMaxLatencyMs;
+
+    /**
+     * samples collected, null if we don't need to keep them
+     */
+    private ArrayList<Feature.Sample> mSamples;
+
+    /**
+     * raw data collected, null if we don't need to keep them
+     */
+    private ArrayList<byte[]> mRawData;
+
+    /**
+     * task that will flush the current batch for timeout, null if the batch is empty
+     */
+    private ScheduledFuture<?> mFlushTask;
+
+    /**
+     * batches waiting to be delivered
+     */
+    private final ArrayDeque<Batch> mReadyBatches = new ArrayDeque<>();
+
+    /**
+     * true if a thread is delivering the ready batches
+     */
+    private boolean mDelivering;
+
+    /**
+     * true if the batcher doesn't accept new samples
+     */
+    private boolean mClosed;
+
+    /**
+     * task to run after the last batch is delivered, set when the batcher is closed
+     */
+    private Runnable mOnClosed;
+
+    private final Runnable mTimeoutFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mDeliverReadyBatches = new Runnable() {
+        @Override
+        public void run() {
+            deliverReadyBatches();
+        }
+    };
+
+    /**
+     * @param feature feature that produce the samples
+     * @param maxBatchSize max number of samples inside a batch
+     * @param maxLatencyMs max time that a sample can wait before the batch is delivered,
+     *                     if <=0 the batch is delivered only when full
+     * @param keepRawData true if the batch must contain also the raw data
+     * @throws IllegalArgumentException if maxBatchSize is not positive
+     */
+    FeatureBatcher(Feature feature, int maxBatchSize, long maxLatencyMs,
+                   boolean keepRawData){
+        if(maxBatchSize<=0)
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        mFeature = feature;
+        mMaxBatchSize = maxBatchSize;
+        mMaxLatencyMs = maxLatencyMs;
+        mSamples = new ArrayList<>(maxBatchSize);
+        mRawData = keepRawData ? new ArrayList<byte[]>(maxBatchSize) : null;
+    }
+
+    /**
+     * @return object that receive the batches
+     */
+    abstract Object getListener();
+
+    /**
+     * deliver a batch to the listener
+     * @param rawData raw data of each sample, null if the batcher doesn't keep them
+     * @param samples samples to deliver
+     */
+    protected abstract void deliver(List<byte[]> rawData, List<Feature.Sample> samples);
+
+    /**
+     * add a sample to the current batch, if the batch is full it is delivered by the caller
+     * thread. The sample is dropped if the batcher is closed
+     * @param rawData raw data used for extract the sample
+     * @param sample new sample
+     */
+    void append(byte[] rawData, Feature.Sample sample){
+        synchronized (this) {
+            if(mClosed)
+                return;
+            mSamples.add(sample);
+            if (mRawData != null)
+                mRawData.add(rawData);
+            if (mSamples.size() < mMaxBatchSize) {
+                if (mSamples.size() == 1 && mMaxLatencyMs > 0)
+                    mFlushTask = sFlushTimer.schedule(mTimeoutFlush, mMaxLatencyMs,
+                            TimeUnit.MILLISECONDS);
+                return;
+            }//if
+            if(!readyBatchLocked())
+                return;
+        }//synchronized
+        deliverReadyBatches();
+    }
+
+    /**
+     * deliver the samples collected until now, using the {@link FeatureDispatcher} executor
+     */
+    void flush(){
+        synchronized (this){
+            if(!readyBatchLocked())
+                return;
+        }
+        executeDelivery();
+    }
+
+    /**
+     * stop collecting the samples, the samples not yet delivered are sent to the listener by a
+     * background thread
+     * @param onClosed task run after the last batch is delivered, can be null
+     */
+    void close(Runnable onClosed){
+        synchronized (this){
+            if(mClosed)
+                return;
+            mClosed=true;
+            mOnClosed=onClosed;
+            if(!readyBatchLocked())
+                return;
+        }
+        executeDelivery();
+    }
+
+    /**
+     * deliver the ready batches using the {@link FeatureDispatcher} executor, the caller must
+     * have set mDelivering
+     */
+    private void executeDelivery(){
+        try {
+            FeatureDispatcher.getExecutor().execute(mDeliverReadyBatches);
+        }catch (RejectedExecutionException e){
+            synchronized (this){
+                mDelivering=false;
+            }
+            LOGGER.severe("Impossible deliver the batches of "+mFeature.getName()+": "+e);
+        }
+    }
+
+    /**
+     * move the current batch in the ready queue
+     * @return true if the caller has to deliver the ready batches, false if they are delivered
+     * by another thread or there is nothing to do
+     */
+    private boolean readyBatchLocked(){
+        if(mFlushTask!=null){
+            mFlushTask.cancel(false);
+            mFlushTask=null;
+        }
+        if(!mSamples.isEmpty()) {
+            //the delivered lists are owned by the listener
+            mReadyBatches.add(new Batch(mRawData, mSamples));
+            mSamples = new ArrayList<>(mMaxBatchSize);
+            if (mRawData != null)
+                mRawData = new ArrayList<>(mMaxBatchSize);
+        }//if
+        if(mDelivering || (mReadyBatches.isEmpty() && mOnClosed==null))
+            return false;
+        mDelivering=true;
+        return true;
+    }
+
+    /**
+     * deliver the ready batches without holding the batcher lock, when the queue is empty the
+     * close task is run
+     */
+    private void deliverReadyBatches(){
+        boolean completed = false;
+        try {
+            while (true) {
+                Batch batch;
+                Runnable onClosed = null;
+                synchronized (this) {
+                    batch = mReadyBatches.poll();
+                    if (batch == null) {
+                        mDelivering = false;
+                        completed = true;
+                        onClosed = mOnClosed;
+                        mOnClosed = null;
+                    }//if
+                }//synchronized
+                if (batch == null) {
+                    if (onClosed != null)
+                        onClosed.run();
+                    return;
+                }//if
+                deliver(batch.rawData, batch.samples);
+            }//while
+        }finally {
+            //a listener throws an exception: the remaining batches are delivered by a new task
+            if(!completed)
+                restartDelivery();
+        }
+    }
+
+    /**
+     * release the delivery and start a new one if some batches or the close task are waiting
+     */
+    private void restartDelivery(){
+        synchronized (this){
+            mDelivering = !mReadyBatches.isEmpty() || mOnClosed!=null;
+            if(!mDelivering)
+                return;
+        }
+        executeDelivery();
+    }
+
+    /**
+     * batcher that deliver the samples to a {@link Feature.FeatureBatchListener}
+     */
+    static class UpdateBatcher extends FeatureBatcher{
+
+        private final Feature.FeatureBatchListener mListener;
+
+        UpdateBatcher(Feature feature, Feature.FeatureBatchListener listener,
+                      int maxBatchSize, long maxLatencyMs) {
+            super(feature, maxBatchSize, maxLatencyMs, false);
+            mListener = listener;
+        }
+
+        @Override
+        Object getListener() {
+            return mListener;
+        }
+
+        @Override
+        protected void deliver(List<byte[]> rawData, List<Feature.Sample> samples) {
+            mListener.onUpdate(mFeature,samples);
+        }
+    }
+
+    /**
+     * batcher that deliver the samples to a {@link Feature.FeatureLoggerBatchListener}
+     */
+    static class LoggerBatcher extends FeatureBatcher{
+
+        private final Feature.FeatureLoggerBatchListener mLogger;
+
+        LoggerBatcher(Feature feature, Feature.FeatureLoggerBatchListener logger,
+                      int maxBatchSize, long maxLatencyMs) {
+            super(feature, maxBatchSize, maxLatencyMs, true);
+            mLogger = logger;
+        }
+
+        @Override
+        Object getListener() {
+            return mLogger;
+        }
+
+        @Override
+        protected void deliver(List<byte[]> rawData, List<Feature.Sample> samples) {
+            mLogger.logFeatureUpdate(mFeature,rawData,samples);
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Deliver the feature updates to the feature listeners and to the feature loggers.
+ * <p>
+ * Each feature has its own dispatcher: the updates are stored in a bounded ring and a single task
+ * at time drain the ring into an executor shared between all the features. In this way the
+ * listeners of a feature receive the samples in the same order that they are extracted, and a
+ * listener is never called by two threads at the same time for the same feature.
+ * </p>
+ * <p>
+ * When the ring is full the new update is discarded and counted by {@link #getDroppedCount()}.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class FeatureDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(FeatureDispatcher.class.getCanonicalName());
+
+    /**
+     * default number of updates that can wait to be dispatched for each feature
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    /**
+     * max number of threads used by the default executor
+     */
+    private static final int DEFAULT_N_THREAD = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * build the default executor: a bounded number of threads that are released when idle
+     */
+    private static Executor buildDefaultExecutor(){
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_N_THREAD, DEFAULT_N_THREAD,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * executor used for run the drain tasks, each feature has at most one task in the executor
+     * queue, so the queue is bounded by the number of features
+     */
+    private static volatile Executor sExecutor = buildDefaultExecutor();
+
+    /**
+     * change the executor used by all the dispatchers to notify the updates.
+     * <p>it is applied to the next drain task, the pending tasks run on the old executor</p>
+     * @param executor executor to use, if null the default executor will be restored
+     */
+    public static void setExecutor(Executor executor){
+        sExecutor = executor != null ? executor : buildDefaultExecutor();
+    }
+
+    /**
+     * @return executor used by the dispatchers, shared with the feature batchers
+     */
+    static Executor getExecutor(){
+        return sExecutor;
+    }
+
+    /**
+     * type of the update stored in the ring
+     */
+    private static final byte UPDATE_NOTIFY = 0;
+    private static final byte UPDATE_LOG = 1;
+
+    /**
+     * feature that will receive the updates to dispatch
+     */
+    private final Feature mFeature;
+
+    /**
+     * ring size -1, used for compute the ring index
+     */
+    private final int mMask;
+
+    /**
+     * ring content, the update i is stored in the position i&mMask of each array
+     */
+    private final byte[] mType;
+    private final Feature.Sample[] mSample;
+    private final byte[][] mRawData;
+    private final long[] mPostTime;
+
+    /**
+     * index of the next update to dispatch, written only by the drain task
+     */
+    private final AtomicLong mHead = new AtomicLong(0);
+
+    /**
+     * index of the next free position, written only by the producer
+     */
+    private final AtomicLong mTail = new AtomicLong(0);
+
+    /**
+     * true when a drain task is inside the executor or is running
+     */
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong mNDispatched = new AtomicLong(0);
+    private final AtomicLong mNDropped = new AtomicLong(0);
+    private final AtomicLong mTotalLatencyNs = new AtomicLong(0);
+    private volatile long mMaxLatencyNs;
+    private volatile int mMaxQueueDepth;
+
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param feature feature that will receive the updates
+     */
+    FeatureDispatcher(Feature feature){
+        this(feature,DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param feature feature that will receive the updates
+     * @param queueSize max number of updates that can wait to be dispatched, it is rounded to the
+     *                  next power of 2
+     */
+    FeatureDispatcher(Feature feature, int queueSize){
+        if(queueSize<=0)
+            throw new IllegalArgumentException("queueSize must be positive");
+        int size = Integer.highestOneBit(queueSize);
+        if(size<queueSize)
+            size = size<<1;
+        mFeature = feature;
+        mMask = size-1;
+        mType = new byte[size];
+        mSample = new Feature.Sample[size];
+        mRawData = new byte[size][];
+        mPostTime = new long[size];
+    }
+
+    /**
+     * enqueue a sample for the feature listeners
+     * @param sample sample to notify
+     */
+    void postUpdate(Feature.Sample sample){
+        post(UPDATE_NOTIFY,sample,null);
+    }
+
+    /**
+     * enqueue a sample for the feature loggers
+     * @param rawData raw data used for extract the sample
+     * @param sample sample to log
+     */
+    void postLog(byte[] rawData, Feature.Sample sample){
+        post(UPDATE_LOG,sample,rawData);
+    }
+
+    /**
+     * write the update in the ring and start a drain task if needed.
+     * <p>the node write the updates from a single thread, the method is synchronized only for
+     * be safe when a feature is updated by different threads (as the emulator does)</p>
+     */
+    private synchronized void post(byte type, Feature.Sample sample, byte[] rawData){
+        final long tail = mTail.get();
+        final int depth = (int) (tail - mHead.get());
+        if(depth>mMask){
+            mNDropped.incrementAndGet();
+        }else {
+            final int index = (int) (tail & mMask);
+            mType[index] = type;
+            mSample[index] = sample;
+            mRawData[index] = rawData;
+            mPostTime[index] = System.nanoTime();
+            mTail.lazySet(tail + 1);
+            if (depth + 1 > mMaxQueueDepth)
+                mMaxQueueDepth = depth + 1;
+        }//if-else
+        scheduleDrain();
+    }
+
+    private void scheduleDrain(){
+        if(mDrainScheduled.compareAndSet(false,true)){
+            try {
+                sExecutor.execute(mDrainTask);
+            }catch (RejectedExecutionException e){
+                mDrainScheduled.set(false);
+                LOGGER.severe("Impossible dispatch the updates of "+mFeature.getName()+": "+e);
+            }
+        }
+    }
+
+    /**
+     * dispatch all the updates inside the ring
+     */
+    private void drain(){
+        do {
+            try {
+                long head = mHead.get();
+                while (head < mTail.get()) {
+                    final int index = (int) (head & mMask);
+                    final byte type = mType[index];
+                    final Feature.Sample sample = mSample[index];
+                    final byte[] rawData = mRawData[index];
+                    final long latency = System.nanoTime() - mPostTime[index];
+                    mSample[index] = null;
+                    mRawData[index] = null;
+                    mHead.lazySet(++head);
+
+                    updateLatency(latency);
+                    if (type == UPDATE_NOTIFY)
+                        mFeature.dispatchUpdate(sample);
+                    else
+                        mFeature.dispatchLog(rawData, sample);
+                }//while
+            }finally {
+                //if a listener throws an exception the next post will start a new task
+                mDrainScheduled.set(false);
+            }
+            //a producer can write after the while and before the flag reset
+        }while (mHead.get()<mTail.get() && mDrainScheduled.compareAndSet(false,true));
+    }
+
+    private void updateLatency(long latency){
+        mNDispatched.incrementAndGet();
+        mTotalLatencyNs.addAndGet(latency);
+        if(latency>mMaxLatencyNs)
+            mMaxLatencyNs=latency;
+    }
+
+    /**
+     * @return number of updates waiting to be dispatched
+     */
+    public int getQueueDepth(){
+        return (int) (mTail.get()-mHead.get());
+    }
+
+    /**
+     * @return max number of updates that were waiting at the same time
+     */
+    public int getMaxQueueDepth(){
+        return mMaxQueueDepth;
+    }
+
+    /**
+     * @return max number of updates that can wait to be dispatched
+     */
+    public int getQueueCapacity(){
+        return mMask+1;
+    }
+
+    /**
+     * @return number of updates dispatched to the listeners or to the loggers
+     */
+    public long getDispatchedCount(){
+        return mNDispatched.get();
+    }
+
+    /**
+     * @return number of updates discarded since the ring was full
+     */
+    public long getDroppedCount(){
+        return mNDropped.get();
+    }
+
+    /**
+     * @return mean time between the enqueue and the dispatch of an update, in nanoseconds
+     */
+    public long getMeanDispatchLatencyNs(){
+        long nDispatched = mNDispatched.get();
+        if(nDispatched==0)
+            return 0;
+        return mTotalLatencyNs.get()/nDispatched;
+    }
+
+    /**
+     * @return max time between the enqueue and the dispatch of an update, in nanoseconds
+     */
+    public long getMaxDispatchLatencyNs(){
+        return mMaxLatencyNs;
+    }
+
+    /**
+     * reset the dispatch statistics
+     */
+    public void resetStats(){
+        mNDispatched.set(0);
+        mNDropped.set(0);
+        mTotalLatencyNs.set(0);
+        mMaxLatencyNs=0;
+        mMaxQueueDepth=0;
+    }
+
+    @Override
+    public String toString(){
+        return "Dispatcher("+mFeature.getName()+") depth: "+getQueueDepth()+
+                " maxDepth: "+mMaxQueueDepth+" dispatched: "+getDispatchedCount()+
+                " dropped: "+getDroppedCount()+" meanLatencyNs: "+getMeanDispatchLatencyNs()+
+                " maxLatencyNs: "+mMaxLatencyNs;
+    }
+
+}
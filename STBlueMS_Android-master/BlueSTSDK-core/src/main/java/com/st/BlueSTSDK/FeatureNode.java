@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+/**
+ * Node side of a feature: the operations that a {@link Feature} needs from the node that
+ * exports it.
+ * <p>
+ * On Android it is implemented by the {@code Node} class, other implementations can be used
+ * for parse the feature data outside a ble connection, for example in a test or in a benchmark.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public interface FeatureNode {
+
+    /**
+     * get a unique name for the node, used for identify the node in the logs
+     *
+     * @return node name
+     */
+    String getFriendlyName();
+
+    /**
+     * send some data to the feature
+     * @param feature feature that will receive the data
+     * @param data raw data to write
+     * @return true if the data is sent
+     */
+    boolean writeFeatureData(Feature feature, byte data[]);
+
+    /**
+     * send a command to a feature
+     * @param feature feature that will receive the command
+     * @param type command id
+     * @param data command parameters, can be an empty array
+     * @return true if the node can receive commands
+     */
+    boolean sendCommandMessage(Feature feature, byte type, byte data[]);
+
+}
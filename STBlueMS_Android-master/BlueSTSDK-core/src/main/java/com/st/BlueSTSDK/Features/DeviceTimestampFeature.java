@@ -26,10 +26,8 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * Class that a feature has to extend if it doesn't has the timestamp field,
@@ -47,7 +45,7 @@ public abstract class DeviceTimestampFeature extends Feature {
      * @param n        node that will update this feature
      * @param dataDesc description of the data that belong to this feature
      */
-    public DeviceTimestampFeature(String name, Node n, @NonNull Field[] dataDesc) {
+    public DeviceTimestampFeature(String name, FeatureNode n, Field[] dataDesc) {
         super(name, n, dataDesc);
     }
 
@@ -28,7 +28,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -73,7 +73,7 @@ public class FeatureAcceleration extends Feature {
      *
      * @param n node that will provide the data
      */
-    public FeatureAcceleration(Node n) {
+    public FeatureAcceleration(FeatureNode n) {
         super(FEATURE_NAME, n,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME[ACC_X_INDEX], FEATURE_UNIT, Field.Type.Int16,
@@ -92,10 +92,8 @@ public class FeatureAcceleration extends Feature {
      * @return acceleration in the X axis, or Nan if the array doesn't contain data
      */
     public static float getAccX(Sample s) {
-        if(s!=null)
-            if (s.data.length > ACC_X_INDEX)
-                if (s.data[ACC_X_INDEX] != null)
-                    return s.data[ACC_X_INDEX].floatValue();
+        if(hasValidIndex(s,ACC_X_INDEX))
+            return s.getFloat(ACC_X_INDEX);
         //else
         return Float.NaN;
     }//getAccX
@@ -107,10 +105,8 @@ public class FeatureAcceleration extends Feature {
      * @return acceleration in the Y axis, or Nan if the array doesn't contain data
      */
     public static float getAccY(Sample s) {
-        if(s!=null)
-            if (s.data.length > ACC_Y_INDEX)
-                if (s.data[ACC_Y_INDEX] != null)
-                    return s.data[ACC_Y_INDEX].floatValue();
+        if(hasValidIndex(s,ACC_Y_INDEX))
+            return s.getFloat(ACC_Y_INDEX);
         //else
         return Float.NaN;
     }//getAccY
@@ -122,10 +118,8 @@ public class FeatureAcceleration extends Feature {
      * @return acceleration in the Z axis, or Nan if the array doesn't contain data
      */
     public static float getAccZ(Sample s) {
-        if(s!=null)
-            if (s.data.length > ACC_Z_INDEX)
-                if (s.data[ACC_Z_INDEX] != null)
-                    return s.data[ACC_Z_INDEX].floatValue();
+        if(hasValidIndex(s,ACC_Z_INDEX))
+            return s.getFloat(ACC_Z_INDEX);
         //else
         return Float.NaN;
     }//getAccZ
@@ -143,7 +137,7 @@ public class FeatureAcceleration extends Feature {
         if (data.length - dataOffset < 6)
             throw new IllegalArgumentException("There are no 6 bytes available to read");
 
-        Sample temp = new Sample(timestamp, new Number[]{
+        Sample temp = new Sample(timestamp, new long[]{
                 //x
                 (NumberConversion.LittleEndian.bytesToInt16(data, dataOffset + 0)),
                 //y
@@ -164,11 +158,10 @@ public class FeatureAcceleration extends Feature {
         if(sample==null)
             return super.toString();
         sb.append(FEATURE_NAME).append(":\n\tTimestamp: ").append(sample.timestamp).append('\n');
-        Number data[] = sample.data;
         Field dataDesc[] = getFieldsDesc();
         sb.append("\tData: ( ");
-        for (int i = 0; i < data.length; i++) {
-            sb.append(String.format("%s: %4d ", dataDesc[i].getName(), data[i].intValue()));
+        for (int i = 0; i < sample.getDataLength(); i++) {
+            sb.append(String.format("%s: %4d ", dataDesc[i].getName(), sample.getInt(i)));
         }//for
         sb.append(')');
         return sb.toString();
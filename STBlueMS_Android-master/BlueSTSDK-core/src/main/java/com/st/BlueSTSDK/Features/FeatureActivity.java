@@ -26,11 +26,8 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -106,9 +103,9 @@ public class FeatureActivity extends Feature {
      */
     public static ActivityType getActivityStatus(Sample sample){
         if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null){
-                    int activityId = sample.data[0].byteValue();
+            if(sample.getDataLength()>0)
+                if (sample.hasValue(0)){
+                    int activityId = sample.getByte(0);
                     switch (activityId){
                         case 0x00:
                             return ActivityType.NO_ACTIVITY;
@@ -138,11 +135,9 @@ public class FeatureActivity extends Feature {
      * @param sample sample read from the node
      * @return local time when we receive the data, or null if it is an invalid sample
      */
-    public static @Nullable Date getActivityDate(Sample sample){
-        if(sample!=null)
-            if (sample.data.length > 1)
-                if (sample.data[1] != null)
-                    return new Date(sample.data[1].longValue());
+    public static Date getActivityDate(Sample sample){
+        if(hasValidIndex(sample,1))
+            return new Date(sample.getLong(1));
 
         //else
         return null;
@@ -153,7 +148,7 @@ public class FeatureActivity extends Feature {
      * build a activity feature
      * @param n node that will send data to this feature
      */
-    public FeatureActivity(Node n) {
+    public FeatureActivity(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME[0], FEATURE_UNIT[0], Field.Type.UInt8,
                         DATA_MAX,DATA_MIN),
@@ -172,10 +167,10 @@ public class FeatureActivity extends Feature {
      * @throws IllegalArgumentException if the data array has not enough data
      */
     @Override
-    protected ExtractResult extractData(long timestamp, @NonNull byte[] data, int dataOffset) {
+    protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 1)
             throw new IllegalArgumentException("There are no 1 byte available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 data[dataOffset],
                 System.currentTimeMillis()
         },getFieldsDesc());
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * Extend the feature adding the possibility to be configured sending a command message to the
@@ -78,7 +78,7 @@ public abstract class FeatureAutoConfigurable extends Feature {
      * @param n        node that will update this feature
      * @param dataDesc description of the data that belong to this feature
      */
-    public FeatureAutoConfigurable(String name, Node n, Field dataDesc[]) {
+    public FeatureAutoConfigurable(String name, FeatureNode n, Field dataDesc[]) {
         super(name, n, dataDesc);
         mIsConfigured = false;
     }//
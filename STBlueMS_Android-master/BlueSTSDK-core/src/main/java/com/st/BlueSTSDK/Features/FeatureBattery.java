@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -74,7 +74,7 @@ public class FeatureBattery extends Feature {
      * create a feature Battery
      * @param n node where the feature will read the data
      */
-    public FeatureBattery(Node n) {
+    public FeatureBattery(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME[PERCENTAGE_INDEX], FEATURE_UNIT[PERCENTAGE_INDEX],
                         Field.Type.Float, DATA_MAX[PERCENTAGE_INDEX], DATA_MIN[PERCENTAGE_INDEX]),
@@ -94,7 +94,7 @@ public class FeatureBattery extends Feature {
      */
     public static float getBatteryLevel(Sample s) {
         if(hasValidIndex(s,PERCENTAGE_INDEX))
-            return s.data[PERCENTAGE_INDEX].floatValue();
+            return s.getFloat(PERCENTAGE_INDEX);
         //else
         return Float.NaN;
     }//getBatteryLevel
@@ -106,7 +106,7 @@ public class FeatureBattery extends Feature {
      */
     public static float getVoltage(Sample s) {
         if(hasValidIndex(s,VOLTAGE_INDEX))
-            return s.data[VOLTAGE_INDEX].floatValue();
+            return s.getFloat(VOLTAGE_INDEX);
             //else
         return Float.NaN;
     }//getVoltage
@@ -118,7 +118,7 @@ public class FeatureBattery extends Feature {
      */
     public static float getCurrent(Sample s) {
         if(hasValidIndex(s,CURRENT_INDEX))
-            return s.data[CURRENT_INDEX].floatValue();
+            return s.getFloat(CURRENT_INDEX);
         //else
         return Float.NaN;
     }//getCurrent
@@ -132,7 +132,7 @@ public class FeatureBattery extends Feature {
         if(!hasValidIndex(s,STATUS_INDEX))
             return BatteryStatus.Error;
 
-        int status = s.data[STATUS_INDEX].byteValue();
+        int status = s.getByte(STATUS_INDEX);
 
         switch (status) {
             case 0x00:
@@ -188,10 +188,15 @@ public class FeatureBattery extends Feature {
         if(hasHeightResolutionCurrent(tempStatus))
             current=current/10;
 
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new float[]{
                 (float) NumberConversion.LittleEndian.bytesToInt16(data,dataOffset) / 10.0f,
                 NumberConversion.LittleEndian.bytesToInt16(data,dataOffset + 2) / 1000.0f,
                 current,
+                0
+        },new long[]{
+                0,
+                0,
+                0,
                 getBatteryStatus(tempStatus)
         },getFieldsDesc());
 
@@ -26,10 +26,8 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * The feature will contain the device position
@@ -73,9 +71,9 @@ public class FeatureCarryPosition extends Feature {
      */
     public static Position getPosition(Sample sample){
         if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null){
-                    int activityId = sample.data[0].byteValue();
+            if(sample.getDataLength()>0)
+                if (sample.hasValue(0)){
+                    int activityId = sample.getByte(0);
                     switch (activityId){
                         case 0x00:
                             return Position.UNKNOWN;
@@ -104,7 +102,7 @@ public class FeatureCarryPosition extends Feature {
      * build a carry position feature
      * @param n node that will send data to this feature
      */
-    public FeatureCarryPosition(Node n) {
+    public FeatureCarryPosition(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt8,
                         DATA_MAX,DATA_MIN)
@@ -120,10 +118,10 @@ public class FeatureCarryPosition extends Feature {
      * @throws IllegalArgumentException if the data array has not enough data
      */
     @Override
-    protected ExtractResult extractData(long timestamp, @NonNull byte[] data, int dataOffset) {
+    protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 1)
             throw new IllegalArgumentException("There are no 1 byte available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 data[dataOffset]
         },getFieldsDesc());
         return new ExtractResult(temp,1);
@@ -1,6 +1,6 @@
 package com.st.BlueSTSDK.Features;
 
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 
@@ -38,7 +38,7 @@ public class FeatureCompass extends FeatureAutoConfigurable {
      */
     public static float getCompass(Sample sample) {
         if(hasValidIndex(sample,0))
-            return sample.data[0].floatValue();
+            return sample.getFloat(0);
         //else
         return Float.NaN;
     }
@@ -48,7 +48,7 @@ public class FeatureCompass extends FeatureAutoConfigurable {
      *
      * @param n node that will update this feature
      */
-    public FeatureCompass(Node n) {
+    public FeatureCompass(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME,FEATURE_UNIT, Field.Type.Float,DATA_MIN,DATA_MAX)
         });
@@ -58,7 +58,7 @@ public class FeatureCompass extends FeatureAutoConfigurable {
     protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 2)
             throw new IllegalArgumentException("There are no 2 bytes available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new float[]{
                 NumberConversion.LittleEndian.bytesToUInt16(data, dataOffset)/100.0f
         },getFieldsDesc());
         return new ExtractResult(temp,2);
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -63,7 +63,7 @@ public class FeatureDirectionOfArrival extends Feature {
      *
      * @param n node that will provide the data
      */
-    public FeatureDirectionOfArrival(Node n) {
+    public FeatureDirectionOfArrival(FeatureNode n) {
         super(FEATURE_NAME, n,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt16,
@@ -79,8 +79,8 @@ public class FeatureDirectionOfArrival extends Feature {
      */
     public static short getSoundAngle(Feature.Sample s) {
         if(s!=null)
-            if (s.data.length==1)
-                return s.data[0].shortValue();
+            if (s.getDataLength()==1)
+                return s.getShort(0);
         //else
         return Short.MIN_VALUE;
     }//getAccY
@@ -97,7 +97,7 @@ public class FeatureDirectionOfArrival extends Feature {
         if (data.length-dataOffset < 2)
             throw new IllegalArgumentException("There are no more than 2 byte available to read");
 
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 NumberConversion.LittleEndian.bytesToInt16(data, dataOffset)
         },getFieldsDesc());
         return new ExtractResult(temp,2);
@@ -26,10 +26,8 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * Feature used for notify the free fall event from the accelerometer
@@ -52,7 +50,7 @@ public class FeatureFreeFall extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeatureFreeFall(Node n) {
+    public FeatureFreeFall(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt8,
                         DATA_MAX, DATA_MIN)
@@ -65,10 +63,8 @@ public class FeatureFreeFall extends Feature {
      * @return true if there was a free fall event
      */
     public static boolean getFreeFallStatus(Sample sample) {
-        if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null)
-                    return sample.data[0].byteValue()!=0;
+        if(hasValidIndex(sample,0))
+            return sample.getByte(0)!=0;
         //else
         return false;
     }//getActivity
@@ -84,10 +80,10 @@ public class FeatureFreeFall extends Feature {
      * @throws IllegalArgumentException if the data array has not enough data
      */
     @Override
-    protected ExtractResult extractData(long timestamp, @NonNull byte[] data, int dataOffset) {
+    protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset <1 )
             throw new IllegalArgumentException("There are no 1 bytes available to read");
-        Sample temp = new Feature.Sample(timestamp,new Number[]{
+        Sample temp = new Feature.Sample(timestamp,new long[]{
                 data[dataOffset],
         },getFieldsDesc());
         return new ExtractResult(temp,1);
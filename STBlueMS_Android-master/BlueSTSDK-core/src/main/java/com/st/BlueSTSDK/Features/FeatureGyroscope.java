@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -61,7 +61,7 @@ public class FeatureGyroscope extends Feature {
      * build a gyroscope feature
      * @param node node where the feature will read the data
      */
-    public FeatureGyroscope(Node node) {
+    public FeatureGyroscope(FeatureNode node) {
         super(FEATURE_NAME, node,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME[GYRO_X_INDEX], FEATURE_UNIT, Field.Type.Float,
@@ -80,10 +80,8 @@ public class FeatureGyroscope extends Feature {
      * @return gyroscope in the X axis, or Nan if the array doesn't contain data
      */
     public static float getGyroX(Sample s) {
-        if(s!=null)
-            if (s.data.length > GYRO_X_INDEX)
-                if (s.data[GYRO_X_INDEX] != null)
-                    return s.data[GYRO_X_INDEX].floatValue();
+        if(hasValidIndex(s,GYRO_X_INDEX))
+            return s.getFloat(GYRO_X_INDEX);
         //else
         return Float.NaN;
     }//getGyroX
@@ -95,10 +93,8 @@ public class FeatureGyroscope extends Feature {
      * @return gyroscope in the Y axis, or Nan if the array doesn't contain data
      */
     public static float getGyroY(Sample s) {
-        if(s!=null)
-            if (s.data.length > GYRO_Y_INDEX)
-                if (s.data[GYRO_Y_INDEX] != null)
-                    return s.data[GYRO_Y_INDEX].floatValue();
+        if(hasValidIndex(s,GYRO_Y_INDEX))
+            return s.getFloat(GYRO_Y_INDEX);
         //else
         return Float.NaN;
     }//getGyroY
@@ -110,10 +106,8 @@ public class FeatureGyroscope extends Feature {
      * @return gyroscope in the Z axis, or Nan if the array doesn't contain data
      */
     public static float getGyroZ(Sample s) {
-        if(s!=null)
-            if (s.data.length > GYRO_Z_INDEX)
-                if (s.data[GYRO_Z_INDEX] != null)
-                    return s.data[GYRO_Z_INDEX].floatValue();
+        if(hasValidIndex(s,GYRO_Z_INDEX))
+            return s.getFloat(GYRO_Z_INDEX);
         //else
         return Float.NaN;
     }//getGyroZ
@@ -131,7 +125,7 @@ public class FeatureGyroscope extends Feature {
         if (data.length - dataOffset < 6)
             throw new IllegalArgumentException("There are no 6 bytes available to read");
 
-        Sample temp = new Sample(timestamp, new Number[]{
+        Sample temp = new Sample(timestamp, new float[]{
                 //x
                 (NumberConversion.LittleEndian.bytesToInt16(data, dataOffset + 0))/10.0f,
                 //y
@@ -151,11 +145,10 @@ public class FeatureGyroscope extends Feature {
         if(sample==null)
             return super.toString();
         sb.append(FEATURE_NAME).append(":\n\tTimestamp: ").append(sample.timestamp).append('\n');
-        Number data[] = sample.data;
         Field dataDesc[] = getFieldsDesc();
         sb.append("\tData: ( ");
-        for (int i = 0; i < data.length; i++) {
-            sb.append(String.format("%s: %.1f ",dataDesc[i].getName(),data[i].floatValue()));
+        for (int i = 0; i < sample.getDataLength(); i++) {
+            sb.append(String.format("%s: %.1f ",dataDesc[i].getName(),sample.getFloat(i)));
         }//for
         sb.append(')');
         return sb.toString();
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -54,11 +54,11 @@ public class FeatureHumidity extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeatureHumidity(Node n) {
+    public FeatureHumidity(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{ HUMIDITY_FILED });
     }//FeatureHumidity
 
-    protected FeatureHumidity(String name, Node n,Field data[]) {
+    protected FeatureHumidity(String name, FeatureNode n,Field data[]) {
         super(name,n,data);
         if(data[0]!=HUMIDITY_FILED){
             throw new IllegalArgumentException("First data[0] must be FeatureHumidity" +
@@ -73,10 +73,8 @@ public class FeatureHumidity extends Feature {
      * @return humidity value or nan if the data array is not valid
      */
     public static float getHumidity(Sample s) {
-        if(s!=null)
-            if(s.data.length>0)
-                if (s.data[0] != null)
-                    return s.data[0].floatValue();
+        if(hasValidIndex(s,0))
+            return s.getFloat(0);
         //else
         return Float.NaN;
     }//getHumidity
@@ -96,7 +94,7 @@ public class FeatureHumidity extends Feature {
             throw new IllegalArgumentException("There are no 2 bytes available to read");
 
         //it has 1 decimal value -> divide by 10
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new float[]{
                 NumberConversion.LittleEndian.bytesToInt16(data, dataOffset)/10.0f
         },getFieldsDesc());
 
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -53,7 +53,7 @@ public class FeatureLuminosity extends Feature {
      *
      * @param n node that will send the data to this feature
      */
-    public FeatureLuminosity(Node n) {
+    public FeatureLuminosity(FeatureNode n) {
         super(FEATURE_NAME, n,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt16, DATA_MAX,
@@ -68,11 +68,8 @@ public class FeatureLuminosity extends Feature {
      * @return luminosity value or -1 if the data array is not valid
      */
     public static int getLuminosity(Sample s) {
-        if(s!=null)
-            if(s.data!=null)
-                if(s.data.length>0)
-                    if (s.data[0] != null)
-                        return s.data[0].intValue();
+        if(hasValidIndex(s,0))
+            return s.getInt(0);
         //else
         return -1; // the luminosity is always positive
     }
@@ -89,7 +86,7 @@ public class FeatureLuminosity extends Feature {
     protected ExtractResult extractData(long timestamp,byte[] data, int dataOffset) {
         if (data.length - dataOffset < 2)
             throw new IllegalArgumentException("There are no 2 bytes available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 NumberConversion.LittleEndian.bytesToInt16(data, dataOffset)
         },getFieldsDesc());
         return new ExtractResult(temp,2);
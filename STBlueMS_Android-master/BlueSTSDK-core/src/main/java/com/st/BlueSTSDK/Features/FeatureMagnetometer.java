@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -64,11 +64,8 @@ public class FeatureMagnetometer extends Feature {
      * @return magnetometer in the X axis, or Nan if the array doesn't contain data
      */
     public static float getMagX(Sample s) {
-        if(s!=null)
-            if(s.data!=null)
-                if (s.data.length > MAG_X_INDEX)
-                    if (s.data[MAG_X_INDEX] != null)
-                        return s.data[MAG_X_INDEX].floatValue();
+        if(hasValidIndex(s,MAG_X_INDEX))
+            return s.getFloat(MAG_X_INDEX);
         //else
         return Float.NaN;
     }//getMagX
@@ -80,11 +77,8 @@ public class FeatureMagnetometer extends Feature {
      * @return magnetometer in the Y axis, or Nan if the array doesn't contain data
      */
     public static float getMagY(Sample s) {
-        if(s!=null)
-            if(s.data!=null)
-                if (s.data.length > MAG_Y_INDEX)
-                    if (s.data[MAG_Y_INDEX] != null)
-                        return s.data[MAG_Y_INDEX].floatValue();
+        if(hasValidIndex(s,MAG_Y_INDEX))
+            return s.getFloat(MAG_Y_INDEX);
         //else
         return Float.NaN;
     }//getMagY
@@ -96,11 +90,8 @@ public class FeatureMagnetometer extends Feature {
      * @return magnetometer in the Z axis, or Nan if the array doesn't contain data
      */
     public static float getMagZ(Sample s) {
-        if(s!=null)
-            if(s.data!=null)
-                if (s.data.length > MAG_Z_INDEX)
-                    if (s.data[MAG_Z_INDEX] != null)
-                        return s.data[MAG_Z_INDEX].floatValue();
+        if(hasValidIndex(s,MAG_Z_INDEX))
+            return s.getFloat(MAG_Z_INDEX);
         //else
         return Float.NaN;
     }//getMagZ
@@ -110,7 +101,7 @@ public class FeatureMagnetometer extends Feature {
      *
      * @param node node where the feature will read the data
      */
-    public FeatureMagnetometer(Node node) {
+    public FeatureMagnetometer(FeatureNode node) {
         super(FEATURE_NAME, node,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME[MAG_X_INDEX], FEATURE_UNIT, Field.Type.Int16,
@@ -135,7 +126,7 @@ public class FeatureMagnetometer extends Feature {
         if (data.length - dataOffset < 6)
             throw new IllegalArgumentException("There are no 6 bytes available to read");
 
-        Sample temp = new Sample(timestamp, new Number[]{
+        Sample temp = new Sample(timestamp, new long[]{
                 //x
                 (NumberConversion.LittleEndian.bytesToInt16(data, dataOffset + 0)),
                 //y
@@ -155,11 +146,10 @@ public class FeatureMagnetometer extends Feature {
         if(sample==null)
             return super.toString();
         sb.append(FEATURE_NAME).append(":\n\tTimestamp: ").append(sample.timestamp).append('\n');
-        Number data[] = sample.data;
         Field dataDesc[] = getFieldsDesc();
         sb.append("\tData: ( ");
-        for (int i = 0; i < data.length; i++) {
-            sb.append(String.format("%s: %d ",dataDesc[i].getName(),data[i].intValue()));
+        for (int i = 0; i < sample.getDataLength(); i++) {
+            sb.append(String.format("%s: %d ",dataDesc[i].getName(),sample.getInt(i)));
         }//for
         sb.append(')');
         return sb.toString();
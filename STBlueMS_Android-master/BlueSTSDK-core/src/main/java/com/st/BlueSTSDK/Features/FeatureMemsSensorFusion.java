@@ -26,7 +26,7 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -79,7 +79,7 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      *
      * @param node note that will send data to this feature
      */
-    public FeatureMemsSensorFusion(Node node) {
+    public FeatureMemsSensorFusion(FeatureNode node) {
         this(FEATURE_NAME, node);
     }//FeatureMemsSensorFusion
 
@@ -88,7 +88,7 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      * @param name feature name
      * @param node node that will export the data
      */
-    protected FeatureMemsSensorFusion(String name, Node node) {
+    protected FeatureMemsSensorFusion(String name, FeatureNode node) {
         super(name, node, new Field[]{
                 new Field(FEATURE_DATA_NAME[QI_INDEX], FEATURE_UNIT, Field.Type.Float,
                         DATA_MAX, DATA_MIN),
@@ -108,10 +108,8 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      * @return quaternion qs component, or Nan if the array doesn't contain data
      */
      public static float getQi(Sample sample) {
-         if(sample!=null)
-            if (sample.data.length > QI_INDEX)
-                if (sample.data[QI_INDEX] != null)
-                    return sample.data[QI_INDEX].floatValue();
+         if(hasValidIndex(sample,QI_INDEX))
+             return sample.getFloat(QI_INDEX);
          //else
         return Float.NaN;
     }
@@ -123,10 +121,8 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      * @return quaternion qi component, or Nan if the array doesn't contain data
      */
     public static float getQj(Sample sample) {
-        if(sample!=null)
-            if (sample.data.length > QJ_INDEX)
-                if (sample.data[QJ_INDEX] != null)
-                    return sample.data[QJ_INDEX].floatValue();
+        if(hasValidIndex(sample,QJ_INDEX))
+            return sample.getFloat(QJ_INDEX);
         //else
         return Float.NaN;
     }
@@ -138,10 +134,8 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      * @return quaternion qj component, or Nan if the array doesn't contain data
      */
     public static float getQk(Sample sample) {
-        if(sample!=null)
-            if (sample.data.length > QK_INDEX)
-                if (sample.data[QK_INDEX] != null)
-                    return sample.data[QK_INDEX].floatValue();
+        if(hasValidIndex(sample,QK_INDEX))
+            return sample.getFloat(QK_INDEX);
         //else
         return Float.NaN;
     }
@@ -153,10 +147,8 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
      * @return quaternion qk component, or Nan if the array doesn't contain data
      */
     public static float getQs(Sample sample) {
-        if(sample!=null)
-            if (sample.data.length > QS_INDEX)
-                if (sample.data[QS_INDEX] != null)
-                    return sample.data[QS_INDEX].floatValue();
+        if(hasValidIndex(sample,QS_INDEX))
+            return sample.getFloat(QS_INDEX);
         //else
         return Float.NaN;
     }
@@ -216,7 +208,7 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
             nReadByte = 12;
         }//if-else
 
-        return new ExtractResult(new Sample(timestamp, new Number[]{ qi,qj,qk,qs },getFieldsDesc()),nReadByte);
+        return new ExtractResult(new Sample(timestamp, new float[]{ qi,qj,qk,qs },getFieldsDesc()),nReadByte);
     }
 
     @Override
@@ -225,13 +217,12 @@ public class FeatureMemsSensorFusion extends FeatureAutoConfigurable {
         Sample sample = mLastSample;
         if(sample==null)
             return super.toString();
-        Number data[] = sample.data;
         Field dataDesc[] = getFieldsDesc();
         return String.format(FEATURE_NAME+":\n\tTimestamp: %d\n\tQuat:(%s: %.3f, %s: %.3f, %s: %" +
                         ".3f, %s: %.3f)",sample.timestamp,
-                dataDesc[0].getName(),data[0].floatValue(),
-                dataDesc[1].getName(),data[1].floatValue(),
-                dataDesc[2].getName(),data[2].floatValue(),
-                dataDesc[3].getName(),data[3].floatValue());
+                dataDesc[0].getName(),sample.getFloat(0),
+                dataDesc[1].getName(),sample.getFloat(1),
+                dataDesc[2].getName(),sample.getFloat(2),
+                dataDesc[3].getName(),sample.getFloat(3));
     }
 }
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * This feature contains the audio level from an array of microphones
@@ -67,7 +67,7 @@ public class FeatureMicLevel extends Feature {
      *
      * @param n node that will provide the data
      */
-    public FeatureMicLevel(Node n) {
+    public FeatureMicLevel(FeatureNode n) {
         super(FEATURE_NAME, n,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt8,
@@ -84,8 +84,8 @@ public class FeatureMicLevel extends Feature {
      */
     public static byte getMicLevel(Sample s,int micLevel) {
         if(s!=null)
-            if (micLevel < s.data.length)
-                    return s.data[micLevel].byteValue();
+            if (micLevel < s.getDataLength())
+                    return s.getByte(micLevel);
         //else
         return Byte.MIN_VALUE;
     }//getAccY
@@ -113,7 +113,7 @@ public class FeatureMicLevel extends Feature {
             mDataDesc=temp;
         }//if mDataDesc
 
-        Number levels[] = new Number[nMic];
+        long levels[] = new long[nMic];
 
         for(int i=0;i<nMic;i++){
             levels[i]=data[dataOffset+i];
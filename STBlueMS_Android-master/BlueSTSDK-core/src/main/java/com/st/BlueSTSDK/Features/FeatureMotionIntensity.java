@@ -1,9 +1,7 @@
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 public class FeatureMotionIntensity extends Feature {
     public static final String FEATURE_NAME = "MotionIntensity";
@@ -19,7 +17,7 @@ public class FeatureMotionIntensity extends Feature {
      */
     public static byte getMotionIntensity(Sample sample){
         if(hasValidIndex(sample,0))
-            return sample.data[0].byteValue();
+            return sample.getByte(0);
         return -1;
     }//getMotionIntensity
 
@@ -27,7 +25,7 @@ public class FeatureMotionIntensity extends Feature {
      * build a activity feature
      * @param n node that will send data to this feature
      */
-    public FeatureMotionIntensity(Node n) {
+    public FeatureMotionIntensity(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt8,
                         DATA_MAX,DATA_MIN),
@@ -44,10 +42,10 @@ public class FeatureMotionIntensity extends Feature {
      * @throws IllegalArgumentException if the data array has not enough data
      */
     @Override
-    protected ExtractResult extractData(long timestamp, @NonNull byte[] data, int dataOffset) {
+    protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 1)
             throw new IllegalArgumentException("There are no 1 byte available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 data[dataOffset]
         },getFieldsDesc());
         return new ExtractResult(temp,1);
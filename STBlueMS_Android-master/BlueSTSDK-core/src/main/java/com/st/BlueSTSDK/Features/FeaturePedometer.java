@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -60,10 +60,8 @@ public class FeaturePedometer extends Feature{
      * @return number of steps or a negative number if it not a valid sample
      */
     public static long getSteps(Sample s) {
-        if(s!=null)
-            if (s.data.length > NUMBER_STEPS_INDEX)
-                if (s.data[NUMBER_STEPS_INDEX] != null)
-                    return s.data[NUMBER_STEPS_INDEX].longValue();
+        if(hasValidIndex(s,NUMBER_STEPS_INDEX))
+            return s.getLong(NUMBER_STEPS_INDEX);
         //else
         return -1;
     }//getSteps
@@ -74,10 +72,8 @@ public class FeaturePedometer extends Feature{
      * @return steps frequency or or a negative number if is not a valid sample
      */
     public static int getFrequency(Sample s) {
-        if(s!=null)
-            if (s.data.length > FREQUENCY_STEPS_INDEX)
-                if (s.data[FREQUENCY_STEPS_INDEX] != null)
-                    return s.data[FREQUENCY_STEPS_INDEX].intValue();
+        if(hasValidIndex(s,FREQUENCY_STEPS_INDEX))
+            return s.getInt(FREQUENCY_STEPS_INDEX);
         //else
         return -1;
     }//getFrequency
@@ -87,7 +83,7 @@ public class FeaturePedometer extends Feature{
      *
      * @param n node that will provide the data
      */
-    public FeaturePedometer(Node n) {
+    public FeaturePedometer(FeatureNode n) {
         super(FEATURE_NAME, n,
                 new Field[]{
                         new Field(FEATURE_DATA_NAME[NUMBER_STEPS_INDEX],
@@ -112,7 +108,7 @@ public class FeaturePedometer extends Feature{
     protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 6)
             throw new IllegalArgumentException("There are no 6 bytes available to read");
-        Sample temp = new Sample(timestamp, new Number[]{
+        Sample temp = new Sample(timestamp, new long[]{
                 (NumberConversion.LittleEndian.bytesToUInt32(data, dataOffset + 0)),
                 (NumberConversion.LittleEndian.bytesToUInt16(data, dataOffset + 4))
         },getFieldsDesc());
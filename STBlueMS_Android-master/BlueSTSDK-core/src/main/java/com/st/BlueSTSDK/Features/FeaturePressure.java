@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -55,13 +55,13 @@ public class FeaturePressure extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeaturePressure(Node n) {
+    public FeaturePressure(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 PRESSURE_FIELD
         });
     }//FeaturePressure
 
-    protected FeaturePressure(String name, Node n,Field data[]) {
+    protected FeaturePressure(String name, FeatureNode n,Field data[]) {
         super(name,n,data);
         if(data[0]!=PRESSURE_FIELD){
             throw new IllegalArgumentException("First data[0] must be FeaturePressure" +
@@ -76,10 +76,8 @@ public class FeaturePressure extends Feature {
      * @return pressure value or nan if the data array is not valid
      */
     public static float getPressure(Sample sample) {
-        if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null)
-                    return sample.data[0].floatValue();
+        if(hasValidIndex(sample,0))
+            return sample.getFloat(0);
         //else
         return Float.NaN;
     }
@@ -96,7 +94,7 @@ public class FeaturePressure extends Feature {
     protected ExtractResult extractData(long timestamp,byte[] data, int dataOffset) {
         if (data.length - dataOffset < 4)
             throw new IllegalArgumentException("There are no 4 bytes available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new float[]{
                 NumberConversion.LittleEndian.bytesToInt32(data, dataOffset)/100.0f
         },getFieldsDesc());
         return new ExtractResult(temp,4);
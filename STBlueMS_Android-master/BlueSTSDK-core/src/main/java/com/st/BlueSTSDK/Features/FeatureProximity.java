@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -64,7 +64,7 @@ public class FeatureProximity extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeatureProximity(Node n) {
+    public FeatureProximity(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt16, DATA_MIN, DATA_MAX)
         });
@@ -77,10 +77,8 @@ public class FeatureProximity extends Feature {
      * @return proximity value or -1 if the data array is not valid
      */
     public static int getProximityDistance(Sample sample) {
-        if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null)
-                    return sample.data[0].intValue();
+        if(hasValidIndex(sample,0))
+            return sample.getInt(0);
         //else
         return -1; // the luminosity is always positive
     }//getProximityDistance
@@ -97,7 +95,7 @@ public class FeatureProximity extends Feature {
     protected ExtractResult extractData(long timestamp,byte[] data, int dataOffset) {
         if (data.length - dataOffset < 2)
             throw new IllegalArgumentException("There are no 2 bytes available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 NumberConversion.LittleEndian.bytesToUInt32(data, dataOffset)
         },getFieldsDesc());
         return new ExtractResult(temp,5);
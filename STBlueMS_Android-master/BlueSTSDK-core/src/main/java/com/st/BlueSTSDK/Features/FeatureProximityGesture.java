@@ -26,10 +26,8 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * The feature will contain the a detected gesture using the proximity sensors
@@ -69,9 +67,9 @@ public class FeatureProximityGesture extends Feature {
      */
     public static Gesture getGesture(Sample sample){
         if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null){
-                    int activityId = sample.data[0].byteValue();
+            if(sample.getDataLength()>0)
+                if (sample.hasValue(0)){
+                    int activityId = sample.getByte(0);
                     switch (activityId){
                         case 0x00:
                             return Gesture.UNKNOWN;
@@ -94,7 +92,7 @@ public class FeatureProximityGesture extends Feature {
      * build a proximityGesture feature
      * @param n node that will send data to this feature
      */
-    public FeatureProximityGesture(Node n) {
+    public FeatureProximityGesture(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 new Field(FEATURE_DATA_NAME, FEATURE_UNIT, Field.Type.UInt8,
                         DATA_MAX,DATA_MIN)
@@ -110,10 +108,10 @@ public class FeatureProximityGesture extends Feature {
      * @throws IllegalArgumentException if the data array has not enough data
      */
     @Override
-    protected ExtractResult extractData(long timestamp, @NonNull byte[] data, int dataOffset) {
+    protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length - dataOffset < 1)
             throw new IllegalArgumentException("There are no 1 byte available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 data[dataOffset]
         },getFieldsDesc());
         return new ExtractResult(temp,1);
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 
 /**
  * Feature that contains a switch status, each bit can be mapped in a single single switch.
@@ -52,11 +52,11 @@ public class FeatureSwitch extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeatureSwitch(Node n) {
+    public FeatureSwitch(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{SWITCH_FILED});
     }
 
-    protected FeatureSwitch(String name, Node n, Field data[]) {
+    protected FeatureSwitch(String name, FeatureNode n, Field data[]) {
         super(name,n,data);
         if(data[0]!= SWITCH_FILED){
             throw new IllegalArgumentException("First data[0] must be FeatureSwitch" +
@@ -71,10 +71,8 @@ public class FeatureSwitch extends Feature {
      * @return led status data, or 0 if the sample is not valid
      */
     public static byte getSwitchStatus(Sample sample) {
-        if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null)
-                    return sample.data[0].byteValue();
+        if(hasValidIndex(sample,0))
+            return sample.getByte(0);
         //else
         return 0;
     }
@@ -102,7 +100,7 @@ public class FeatureSwitch extends Feature {
     protected ExtractResult extractData(long timestamp,byte[] data, int dataOffset) {
         if (data.length - dataOffset < 1)
             throw new IllegalArgumentException("There are no byte available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new long[]{
                 data[dataOffset]
         },getFieldsDesc());
         return new ExtractResult(temp,1);
@@ -114,9 +112,8 @@ public class FeatureSwitch extends Feature {
         Sample sample = mLastSample;
         if(sample==null)
             return super.toString();
-        Number data[] = sample.data;
         Field dataDesc[] = getFieldsDesc();
         return String.format(FEATURE_NAME+":\n\tTimestamp: %d\n\t%s: %s",sample.timestamp,
-                dataDesc[0].getName(),data[0].byteValue()==0 ? "Off" : "On");
+                dataDesc[0].getName(),sample.getByte(0)==0 ? "Off" : "On");
     }
 }
@@ -27,7 +27,7 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 import java.util.Arrays;
@@ -57,11 +57,11 @@ public class FeatureTemperature extends Feature {
      *
      * @param n node that will send data to this feature
      */
-    public FeatureTemperature(Node n) {
+    public FeatureTemperature(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{ TEMPERATURE_FILED });
     }
 
-    protected FeatureTemperature(String name, Node n,Field data[]) {
+    protected FeatureTemperature(String name, FeatureNode n,Field data[]) {
         super(name,n,data);
         if(data[0]!=TEMPERATURE_FILED){
             throw new IllegalArgumentException("First data[0] must be FeatureTemperature" +
@@ -76,10 +76,8 @@ public class FeatureTemperature extends Feature {
      * @return temperature value or nan if the data array is not valid
      */
     public static float getTemperature(Sample sample) {
-        if(sample!=null)
-            if(sample.data.length>0)
-                if (sample.data[0] != null)
-                    return sample.data[0].floatValue();
+        if(hasValidIndex(sample,0))
+            return sample.getFloat(0);
         //else
         return Float.NaN;
     }
@@ -96,7 +94,7 @@ public class FeatureTemperature extends Feature {
     protected ExtractResult extractData(long timestamp,byte[] data, int dataOffset) {
         if (data.length - dataOffset < 2)
             throw new IllegalArgumentException("There are no 2 bytes available to read");
-        Sample temp = new Sample(timestamp,new Number[]{
+        Sample temp = new Sample(timestamp,new float[]{
                 NumberConversion.LittleEndian.bytesToInt16(data, dataOffset)/10.0f
         },getFieldsDesc());
         return new ExtractResult(temp,2);
@@ -26,9 +26,6 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-
 /**
  * Class that describe a feature data field
  *
@@ -65,13 +62,13 @@ public class Field {
 
     /**
      * build a field, the field value will be set to null
-     * @param name filed name
-     * @param unit filed unit
+     * @param name filed name, not null
+     * @param unit filed unit, can be null
      * @param type field type
      * @param max field max value
      * @param min field min value
      */
-    public Field(@NonNull String name, String unit, Type type, Number max, Number min){
+    public Field(String name, String unit, Type type, Number max, Number min){
         mName=name;
         mUnit=unit;
         mType=type;
@@ -81,9 +78,9 @@ public class Field {
 
     /**
      * get filed unit
-     * @return filed unit
+     * @return filed unit, null if the field doesn't have an unit
      */
-    public @Nullable String getUnit() {
+    public String getUnit() {
         return mUnit;
     }
 
@@ -91,7 +88,7 @@ public class Field {
      * get filed name
      * @return filed name
      */
-    public @NonNull String getName() {
+    public String getName() {
         return mName;
     }
 
@@ -28,7 +28,7 @@ package com.st.BlueSTSDK.Features.standardCharacteristics;
 
 import com.st.BlueSTSDK.Features.DeviceTimestampFeature;
 import com.st.BlueSTSDK.Features.Field;
-import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.FeatureNode;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 /**
@@ -61,7 +61,7 @@ public class FeatureHeartRate extends DeviceTimestampFeature {
      *
      * @param n        node that will update this feature
      */
-    public FeatureHeartRate(Node n) {
+    public FeatureHeartRate(FeatureNode n) {
         super(FEATURE_NAME, n, new Field[]{
                 HEART_RATE_FIELD,
                 ENERGY_EXPENDED_FIELD,
@@ -75,10 +75,8 @@ public class FeatureHeartRate extends DeviceTimestampFeature {
      * @return heart rate or a negative number if not present
      */
     public static int getHeartRate(Sample s) {
-        if(s!=null)
-            if (s.data.length > HEART_RATE_INDEX)
-                if (s.data[HEART_RATE_INDEX] != null)
-                    return s.data[HEART_RATE_INDEX].intValue();
+        if(hasValidIndex(s,HEART_RATE_INDEX))
+            return s.getInt(HEART_RATE_INDEX);
         //else
         return -1;
     }//getHeartRate
@@ -89,10 +87,8 @@ public class FeatureHeartRate extends DeviceTimestampFeature {
      * @return energy extended or a negative number if not present
      */
     public static int getEnergyExtended(Sample s) {
-        if(s!=null)
-            if (s.data.length > ENERGY_EXPENDED_INDEX)
-                if (s.data[ENERGY_EXPENDED_INDEX] != null)
-                    return s.data[ENERGY_EXPENDED_INDEX].intValue();
+        if(hasValidIndex(s,ENERGY_EXPENDED_INDEX))
+            return s.getInt(ENERGY_EXPENDED_INDEX);
         //else
         return -1;
     }//getEnergyExtended
@@ -103,10 +99,8 @@ public class FeatureHeartRate extends DeviceTimestampFeature {
      * @return rr interval or nan if not present
      */
     public static float getRRInterval(Sample s) {
-        if(s!=null)
-            if (s.data.length > RR_INTERVAL_INDEX)
-                if (s.data[RR_INTERVAL_INDEX] != null)
-                    return s.data[RR_INTERVAL_INDEX].floatValue();
+        if(hasValidIndex(s,RR_INTERVAL_INDEX))
+            return s.getFloat(RR_INTERVAL_INDEX);
         //else
         return Float.NaN;
     }
@@ -143,7 +137,8 @@ public class FeatureHeartRate extends DeviceTimestampFeature {
         }
 
          return new ExtractResult(
-                 new Sample(timestamp,new Number[]{heartRate,energyExpended,rrInterval},
+                 new Sample(timestamp,new float[]{0,0,rrInterval},
+                         new long[]{heartRate,energyExpended,0},
                          getFieldsDesc()),
                  offset-dataOffset);
     }
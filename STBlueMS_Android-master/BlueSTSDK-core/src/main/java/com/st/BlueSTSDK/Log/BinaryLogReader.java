@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read a file created by {@link BinaryLogWriter}, one sample at time, or convert it in the
+ * same csv format used by the csv logger. The files of the first version, where all the samples
+ * have a value for each column, are still supported.
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class BinaryLogReader implements Closeable {
+
+    private final DataInputStream mIn;
+    private final byte mVersion;
+    private final boolean mCompressed;
+    private final long mStartTime;
+    private final String mFeatureName;
+    private final Field mFields[];
+    private final Field.Type mColumnType[];
+    private final int mColumnWidth[];
+    private final List<String> mNodeNames = new ArrayList<>();
+    private final Inflater mInflater;
+
+    private byte mPayload[] = new byte[0];
+    private byte mStored[] = new byte[0];
+    private long mHostTimestamp[] = new long[0];
+    private long mNodeTimestamp[] = new long[0];
+    private int mNodeIndex[] = new int[0];
+    private int mNValues[] = new int[0];
+    private byte mColumns[][];
+    private int mBlockNSample = 0;
+    private int mRow = 0;
+
+    /**
+     * open a binary log file
+     * @param file file to read
+     * @throws IOException if the file can not be read or it is not a binary log
+     */
+    public BinaryLogReader(File file) throws IOException {
+        this(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * read the header of a binary log
+     * @param in stream with the log data
+     * @throws IOException if the stream is not a binary log
+     */
+    public BinaryLogReader(InputStream in) throws IOException{
+        mIn = new DataInputStream(in);
+        if(mIn.readInt()!=BinaryLogWriter.MAGIC)
+            throw new IOException("Not a binary log");
+        mVersion = mIn.readByte();
+        if(mVersion!=BinaryLogWriter.VERSION && mVersion!=BinaryLogWriter.VERSION_FIXED_COLUMNS)
+            throw new IOException("Unsupported binary log version: "+mVersion);
+        mCompressed = mIn.readBoolean();
+        mStartTime = mIn.readLong();
+        mFeatureName = mIn.readUTF();
+        mFields = new Field[mIn.readUnsignedShort()];
+        for(int i=0;i<mFields.length;i++){
+            String name = mIn.readUTF();
+            String unit = mIn.readUTF();
+            Field.Type type;
+            try {
+                type = Field.Type.valueOf(mIn.readUTF());
+            }catch (IllegalArgumentException e){
+                throw new IOException("Unknown field type",e);
+            }
+            mFields[i] = new Field(name,unit.isEmpty() ? null : unit,type,0,0);
+        }//for
+        int nColumns = mIn.readUnsignedShort();
+        mColumnType = new Field.Type[nColumns];
+        mColumnWidth = new int[nColumns];
+        mColumns = new byte[nColumns][];
+        for(int i=0;i<nColumns;i++){
+            mColumnType[i] = BinaryLogWriter.getColumnType(mFields,i);
+            mColumnWidth[i] = BinaryLogWriter.getWidth(mColumnType[i]);
+            mColumns[i] = new byte[0];
+        }//for
+        int nNodes = mIn.readUnsignedShort();
+        for(int i=0;i<nNodes;i++)
+            mNodeNames.add(mIn.readUTF());
+        mInflater = mCompressed ? new Inflater() : null;
+    }
+
+    /**
+     * @return log start time, in ms
+     */
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * @return name of the logged feature
+     */
+    public String getFeatureName() {
+        return mFeatureName;
+    }
+
+    /**
+     * @return description of the feature fields, the field max and min are not stored
+     */
+    public Field[] getFields() {
+        return mFields.clone();
+    }
+
+    /**
+     * @return max number of values inside a sample
+     */
+    public int getNColumns(){
+        return mColumnType.length;
+    }
+
+    /**
+     * @return number of values inside the current sample, the columns after them have no value
+     */
+    public int getNValues(){
+        return mNValues[mRow];
+    }
+
+    /**
+     * @return name of the nodes found until now
+     */
+    public List<String> getNodeNames(){
+        return Collections.unmodifiableList(mNodeNames);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException{
+        long value=0;
+        int shift=0;
+        byte b;
+        do{
+            if(shift>63)
+                throw new IOException("Invalid var long");
+            b = in.readByte();
+            value |= (long)(b & 0x7F) << shift;
+            shift+=7;
+        }while((b & 0x80)!=0);
+        return value;
+    }//readVarLong
+
+    private static void readDeltas(DataInputStream in, long values[], int n) throws IOException{
+        long prev=0;
+        for(int i=0;i<n;i++){
+            long zigZag = readVarLong(in);
+            prev += (zigZag >>> 1) ^ -(zigZag & 1);
+            values[i]=prev;
+        }//for
+    }//readDeltas
+
+    /**
+     * read the payload of the next block
+     * @return payload length, -1 if the file ends
+     */
+    private int readPayload() throws IOException{
+        int payloadLength;
+        int storedLength;
+        try {
+            payloadLength = mIn.readInt();
+            storedLength = mIn.readInt();
+            if(payloadLength<0 || storedLength<0)
+                throw new IOException("Invalid block size");
+            if(mStored.length<storedLength)
+                mStored = new byte[storedLength];
+            mIn.readFully(mStored,0,storedLength);
+        }catch (EOFException e){
+            //end of file or truncated block
+            return -1;
+        }//try-catch
+        if(!mCompressed){
+            if(storedLength!=payloadLength)
+                throw new IOException("Invalid block size");
+            byte temp[] = mPayload;
+            mPayload = mStored;
+            mStored = temp;
+            return payloadLength;
+        }//if
+        if(mPayload.length<payloadLength)
+            mPayload = new byte[payloadLength];
+        mInflater.reset();
+        mInflater.setInput(mStored,0,storedLength);
+        try {
+            int size = 0;
+            while (size<payloadLength && !mInflater.finished()) {
+                int n = mInflater.inflate(mPayload, size, payloadLength - size);
+                if(n==0 && (mInflater.needsInput() || mInflater.needsDictionary()))
+                    break;
+                size+=n;
+            }//while
+            if(size!=payloadLength)
+                throw new IOException("Corrupted block");
+        }catch (DataFormatException e){
+            throw new IOException("Corrupted block",e);
+        }//try-catch
+        return payloadLength;
+    }//readPayload
+
+    /**
+     * load the next block of samples
+     * @return false if the file ends
+     */
+    private boolean readBlock() throws IOException{
+        int payloadLength = readPayload();
+        if(payloadLength<0)
+            return false;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(mPayload,0,
+                payloadLength));
+        int nNewNodes = in.readUnsignedShort();
+        for(int i=0;i<nNewNodes;i++)
+            mNodeNames.add(in.readUTF());
+        int nSample = in.readInt();
+        if(nSample<0)
+            throw new IOException("Invalid block size");
+        if(mHostTimestamp.length<nSample){
+            mHostTimestamp = new long[nSample];
+            mNodeTimestamp = new long[nSample];
+            mNodeIndex = new int[nSample];
+            mNValues = new int[nSample];
+        }//if
+        readDeltas(in,mHostTimestamp,nSample);
+        readDeltas(in,mNodeTimestamp,nSample);
+        for(int i=0;i<nSample;i++)
+            mNodeIndex[i]=(int)readVarLong(in);
+        for(int i=0;i<nSample;i++) {
+            mNValues[i] = mVersion == BinaryLogWriter.VERSION_FIXED_COLUMNS ?
+                    mColumns.length : (int) readVarLong(in);
+            if(mNValues[i]>mColumns.length)
+                throw new IOException("Invalid number of values");
+        }//for
+        for(int i=0;i<mColumns.length;i++){
+            int size = mColumnWidth[i]*nSample;
+            if(mColumns[i].length<size)
+                mColumns[i] = new byte[size];
+            in.readFully(mColumns[i],0,size);
+        }//for
+        mBlockNSample = nSample;
+        mRow=-1;
+        return true;
+    }//readBlock
+
+    /**
+     * move to the next sample
+     * @return false if there are no other samples
+     * @throws IOException if the file is corrupted
+     */
+    public boolean next() throws IOException{
+        while(mRow+1>=mBlockNSample){
+            if(!readBlock())
+                return false;
+        }//while
+        mRow++;
+        return true;
+    }//next
+
+    /**
+     * @return host timestamp of the current sample, relative to the log start
+     */
+    public long getHostTimestamp(){
+        return mHostTimestamp[mRow];
+    }
+
+    /**
+     * @return node timestamp of the current sample
+     */
+    public long getNodeTimestamp(){
+        return mNodeTimestamp[mRow];
+    }
+
+    /**
+     * @return name of the node that produced the current sample
+     */
+    public String getNodeName(){
+        int index = mNodeIndex[mRow];
+        return index<mNodeNames.size() ? mNodeNames.get(index) : "";
+    }
+
+    /**
+     * read the raw value of a column, with the sign extension for the signed types
+     */
+    private long readColumn(int column){
+        int width = mColumnWidth[column];
+        byte data[] = mColumns[column];
+        int offset = mRow*width;
+        long value=0;
+        for(int b=0;b<width;b++)
+            value = (value<<8) | (data[offset+b] & 0xFF);
+        switch (mColumnType[column]){
+            case Int32:
+                return (int) value;
+            case Int16:
+            case ByteArray:
+                return (short) value;
+            case Int8:
+                return (byte) value;
+            default:
+                return value;
+        }//switch
+    }//readColumn
+
+    /**
+     * @param column column index
+     * @return value of the column in the current sample, as float
+     */
+    public float getFloat(int column){
+        if(mColumnType[column]==Field.Type.Float)
+            return Float.intBitsToFloat((int)readColumn(column));
+        return readColumn(column);
+    }
+
+    /**
+     * @param column column index
+     * @return value of the column in the current sample, as long
+     */
+    public long getLong(int column){
+        if(mColumnType[column]==Field.Type.Float)
+            return (long)getFloat(column);
+        return readColumn(column);
+    }
+
+    /**
+     * append the text of a value, using the same format of the csv logger
+     * @param out string where append the value
+     * @param column column index
+     * @return the out parameter
+     */
+    public StringBuilder appendValue(StringBuilder out, int column){
+        if(mColumnType[column]==Field.Type.Float)
+            return out.append(getFloat(column));
+        return out.append(readColumn(column));
+    }//appendValue
+
+    /**
+     * write all the remaining samples in csv format: a header with the log information and the
+     * field names, and a line for each sample
+     * @param out where write the csv data
+     * @throws IOException if the read or the write fails
+     */
+    public void toCsv(Writer out) throws IOException{
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",
+                Locale.getDefault());
+        StringBuilder line = new StringBuilder(256);
+        line.append("Log start on,").append(dateFormat.format(new Date(mStartTime))).append('\n');
+        line.append("Feature,").append(mFeatureName).append('\n');
+        line.append("Nodes,");
+        for(String name : mNodeNames)
+            line.append(name).append(", ");
+        line.append('\n');
+        line.append("HostTimestamp (ms),NodeName,NodeTimestamp,RawData,");
+        for(Field f : mFields){
+            line.append(f.getName());
+            if(f.getUnit()!=null)
+                line.append(" (").append(f.getUnit()).append(')');
+            line.append(',');
+        }//for
+        line.append('\n');
+        out.append(line);
+
+        char lineChars[] = new char[256];
+        while(next()){
+            line.setLength(0);
+            line.append(getHostTimestamp()).append(',');
+            line.append(getNodeName()).append(',');
+            line.append(getNodeTimestamp()).append(",,");
+            int nValues = getNValues();
+            for(int i=0;i<nValues;i++)
+                appendValue(line,i).append(',');
+            line.append('\n');
+            int length = line.length();
+            if(lineChars.length<length)
+                lineChars = new char[Math.max(length,2*lineChars.length)];
+            line.getChars(0,length,lineChars,0);
+            out.write(lineChars,0,length);
+        }//while
+    }//toCsv
+
+    /**
+     * convert a binary log in a csv file
+     * @param binaryLog file created by {@link BinaryLogWriter}
+     * @param csvFile file where write the csv data
+     * @throws IOException if the conversion fails
+     */
+    public static void convertToCsv(File binaryLog, File csvFile) throws IOException{
+        BinaryLogReader reader = new BinaryLogReader(binaryLog);
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(csvFile)),64*1024);
+            try {
+                reader.toCsv(out);
+            }finally {
+                out.close();
+            }
+        }finally {
+            reader.close();
+        }
+    }//convertToCsv
+
+    @Override
+    public void close() throws IOException {
+        if(mInflater!=null)
+            mInflater.end();
+        mIn.close();
+    }//close
+
+}
@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Write the samples of a feature in a compact binary file, that can be read with
+ * {@link BinaryLogReader}.
+ * <p>
+ * The file starts with a header that describes the feature fields, followed by blocks of
+ * samples. Inside a block the data are stored by column: the host and node timestamps are
+ * delta encoded as variable length integers, the node is stored as an index in the node name
+ * table and each value column uses a fixed width depending on the field type. The blocks can
+ * be compressed with deflate.
+ * </p>
+ * <p>
+ * The header contains the max number of values of a sample, each sample stores how many values
+ * it has: the missing values are written as 0 and they are not returned by the reader. A sample
+ * with more values than the columns must be written in a new file.
+ * </p>
+ * <pre>
+ * header: magic (int), version (byte), compressed (byte), start time ms (long),
+ *         feature name (utf), n fields (short) {name (utf), unit (utf), type (utf)},
+ *         n columns (short), n nodes (short) {node name (utf)}
+ * block:  payload length (int), stored length (int), stored payload
+ * payload: n new node names (short) {name (utf)}, n samples (int),
+ *          host timestamp deltas (varint), node timestamp deltas (varint),
+ *          node index (varint), n values (varint), value columns (fixed width, big endian)
+ * </pre>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class BinaryLogWriter implements Closeable {
+
+    static final int MAGIC = 0x424C4F47; //BLOG
+    static final byte VERSION = 2;
+
+    /** version without the number of values of each sample */
+    static final byte VERSION_FIXED_COLUMNS = 1;
+
+    /** default number of samples inside a block */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /**
+     * Values of the sample to write
+     */
+    public interface SampleValues {
+
+        /**
+         * @param column column index
+         * @return value of a column with type {@link Field.Type#Float}
+         */
+        float getFloat(int column);
+
+        /**
+         * @param column column index
+         * @return value of an integer column
+         */
+        long getLong(int column);
+    }//SampleValues
+
+    /**
+     * number of bytes used for store a value of a specific type
+     * @param type field type
+     * @return size of the value in bytes
+     */
+    static int getWidth(Field.Type type){
+        switch (type){
+            case Int64:
+                return 8;
+            case Float:
+            case UInt32:
+            case Int32:
+                return 4;
+            case UInt16:
+            case Int16:
+            case ByteArray:
+                return 2;
+            case UInt8:
+            case Int8:
+            default:
+                return 1;
+        }//switch
+    }//getWidth
+
+    /**
+     * type of a column, if the sample has more values than fields the last field type is used
+     * @param fields feature fields
+     * @param column column index
+     * @return type of the column
+     */
+    static Field.Type getColumnType(Field fields[], int column){
+        if(fields.length==0)
+            return Field.Type.Float;
+        return fields[Math.min(column,fields.length-1)].getType();
+    }//getColumnType
+
+    private final DataOutputStream mOut;
+    private final int mBlockSize;
+    private final Deflater mDeflater;
+
+    private final Field.Type mColumnType[];
+    private final int mColumnWidth[];
+    private final byte mColumns[][];
+
+    private final long mHostTimestamp[];
+    private final long mNodeTimestamp[];
+    private final int mNodeIndex[];
+    private final int mNValues[];
+    private int mNSample = 0;
+
+    private final Map<String,Integer> mNodeIndexMap = new HashMap<>();
+    private final List<String> mNewNodeNames = new ArrayList<>();
+
+    /**
+     * byte stream that gives access to its buffer, for avoid a copy for each block
+     */
+    private static class PayloadBuffer extends ByteArrayOutputStream{
+        byte[] getBuffer(){
+            return buf;
+        }
+    }//PayloadBuffer
+
+    private final PayloadBuffer mPayload = new PayloadBuffer();
+    private final DataOutputStream mPayloadOut = new DataOutputStream(mPayload);
+    private byte mCompressBuffer[] = new byte[0];
+
+    /**
+     * create a binary log with the default block size
+     * @param out stream where write the data
+     * @param featureName name of the logged feature
+     * @param fields description of the feature fields
+     * @param nColumns number of values inside each sample
+     * @param startTime log start time, in ms
+     * @param nodeNames name of the logged nodes
+     * @param compress true for compress the blocks
+     * @throws IOException if the header write fails
+     */
+    public BinaryLogWriter(OutputStream out, String featureName, Field fields[], int nColumns,
+                           long startTime, List<String> nodeNames, boolean compress)
+            throws IOException{
+        this(out,featureName,fields,nColumns,startTime,nodeNames,compress,DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * create a binary log
+     * @param out stream where write the data
+     * @param featureName name of the logged feature
+     * @param fields description of the feature fields
+     * @param nColumns number of values inside each sample
+     * @param startTime log start time, in ms
+     * @param nodeNames name of the logged nodes
+     * @param compress true for compress the blocks
+     * @param blockSize number of samples inside a block
+     * @throws IOException if the header write fails
+     */
+    public BinaryLogWriter(OutputStream out, String featureName, Field fields[], int nColumns,
+                           long startTime, List<String> nodeNames, boolean compress,
+                           int blockSize) throws IOException{
+        if(blockSize<=0)
+            throw new IllegalArgumentException("blockSize must be positive");
+        mOut = new DataOutputStream(out);
+        mBlockSize = blockSize;
+        mDeflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+        mColumnType = new Field.Type[nColumns];
+        mColumnWidth = new int[nColumns];
+        mColumns = new byte[nColumns][];
+        for(int i=0;i<nColumns;i++){
+            mColumnType[i] = getColumnType(fields,i);
+            mColumnWidth[i] = getWidth(mColumnType[i]);
+            mColumns[i] = new byte[mColumnWidth[i]*blockSize];
+        }//for
+        mHostTimestamp = new long[blockSize];
+        mNodeTimestamp = new long[blockSize];
+        mNodeIndex = new int[blockSize];
+        mNValues = new int[blockSize];
+
+        mOut.writeInt(MAGIC);
+        mOut.writeByte(VERSION);
+        mOut.writeBoolean(compress);
+        mOut.writeLong(startTime);
+        mOut.writeUTF(featureName);
+        mOut.writeShort(fields.length);
+        for(Field f : fields){
+            mOut.writeUTF(f.getName());
+            mOut.writeUTF(f.getUnit()!=null ? f.getUnit() : "");
+            mOut.writeUTF(f.getType().name());
+        }//for
+        mOut.writeShort(nColumns);
+        mOut.writeShort(nodeNames.size());
+        for(String name : nodeNames){
+            mOut.writeUTF(name);
+            mNodeIndexMap.put(name,mNodeIndexMap.size());
+        }//for
+    }
+
+    /**
+     * get the index of a node name, adding it to the table if needed
+     */
+    private int getNodeIndex(String nodeName){
+        if(nodeName==null)
+            nodeName="";
+        Integer index = mNodeIndexMap.get(nodeName);
+        if(index==null){
+            index = mNodeIndexMap.size();
+            mNodeIndexMap.put(nodeName,index);
+            mNewNodeNames.add(nodeName);
+        }//if
+        return index;
+    }//getNodeIndex
+
+    /**
+     * @return max number of values inside a sample
+     */
+    public int getNColumns(){
+        return mColumns.length;
+    }
+
+    /**
+     * add a sample with a value for each column to the current block, the block is written
+     * when it is full
+     * @param hostTimestamp time when the sample is received, relative to the log start
+     * @param nodeName name of the node that produced the sample
+     * @param nodeTimestamp timestamp produced by the node
+     * @param values sample values
+     * @throws IOException if the write fails
+     */
+    public void writeSample(long hostTimestamp, String nodeName, long nodeTimestamp,
+                            SampleValues values) throws IOException {
+        writeSample(hostTimestamp,nodeName,nodeTimestamp,mColumns.length,values);
+    }
+
+    /**
+     * add a sample to the current block, the block is written when it is full
+     * @param hostTimestamp time when the sample is received, relative to the log start
+     * @param nodeName name of the node that produced the sample
+     * @param nodeTimestamp timestamp produced by the node
+     * @param nValues number of values inside the sample, the values are read from the first
+     *                column
+     * @param values sample values
+     * @throws IOException if the write fails
+     * @throws IllegalArgumentException if the sample has more values than the columns
+     */
+    public void writeSample(long hostTimestamp, String nodeName, long nodeTimestamp,
+                            int nValues, SampleValues values) throws IOException {
+        if(nValues<0 || nValues>mColumns.length)
+            throw new IllegalArgumentException("The sample has "+nValues+" values, the log has "+
+                    mColumns.length+" columns");
+        int row = mNSample;
+        mHostTimestamp[row]=hostTimestamp;
+        mNodeTimestamp[row]=nodeTimestamp;
+        mNodeIndex[row]=getNodeIndex(nodeName);
+        mNValues[row]=nValues;
+        for(int i=0;i<mColumns.length;i++){
+            int width = mColumnWidth[i];
+            long bits;
+            if(i>=nValues)
+                bits = 0;
+            else
+                bits = mColumnType[i]==Field.Type.Float ?
+                        Float.floatToRawIntBits(values.getFloat(i)) : values.getLong(i);
+            byte column[] = mColumns[i];
+            int offset = row*width;
+            //big endian
+            for(int b=width-1;b>=0;b--){
+                column[offset+b]=(byte)bits;
+                bits>>=8;
+            }//for
+        }//for
+        mNSample++;
+        if(mNSample==mBlockSize)
+            writeBlock();
+    }//writeSample
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException{
+        while((value & ~0x7FL)!=0){
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value>>>=7;
+        }//while
+        out.writeByte((int)value);
+    }//writeVarLong
+
+    private static long zigZag(long value){
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeDeltas(DataOutputStream out, long values[], int n) throws IOException{
+        long prev=0;
+        for(int i=0;i<n;i++){
+            writeVarLong(out,zigZag(values[i]-prev));
+            prev=values[i];
+        }//for
+    }//writeDeltas
+
+    /**
+     * write the samples of the current block, also if the block is not full
+     * @throws IOException if the write fails
+     */
+    public void writeBlock() throws IOException{
+        if(mNSample==0)
+            return;
+        mPayload.reset();
+        mPayloadOut.writeShort(mNewNodeNames.size());
+        for(String name : mNewNodeNames)
+            mPayloadOut.writeUTF(name);
+        mNewNodeNames.clear();
+        mPayloadOut.writeInt(mNSample);
+        writeDeltas(mPayloadOut,mHostTimestamp,mNSample);
+        writeDeltas(mPayloadOut,mNodeTimestamp,mNSample);
+        for(int i=0;i<mNSample;i++)
+            writeVarLong(mPayloadOut,mNodeIndex[i]);
+        for(int i=0;i<mNSample;i++)
+            writeVarLong(mPayloadOut,mNValues[i]);
+        for(int i=0;i<mColumns.length;i++)
+            mPayloadOut.write(mColumns[i],0,mColumnWidth[i]*mNSample);
+        mPayloadOut.flush();
+
+        byte payload[] = mPayload.getBuffer();
+        int payloadLength = mPayload.size();
+        mOut.writeInt(payloadLength);
+        if(mDeflater==null){
+            mOut.writeInt(payloadLength);
+            mOut.write(payload,0,payloadLength);
+        }else{
+            int storedLength = compress(payload,payloadLength);
+            mOut.writeInt(storedLength);
+            mOut.write(mCompressBuffer,0,storedLength);
+        }//if-else
+        mNSample=0;
+    }//writeBlock
+
+    /**
+     * compress the payload into mCompressBuffer
+     * @return compressed length
+     */
+    private int compress(byte data[], int length){
+        mDeflater.reset();
+        mDeflater.setInput(data,0,length);
+        mDeflater.finish();
+        int size=0;
+        if(mCompressBuffer.length<length+64)
+            mCompressBuffer = new byte[length+64];
+        while(!mDeflater.finished()){
+            if(size==mCompressBuffer.length){
+                byte temp[] = new byte[2*mCompressBuffer.length];
+                System.arraycopy(mCompressBuffer,0,temp,0,size);
+                mCompressBuffer=temp;
+            }//if
+            size+=mDeflater.deflate(mCompressBuffer,size,mCompressBuffer.length-size);
+        }//while
+        return size;
+    }//compress
+
+    /**
+     * write the current block and flush the stream
+     * @throws IOException if the write fails
+     */
+    public void flush() throws IOException{
+        writeBlock();
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        }finally {
+            if(mDeflater!=null)
+                mDeflater.end();
+            mOut.close();
+        }//try-finally
+    }//close
+
+}
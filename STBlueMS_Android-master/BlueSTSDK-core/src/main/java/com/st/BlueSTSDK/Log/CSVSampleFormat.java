@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Feature;
+
+/**
+ * Build the csv lines written by the csv logger: host timestamp, node name, node timestamp,
+ * raw data as hexadecimal string and the sample values.
+ * <p>the line is appended to a StringBuilder, so the caller can reuse the same buffer for all
+ * the samples</p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class CSVSampleFormat {
+
+    private static final char HEX_DIGITS[] = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * append the bytes as hexadecimal string
+     * @param out string where append the data
+     * @param data bytes to append
+     * @return the out parameter
+     */
+    public static StringBuilder appendHex(StringBuilder out, byte data[]){
+        for(byte b : data){
+            out.append(HEX_DIGITS[(b>>4) & 0x0F]);
+            out.append(HEX_DIGITS[b & 0x0F]);
+        }//for
+        return out;
+    }//appendHex
+
+    /**
+     * append a csv line with the sample data, the line ends with a new line
+     * @param out string where append the line
+     * @param hostTimestamp time of the sample notification, relative to the log start
+     * @param nodeName name of the node that sent the sample
+     * @param rawData data used for build the sample, can be null
+     * @param sample sample to write
+     * @return the out parameter
+     */
+    public static StringBuilder appendLine(StringBuilder out, long hostTimestamp,
+                                           String nodeName, byte rawData[],
+                                           Feature.Sample sample){
+        out.append(hostTimestamp).append(','); //HostTimestamp
+        out.append(nodeName).append(','); //NodeName
+        out.append(sample.timestamp).append(','); //NodeTimestamp
+        if (rawData != null)
+            appendHex(out, rawData);
+        out.append(',');
+        int nValues = sample.getDataLength();
+        for(int i=0;i<nValues;i++){
+            sample.appendValue(out,i).append(',');
+        }//for
+        return out.append('\n');
+    }//appendLine
+
+    //static class
+    private CSVSampleFormat(){}
+
+}
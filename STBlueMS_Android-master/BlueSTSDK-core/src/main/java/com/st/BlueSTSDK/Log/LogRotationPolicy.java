@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+/**
+ * Tell when a log file has to be closed and a new segment started, and how to handle the closed
+ * segments.
+ * <p>
+ * A segment is closed when it reaches one of its limits: size, duration or number of samples.
+ * A limit equal to 0 is disabled. The closed segments can be compressed and only the last
+ * {@link #getMaxSegments()} segments of each feature are kept.
+ * </p>
+ * <p>The object is immutable, the {@code with} methods return a modified copy.</p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class LogRotationPolicy {
+
+    /**
+     * policy that never closes the log file
+     */
+    public static final LogRotationPolicy NONE = new LogRotationPolicy(0,0,0);
+
+    private final long mMaxSegmentSize;
+    private final long mMaxSegmentDurationMs;
+    private final long mMaxSegmentSamples;
+    private final int mMaxSegments;
+    private final boolean mCompressSegments;
+
+    /**
+     * @param maxSegmentSize max size of a segment in bytes, 0 for no limit
+     * @param maxSegmentDurationMs max time covered by a segment in ms, 0 for no limit
+     * @param maxSegmentSamples max number of samples inside a segment, 0 for no limit
+     */
+    public LogRotationPolicy(long maxSegmentSize, long maxSegmentDurationMs,
+                             long maxSegmentSamples){
+        this(maxSegmentSize,maxSegmentDurationMs,maxSegmentSamples,0,false);
+    }
+
+    private LogRotationPolicy(long maxSegmentSize, long maxSegmentDurationMs,
+                              long maxSegmentSamples, int maxSegments, boolean compressSegments){
+        if(maxSegmentSize<0 || maxSegmentDurationMs<0 || maxSegmentSamples<0 || maxSegments<0)
+            throw new IllegalArgumentException("The limits can not be negative");
+        mMaxSegmentSize = maxSegmentSize;
+        mMaxSegmentDurationMs = maxSegmentDurationMs;
+        mMaxSegmentSamples = maxSegmentSamples;
+        mMaxSegments = maxSegments;
+        mCompressSegments = compressSegments;
+    }
+
+    /**
+     * @param maxSegmentSize max size of a segment in bytes
+     * @return policy that starts a new segment when the file is bigger than maxSegmentSize
+     */
+    public static LogRotationPolicy bySize(long maxSegmentSize){
+        return new LogRotationPolicy(maxSegmentSize,0,0);
+    }
+
+    /**
+     * @param maxSegmentDurationMs max time covered by a segment in ms
+     * @return policy that starts a new segment every maxSegmentDurationMs ms
+     */
+    public static LogRotationPolicy byTime(long maxSegmentDurationMs){
+        return new LogRotationPolicy(0,maxSegmentDurationMs,0);
+    }
+
+    /**
+     * @param maxSegmentSamples max number of samples inside a segment
+     * @return policy that starts a new segment every maxSegmentSamples samples
+     */
+    public static LogRotationPolicy bySampleCount(long maxSegmentSamples){
+        return new LogRotationPolicy(0,0,maxSegmentSamples);
+    }
+
+    /**
+     * @param maxSegments number of closed segments to keep for each feature, 0 for keep all
+     * @return copy of this policy that deletes the oldest segments
+     */
+    public LogRotationPolicy withMaxSegments(int maxSegments){
+        return new LogRotationPolicy(mMaxSegmentSize,mMaxSegmentDurationMs,mMaxSegmentSamples,
+                maxSegments,mCompressSegments);
+    }
+
+    /**
+     * @param compress true for compress the closed segments
+     * @return copy of this policy with the segment compression enabled or disabled
+     */
+    public LogRotationPolicy withCompression(boolean compress){
+        return new LogRotationPolicy(mMaxSegmentSize,mMaxSegmentDurationMs,mMaxSegmentSamples,
+                mMaxSegments,compress);
+    }
+
+    /**
+     * @return true if the log is split in segments
+     */
+    public boolean isEnabled(){
+        return mMaxSegmentSize>0 || mMaxSegmentDurationMs>0 || mMaxSegmentSamples>0;
+    }
+
+    /**
+     * @return max size of a segment in bytes, 0 if there is no limit
+     */
+    public long getMaxSegmentSize() {
+        return mMaxSegmentSize;
+    }
+
+    /**
+     * @return max time covered by a segment in ms, 0 if there is no limit
+     */
+    public long getMaxSegmentDurationMs() {
+        return mMaxSegmentDurationMs;
+    }
+
+    /**
+     * @return max number of samples inside a segment, 0 if there is no limit
+     */
+    public long getMaxSegmentSamples() {
+        return mMaxSegmentSamples;
+    }
+
+    /**
+     * @return number of closed segments to keep for each feature, 0 if all are kept
+     */
+    public int getMaxSegments() {
+        return mMaxSegments;
+    }
+
+    /**
+     * @return true if the closed segments are compressed
+     */
+    public boolean compressSegments() {
+        return mCompressSegments;
+    }
+
+    /**
+     * tell if the current segment has to be closed before write a new sample
+     * @param segmentSize bytes written in the segment
+     * @param segmentDurationMs time since the segment creation, in ms
+     * @param nSamples samples written in the segment
+     * @return true if the segment reached one of its limits
+     */
+    public boolean needRotation(long segmentSize, long segmentDurationMs, long nSamples){
+        return (mMaxSegmentSize>0 && segmentSize>=mMaxSegmentSize) ||
+                (mMaxSegmentDurationMs>0 && segmentDurationMs>=mMaxSegmentDurationMs) ||
+                (mMaxSegmentSamples>0 && nSamples>=mMaxSegmentSamples);
+    }//needRotation
+
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * In process transport, the device side is implemented by a {@link DeviceHandler}.
+ * <p>
+ * All the callbacks are called by a single thread owned by the transport, in the same order
+ * of the requests, as it happens with the ble stack.
+ * The device side can send notifications at any rate calling {@link #notify(UUID, byte[])}.
+ * The device accepts all the operations on its characteristics and any mtu.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class LoopbackTransport implements NodeTransport {
+
+    /**
+     * Device side of the transport
+     */
+    public interface DeviceHandler {
+
+        /**
+         * called when the host reads a characteristic
+         * @param characteristic characteristic to read
+         * @return characteristic value, null if the read fails
+         */
+        byte[] onRead(UUID characteristic);
+
+        /**
+         * called when the host writes a characteristic
+         * @param characteristic characteristic written
+         * @param data written data
+         * @return true if the write is accepted
+         */
+        boolean onWrite(UUID characteristic, byte[] data);
+    }//DeviceHandler
+
+    private final List<UUID> mCharacteristics;
+    private final DeviceHandler mDevice;
+    private final Set<UUID> mNotificationEnabled =
+            Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+
+    private volatile Callback mCallback;
+    private ExecutorService mHostThread;
+
+    /**
+     * @param characteristics characteristics exported by the device
+     * @param device object that implements the device side
+     */
+    public LoopbackTransport(List<UUID> characteristics, DeviceHandler device){
+        mCharacteristics = new ArrayList<>(characteristics);
+        mDevice = device;
+    }
+
+    /**
+     * @param characteristic characteristic to test
+     * @return true if the host enabled the notification of the characteristic
+     */
+    public boolean isNotificationEnabled(UUID characteristic){
+        return mNotificationEnabled.contains(characteristic);
+    }
+
+    /**
+     * @return true if the connection is open
+     */
+    public synchronized boolean isConnected(){
+        return mHostThread!=null;
+    }
+
+    /**
+     * send a notification to the host, the data is delivered only if the host enabled the
+     * characteristic notification
+     * @param characteristic characteristic that sends the data
+     * @param data notification data
+     * @return true if the notification is sent
+     */
+    public boolean notify(final UUID characteristic, final byte data[]){
+        if(!isNotificationEnabled(characteristic))
+            return false;
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onCharacteristicChanged(LoopbackTransport.this, characteristic, data);
+            }
+        });
+    }//notify
+
+    /**
+     * simulate a link loss initiated by the device
+     */
+    public void dropConnection(){
+        disconnect();
+    }
+
+    private synchronized boolean post(Runnable task){
+        if(mHostThread==null)
+            return false;
+        try {
+            mHostThread.execute(task);
+            return true;
+        }catch (RejectedExecutionException e){
+            return false;
+        }
+    }//post
+
+    @Override
+    public boolean connect(Callback callback) {
+        synchronized (this) {
+            if (mHostThread != null)
+                return false;
+            mCallback = callback;
+            mHostThread = Executors.newSingleThreadExecutor();
+        }
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onConnectionChange(LoopbackTransport.this, true);
+            }
+        });
+    }//connect
+
+    @Override
+    public boolean discoverCharacteristics() {
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onCharacteristicsDiscovered(LoopbackTransport.this,
+                        new ArrayList<>(mCharacteristics));
+            }
+        });
+    }//discoverCharacteristics
+
+    @Override
+    public int getCharacteristicProperties(UUID characteristic) {
+        return mCharacteristics.contains(characteristic) ? PROPERTY_ALL : 0;
+    }
+
+    @Override
+    public boolean readCharacteristic(final UUID characteristic) {
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                byte data[] = mCharacteristics.contains(characteristic) ?
+                        mDevice.onRead(characteristic) : null;
+                mCallback.onCharacteristicRead(LoopbackTransport.this, characteristic, data);
+            }
+        });
+    }//readCharacteristic
+
+    @Override
+    public boolean writeCharacteristic(final UUID characteristic, final byte[] data,
+                                       final boolean withResponse) {
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                boolean success = mCharacteristics.contains(characteristic) &&
+                        mDevice.onWrite(characteristic, data);
+                mCallback.onCharacteristicWrite(LoopbackTransport.this, characteristic,
+                        success || !withResponse);
+            }
+        });
+    }//writeCharacteristic
+
+    @Override
+    public boolean setCharacteristicNotification(final UUID characteristic, boolean enable) {
+        if(!mCharacteristics.contains(characteristic) || !isConnected())
+            return false;
+        if(enable)
+            mNotificationEnabled.add(characteristic);
+        else
+            mNotificationEnabled.remove(characteristic);
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onNotificationChange(LoopbackTransport.this, characteristic, true);
+            }
+        });
+    }//setCharacteristicNotification
+
+    @Override
+    public boolean requestMtu(final int mtu) {
+        return post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onMtuChange(LoopbackTransport.this, mtu, true);
+            }
+        });
+    }//requestMtu
+
+    @Override
+    public void disconnect() {
+        ExecutorService hostThread;
+        synchronized (this) {
+            hostThread = mHostThread;
+            if (hostThread == null)
+                return;
+            hostThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mCallback.onConnectionChange(LoopbackTransport.this, false);
+                }
+            });
+            mHostThread = null;
+        }
+        mNotificationEnabled.clear();
+        hostThread.shutdown();
+    }//disconnect
+
+}
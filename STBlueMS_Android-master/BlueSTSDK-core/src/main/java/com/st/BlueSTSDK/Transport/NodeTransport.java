@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Channel used for exchange the characteristic data with a node.
+ * <p>
+ * It has the same operations of a gatt connection: connect, discover the characteristics,
+ * read, write and enable the notifications. The results are notified asynchronously through
+ * the {@link NodeTransport.Callback}.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public interface NodeTransport {
+
+    /** the characteristic can be read, same value of the ble property */
+    int PROPERTY_READ = 0x02;
+    /** the characteristic can be written without response, same value of the ble property */
+    int PROPERTY_WRITE_NO_RESPONSE = 0x04;
+    /** the characteristic can be written with response, same value of the ble property */
+    int PROPERTY_WRITE = 0x08;
+    /** the characteristic can be notified, same value of the ble property */
+    int PROPERTY_NOTIFY = 0x10;
+    /** all the operations, used by the transports that don't know the characteristic properties */
+    int PROPERTY_ALL = PROPERTY_READ | PROPERTY_WRITE_NO_RESPONSE | PROPERTY_WRITE |
+            PROPERTY_NOTIFY;
+
+    /**
+     * Interface used for notify the transport events
+     */
+    interface Callback {
+
+        /**
+         * called when the connection is opened or closed
+         * @param transport transport that change its state
+         * @param connected true if the connection is open, false if the connection is closed or
+         *                  if it can not be opened
+         */
+        void onConnectionChange(NodeTransport transport, boolean connected);
+
+        /**
+         * called when the characteristics discovery ends
+         * @param transport transport that did the discovery
+         * @param characteristics uuid of the characteristics exported by the node
+         */
+        void onCharacteristicsDiscovered(NodeTransport transport, List<UUID> characteristics);
+
+        /**
+         * called when the node sends a notification
+         * @param transport transport that received the data
+         * @param characteristic characteristic that sent the notification
+         * @param data notification data
+         */
+        void onCharacteristicChanged(NodeTransport transport, UUID characteristic, byte[] data);
+
+        /**
+         * called when a read ends
+         * @param transport transport that did the read
+         * @param characteristic read characteristic
+         * @param data read data, null if the read fails
+         */
+        void onCharacteristicRead(NodeTransport transport, UUID characteristic, byte[] data);
+
+        /**
+         * called when a write ends, also for the writes without response: in this case success
+         * tells only that the data are sent
+         * @param transport transport that did the write
+         * @param characteristic written characteristic
+         * @param success true if the node accepts the data
+         */
+        void onCharacteristicWrite(NodeTransport transport, UUID characteristic, boolean success);
+
+        /**
+         * called when the node accepts or refuses a notification change
+         * @param transport transport that did the request
+         * @param characteristic characteristic changed
+         * @param success true if the notification status is changed
+         */
+        void onNotificationChange(NodeTransport transport, UUID characteristic, boolean success);
+
+        /**
+         * called when the mtu exchange ends
+         * @param transport transport that did the request
+         * @param mtu mtu used by the connection
+         * @param success true if the requested mtu is accepted
+         */
+        void onMtuChange(NodeTransport transport, int mtu, boolean success);
+    }//Callback
+
+    /**
+     * open the connection
+     * @param callback object where notify the transport events
+     * @return false if the connection can not be started, true if the result will be notified
+     * with {@link Callback#onConnectionChange(NodeTransport, boolean)}
+     */
+    boolean connect(Callback callback);
+
+    /**
+     * start the discovery of the characteristics exported by the node, the result is notified
+     * with {@link Callback#onCharacteristicsDiscovered(NodeTransport, List)}
+     * @return true if the request is sent
+     */
+    boolean discoverCharacteristics();
+
+    /**
+     * get the operations allowed on a discovered characteristic
+     * @param characteristic characteristic to query
+     * @return bit mask of the PROPERTY_* values, 0 if the characteristic is not known
+     */
+    int getCharacteristicProperties(UUID characteristic);
+
+    /**
+     * read a characteristic, the result is notified with
+     * {@link Callback#onCharacteristicRead(NodeTransport, UUID, byte[])}
+     * @param characteristic characteristic to read
+     * @return true if the request is sent
+     */
+    boolean readCharacteristic(UUID characteristic);
+
+    /**
+     * write a characteristic
+     * @param characteristic characteristic to write
+     * @param data data to write
+     * @param withResponse true for wait the node acknowledge
+     * @return true if the request is sent, the result is notified with
+     * {@link Callback#onCharacteristicWrite(NodeTransport, UUID, boolean)}
+     */
+    boolean writeCharacteristic(UUID characteristic, byte[] data, boolean withResponse);
+
+    /**
+     * enable or disable the notification of a characteristic
+     * @param characteristic characteristic to change
+     * @param enable true for receive the notification
+     * @return true if the request is sent, the result is notified with
+     * {@link Callback#onNotificationChange(NodeTransport, UUID, boolean)}
+     */
+    boolean setCharacteristicNotification(UUID characteristic, boolean enable);
+
+    /**
+     * ask to use a bigger mtu
+     * @param mtu mtu to request
+     * @return true if the request is sent, the result is notified with
+     * {@link Callback#onMtuChange(NodeTransport, int, boolean)}
+     */
+    boolean requestMtu(int mtu);
+
+    /**
+     * close the connection, the end is notified with
+     * {@link Callback#onConnectionChange(NodeTransport, boolean)}
+     */
+    void disconnect();
+
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transport that exchanges {@link TransportFrame} with a stand-in device through a tcp socket.
+ * <p>
+ * The socket is opened and read by a dedicated thread, all the callbacks are called by this
+ * thread except the completion of the writes without response, of the notification changes
+ * and of the mtu requests: the frame protocol doesn't acknowledge them, so they are notified
+ * by the thread that sends the request as soon as the frame is sent.
+ * The frames have no size limit, so any mtu is accepted, and the stand-in device accepts all
+ * the operations on its characteristics.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class SocketTransport implements NodeTransport {
+
+    /** time to wait for the connection to open */
+    private static final int CONNECTION_TIMEOUT_MS = 5000;
+
+    private final String mHost;
+    private final int mPort;
+
+    private Callback mCallback;
+    private Thread mReaderThread;
+    private volatile Socket mSocket;
+    private DataOutputStream mOutput;
+    /** characteristics returned by the last discovery */
+    private volatile List<UUID> mCharacteristics = Collections.emptyList();
+
+    /**
+     * @param host address of the stand-in device
+     * @param port port of the stand-in device
+     */
+    public SocketTransport(String host, int port){
+        mHost = host;
+        mPort = port;
+    }
+
+    /**
+     * @return transport address in the format host:port
+     */
+    public String getAddress(){
+        return mHost+":"+mPort;
+    }
+
+    @Override
+    public synchronized boolean connect(Callback callback) {
+        if(mReaderThread!=null)
+            return false;
+        mCallback = callback;
+        mReaderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readLoop();
+            }
+        },"SocketTransport "+getAddress());
+        mReaderThread.start();
+        return true;
+    }//connect
+
+    private void readLoop(){
+        Socket socket = new Socket();
+        DataInputStream input;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(mHost, mPort), CONNECTION_TIMEOUT_MS);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            synchronized (this) {
+                mOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                mSocket = socket;
+            }
+        } catch (IOException e) {
+            closeSocket(socket);
+            onClosed();
+            return;
+        }//try-catch
+
+        mCallback.onConnectionChange(this, true);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                dispatchFrame(TransportFrame.read(input));
+            }//while
+        } catch (IOException e) {
+            //connection closed by us or by the device
+        } finally {
+            closeSocket(socket);
+            onClosed();
+        }//try-catch-finally
+    }//readLoop
+
+    private void onClosed(){
+        synchronized (this) {
+            mSocket = null;
+            mOutput = null;
+            mReaderThread = null;
+        }
+        mCharacteristics = Collections.emptyList();
+        mCallback.onConnectionChange(this, false);
+    }//onClosed
+
+    private void dispatchFrame(TransportFrame frame){
+        UUID characteristic = frame.getCharacteristic();
+        byte payload[] = frame.getPayload();
+        switch (frame.getType()){
+            case TransportFrame.DISCOVER_RESPONSE:
+                mCharacteristics = TransportFrame.parseDiscoverPayload(payload);
+                mCallback.onCharacteristicsDiscovered(this, mCharacteristics);
+                break;
+            case TransportFrame.NOTIFICATION:
+                mCallback.onCharacteristicChanged(this, characteristic, payload);
+                break;
+            case TransportFrame.READ_RESPONSE:
+                byte data[] = null;
+                if(isSuccess(payload)){
+                    data = new byte[payload.length-1];
+                    System.arraycopy(payload,1,data,0,data.length);
+                }//if
+                mCallback.onCharacteristicRead(this, characteristic, data);
+                break;
+            case TransportFrame.WRITE_RESPONSE:
+                mCallback.onCharacteristicWrite(this, characteristic, isSuccess(payload));
+                break;
+            default:
+                //unknown frame, ignore it
+        }//switch
+    }//dispatchFrame
+
+    private static boolean isSuccess(byte responsePayload[]){
+        return responsePayload.length>0 && responsePayload[0]==TransportFrame.STATUS_SUCCESS;
+    }
+
+    private synchronized boolean send(byte type, UUID characteristic, byte payload[]){
+        if(mOutput==null)
+            return false;
+        try {
+            new TransportFrame(type, characteristic, payload).write(mOutput);
+            mOutput.flush();
+            return true;
+        } catch (IOException e) {
+            closeSocket(mSocket);
+            return false;
+        }//try-catch
+    }//send
+
+    private static void closeSocket(Socket socket){
+        if(socket==null)
+            return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //nothing to do
+        }
+    }//closeSocket
+
+    @Override
+    public boolean discoverCharacteristics() {
+        return send(TransportFrame.DISCOVER, TransportFrame.NO_CHARACTERISTIC, new byte[0]);
+    }
+
+    @Override
+    public int getCharacteristicProperties(UUID characteristic) {
+        return mCharacteristics.contains(characteristic) ? PROPERTY_ALL : 0;
+    }
+
+    @Override
+    public boolean readCharacteristic(UUID characteristic) {
+        return send(TransportFrame.READ, characteristic, new byte[0]);
+    }
+
+    @Override
+    public boolean writeCharacteristic(UUID characteristic, byte[] data, boolean withResponse) {
+        if(withResponse)
+            return send(TransportFrame.WRITE, characteristic, data);
+        if(!send(TransportFrame.WRITE_NO_RESPONSE, characteristic, data))
+            return false;
+        mCallback.onCharacteristicWrite(this, characteristic, true);
+        return true;
+    }//writeCharacteristic
+
+    @Override
+    public boolean setCharacteristicNotification(UUID characteristic, boolean enable) {
+        if(!send(enable ? TransportFrame.NOTIFY_ON : TransportFrame.NOTIFY_OFF,
+                characteristic, new byte[0]))
+            return false;
+        mCallback.onNotificationChange(this, characteristic, true);
+        return true;
+    }//setCharacteristicNotification
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        synchronized (this) {
+            if (mOutput == null)
+                return false;
+        }
+        mCallback.onMtuChange(this, mtu, true);
+        return true;
+    }//requestMtu
+
+    /**
+     * close the socket, the reader thread will notify the disconnection
+     */
+    @Override
+    public void disconnect() {
+        Socket socket = mSocket;
+        if(socket!=null)
+            closeSocket(socket);
+    }//disconnect
+
+}
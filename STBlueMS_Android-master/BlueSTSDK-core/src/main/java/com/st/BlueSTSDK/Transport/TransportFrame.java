@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Message exchanged by the {@link SocketTransport} and the device that it is connected to.
+ * <p>
+ * Each frame is: type (1 byte), characteristic uuid (16 bytes), payload length (2 bytes),
+ * payload. All the numbers are big endian.
+ * The requests are sent by the host, the responses and the notifications by the device.
+ * The first payload byte of the read and write responses is the status: {@link #STATUS_SUCCESS}
+ * or {@link #STATUS_FAIL}, the read response contains the data after the status.
+ * The discovery response contains the list of characteristic uuids.
+ * </p>
+ * <p>
+ * The class can be used for write the stand-in device, it doesn't need android.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class TransportFrame {
+
+    /** request the list of characteristics */
+    public static final byte DISCOVER = 0x01;
+    /** request a characteristic read */
+    public static final byte READ = 0x02;
+    /** request a characteristic write, the device sends a {@link #WRITE_RESPONSE} */
+    public static final byte WRITE = 0x03;
+    /** request a characteristic write without response */
+    public static final byte WRITE_NO_RESPONSE = 0x04;
+    /** enable the characteristic notification */
+    public static final byte NOTIFY_ON = 0x05;
+    /** disable the characteristic notification */
+    public static final byte NOTIFY_OFF = 0x06;
+
+    /** list of characteristics exported by the device */
+    public static final byte DISCOVER_RESPONSE = (byte) 0x81;
+    /** result of a read */
+    public static final byte READ_RESPONSE = (byte) 0x82;
+    /** result of a write */
+    public static final byte WRITE_RESPONSE = (byte) 0x83;
+    /** characteristic notification */
+    public static final byte NOTIFICATION = (byte) 0x84;
+
+    public static final byte STATUS_SUCCESS = 0;
+    public static final byte STATUS_FAIL = 1;
+
+    /** max payload size */
+    public static final int MAX_PAYLOAD_SIZE = 0xFFFF;
+
+    /** uuid used for the frames without a characteristic */
+    public static final UUID NO_CHARACTERISTIC = new UUID(0,0);
+
+    private static final int UUID_SIZE = 16;
+
+    private final byte mType;
+    private final UUID mCharacteristic;
+    private final byte mPayload[];
+
+    /**
+     * create a frame
+     * @param type frame type
+     * @param characteristic characteristic of the frame, {@link #NO_CHARACTERISTIC} if not used
+     * @param payload frame payload
+     */
+    public TransportFrame(byte type, UUID characteristic, byte payload[]){
+        if(payload.length>MAX_PAYLOAD_SIZE)
+            throw new IllegalArgumentException("Payload too big: "+payload.length);
+        mType = type;
+        mCharacteristic = characteristic;
+        mPayload = payload;
+    }
+
+    /**
+     * @return frame type
+     */
+    public byte getType() {
+        return mType;
+    }
+
+    /**
+     * @return characteristic of the frame
+     */
+    public UUID getCharacteristic() {
+        return mCharacteristic;
+    }
+
+    /**
+     * @return frame payload
+     */
+    public byte[] getPayload() {
+        return mPayload;
+    }
+
+    /**
+     * write the frame in a stream
+     * @param out stream where write the frame
+     * @throws IOException if the write fails
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeByte(mType);
+        out.writeLong(mCharacteristic.getMostSignificantBits());
+        out.writeLong(mCharacteristic.getLeastSignificantBits());
+        out.writeShort(mPayload.length);
+        out.write(mPayload);
+    }//write
+
+    /**
+     * read a frame from a stream
+     * @param in stream where read the frame
+     * @return read frame
+     * @throws java.io.EOFException if the stream ends
+     * @throws IOException if the read fails
+     */
+    public static TransportFrame read(DataInputStream in) throws IOException{
+        byte type = in.readByte();
+        UUID characteristic = new UUID(in.readLong(),in.readLong());
+        byte payload[] = new byte[in.readUnsignedShort()];
+        in.readFully(payload);
+        return new TransportFrame(type,characteristic,payload);
+    }//read
+
+    /**
+     * build the payload of a read or write response
+     * @param success true if the operation is done
+     * @param data data read, null for the write response
+     * @return response payload
+     */
+    public static byte[] buildResponsePayload(boolean success, byte data[]){
+        int dataLength = data!=null ? data.length : 0;
+        byte payload[] = new byte[1+dataLength];
+        payload[0] = success ? STATUS_SUCCESS : STATUS_FAIL;
+        if(dataLength!=0)
+            System.arraycopy(data,0,payload,1,dataLength);
+        return payload;
+    }//buildResponsePayload
+
+    /**
+     * build the payload of a discovery response
+     * @param characteristics characteristics exported by the device
+     * @return response payload
+     */
+    public static byte[] buildDiscoverPayload(List<UUID> characteristics){
+        ByteBuffer buffer = ByteBuffer.allocate(characteristics.size()*UUID_SIZE);
+        for(UUID uuid : characteristics){
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }//for
+        return buffer.array();
+    }//buildDiscoverPayload
+
+    /**
+     * extract the characteristic list from a discovery response
+     * @param payload discovery response payload
+     * @return characteristics exported by the device
+     */
+    public static List<UUID> parseDiscoverPayload(byte payload[]){
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        List<UUID> characteristics = new ArrayList<>(payload.length/UUID_SIZE);
+        while(buffer.remaining()>=UUID_SIZE){
+            characteristics.add(new UUID(buffer.getLong(),buffer.getLong()));
+        }//while
+        return characteristics;
+    }//parseDiscoverPayload
+
+}
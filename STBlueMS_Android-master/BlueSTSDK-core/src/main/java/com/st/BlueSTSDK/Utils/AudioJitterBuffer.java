@@ -0,0 +1,384 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive jitter buffer for a stream of fixed length audio frames, with packet loss concealment.
+ * <p>
+ * The producer adds the frames with their arrival time: the buffer compares it with the time
+ * when the frame should arrive at the nominal stream rate, estimates the network jitter and
+ * chooses how many frames keep before starting the playback. The expected arrival time moves
+ * back when a frame arrives early and forward when all the frames of a window arrive late, so
+ * a node clock slower than the nominal rate is not counted as jitter. The depth is never bigger than
+ * the max latency passed in the constructor: a frame that arrives later than this means that the
+ * stream was paused, so the expected arrival time restarts from it. A late frame is still
+ * decoded correctly, so it is not a loss: only the producer knows when some packets are missing
+ * and it notifies them with {@link #notifyLostFrames(int)}. After a loss the decoder state is not
+ * valid, so the frames are concealed until the producer marks a frame as a resynchronization
+ * point.
+ * </p>
+ * <p>
+ * The consumer reads a frame each time the audio output needs it: when the buffer is empty the
+ * last frame is repeated with a decreasing gain, and after few frames it is replaced by silence.
+ * The playback restarts with a fade in when the buffer is filled again.
+ * </p>
+ * The buffer can be used by a producer and a consumer thread.
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class AudioJitterBuffer {
+
+    /** minimum number of frames buffered before starting the playback */
+    private static final int MIN_TARGET_FRAMES = 2;
+
+    /** weight of the last arrival in the jitter estimation: 1/16 as in the RTP jitter */
+    private static final int JITTER_SMOOTHING = 16;
+
+    /** gain applied to the last frame at each concealment */
+    private static final float CONCEALMENT_ATTENUATION = 0.5f;
+
+    /** max number of consecutive frames concealed repeating the last one, then it is silence */
+    private static final int MAX_REPEATED_FRAMES = 3;
+
+    /** frames played without underruns before reducing the extra depth added by an underrun */
+    private static final int UNDERRUN_DECAY_FRAMES = 400;
+
+    /** frames used for find the minimum delay, the drift of the node clock is removed at the end */
+    private static final int DRIFT_WINDOW_FRAMES = 100;
+
+    /** frames over the target depth before starting to drop them to reduce the latency */
+    private static final int DRAIN_MARGIN_FRAMES = 2;
+
+    private final int mFrameLength;
+    private final long mFrameDurationNs;
+    private final int mMaxFrames;
+
+    /** buffered frames, in a circular array */
+    private final short mFrames[][];
+    /** true if the frame in the same position was decoded without a valid decoder state */
+    private final boolean mIsDesync[];
+    private int mHead;
+    private int mCount;
+
+    /////////////////////////////////////// PRODUCER //////////////////////////////////////////////
+    private boolean mStreamStarted;
+    /** arrival time of the first frame, moved back when a frame arrives earlier than expected */
+    private long mAnchorNs;
+    /** frames received or lost from the anchor */
+    private long mNFrames;
+    /** smoothed delay of the frames respect the anchor */
+    private long mJitterNs;
+    /** minimum delay of the frames in the current drift window */
+    private long mWindowMinDelayNs;
+    private int mNWindowFrames;
+    private boolean mWaitResync;
+
+    /////////////////////////////////////// CONSUMER //////////////////////////////////////////////
+    private boolean mPlaying;
+    private int mUnderrunExtraFrames;
+    private int mFramesWithoutUnderrun;
+    private final short mLastFrame[];
+    private float mConcealmentGain;
+    private int mNRepeatedFrames;
+    private boolean mFadeIn;
+
+    ////////////////////////////////////// STATISTICS /////////////////////////////////////////////
+    private long mLostFrames;
+    private long mConcealedFrames;
+    private long mDroppedFrames;
+    private long mUnderruns;
+
+    /**
+     * @param samplingFreq audio sampling frequency, in Hz
+     * @param frameLength number of samples in each frame
+     * @param maxLatencyMs max time that a frame stays in the buffer, in milliseconds
+     */
+    public AudioJitterBuffer(int samplingFreq, int frameLength, int maxLatencyMs){
+        if(samplingFreq<=0 || frameLength<=0)
+            throw new IllegalArgumentException("Invalid audio format: "+samplingFreq+"Hz, "+
+                    frameLength+" samples");
+        mFrameLength = frameLength;
+        mFrameDurationNs = frameLength*1000000000L/samplingFreq;
+        mMaxFrames = Math.max(MIN_TARGET_FRAMES,
+                (int)(maxLatencyMs*1000000L/mFrameDurationNs));
+        //space for the frames that arrive together after a delay, before dropping them
+        mFrames = new short[2*mMaxFrames][frameLength];
+        mIsDesync = new boolean[mFrames.length];
+        mLastFrame = new short[frameLength];
+        reset();
+    }
+
+    /**
+     * @return number of samples in each frame
+     */
+    public int getFrameLength(){
+        return mFrameLength;
+    }
+
+    /**
+     * @return max number of frames that the buffer keeps before the playback
+     */
+    public int getMaxFrames(){
+        return mMaxFrames;
+    }
+
+    /**
+     * remove all the frames and restart the jitter estimation, for example when a new stream
+     * starts
+     */
+    public synchronized void reset(){
+        mHead=0;
+        mCount=0;
+        mStreamStarted=false;
+        mJitterNs=0;
+        mWindowMinDelayNs=Long.MAX_VALUE;
+        mNWindowFrames=0;
+        mWaitResync=false;
+        mPlaying=false;
+        mUnderrunExtraFrames=0;
+        mFramesWithoutUnderrun=0;
+        Arrays.fill(mLastFrame,(short)0);
+        mConcealmentGain=0.0f;
+        mNRepeatedFrames=0;
+        mFadeIn=true;
+    }
+
+    /**
+     * add a frame to the buffer
+     * @param data audio samples, the method reads {@link #getFrameLength()} samples
+     * @param offset index of the first sample
+     * @param arrivalTimeNs time when the frame was received, from {@link System#nanoTime()}
+     * @param isResync true if the frame was decoded after a new synchronization of the decoder
+     */
+    public synchronized void put(short data[], int offset, long arrivalTimeNs, boolean isResync){
+        if(!mStreamStarted)
+            restartArrivalReference(arrivalTimeNs);
+        long delay = arrivalTimeNs - (mAnchorNs + mNFrames*mFrameDurationNs);
+        if(delay<0){
+            mAnchorNs+=delay;
+            delay=0;
+        }//if
+        //a delay that the buffer can't absorb is a pause of the stream, not a jitter
+        if(delay/mFrameDurationNs > mMaxFrames){
+            restartArrivalReference(arrivalTimeNs);
+            delay=0;
+        }//if
+        mJitterNs += (delay-mJitterNs)/JITTER_SMOOTHING;
+        mNFrames++;
+
+        //if no frame of the window arrived on time the node clock is slower than the nominal
+        mWindowMinDelayNs = Math.min(mWindowMinDelayNs,delay);
+        if(++mNWindowFrames>=DRIFT_WINDOW_FRAMES){
+            mAnchorNs+=mWindowMinDelayNs;
+            mJitterNs=Math.max(0,mJitterNs-mWindowMinDelayNs);
+            mWindowMinDelayNs=Long.MAX_VALUE;
+            mNWindowFrames=0;
+        }//if
+
+        if(isResync)
+            mWaitResync=false;
+
+        if(mCount==mFrames.length){
+            removeFirst();
+            mDroppedFrames++;
+        }//if
+        int tail = (mHead+mCount) % mFrames.length;
+        System.arraycopy(data,offset,mFrames[tail],0,mFrameLength);
+        mIsDesync[tail]=mWaitResync;
+        mCount++;
+    }//put
+
+    /**
+     * use the frame arrival time as the new expected arrival time, when the stream starts or
+     * restarts after a pause
+     */
+    private void restartArrivalReference(long arrivalTimeNs){
+        mStreamStarted=true;
+        mAnchorNs=arrivalTimeNs;
+        mNFrames=0;
+        mWindowMinDelayNs=Long.MAX_VALUE;
+        mNWindowFrames=0;
+    }
+
+    /**
+     * notify that some frames were not received, the next frames are concealed until a frame
+     * is marked as a resynchronization point
+     * @param nFrames number of missing frames
+     */
+    public synchronized void notifyLostFrames(int nFrames){
+        if(nFrames<=0)
+            return;
+        mLostFrames+=nFrames;
+        mNFrames+=nFrames;
+        mWaitResync=true;
+    }
+
+    /**
+     * read the next frame to play, if there are no frames ready the frame is concealed
+     * @param out array where write the samples, the method writes {@link #getFrameLength()}
+     *            samples
+     * @param offset index where store the first sample
+     * @return true if the frame contains the received audio, false if it is concealed
+     */
+    public synchronized boolean get(short out[], int offset){
+        if(!mPlaying){
+            if(mCount==0 || mCount<getTargetFrames()){
+                conceal(out,offset);
+                return false;
+            }//if
+            mPlaying=true;
+        }//if
+
+        if(mCount==0){
+            mUnderruns++;
+            mPlaying=false;
+            mFramesWithoutUnderrun=0;
+            if(mUnderrunExtraFrames<mMaxFrames)
+                mUnderrunExtraFrames++;
+            mConcealedFrames++;
+            conceal(out,offset);
+            return false;
+        }//if
+
+        //after a burst play with the target latency
+        if(mCount > getTargetFrames()+DRAIN_MARGIN_FRAMES || mCount>mMaxFrames){
+            removeFirst();
+            mDroppedFrames++;
+        }//if
+
+        short frame[] = mFrames[mHead];
+        boolean isDesync = mIsDesync[mHead];
+        removeFirst();
+
+        if(++mFramesWithoutUnderrun>=UNDERRUN_DECAY_FRAMES){
+            mFramesWithoutUnderrun=0;
+            if(mUnderrunExtraFrames>0)
+                mUnderrunExtraFrames--;
+        }//if
+
+        if(isDesync){
+            mConcealedFrames++;
+            conceal(out,offset);
+            return false;
+        }//if
+
+        System.arraycopy(frame,0,mLastFrame,0,mFrameLength);
+        if(mFadeIn){
+            applyRamp(frame,out,offset,0.0f,1.0f);
+            mFadeIn=false;
+        }else
+            System.arraycopy(frame,0,out,offset,mFrameLength);
+        mConcealmentGain=1.0f;
+        mNRepeatedFrames=0;
+        return true;
+    }//get
+
+    private void removeFirst(){
+        mHead = (mHead+1) % mFrames.length;
+        mCount--;
+    }
+
+    /**
+     * write the last played frame with a gain that goes to 0, so that the missing audio doesn't
+     * produce a click
+     */
+    private void conceal(short out[], int offset){
+        float startGain = mConcealmentGain;
+        float endGain = ++mNRepeatedFrames < MAX_REPEATED_FRAMES ?
+                startGain*CONCEALMENT_ATTENUATION : 0.0f;
+        applyRamp(mLastFrame,out,offset,startGain,endGain);
+        mConcealmentGain=endGain;
+        mFadeIn=true;
+    }
+
+    private void applyRamp(short in[], short out[], int offset, float startGain, float endGain){
+        if(startGain==0.0f && endGain==0.0f){
+            Arrays.fill(out,offset,offset+mFrameLength,(short)0);
+            return;
+        }//if
+        //the last sample has the end gain
+        float step = (endGain-startGain)/Math.max(1,mFrameLength-1);
+        for(int i=0;i<mFrameLength;i++)
+            out[offset+i] = (short)(in[i]*(startGain+step*i));
+    }
+
+    /**
+     * @return number of frames buffered before starting the playback: it depends on the
+     * estimated jitter and on the recent underruns
+     */
+    public synchronized int getTargetFrames(){
+        int jitterFrames = (int)((2*mJitterNs + mFrameDurationNs -1)/mFrameDurationNs);
+        int target = Math.max(MIN_TARGET_FRAMES,jitterFrames)+mUnderrunExtraFrames;
+        return Math.min(target,mMaxFrames);
+    }
+
+    /**
+     * @return number of frames waiting to be played
+     */
+    public synchronized int getBufferedFrames(){
+        return mCount;
+    }
+
+    /**
+     * @return estimated jitter of the frame arrival time, in nanoseconds
+     */
+    public synchronized long getJitterNs(){
+        return mJitterNs;
+    }
+
+    /**
+     * @return frames notified as not received
+     */
+    public synchronized long getLostFrames(){
+        return mLostFrames;
+    }
+
+    /**
+     * @return frames replaced by the concealment during the playback
+     */
+    public synchronized long getConcealedFrames(){
+        return mConcealedFrames;
+    }
+
+    /**
+     * @return frames discarded for keep the latency under the max value
+     */
+    public synchronized long getDroppedFrames(){
+        return mDroppedFrames;
+    }
+
+    /**
+     * @return number of times that the playback found the buffer empty
+     */
+    public synchronized long getUnderruns(){
+        return mUnderruns;
+    }
+
+}
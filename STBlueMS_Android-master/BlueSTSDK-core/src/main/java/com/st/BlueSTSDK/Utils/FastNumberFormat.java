@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import java.util.Locale;
+
+/**
+ * Append numbers to a StringBuilder without creating temporary objects
+ * <p>
+ *     The output is equal to the one produced by {@code String.format(Locale.US,"%.nf",value)},
+ *     apart from the values that are exactly halfway between two outputs, where the last digit
+ *     can be different.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class FastNumberFormat {
+
+    /** max number of decimal digits supported by {@link #appendFixed(StringBuilder, double, int)} */
+    public static final int MAX_DECIMALS = 9;
+
+    /** values bigger than this are formatted with the standard formatter */
+    private static final double MAX_FAST_VALUE = 1e9;
+
+    private static final long POW10[] = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L,
+            10000000L, 100000000L, 1000000000L};
+
+    private FastNumberFormat(){}
+
+    /**
+     * append a number with a fixed number of decimal digits
+     * @param out string where append the value
+     * @param value value to append
+     * @param decimals number of decimal digits, between 0 and {@link #MAX_DECIMALS}
+     * @return the out parameter
+     */
+    public static StringBuilder appendFixed(StringBuilder out, double value, int decimals){
+        if(decimals<0 || decimals>MAX_DECIMALS)
+            throw new IllegalArgumentException("decimals must be between 0 and "+MAX_DECIMALS);
+        if(Double.isNaN(value))
+            return out.append("NaN");
+        if(Double.isInfinite(value))
+            return out.append(value>0 ? "Infinity" : "-Infinity");
+        if(Math.abs(value)>=MAX_FAST_VALUE)
+            return out.append(String.format(Locale.US,"%."+decimals+"f",value));
+
+        //the sign bit is used for print also -0.0
+        if(Double.doubleToRawLongBits(value)<0)
+            out.append('-');
+        long pow = POW10[decimals];
+        long scaled = Math.round(Math.abs(value)*pow);
+        out.append(scaled/pow);
+        if(decimals==0)
+            return out;
+        out.append('.');
+        long fraction = scaled%pow;
+        //leading zeros of the decimal part
+        for(long digit=pow/10; digit>1 && fraction<digit; digit/=10)
+            out.append('0');
+        return out.append(fraction);
+    }//appendFixed
+
+}
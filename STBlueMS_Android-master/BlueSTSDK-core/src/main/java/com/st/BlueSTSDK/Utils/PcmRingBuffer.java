@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free circular buffer of 16-bit PCM samples, between a single producer thread and a single
+ * consumer thread.
+ * <p>
+ * The producer and the consumer own their position and publish it with an ordered write, so
+ * none of the two threads blocks the other. When the buffer is full the new samples that don't
+ * fit are dropped and counted in {@link #getDroppedSamples()}.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class PcmRingBuffer {
+
+    private final short mBuffer[];
+    private final int mMask;
+
+    /** number of samples written since the buffer creation, updated only by the producer */
+    private final AtomicLong mWritePosition = new AtomicLong(0);
+
+    /** number of samples read since the buffer creation, updated only by the consumer */
+    private final AtomicLong mReadPosition = new AtomicLong(0);
+
+    /** samples not written since the buffer was full */
+    private final AtomicLong mDroppedSamples = new AtomicLong(0);
+
+    /**
+     * @param minCapacity minimum number of samples that the buffer can contain, the capacity is
+     *                    rounded to the next power of two
+     */
+    public PcmRingBuffer(int minCapacity){
+        if(minCapacity<=0 || minCapacity>(1<<30))
+            throw new IllegalArgumentException("Invalid capacity: "+minCapacity);
+        int capacity = Integer.highestOneBit(minCapacity);
+        if(capacity<minCapacity)
+            capacity<<=1;
+        mBuffer = new short[capacity];
+        mMask = capacity-1;
+    }
+
+    /**
+     * @return number of samples that the buffer can contain
+     */
+    public int getCapacity(){
+        return mBuffer.length;
+    }
+
+    /**
+     * @return number of samples ready to be read
+     */
+    public int available(){
+        return (int)(mWritePosition.get()-mReadPosition.get());
+    }
+
+    /**
+     * @return number of samples dropped because the buffer was full
+     */
+    public long getDroppedSamples(){
+        return mDroppedSamples.get();
+    }
+
+    /**
+     * add samples to the buffer, it must be called only by the producer thread
+     * @param data samples to write
+     * @param offset index of the first sample to write
+     * @param length number of samples to write
+     * @return number of written samples, lower than length if the buffer is full
+     */
+    public int write(short data[], int offset, int length){
+        long writePos = mWritePosition.get();
+        int free = mBuffer.length - (int)(writePos - mReadPosition.get());
+        int n = Math.min(length,free);
+        int start = (int)(writePos & mMask);
+        int firstPart = Math.min(n,mBuffer.length-start);
+        System.arraycopy(data,offset,mBuffer,start,firstPart);
+        System.arraycopy(data,offset+firstPart,mBuffer,0,n-firstPart);
+        mWritePosition.lazySet(writePos+n);
+        if(n<length)
+            mDroppedSamples.addAndGet(length-n);
+        return n;
+    }//write
+
+    /**
+     * remove samples from the buffer, it must be called only by the consumer thread
+     * @param out array where copy the samples
+     * @param offset index where store the first sample
+     * @param length max number of samples to read
+     * @return number of read samples, 0 if the buffer is empty
+     */
+    public int read(short out[], int offset, int length){
+        long readPos = mReadPosition.get();
+        int n = Math.min(length,(int)(mWritePosition.get()-readPos));
+        int start = (int)(readPos & mMask);
+        int firstPart = Math.min(n,mBuffer.length-start);
+        System.arraycopy(mBuffer,start,out,offset,firstPart);
+        System.arraycopy(mBuffer,0,out,offset+firstPart,n-firstPart);
+        mReadPosition.lazySet(readPos+n);
+        return n;
+    }//read
+
+    /**
+     * discard all the samples ready to be read, it must be called only by the consumer thread
+     */
+    public void clear(){
+        mReadPosition.lazySet(mWritePosition.get());
+    }
+
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+/**
+ * Streaming voice activity detector, it finds the speech segments in a PCM stream and passes to
+ * the listener only the audio of the segments.
+ * <p>
+ * The audio is split in 20ms frames, a frame contains speech if its energy is over the noise
+ * energy, or if it is a bit over the noise and has an high zero crossing rate, as the unvoiced
+ * consonants. The noise energy is estimated in the first frames and then follows the minimum
+ * energy.
+ * </p>
+ * <p>
+ * A segment starts after few consecutive speech frames and includes a short audio before them,
+ * it ends after some non speech frames: the silence at the end of the segment is removed except
+ * a short tail.
+ * </p>
+ * All the buffers are allocated in the constructor, the methods must be called by the same
+ * thread and the listener is called by that thread.
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class VoiceActivityDetector {
+
+    /**
+     * Interface used for receive the speech segments
+     */
+    public interface SpeechListener{
+
+        /**
+         * called when a speech segment starts, before its audio
+         * @param vad detector that found the speech
+         */
+        void onSpeechStart(VoiceActivityDetector vad);
+
+        /**
+         * called with the audio of the current speech segment
+         * @param vad detector that found the speech
+         * @param data audio samples, the array is reused after the call
+         * @param offset index of the first sample
+         * @param length number of samples
+         */
+        void onSpeechAudio(VoiceActivityDetector vad, short data[], int offset, int length);
+
+        /**
+         * called when the speech segment ends, after its audio
+         * @param vad detector that found the speech
+         */
+        void onSpeechEnd(VoiceActivityDetector vad);
+    }//SpeechListener
+
+    private static final int FRAME_MS = 20;
+    /** audio used for the first noise estimation */
+    private static final int CALIBRATION_MS = 200;
+    /** speech needed for start a segment */
+    private static final int ATTACK_MS = 60;
+    /** audio before the segment start sent with the segment, it includes the attack frames */
+    private static final int PRE_ROLL_MS = 200;
+    /** silence needed for end a segment */
+    private static final int HANGOVER_MS = 400;
+    /** silence kept at the end of a segment */
+    private static final int TAIL_MS = 100;
+
+    /** ratio between the speech energy and the noise energy: +6dB */
+    private static final double SPEECH_ENERGY_RATIO = 4.0;
+    /** ratio between the energy of an unvoiced speech frame and the noise energy: +3dB */
+    private static final double UNVOICED_ENERGY_RATIO = 2.0;
+    /** minimum zero crossing rate of an unvoiced speech frame */
+    private static final double UNVOICED_MIN_ZCR = 0.3;
+    /** minimum mean square value of a speech frame: rms = 100 */
+    private static final double MIN_SPEECH_ENERGY = 100*100;
+
+    /** weight of the new energy when it is lower than the noise */
+    private static final int NOISE_FALL_SMOOTHING = 8;
+    /** weight of the new energy when it is higher than the noise */
+    private static final int NOISE_RISE_SMOOTHING = 64;
+    /** weight of the new energy when it is higher than the noise, during the speech */
+    private static final int NOISE_RISE_SPEECH_SMOOTHING = 1024;
+
+    private final SpeechListener mListener;
+
+    private final short mFrame[];
+    private int mFrameFill;
+
+    private final int mCalibrationFrames;
+    private final int mAttackFrames;
+    private final int mHangoverFrames;
+    private final int mPreRollLength;
+    private final int mTailLength;
+
+    /** last audio before the speech start */
+    private final PcmRingBuffer mPreRoll;
+    /** silence in the speech segment, sent only if the speech restarts */
+    private final PcmRingBuffer mPending;
+    private final short mCopy[];
+
+    private int mNProcessedFrames;
+    private double mNoiseEnergy;
+    private int mNSpeechFrames;
+    private int mNSilenceFrames;
+    private boolean mInSpeech;
+
+    /**
+     * @param samplingRate audio sampling rate, in Hz
+     * @param listener object that receives the speech segments
+     */
+    public VoiceActivityDetector(int samplingRate, SpeechListener listener){
+        if(samplingRate<=0)
+            throw new IllegalArgumentException("Invalid sampling rate: "+samplingRate);
+        mListener = listener;
+        int frameLength = Math.max(2,samplingRate*FRAME_MS/1000);
+        mFrame = new short[frameLength];
+        mCopy = new short[frameLength];
+        mCalibrationFrames = CALIBRATION_MS/FRAME_MS;
+        mAttackFrames = ATTACK_MS/FRAME_MS;
+        mHangoverFrames = HANGOVER_MS/FRAME_MS;
+        mPreRollLength = PRE_ROLL_MS/FRAME_MS*frameLength;
+        mTailLength = TAIL_MS/FRAME_MS*frameLength;
+        mPreRoll = new PcmRingBuffer(mPreRollLength);
+        mPending = new PcmRingBuffer(mHangoverFrames*frameLength);
+        reset();
+    }
+
+    /**
+     * restart the detector, also the noise estimation, without notify the current segment end
+     */
+    public void reset(){
+        mFrameFill=0;
+        mNProcessedFrames=0;
+        mNoiseEnergy=0;
+        mNSpeechFrames=0;
+        mNSilenceFrames=0;
+        mInSpeech=false;
+        mPreRoll.clear();
+        mPending.clear();
+    }
+
+    /**
+     * @return true if the detector is inside a speech segment
+     */
+    public boolean isSpeech(){
+        return mInSpeech;
+    }
+
+    /**
+     * @return estimated mean square value of the noise
+     */
+    public double getNoiseEnergy(){
+        return mNoiseEnergy;
+    }
+
+    /**
+     * analyze new audio, the listener is called if a segment starts or ends
+     * @param data audio samples
+     * @param offset index of the first sample
+     * @param length number of samples
+     */
+    public void process(short data[], int offset, int length){
+        while(length>0){
+            int n = Math.min(length,mFrame.length-mFrameFill);
+            System.arraycopy(data,offset,mFrame,mFrameFill,n);
+            mFrameFill+=n;
+            offset+=n;
+            length-=n;
+            if(mFrameFill==mFrame.length){
+                processFrame(mFrame);
+                mFrameFill=0;
+            }//if
+        }//while
+    }
+
+    /**
+     * end the current speech segment, the audio not yet analyzed is discarded
+     */
+    public void stop(){
+        if(mInSpeech)
+            endSpeech();
+        else{
+            mPreRoll.clear();
+            mNSpeechFrames=0;
+        }
+        mFrameFill=0;
+    }
+
+    private void processFrame(short frame[]){
+        long sum=0;
+        int nCrossing=0;
+        boolean wasPositive = frame[0]>=0;
+        for (short sample : frame) {
+            sum += sample * sample;
+            boolean isPositive = sample >= 0;
+            if (isPositive != wasPositive)
+                nCrossing++;
+            wasPositive = isPositive;
+        }//for
+        double energy = ((double)sum)/frame.length;
+        double zcr = ((double)nCrossing)/(frame.length-1);
+
+        boolean isSpeechFrame = mNProcessedFrames>=mCalibrationFrames && isSpeech(energy,zcr);
+        updateNoise(energy,isSpeechFrame);
+        mNProcessedFrames++;
+
+        if(!mInSpeech){
+            //keep only the last pre roll samples
+            int extra = mPreRoll.available()+frame.length-mPreRollLength;
+            if(extra>0)
+                discard(mPreRoll,extra);
+            mPreRoll.write(frame,0,frame.length);
+            mNSpeechFrames = isSpeechFrame ? mNSpeechFrames+1 : 0;
+            if(mNSpeechFrames>=mAttackFrames){
+                mInSpeech=true;
+                mNSilenceFrames=0;
+                mListener.onSpeechStart(this);
+                sendAudio(mPreRoll,mPreRoll.available());
+            }//if
+        }else if(isSpeechFrame){
+            //the silence was a pause in the speech
+            sendAudio(mPending,mPending.available());
+            mListener.onSpeechAudio(this,frame,0,frame.length);
+            mNSilenceFrames=0;
+        }else{
+            mPending.write(frame,0,frame.length);
+            if(++mNSilenceFrames>=mHangoverFrames)
+                endSpeech();
+        }//if-else
+    }//processFrame
+
+    private boolean isSpeech(double energy, double zcr){
+        if(energy>Math.max(mNoiseEnergy*SPEECH_ENERGY_RATIO,MIN_SPEECH_ENERGY))
+            return true;
+        return zcr>=UNVOICED_MIN_ZCR &&
+                energy>Math.max(mNoiseEnergy*UNVOICED_ENERGY_RATIO,MIN_SPEECH_ENERGY);
+    }
+
+    private void updateNoise(double energy, boolean isSpeechFrame){
+        if(mNProcessedFrames<mCalibrationFrames) {
+            //mean of the calibration frames
+            mNoiseEnergy += (energy - mNoiseEnergy) / (mNProcessedFrames + 1);
+        }else if(energy<mNoiseEnergy) {
+            mNoiseEnergy += (energy - mNoiseEnergy) / NOISE_FALL_SMOOTHING;
+        }else {
+            mNoiseEnergy += (energy - mNoiseEnergy) /
+                    (isSpeechFrame ? NOISE_RISE_SPEECH_SMOOTHING : NOISE_RISE_SMOOTHING);
+        }
+    }
+
+    private void endSpeech(){
+        sendAudio(mPending,Math.min(mTailLength,mPending.available()));
+        mPending.clear();
+        mPreRoll.clear();
+        mInSpeech=false;
+        mNSpeechFrames=0;
+        mNSilenceFrames=0;
+        mListener.onSpeechEnd(this);
+    }
+
+    private void sendAudio(PcmRingBuffer buffer, int length){
+        while(length>0){
+            int n = buffer.read(mCopy,0,Math.min(length,mCopy.length));
+            if(n==0)
+                return;
+            mListener.onSpeechAudio(this,mCopy,0,n);
+            length-=n;
+        }//while
+    }
+
+    private void discard(PcmRingBuffer buffer, int length){
+        while(length>0){
+            int n = buffer.read(mCopy,0,Math.min(length,mCopy.length));
+            if(n==0)
+                return;
+            length-=n;
+        }//while
+    }
+
+}
@@ -87,7 +87,7 @@ public class STM32Crc32 implements Checksum {
             throw new IllegalArgumentException("length must be multiple of 4");
         //else
         for (int i = 0; i < length; i += 4) {
-            int val = NumberConversion.LittleEndian.bytesToInt32(bytes, offset + i * 4);
+            int val = NumberConversion.LittleEndian.bytesToInt32(bytes, offset + i);
             mCurrentCrc = Crc32Fast(mCurrentCrc, val);
         }//for
     }
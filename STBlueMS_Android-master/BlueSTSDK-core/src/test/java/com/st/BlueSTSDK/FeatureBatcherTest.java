@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class FeatureBatcherTest {
+
+    private static class EmptyFeatureTest extends Feature{
+
+        EmptyFeatureTest() {
+            super("Test", null, new Field[]{});
+        }
+
+        @Override
+        protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
+            return new ExtractResult(new Sample(timestamp, new long[]{data[dataOffset]},
+                    new Field[]{}),1);
+        }
+
+        void update(long timestamp){
+            update(timestamp,new byte[]{(byte)timestamp},0);
+        }
+    }
+
+    private static class RecordBatchListener implements Feature.FeatureBatchListener,
+            Feature.FeatureLoggerBatchListener{
+
+        final List<List<Feature.Sample>> batches = new ArrayList<>();
+        final List<List<byte[]>> rawBatches = new ArrayList<>();
+        final CountDownLatch firstBatch = new CountDownLatch(1);
+
+        @Override
+        public synchronized void onUpdate(Feature f, List<Feature.Sample> samples) {
+            batches.add(samples);
+            firstBatch.countDown();
+        }
+
+        @Override
+        public synchronized void logFeatureUpdate(Feature feature, List<byte[]> rawData,
+                                                  List<Feature.Sample> samples) {
+            rawBatches.add(rawData);
+            batches.add(samples);
+            firstBatch.countDown();
+        }
+    }
+
+    @Before
+    public void setUp(){
+        //dispatch the updates in the caller thread
+        FeatureDispatcher.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown(){
+        FeatureDispatcher.setExecutor(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeMustBePositive(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        f.addFeatureBatchListener(new RecordBatchListener(),0,0);
+    }
+
+    @Test
+    public void batchIsDeliveredWhenFull(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener listener = new RecordBatchListener();
+        f.addFeatureBatchListener(listener,4,0);
+        for(int i=0;i<10;i++)
+            f.update(i);
+
+        Assert.assertEquals(2,listener.batches.size());
+        for(int i=0;i<8;i++){
+            Assert.assertEquals(i,listener.batches.get(i/4).get(i%4).timestamp);
+        }
+    }
+
+    @Test
+    public void removeDeliverThePendingSamples() throws InterruptedException {
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener listener = new RecordBatchListener();
+        f.addFeatureBatchListener(listener,4,0);
+        f.update(1);
+        f.update(2);
+        Assert.assertEquals(0,listener.batches.size());
+
+        final CountDownLatch removed = new CountDownLatch(1);
+        f.removeFeatureBatchListener(listener, new Runnable() {
+            @Override
+            public void run() {
+                removed.countDown();
+            }
+        });
+        Assert.assertTrue(removed.await(1, TimeUnit.SECONDS));
+        synchronized (listener) {
+            Assert.assertEquals(1, listener.batches.size());
+            Assert.assertEquals(2, listener.batches.get(0).size());
+        }
+
+        f.update(3);
+        synchronized (listener) {
+            Assert.assertEquals(1, listener.batches.size());
+        }
+    }
+
+    @Test
+    public void removeWithoutPendingSamplesRunsTheCallback() throws InterruptedException {
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener logger = new RecordBatchListener();
+        f.addFeatureLoggerBatchListener(logger,4,0);
+
+        final CountDownLatch removed = new CountDownLatch(1);
+        f.removeFeatureLoggerBatchListener(logger, new Runnable() {
+            @Override
+            public void run() {
+                removed.countDown();
+            }
+        });
+        Assert.assertTrue(removed.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0,logger.batches.size());
+    }
+
+    @Test
+    public void appendDoesNotWaitTheDelivery() throws InterruptedException {
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch releaseListener = new CountDownLatch(1);
+        final List<Long> timestamps = new ArrayList<>();
+        final FeatureBatcher batcher = new FeatureBatcher.UpdateBatcher(new EmptyFeatureTest(),
+                new Feature.FeatureBatchListener() {
+            @Override
+            public void onUpdate(Feature feature, List<Feature.Sample> samples) {
+                delivering.countDown();
+                try {
+                    releaseListener.await(1,TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for(Feature.Sample s : samples)
+                    timestamps.add(s.timestamp);
+            }
+        },1,0);
+        Thread firstAppend = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                batcher.append(null,new Feature.Sample(1,new Number[]{},new Field[]{}));
+            }
+        });
+        firstAppend.start();
+        Assert.assertTrue(delivering.await(1,TimeUnit.SECONDS));
+
+        //the second batch is queued while the first is delivered
+        batcher.append(null,new Feature.Sample(2,new Number[]{},new Field[]{}));
+        Assert.assertTrue(timestamps.isEmpty());
+        releaseListener.countDown();
+        firstAppend.join();
+
+        Assert.assertEquals(2,timestamps.size());
+        Assert.assertEquals(1L,(long)timestamps.get(0));
+        Assert.assertEquals(2L,(long)timestamps.get(1));
+    }
+
+    @Test
+    public void listenerExceptionDoesNotStopTheDelivery() throws InterruptedException {
+        final List<Long> timestamps = new ArrayList<>();
+        final FeatureBatcher batcher = new FeatureBatcher.UpdateBatcher(new EmptyFeatureTest(),
+                new Feature.FeatureBatchListener() {
+            @Override
+            public void onUpdate(Feature feature, List<Feature.Sample> samples) {
+                for(Feature.Sample s : samples)
+                    timestamps.add(s.timestamp);
+                if(timestamps.size()==1)
+                    throw new IllegalStateException("listener error");
+            }
+        },1,0);
+        try {
+            batcher.append(null, new Feature.Sample(1, new Number[]{}, new Field[]{}));
+            Assert.fail("the listener exception must reach the caller");
+        }catch (IllegalStateException e){
+            //expected
+        }
+        batcher.append(null,new Feature.Sample(2,new Number[]{},new Field[]{}));
+        final CountDownLatch closed = new CountDownLatch(1);
+        batcher.close(new Runnable() {
+            @Override
+            public void run() {
+                closed.countDown();
+            }
+        });
+        Assert.assertTrue(closed.await(1,TimeUnit.SECONDS));
+        Assert.assertEquals(2,timestamps.size());
+    }
+
+    @Test
+    public void batchIsDeliveredAfterTheMaxLatency() throws InterruptedException {
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener listener = new RecordBatchListener();
+        f.addFeatureBatchListener(listener,100,10);
+        f.update(1);
+        f.update(2);
+
+        Assert.assertTrue(listener.firstBatch.await(1, TimeUnit.SECONDS));
+        synchronized (listener) {
+            Assert.assertEquals(1, listener.batches.size());
+            Assert.assertEquals(2, listener.batches.get(0).size());
+        }
+    }
+
+    @Test
+    public void loggerReceivesTheRawData(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener logger = new RecordBatchListener();
+        f.addFeatureLoggerBatchListener(logger,2,0);
+        f.update(1);
+        f.update(2);
+
+        Assert.assertEquals(1,logger.rawBatches.size());
+        Assert.assertArrayEquals(new byte[]{1},logger.rawBatches.get(0).get(0));
+        Assert.assertArrayEquals(new byte[]{2},logger.rawBatches.get(0).get(1));
+        Assert.assertEquals(2,logger.batches.get(0).get(1).timestamp);
+    }
+
+    @Test
+    public void listenerIsAddedOnlyOnce(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordBatchListener listener = new RecordBatchListener();
+        f.addFeatureBatchListener(listener,1,0);
+        f.addFeatureBatchListener(listener,1,0);
+        f.update(1);
+
+        Assert.assertEquals(1,listener.batches.size());
+    }
+
+}
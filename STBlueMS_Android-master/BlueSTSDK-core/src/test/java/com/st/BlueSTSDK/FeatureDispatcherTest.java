@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class FeatureDispatcherTest {
+
+    /**
+     * executor that keep the task until someone call runAll
+     */
+    private static class ManualExecutor implements Executor {
+
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mTasks.add(runnable);
+        }
+
+        int getNTask(){
+            return mTasks.size();
+        }
+
+        void runAll(){
+            while(!mTasks.isEmpty())
+                mTasks.remove(0).run();
+        }
+    }
+
+    private static class EmptyFeatureTest extends Feature{
+
+        EmptyFeatureTest() {
+            super("Test", null, new Field[]{});
+        }
+
+        @Override
+        protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
+            return new ExtractResult(new Sample(timestamp, new long[]{data[dataOffset]},
+                    new Field[]{}),1);
+        }
+
+        void update(long timestamp,byte data){
+            update(timestamp,new byte[]{data},0);
+        }
+    }
+
+    private static class RecordListener implements Feature.FeatureListener,
+            Feature.FeatureLoggerListener{
+
+        final List<Long> notifiedTimestamp = new ArrayList<>();
+        final List<Long> loggedTimestamp = new ArrayList<>();
+
+        @Override
+        public void onUpdate(Feature f, Feature.Sample sample) {
+            notifiedTimestamp.add(sample.timestamp);
+        }
+
+        @Override
+        public void logFeatureUpdate(Feature feature, byte[] rawData, Feature.Sample sample) {
+            loggedTimestamp.add(sample.timestamp);
+        }
+    }
+
+    private ManualExecutor mExecutor;
+
+    @Before
+    public void setUp(){
+        mExecutor = new ManualExecutor();
+        FeatureDispatcher.setExecutor(mExecutor);
+    }
+
+    @After
+    public void tearDown(){
+        FeatureDispatcher.setExecutor(null);
+    }
+
+    @Test
+    public void noListenerNoTask(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        f.update(1,(byte)1);
+        Assert.assertEquals(0,mExecutor.getNTask());
+        Assert.assertEquals(0,f.getDispatcher().getQueueDepth());
+    }
+
+    @Test
+    public void oneTaskForManyUpdates(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        f.addFeatureListener(new RecordListener());
+        for(int i=0;i<10;i++)
+            f.update(i,(byte)i);
+        Assert.assertEquals(1,mExecutor.getNTask());
+        Assert.assertEquals(10,f.getDispatcher().getQueueDepth());
+    }
+
+    @Test
+    public void samplesAreNotifiedInOrder(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordListener listener = new RecordListener();
+        f.addFeatureListener(listener);
+        f.addFeatureLoggerListener(listener);
+        for(int i=0;i<100;i++) {
+            f.update(i, (byte) i);
+            if(i%7==0)
+                mExecutor.runAll();
+        }
+        mExecutor.runAll();
+
+        Assert.assertEquals(100,listener.notifiedTimestamp.size());
+        Assert.assertEquals(100,listener.loggedTimestamp.size());
+        for(int i=0;i<100;i++){
+            Assert.assertEquals(i,listener.notifiedTimestamp.get(i).longValue());
+            Assert.assertEquals(i,listener.loggedTimestamp.get(i).longValue());
+        }
+        Assert.assertEquals(0,f.getDispatcher().getQueueDepth());
+        Assert.assertEquals(200,f.getDispatcher().getDispatchedCount());
+    }
+
+    @Test
+    public void fullQueueDropTheNewSamples(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        RecordListener listener = new RecordListener();
+        f.addFeatureListener(listener);
+        FeatureDispatcher dispatcher = f.getDispatcher();
+        final int capacity = dispatcher.getQueueCapacity();
+        for(int i=0;i<capacity+10;i++)
+            f.update(i,(byte)i);
+
+        Assert.assertEquals(capacity,dispatcher.getQueueDepth());
+        Assert.assertEquals(capacity,dispatcher.getMaxQueueDepth());
+        Assert.assertEquals(10,dispatcher.getDroppedCount());
+
+        mExecutor.runAll();
+        Assert.assertEquals(capacity,listener.notifiedTimestamp.size());
+        Assert.assertEquals(capacity-1,listener.notifiedTimestamp.get(capacity-1).longValue());
+    }
+
+    @Test
+    public void resetStats(){
+        EmptyFeatureTest f = new EmptyFeatureTest();
+        f.addFeatureListener(new RecordListener());
+        f.update(1,(byte)1);
+        mExecutor.runAll();
+        FeatureDispatcher dispatcher = f.getDispatcher();
+        Assert.assertEquals(1,dispatcher.getDispatchedCount());
+        dispatcher.resetStats();
+        Assert.assertEquals(0,dispatcher.getDispatchedCount());
+        Assert.assertEquals(0,dispatcher.getMaxQueueDepth());
+        Assert.assertEquals(0,dispatcher.getMaxDispatchLatencyNs());
+    }
+
+}
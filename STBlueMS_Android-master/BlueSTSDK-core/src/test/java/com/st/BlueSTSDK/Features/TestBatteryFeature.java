@@ -151,7 +151,7 @@ public class TestBatteryFeature {
 
 
         Assert.assertEquals(2, f.getSample().timestamp);
-        Number extractData[] = f.getSample().data;
+        Number extractData[] = f.getSample().getData();
         Assert.assertEquals(batteryLevel, extractData[0].floatValue(),0.0f);
         Assert.assertEquals(current, extractData[1].floatValue(),0.0f);
         Assert.assertEquals(voltage*100, extractData[2].floatValue(), 0.0f); //is in millivolt
@@ -187,7 +187,7 @@ public class TestBatteryFeature {
 
 
         Assert.assertEquals(2, f.getSample().timestamp);
-        Number extractData[] = f.getSample().data;
+        Number extractData[] = f.getSample().getData();
         Assert.assertEquals(batteryLevel, extractData[0].floatValue(),0.0f);
         Assert.assertEquals(current, extractData[1].floatValue(),0.0f);
         Assert.assertEquals(voltage*100, extractData[2].floatValue(),0.0f); //is in millivolt
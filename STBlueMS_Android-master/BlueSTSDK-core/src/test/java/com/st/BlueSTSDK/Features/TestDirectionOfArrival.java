@@ -2,7 +2,6 @@ package com.st.BlueSTSDK.Features;
 
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.TestUtil.TestUtil;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 import org.junit.Assert;
@@ -63,7 +62,7 @@ public class TestDirectionOfArrival {
         short angle = 123;
         byte temp[] = NumberConversion.LittleEndian.int16ToBytes(angle);
 
-        UpdateFeatureUtil.callUpdate(f, 1, TestUtil.mergeArray(new byte[offset],temp), offset);
+        UpdateFeatureUtil.callUpdate(f, 1, UpdateFeatureUtil.mergeArray(new byte[offset],temp), offset);
 
         Assert.assertEquals(new Feature.Sample(1, new Number[]{angle}, new Field[]{}),
                 f.getSample());
@@ -1,7 +1,6 @@
 package com.st.BlueSTSDK.Features;
 
 import com.st.BlueSTSDK.Feature;
-import com.st.BlueSTSDK.TestUtil.TestUtil;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 
 import org.junit.Assert;
@@ -69,7 +68,7 @@ public class TestPedometerFeature {
         byte nStepArray[] = NumberConversion.LittleEndian.uint32ToBytes(nStep);
         byte freqArray[] = NumberConversion.LittleEndian.uint16ToBytes(freq);
 
-        UpdateFeatureUtil.callUpdate(f, 1, TestUtil.mergeArray(nStepArray, freqArray), 0);
+        UpdateFeatureUtil.callUpdate(f, 1, UpdateFeatureUtil.mergeArray(nStepArray, freqArray), 0);
 
         Assert.assertEquals(new Feature.Sample(1, new Number[]{nStep, freq}, new Field[]{}),
                 f.getSample());
@@ -86,8 +85,8 @@ public class TestPedometerFeature {
         byte freqArray[] = NumberConversion.LittleEndian.uint16ToBytes(freq);
         byte offsetArray[] = new byte[offset];
 
-        UpdateFeatureUtil.callUpdate(f, 1, TestUtil.mergeArray(offsetArray,
-                TestUtil.mergeArray (nStepArray, freqArray)), offset);
+        UpdateFeatureUtil.callUpdate(f, 1, UpdateFeatureUtil.mergeArray(offsetArray,
+                UpdateFeatureUtil.mergeArray (nStepArray, freqArray)), offset);
 
         Assert.assertEquals(new Feature.Sample(1, new Number[]{nStep,freq}, new Field[]{}),
                 f.getSample());
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Features.Field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BinaryLogTest {
+
+    private static final Field FIELDS[] = {
+            new Field("Temp","C", Field.Type.Float,100,-40),
+            new Field("Count",null, Field.Type.UInt16,65535,0),
+            new Field("Delta","mg", Field.Type.Int16,2000,-2000),
+    };
+
+    private static class Values implements BinaryLogWriter.SampleValues{
+        float temp;
+        long count;
+        long delta;
+
+        @Override
+        public float getFloat(int column) {
+            return temp;
+        }
+
+        @Override
+        public long getLong(int column) {
+            return column==1 ? count : delta;
+        }
+    }
+
+    private static byte[] writeLog(boolean compress, int nSample, int blockSize)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogWriter writer = new BinaryLogWriter(out,"Test",FIELDS,3,0,
+                Collections.singletonList("node1"),compress,blockSize);
+        Values values = new Values();
+        for(int i=0;i<nSample;i++){
+            values.temp = i*0.5f;
+            values.count = 65535-i;
+            values.delta = -i;
+            writer.writeSample(i*10,i%2==0 ? "node1" : "node2",i*3,values);
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static void checkLog(byte data[], int nSample) throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(data));
+        Assert.assertEquals("Test",reader.getFeatureName());
+        Assert.assertEquals(3,reader.getNColumns());
+        Assert.assertEquals(Field.Type.UInt16,reader.getFields()[1].getType());
+        for(int i=0;i<nSample;i++){
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(i*10,reader.getHostTimestamp());
+            Assert.assertEquals(i*3,reader.getNodeTimestamp());
+            Assert.assertEquals(i%2==0 ? "node1" : "node2",reader.getNodeName());
+            Assert.assertEquals(i*0.5f,reader.getFloat(0),0.0f);
+            Assert.assertEquals(65535-i,reader.getLong(1));
+            Assert.assertEquals(-i,reader.getLong(2));
+        }
+        Assert.assertFalse(reader.next());
+        Assert.assertEquals(Arrays.asList("node1","node2"),reader.getNodeNames());
+        reader.close();
+    }
+
+    @Test
+    public void uncompressedLogIsReadBack() throws IOException {
+        checkLog(writeLog(false,10,BinaryLogWriter.DEFAULT_BLOCK_SIZE),10);
+    }
+
+    @Test
+    public void compressedLogIsReadBack() throws IOException {
+        checkLog(writeLog(true,10,BinaryLogWriter.DEFAULT_BLOCK_SIZE),10);
+    }
+
+    @Test
+    public void samplesAreSplitInBlocks() throws IOException {
+        checkLog(writeLog(true,1000,64),1000);
+        checkLog(writeLog(false,1000,64),1000);
+    }
+
+    @Test
+    public void compressionReducesTheSize() throws IOException {
+        Assert.assertTrue(writeLog(true,1000,256).length < writeLog(false,1000,256).length);
+    }
+
+    @Test
+    public void truncatedBlockIsIgnored() throws IOException {
+        byte data[] = writeLog(false,100,64);
+        checkLog(Arrays.copyOf(data,data.length-5),64);
+    }
+
+    @Test
+    public void emptyLogHasNoSamples() throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(
+                writeLog(true,0,64)));
+        Assert.assertFalse(reader.next());
+    }
+
+    @Test
+    public void eachSampleKeepsItsNumberOfValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogWriter writer = new BinaryLogWriter(out,"Test",FIELDS,3,0,
+                Collections.singletonList("node1"),true,64);
+        Values values = new Values();
+        values.temp = 1.5f;
+        values.count = 7;
+        writer.writeSample(0,"node1",0,3,values);
+        writer.writeSample(10,"node1",1,1,values);
+        writer.close();
+
+        BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(
+                out.toByteArray()));
+        StringWriter csv = new StringWriter();
+        reader.toCsv(csv);
+        String lines[] = csv.toString().split("\n");
+        Assert.assertEquals("0,node1,0,,1.5,7,0,",lines[4]);
+        Assert.assertEquals("10,node1,1,,1.5,",lines[5]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aSampleLongerThanTheColumnsIsRejected() throws IOException {
+        BinaryLogWriter writer = new BinaryLogWriter(new ByteArrayOutputStream(),"Test",FIELDS,
+                3,0,Collections.singletonList("node1"),false,64);
+        writer.writeSample(0,"node1",0,4,new Values());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidFileIsRejected() throws IOException {
+        new BinaryLogReader(new ByteArrayInputStream(new byte[16]));
+    }
+
+    @Test
+    public void csvHasTheSameLayoutOfTheCsvLogger() throws IOException {
+        BinaryLogReader reader = new BinaryLogReader(new ByteArrayInputStream(
+                writeLog(true,2,64)));
+        StringWriter out = new StringWriter();
+        reader.toCsv(out);
+        String lines[] = out.toString().split("\n");
+        Assert.assertEquals(6,lines.length);
+        Assert.assertEquals("Feature,Test",lines[1]);
+        Assert.assertEquals("Nodes,node1, ",lines[2]);
+        Assert.assertEquals("HostTimestamp (ms),NodeName,NodeTimestamp,RawData,Temp (C),Count," +
+                "Delta (mg),",lines[3]);
+        Assert.assertEquals("0,node1,0,,0.0,65535,0,",lines[4]);
+        Assert.assertEquals("10,node2,3,,0.5,65534,-1,",lines[5]);
+    }
+
+}
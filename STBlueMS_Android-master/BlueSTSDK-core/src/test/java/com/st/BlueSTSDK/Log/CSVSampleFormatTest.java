@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVSampleFormatTest {
+
+    private static final Field FIELDS[] = new Field[]{
+            new Field("Int", null, Field.Type.Int16, 0, 0),
+            new Field("Float", "g", Field.Type.Float, 0, 0)
+    };
+
+    @Test
+    public void hexDataIsUpperCase(){
+        StringBuilder out = new StringBuilder();
+        CSVSampleFormat.appendHex(out, new byte[]{0x00, 0x0A, (byte) 0xFF, 0x7B});
+        Assert.assertEquals("000AFF7B", out.toString());
+    }
+
+    @Test
+    public void lineContainsTheTimestampsTheRawDataAndTheValues(){
+        Feature.Sample sample = new Feature.Sample(42, new float[]{0, 1.5f},
+                new long[]{-3, 0}, FIELDS);
+        String line = CSVSampleFormat.appendLine(new StringBuilder(), 10, "Node",
+                new byte[]{0x01, (byte) 0xAB}, sample).toString();
+        Assert.assertEquals("10,Node,42,01AB,-3,1.5,\n", line);
+    }
+
+    @Test
+    public void rawDataCanBeNull(){
+        Feature.Sample sample = new Feature.Sample(42, new float[]{0, 1.5f},
+                new long[]{-3, 0}, FIELDS);
+        String line = CSVSampleFormat.appendLine(new StringBuilder(), 10, "Node", null,
+                sample).toString();
+        Assert.assertEquals("10,Node,42,,-3,1.5,\n", line);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogRotationPolicyTest {
+
+    @Test
+    public void noneNeverRotates(){
+        Assert.assertFalse(LogRotationPolicy.NONE.isEnabled());
+        Assert.assertFalse(LogRotationPolicy.NONE.needRotation(Long.MAX_VALUE,Long.MAX_VALUE,
+                Long.MAX_VALUE));
+    }
+
+    @Test
+    public void eachLimitIsIndependent(){
+        LogRotationPolicy size = LogRotationPolicy.bySize(100);
+        Assert.assertTrue(size.isEnabled());
+        Assert.assertFalse(size.needRotation(99,Long.MAX_VALUE,Long.MAX_VALUE));
+        Assert.assertTrue(size.needRotation(100,0,0));
+
+        LogRotationPolicy time = LogRotationPolicy.byTime(1000);
+        Assert.assertFalse(time.needRotation(Long.MAX_VALUE,999,Long.MAX_VALUE));
+        Assert.assertTrue(time.needRotation(0,1000,0));
+
+        LogRotationPolicy samples = LogRotationPolicy.bySampleCount(10);
+        Assert.assertFalse(samples.needRotation(Long.MAX_VALUE,Long.MAX_VALUE,9));
+        Assert.assertTrue(samples.needRotation(0,0,10));
+    }
+
+    @Test
+    public void limitsCanBeCombined(){
+        LogRotationPolicy policy = new LogRotationPolicy(100,1000,10);
+        Assert.assertFalse(policy.needRotation(99,999,9));
+        Assert.assertTrue(policy.needRotation(99,999,10));
+        Assert.assertTrue(policy.needRotation(99,1000,9));
+        Assert.assertTrue(policy.needRotation(100,999,9));
+    }
+
+    @Test
+    public void withMethodsReturnACopy(){
+        LogRotationPolicy policy = LogRotationPolicy.bySampleCount(10);
+        LogRotationPolicy archived = policy.withMaxSegments(3).withCompression(true);
+        Assert.assertEquals(0,policy.getMaxSegments());
+        Assert.assertFalse(policy.compressSegments());
+        Assert.assertEquals(3,archived.getMaxSegments());
+        Assert.assertTrue(archived.compressSegments());
+        Assert.assertEquals(10,archived.getMaxSegmentSamples());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimitsAreRejected(){
+        LogRotationPolicy.bySize(-1);
+    }
+
+}
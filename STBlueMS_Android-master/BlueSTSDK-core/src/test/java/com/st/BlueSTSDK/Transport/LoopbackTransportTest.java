@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class LoopbackTransportTest {
+
+    private static final UUID CHAR = UUID.fromString("00000001-0000-1000-8000-00805f9b34fb");
+    private static final UUID UNKNOWN_CHAR = UUID.fromString("00000002-0000-1000-8000-00805f9b34fb");
+    private static final byte DATA[] = new byte[]{1,2,3};
+
+    private static class Device implements LoopbackTransport.DeviceHandler{
+        volatile byte mLastWrite[];
+
+        @Override
+        public byte[] onRead(UUID characteristic) {
+            return DATA;
+        }
+
+        @Override
+        public boolean onWrite(UUID characteristic, byte[] data) {
+            mLastWrite = data;
+            return true;
+        }
+    }
+
+    /** store the callback events as strings */
+    private static class EventQueue implements NodeTransport.Callback{
+        final BlockingQueue<String> mEvents = new LinkedBlockingQueue<>();
+
+        String next() throws InterruptedException {
+            return mEvents.poll(1, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void onConnectionChange(NodeTransport transport, boolean connected) {
+            mEvents.add("connected:"+connected);
+        }
+
+        @Override
+        public void onCharacteristicsDiscovered(NodeTransport transport, List<UUID> characteristics) {
+            mEvents.add("discovered:"+characteristics);
+        }
+
+        @Override
+        public void onCharacteristicChanged(NodeTransport transport, UUID characteristic, byte[] data) {
+            mEvents.add("changed:"+Arrays.toString(data));
+        }
+
+        @Override
+        public void onCharacteristicRead(NodeTransport transport, UUID characteristic, byte[] data) {
+            mEvents.add("read:"+Arrays.toString(data));
+        }
+
+        @Override
+        public void onCharacteristicWrite(NodeTransport transport, UUID characteristic, boolean success) {
+            mEvents.add("write:"+success);
+        }
+
+        @Override
+        public void onNotificationChange(NodeTransport transport, UUID characteristic, boolean success) {
+            mEvents.add("notification:"+success);
+        }
+
+        @Override
+        public void onMtuChange(NodeTransport transport, int mtu, boolean success) {
+            mEvents.add("mtu:"+mtu+":"+success);
+        }
+    }
+
+    private Device mDevice;
+    private EventQueue mEvents;
+    private LoopbackTransport mTransport;
+
+    @Before
+    public void connect() throws InterruptedException {
+        mDevice = new Device();
+        mEvents = new EventQueue();
+        mTransport = new LoopbackTransport(Arrays.asList(CHAR), mDevice);
+        mTransport.connect(mEvents);
+        Assert.assertEquals("connected:true",mEvents.next());
+    }
+
+    @After
+    public void disconnect(){
+        mTransport.disconnect();
+    }
+
+    @Test
+    public void discoverReturnsTheDeviceCharacteristics() throws InterruptedException {
+        Assert.assertTrue(mTransport.discoverCharacteristics());
+        Assert.assertEquals("discovered:"+Arrays.asList(CHAR),mEvents.next());
+    }
+
+    @Test
+    public void readReturnsTheDeviceData() throws InterruptedException {
+        Assert.assertTrue(mTransport.readCharacteristic(CHAR));
+        Assert.assertEquals("read:"+Arrays.toString(DATA),mEvents.next());
+    }
+
+    @Test
+    public void readAnUnknownCharacteristicFails() throws InterruptedException {
+        mTransport.readCharacteristic(UNKNOWN_CHAR);
+        Assert.assertEquals("read:null",mEvents.next());
+    }
+
+    @Test
+    public void writeIsDeliveredToTheDevice() throws InterruptedException {
+        Assert.assertTrue(mTransport.writeCharacteristic(CHAR,DATA,true));
+        Assert.assertEquals("write:true",mEvents.next());
+        Assert.assertArrayEquals(DATA,mDevice.mLastWrite);
+    }
+
+    @Test
+    public void writeWithoutResponseIsCompleted() throws InterruptedException {
+        Assert.assertTrue(mTransport.writeCharacteristic(CHAR,DATA,false));
+        Assert.assertEquals("write:true",mEvents.next());
+        Assert.assertArrayEquals(DATA,mDevice.mLastWrite);
+    }
+
+    @Test
+    public void deviceCharacteristicsAllowAllTheOperations(){
+        Assert.assertEquals(NodeTransport.PROPERTY_ALL,mTransport.getCharacteristicProperties(CHAR));
+        Assert.assertEquals(0,mTransport.getCharacteristicProperties(UNKNOWN_CHAR));
+    }
+
+    @Test
+    public void mtuRequestIsAccepted() throws InterruptedException {
+        Assert.assertTrue(mTransport.requestMtu(247));
+        Assert.assertEquals("mtu:247:true",mEvents.next());
+    }
+
+    @Test
+    public void notificationIsSentOnlyIfEnabled() throws InterruptedException {
+        Assert.assertFalse(mTransport.notify(CHAR,DATA));
+        Assert.assertTrue(mTransport.setCharacteristicNotification(CHAR,true));
+        Assert.assertEquals("notification:true",mEvents.next());
+        Assert.assertTrue(mTransport.notify(CHAR,DATA));
+        Assert.assertEquals("changed:"+Arrays.toString(DATA),mEvents.next());
+        mTransport.setCharacteristicNotification(CHAR,false);
+        Assert.assertEquals("notification:true",mEvents.next());
+        Assert.assertFalse(mTransport.notify(CHAR,DATA));
+    }
+
+    @Test
+    public void dropConnectionNotifiesTheDisconnection() throws InterruptedException {
+        mTransport.setCharacteristicNotification(CHAR,true);
+        Assert.assertEquals("notification:true",mEvents.next());
+        mTransport.dropConnection();
+        Assert.assertEquals("connected:false",mEvents.next());
+        Assert.assertFalse(mTransport.isConnected());
+        Assert.assertFalse(mTransport.notify(CHAR,DATA));
+        Assert.assertFalse(mTransport.readCharacteristic(CHAR));
+    }
+
+}
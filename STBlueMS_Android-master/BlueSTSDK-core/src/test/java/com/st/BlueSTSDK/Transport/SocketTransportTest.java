@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SocketTransportTest {
+
+    private static final UUID CHAR = UUID.fromString("00000001-0000-1000-8000-00805f9b34fb");
+    private static final int N_NOTIFICATION = 1000;
+
+    private ServerSocket mServer;
+
+    @Before
+    public void openServer() throws IOException {
+        mServer = new ServerSocket(0);
+    }
+
+    @After
+    public void closeServer() throws IOException {
+        mServer.close();
+    }
+
+    /**
+     * stand-in device: answers the discovery and sends the notifications when enabled
+     */
+    private void runDevice() throws IOException {
+        Socket socket = mServer.accept();
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                TransportFrame request = TransportFrame.read(in);
+                switch (request.getType()) {
+                    case TransportFrame.DISCOVER:
+                        new TransportFrame(TransportFrame.DISCOVER_RESPONSE, request.getCharacteristic(),
+                                TransportFrame.buildDiscoverPayload(Arrays.asList(CHAR))).write(out);
+                        break;
+                    case TransportFrame.READ:
+                        new TransportFrame(TransportFrame.READ_RESPONSE, request.getCharacteristic(),
+                                TransportFrame.buildResponsePayload(true, new byte[]{42})).write(out);
+                        break;
+                    case TransportFrame.NOTIFY_ON:
+                        for (int i = 0; i < N_NOTIFICATION; i++)
+                            new TransportFrame(TransportFrame.NOTIFICATION, CHAR,
+                                    new byte[]{(byte) i}).write(out);
+                        break;
+                    default:
+                }
+                out.flush();
+            }
+        }finally {
+            socket.close();
+        }
+    }
+
+    private static class Callback implements NodeTransport.Callback{
+        final CountDownLatch mConnected = new CountDownLatch(1);
+        final CountDownLatch mDisconnected = new CountDownLatch(1);
+        final CountDownLatch mDiscovered = new CountDownLatch(1);
+        final CountDownLatch mRead = new CountDownLatch(1);
+        final CountDownLatch mNotificationEnabled = new CountDownLatch(1);
+        final CountDownLatch mAllNotification = new CountDownLatch(N_NOTIFICATION);
+        final AtomicInteger mNextNotification = new AtomicInteger();
+        volatile List<UUID> mCharacteristics;
+        volatile byte mReadData[];
+
+        @Override
+        public void onConnectionChange(NodeTransport transport, boolean connected) {
+            if(connected)
+                mConnected.countDown();
+            else
+                mDisconnected.countDown();
+        }
+
+        @Override
+        public void onCharacteristicsDiscovered(NodeTransport transport, List<UUID> characteristics) {
+            mCharacteristics = characteristics;
+            mDiscovered.countDown();
+        }
+
+        @Override
+        public void onCharacteristicChanged(NodeTransport transport, UUID characteristic, byte[] data) {
+            //the notification must arrive in order
+            if(data[0]==(byte)mNextNotification.getAndIncrement())
+                mAllNotification.countDown();
+        }
+
+        @Override
+        public void onCharacteristicRead(NodeTransport transport, UUID characteristic, byte[] data) {
+            mReadData = data;
+            mRead.countDown();
+        }
+
+        @Override
+        public void onCharacteristicWrite(NodeTransport transport, UUID characteristic, boolean success) { }
+
+        @Override
+        public void onNotificationChange(NodeTransport transport, UUID characteristic, boolean success) {
+            if(success)
+                mNotificationEnabled.countDown();
+        }
+
+        @Override
+        public void onMtuChange(NodeTransport transport, int mtu, boolean success) { }
+    }
+
+    @Test
+    public void roundTripWithAStandInDevice() throws Exception {
+        Thread device = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runDevice();
+                } catch (IOException e) {
+                    //connection closed
+                }
+            }
+        });
+        device.start();
+
+        Callback callback = new Callback();
+        SocketTransport transport = new SocketTransport("127.0.0.1",mServer.getLocalPort());
+        transport.connect(callback);
+        Assert.assertTrue(callback.mConnected.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(transport.discoverCharacteristics());
+        Assert.assertTrue(callback.mDiscovered.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(CHAR),callback.mCharacteristics);
+        Assert.assertEquals(NodeTransport.PROPERTY_ALL,transport.getCharacteristicProperties(CHAR));
+
+        Assert.assertTrue(transport.readCharacteristic(CHAR));
+        Assert.assertTrue(callback.mRead.await(5, TimeUnit.SECONDS));
+        Assert.assertArrayEquals(new byte[]{42},callback.mReadData);
+
+        Assert.assertTrue(transport.setCharacteristicNotification(CHAR,true));
+        Assert.assertTrue(callback.mNotificationEnabled.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(callback.mAllNotification.await(5, TimeUnit.SECONDS));
+
+        transport.disconnect();
+        Assert.assertTrue(callback.mDisconnected.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(transport.readCharacteristic(CHAR));
+        device.join(5000);
+    }
+
+    @Test
+    public void connectionRefusedNotifiesTheDisconnection() throws Exception {
+        int port = mServer.getLocalPort();
+        mServer.close();
+        Callback callback = new Callback();
+        new SocketTransport("127.0.0.1",port).connect(callback);
+        Assert.assertTrue(callback.mDisconnected.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1,callback.mConnected.getCount());
+    }
+
+    @Test
+    public void frameRoundTrip() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new TransportFrame(TransportFrame.WRITE,CHAR,new byte[]{1,2,3})
+                .write(new DataOutputStream(buffer));
+        TransportFrame frame = TransportFrame.read(new DataInputStream(
+                new ByteArrayInputStream(buffer.toByteArray())));
+        Assert.assertEquals(TransportFrame.WRITE,frame.getType());
+        Assert.assertEquals(CHAR,frame.getCharacteristic());
+        Assert.assertArrayEquals(new byte[]{1,2,3},frame.getPayload());
+    }
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ADPCMEngineTest {
+
+    @Test
+    public void packetDecodeIsEqualToTheSingleSampleDecode(){
+        byte data[] = new byte[20];
+        new Random(42).nextBytes(data);
+        ADPCMEngine single = new ADPCMEngine();
+        ADPCMEngine packet = new ADPCMEngine();
+        short out[] = new short[42];
+        for(int rep=0;rep<10;rep++) {
+            Assert.assertEquals(40, packet.decode(data, 0, 20, out, 2));
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals(single.decode((byte) (data[i] & 0x0F)), out[2 + 2 * i]);
+                Assert.assertEquals(single.decode((byte) ((data[i] >> 4) & 0x0F)),
+                        out[2 + 2 * i + 1]);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outputArrayMustContainAllTheSamples(){
+        new ADPCMEngine().decode(new byte[20],0,20,new short[39],0);
+    }
+
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AudioJitterBufferTest {
+
+    private static final int SAMPLING_FREQ = 8000;
+    private static final int FRAME_LENGTH = 40;
+    /** 5ms */
+    private static final long FRAME_DURATION_NS = FRAME_LENGTH*1000000000L/SAMPLING_FREQ;
+    private static final int MAX_LATENCY_MS = 60;
+
+    private AudioJitterBuffer mBuffer;
+    private short mOut[];
+
+    private static short[] frame(int value){
+        short data[] = new short[FRAME_LENGTH];
+        for(int i=0;i<FRAME_LENGTH;i++)
+            data[i]=(short)value;
+        return data;
+    }
+
+    @Before
+    public void createBuffer(){
+        mBuffer = new AudioJitterBuffer(SAMPLING_FREQ,FRAME_LENGTH,MAX_LATENCY_MS);
+        mOut = new short[FRAME_LENGTH];
+    }
+
+    @Test
+    public void maxFramesDependsOnTheLatency(){
+        Assert.assertEquals(12,mBuffer.getMaxFrames());
+    }
+
+    @Test
+    public void playbackStartsWhenTheTargetDepthIsReached(){
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertEquals(0,mOut[FRAME_LENGTH-1]);
+        mBuffer.put(frame(1000),0,0,true);
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        mBuffer.put(frame(2000),0,FRAME_DURATION_NS,false);
+        Assert.assertEquals(2,mBuffer.getTargetFrames());
+        //first frame with a fade in
+        Assert.assertTrue(mBuffer.get(mOut,0));
+        Assert.assertEquals(0,mOut[0]);
+        Assert.assertTrue(mOut[FRAME_LENGTH-1]>900);
+        Assert.assertTrue(mBuffer.get(mOut,0));
+        Assert.assertEquals(2000,mOut[0]);
+        Assert.assertEquals(2000,mOut[FRAME_LENGTH-1]);
+    }
+
+    @Test
+    public void anUnderrunRepeatsTheLastFrameWithADecreasingGain(){
+        mBuffer.put(frame(1000),0,0,true);
+        mBuffer.put(frame(1000),0,FRAME_DURATION_NS,false);
+        mBuffer.get(mOut,0);
+        Assert.assertTrue(mBuffer.get(mOut,0));
+
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertEquals(1000,mOut[0]);
+        Assert.assertTrue(mOut[FRAME_LENGTH-1]<1000 && mOut[FRAME_LENGTH-1]>400);
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertTrue(mOut[0]<=500);
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertEquals(0,mOut[FRAME_LENGTH-1]);
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertEquals(0,mOut[0]);
+
+        Assert.assertEquals(1,mBuffer.getUnderruns());
+        Assert.assertEquals(1,mBuffer.getConcealedFrames());
+        //the buffer keeps more frames after an underrun
+        Assert.assertEquals(3,mBuffer.getTargetFrames());
+    }
+
+    @Test
+    public void aPauseOfTheStreamIsNotALoss(){
+        long time=0;
+        for(int i=0;i<4;i++){
+            mBuffer.put(frame(1000),0,time,i==0);
+            time+=FRAME_DURATION_NS;
+        }
+        for(int i=0;i<5;i++)
+            mBuffer.get(mOut,0);
+        //the stream stops for 2s
+        time+=2000*1000000L;
+        for(int i=0;i<400;i++){
+            mBuffer.put(frame(2000),0,time,false);
+            mBuffer.get(mOut,0);
+            time+=FRAME_DURATION_NS;
+        }
+        Assert.assertEquals(0,mBuffer.getLostFrames());
+        Assert.assertTrue(mBuffer.getJitterNs()<FRAME_DURATION_NS);
+        Assert.assertTrue(mBuffer.get(mOut,0));
+        Assert.assertEquals(2000,mOut[FRAME_LENGTH-1]);
+    }
+
+    @Test
+    public void aLostFrameConcealsTheAudioUntilTheResync(){
+        long time=0;
+        for(int i=0;i<4;i++){
+            mBuffer.put(frame(1000),0,time,i==0);
+            time+=FRAME_DURATION_NS;
+        }
+        for(int i=0;i<4;i++)
+            mBuffer.get(mOut,0);
+        mBuffer.notifyLostFrames(1);
+        time+=FRAME_DURATION_NS;
+        mBuffer.put(frame(2000),0,time,false);
+        mBuffer.put(frame(3000),0,time+FRAME_DURATION_NS,true);
+        mBuffer.put(frame(4000),0,time+2*FRAME_DURATION_NS,false);
+
+        Assert.assertEquals(1,mBuffer.getLostFrames());
+        Assert.assertEquals(3,mBuffer.getBufferedFrames());
+        //the frame decoded before the resync is concealed
+        Assert.assertFalse(mBuffer.get(mOut,0));
+        Assert.assertTrue(mBuffer.get(mOut,0));
+        Assert.assertEquals(3000,mOut[FRAME_LENGTH-1],100);
+    }
+
+    @Test
+    public void theJitterIncreasesTheTargetDepth(){
+        long time=0;
+        //4 frames every 20ms, as in a ble connection event
+        for(int i=0;i<400;i++){
+            if(i%4==0)
+                time+=4*FRAME_DURATION_NS;
+            mBuffer.put(frame(i),0,time,false);
+            mBuffer.get(mOut,0);
+        }
+        Assert.assertTrue(mBuffer.getJitterNs()>FRAME_DURATION_NS);
+        Assert.assertTrue(mBuffer.getTargetFrames()>=3);
+        Assert.assertTrue(mBuffer.getTargetFrames()<=mBuffer.getMaxFrames());
+        Assert.assertEquals(0,mBuffer.getLostFrames());
+    }
+
+    @Test
+    public void aSlowNodeClockIsNotJitterOrLoss(){
+        //the node sends a frame each 5.05ms, the playback reads one each 5ms
+        long framePeriod = FRAME_DURATION_NS*101/100;
+        long nextPut=0;
+        long nextGet=0;
+        for(int i=0;i<4000;){
+            if(nextPut<=nextGet){
+                mBuffer.put(frame(i),0,nextPut,i==0);
+                nextPut+=framePeriod;
+                i++;
+            }else{
+                mBuffer.get(mOut,0);
+                nextGet+=FRAME_DURATION_NS;
+            }
+        }
+        Assert.assertEquals(0,mBuffer.getLostFrames());
+        Assert.assertTrue(mBuffer.getJitterNs()<FRAME_DURATION_NS);
+        Assert.assertTrue(mBuffer.getTargetFrames()<mBuffer.getMaxFrames());
+    }
+
+    @Test
+    public void theLatencyIsReducedAfterABurst(){
+        for(int i=0;i<3*mBuffer.getMaxFrames();i++)
+            mBuffer.put(frame(i),0,0,false);
+        Assert.assertEquals(2*mBuffer.getMaxFrames(),mBuffer.getBufferedFrames());
+        for(int i=0;i<mBuffer.getMaxFrames();i++)
+            mBuffer.get(mOut,0);
+        Assert.assertTrue(mBuffer.getBufferedFrames()<=
+                mBuffer.getTargetFrames()+2);
+        Assert.assertTrue(mBuffer.getDroppedFrames()>0);
+    }
+
+    @Test
+    public void resetRemovesTheFrames(){
+        mBuffer.put(frame(1000),0,0,false);
+        mBuffer.reset();
+        Assert.assertEquals(0,mBuffer.getBufferedFrames());
+        Assert.assertFalse(mBuffer.get(mOut,0));
+    }
+
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlueSTAdvertiseParserTest {
+
+    @Test
+    public void vendorFieldIsParsed() throws Exception{
+        byte advertise[] = new byte[]{
+                13,(byte)0xFF,(byte)0x01,(byte)0x02, (byte)0x00, (byte)0x04, (byte)0x00,
+                (byte)0x00,(byte)0xEF, (byte)0xBE, (byte)0x00, (byte)0xAD, (byte)0xDE, (byte)0x02,
+                3,0x09,'S','T'
+        };
+        BlueSTAdvertiseParser parser = new BlueSTAdvertiseParser(advertise);
+        Assert.assertEquals(1,parser.getProtocolVersion());
+        Assert.assertEquals(0x02,parser.getDeviceId());
+        Assert.assertEquals(0x00040000,parser.getFeatureMap());
+        Assert.assertEquals("EF:BE:00:AD:DE:02",parser.getAddress());
+        Assert.assertEquals("ST",parser.getName());
+    }
+
+    @Test
+    public void deviceIdIsNotChecked() throws Exception{
+        byte advertise[] = new byte[]{
+                7,(byte)0xFF,(byte)0x01,(byte)0x10, (byte)0xFF, (byte)0xFF, (byte)0x00, (byte)0x00
+        };
+        Assert.assertEquals(0x10,new BlueSTAdvertiseParser(advertise).getDeviceId());
+    }
+
+    @Test
+    public void sleepingAndGeneralPurposeFlags() throws Exception{
+        byte advertise[] = new byte[]{
+                7,(byte)0xFF,(byte)0x01,(byte)0x61, (byte)0x00, (byte)0x00, (byte)0x00, (byte)0x00
+        };
+        BlueSTAdvertiseParser parser = new BlueSTAdvertiseParser(advertise);
+        Assert.assertEquals(0x01,parser.getDeviceId());
+        Assert.assertTrue(parser.getBoardSleeping());
+        Assert.assertTrue(parser.getBoardHasGP());
+    }
+
+    @Test(expected= InvalidBleAdvertiseFormat.class)
+    public void advertiseWithoutVendorFieldIsInvalid() throws Exception {
+        new BlueSTAdvertiseParser(new byte[]{
+                6,0x09,'h','e','l','l','o',0,0
+        });
+    }
+
+}
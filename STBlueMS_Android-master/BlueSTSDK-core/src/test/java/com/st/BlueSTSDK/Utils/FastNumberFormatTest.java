@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+
+public class FastNumberFormatTest {
+
+    private static String format(double value, int decimals){
+        return FastNumberFormat.appendFixed(new StringBuilder(),value,decimals).toString();
+    }
+
+    @Test
+    public void outputIsEqualToTheFormatter(){
+        double values[] = {0, -0.0, 1, -1, 1.5, -2.25, 0.001, -0.0000001, 123.456789f, 1.1f,
+                99.9999999, 65535, -32768, 1e8+0.3, 2e9, -3.5e12, Float.MAX_VALUE};
+        for(double value : values){
+            for(int decimals = 0; decimals<=6; decimals+=3)
+                Assert.assertEquals(String.format(Locale.US,"%."+decimals+"f",value),
+                        format(value,decimals));
+        }
+    }
+
+    @Test
+    public void specialValues(){
+        Assert.assertEquals("NaN",format(Double.NaN,6));
+        Assert.assertEquals("Infinity",format(Double.POSITIVE_INFINITY,6));
+        Assert.assertEquals("-Infinity",format(Double.NEGATIVE_INFINITY,6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyDecimals(){
+        format(1, FastNumberFormat.MAX_DECIMALS+1);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PcmRingBufferTest {
+
+    private static short[] sequence(int start, int length){
+        short data[] = new short[length];
+        for(int i=0;i<length;i++)
+            data[i]=(short)(start+i);
+        return data;
+    }
+
+    @Test
+    public void capacityIsAPowerOfTwo(){
+        Assert.assertEquals(1024,new PcmRingBuffer(1000).getCapacity());
+        Assert.assertEquals(1024,new PcmRingBuffer(1024).getCapacity());
+    }
+
+    @Test
+    public void samplesAreReadInTheWriteOrder(){
+        PcmRingBuffer buffer = new PcmRingBuffer(16);
+        short out[] = new short[16];
+        int next=0;
+        //the positions wrap around the buffer end
+        for(int i=0;i<10;i++){
+            Assert.assertEquals(10,buffer.write(sequence(i*10,10),0,10));
+            Assert.assertEquals(10,buffer.available());
+            Assert.assertEquals(10,buffer.read(out,0,16));
+            for(int j=0;j<10;j++)
+                Assert.assertEquals((short)next++,out[j]);
+        }
+        Assert.assertEquals(0,buffer.read(out,0,16));
+    }
+
+    @Test
+    public void samplesAreDroppedWhenTheBufferIsFull(){
+        PcmRingBuffer buffer = new PcmRingBuffer(16);
+        Assert.assertEquals(10,buffer.write(sequence(0,10),0,10));
+        Assert.assertEquals(6,buffer.write(sequence(10,10),0,10));
+        Assert.assertEquals(4,buffer.getDroppedSamples());
+        short out[] = new short[32];
+        Assert.assertEquals(16,buffer.read(out,0,32));
+        Assert.assertEquals(15,out[15]);
+    }
+
+    @Test
+    public void clearDiscardsTheSamples(){
+        PcmRingBuffer buffer = new PcmRingBuffer(16);
+        buffer.write(sequence(0,10),0,10);
+        buffer.clear();
+        Assert.assertEquals(0,buffer.available());
+        Assert.assertEquals(16,buffer.write(sequence(0,16),0,16));
+    }
+
+    @Test
+    public void producerAndConsumerOnDifferentThreads() throws InterruptedException {
+        final PcmRingBuffer buffer = new PcmRingBuffer(64);
+        final int nSamples = 1000000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                short data[] = new short[40];
+                int next=0;
+                while(next<nSamples){
+                    for(int i=0;i<data.length;i++)
+                        data[i]=(short)(next+i);
+                    int n = buffer.write(data,0,Math.min(data.length,nSamples-next));
+                    //write again the samples that don't fit
+                    next+=n;
+                    if(n==0)
+                        Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        short out[] = new short[50];
+        int next=0;
+        while(next<nSamples){
+            int n = buffer.read(out,0,out.length);
+            for(int i=0;i<n;i++)
+                Assert.assertEquals((short)next++,out[i]);
+            if(n==0)
+                Thread.yield();
+        }
+        producer.join();
+    }
+
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class VoiceActivityDetectorTest {
+
+    private static final int SAMPLING_RATE = 8000;
+    private static final int PACKAGE_LENGTH = 40;
+
+    /**
+     * listener that counts the segments and keeps the segment audio
+     */
+    private static class SegmentCollector implements VoiceActivityDetector.SpeechListener{
+        int nStart;
+        int nEnd;
+        short audio[] = new short[SAMPLING_RATE*10];
+        int audioLength;
+
+        @Override
+        public void onSpeechStart(VoiceActivityDetector vad) {
+            Assert.assertEquals(nStart,nEnd);
+            nStart++;
+        }
+
+        @Override
+        public void onSpeechAudio(VoiceActivityDetector vad, short[] data, int offset, int length) {
+            Assert.assertEquals(nStart,nEnd+1);
+            System.arraycopy(data,offset,audio,audioLength,length);
+            audioLength+=length;
+        }
+
+        @Override
+        public void onSpeechEnd(VoiceActivityDetector vad) {
+            nEnd++;
+        }
+    }
+
+    private final Random mRandom = new Random(42);
+    private SegmentCollector mCollector;
+    private VoiceActivityDetector mVad;
+
+    @Before
+    public void createVad(){
+        mCollector = new SegmentCollector();
+        mVad = new VoiceActivityDetector(SAMPLING_RATE,mCollector);
+    }
+
+    private short[] noise(int length, int amplitude){
+        short data[] = new short[length];
+        for(int i=0;i<length;i++)
+            data[i] = (short)(mRandom.nextInt(2*amplitude+1)-amplitude);
+        return data;
+    }
+
+    private static short[] tone(int length, int amplitude){
+        short data[] = new short[length];
+        for(int i=0;i<length;i++)
+            data[i] = (short)(amplitude*Math.sin(2*Math.PI*300*i/SAMPLING_RATE));
+        return data;
+    }
+
+    /** pass the audio as the ble packages */
+    private void process(short data[]){
+        for(int i=0;i<data.length;i+=PACKAGE_LENGTH)
+            mVad.process(data,i,Math.min(PACKAGE_LENGTH,data.length-i));
+    }
+
+    private static int ms(int time){
+        return SAMPLING_RATE*time/1000;
+    }
+
+    @Test
+    public void silenceIsNotSpeech(){
+        process(noise(ms(2000),50));
+        Assert.assertFalse(mVad.isSpeech());
+        Assert.assertEquals(0,mCollector.nStart);
+        Assert.assertEquals(0,mCollector.audioLength);
+    }
+
+    @Test
+    public void theSegmentContainsTheSpeechWithoutTheSilence(){
+        process(noise(ms(1000),50));
+        short speech[] = tone(ms(500),3000);
+        process(speech);
+        Assert.assertTrue(mVad.isSpeech());
+        process(noise(ms(1000),50));
+        Assert.assertFalse(mVad.isSpeech());
+
+        Assert.assertEquals(1,mCollector.nStart);
+        Assert.assertEquals(1,mCollector.nEnd);
+        //speech + at most 200ms before and 100ms after
+        Assert.assertTrue(mCollector.audioLength>=speech.length);
+        Assert.assertTrue(mCollector.audioLength<=speech.length+ms(300));
+        //the tone is inside the segment
+        int speechStart = mCollector.audioLength - speech.length - ms(100);
+        Assert.assertTrue(speechStart>=0);
+        Assert.assertEquals(speech[100],mCollector.audio[speechStart+100]);
+    }
+
+    @Test
+    public void aShortPauseDoesntEndTheSegment(){
+        process(noise(ms(1000),50));
+        process(tone(ms(300),3000));
+        process(noise(ms(200),50));
+        process(tone(ms(300),3000));
+        process(noise(ms(1000),50));
+
+        Assert.assertEquals(1,mCollector.nStart);
+        Assert.assertEquals(1,mCollector.nEnd);
+        Assert.assertTrue(mCollector.audioLength>=ms(800));
+    }
+
+    @Test
+    public void unvoicedSoundsAreSpeech(){
+        process(noise(ms(1000),500));
+        //noise +4.4dB, under the voiced threshold
+        process(noise(ms(300),830));
+        Assert.assertTrue(mVad.isSpeech());
+    }
+
+    @Test
+    public void theNoiseLevelIsTracked(){
+        process(noise(ms(1000),3000));
+        Assert.assertFalse(mVad.isSpeech());
+        Assert.assertEquals(3000.0*3000/3,mVad.getNoiseEnergy(),3000.0*3000/3*0.3);
+        process(tone(ms(500),20000));
+        Assert.assertTrue(mVad.isSpeech());
+    }
+
+    @Test
+    public void stopEndsTheSegment(){
+        process(noise(ms(1000),50));
+        process(tone(ms(500),3000));
+        mVad.stop();
+        Assert.assertFalse(mVad.isSpeech());
+        Assert.assertEquals(1,mCollector.nEnd);
+    }
+
+}
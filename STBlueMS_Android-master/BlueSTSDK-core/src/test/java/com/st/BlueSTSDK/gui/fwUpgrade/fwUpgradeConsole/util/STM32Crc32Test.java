@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.gui.fwUpgrade.fwUpgradeConsole.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class STM32Crc32Test {
+
+    private static final byte DATA[] = new byte[]{
+            0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08,
+            0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F, 0x10};
+
+    @Test
+    public void bufferUpdateIsEqualToWordUpdate(){
+        STM32Crc32 wordCrc = new STM32Crc32();
+        for(int i=0;i<DATA.length;i+=4)
+            wordCrc.update(DATA,i,4);
+
+        STM32Crc32 bufferCrc = new STM32Crc32();
+        bufferCrc.update(DATA,0,DATA.length);
+
+        Assert.assertEquals(wordCrc.getValue(),bufferCrc.getValue());
+    }
+
+    @Test
+    public void resetRestoreTheInitialValue(){
+        STM32Crc32 crc = new STM32Crc32();
+        long initialValue = crc.getValue();
+        crc.update(DATA,0,DATA.length);
+        Assert.assertNotEquals(initialValue,crc.getValue());
+        crc.reset();
+        Assert.assertEquals(initialValue,crc.getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthMustBeMultipleOf4(){
+        new STM32Crc32().update(DATA,0,3);
+    }
+
+}
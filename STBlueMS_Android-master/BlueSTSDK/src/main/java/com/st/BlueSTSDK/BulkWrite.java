@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Transfer of a block of data into a characteristic, split in chunks.
+ * <p>
+ * Instead of waiting the completion of each write before sending the next one, the transfer
+ * keeps a window of chunks queued in the node gatt operations, so the next chunk is started as
+ * soon as the stack accepts the previous one. The window grows by one chunk after a full window
+ * of successful writes, and it is halved each time that the stack refuses a write, up to the
+ * maximum number of chunks in flight.
+ * </p>
+ * <p>
+ * The chunks are always written in order, a write completed with an error or without a callback
+ * stops the transfer.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class BulkWrite {
+
+    /** default maximum number of chunks queued in the node */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    /**
+     * Interface used for notify the transfer progress
+     */
+    public interface BulkWriteListener{
+
+        /**
+         * called when a chunk is written
+         * @param write transfer that sent the chunk
+         * @param byteSent number of byte written
+         * @param byteToSend total number of byte of the transfer
+         */
+        void onProgress(BulkWrite write, long byteSent, long byteToSend);
+
+        /**
+         * called when the transfer ends
+         * @param write transfer ended
+         * @param success true if all the data are written
+         */
+        void onComplete(BulkWrite write, boolean success);
+    }//BulkWriteListener
+
+    /**
+     * object that send a chunk to the stack
+     */
+    interface ChunkWriter{
+
+        /**
+         * start the write of a chunk
+         * @param characteristic characteristic to write
+         * @param data chunk to write
+         * @return false if the stack refuses the write
+         */
+        boolean write(UUID characteristic, byte data[]);
+    }//ChunkWriter
+
+    /**
+     * gatt operation that write a chunk of the transfer
+     */
+    private class ChunkOperation extends GattOperationScheduler.Operation{
+
+        private final byte mChunk[];
+
+        ChunkOperation(byte chunk[]){
+            super(GattOperationScheduler.Priority.FEATURE);
+            mChunk=chunk;
+        }
+
+        @Override
+        boolean start() {
+            return mWriter.write(mCharacteristic,mChunk);
+        }
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return mCharacteristic.equals(target);
+        }
+
+        @Override
+        void onCompleted(boolean success) {
+            onChunkCompleted(mChunk.length, success);
+        }
+
+        @Override
+        void onTimeout() {
+            onChunkCompleted(mChunk.length, false);
+        }
+
+        @Override
+        void onDropped() {
+            finish(false);
+        }
+
+        @Override
+        void onStartRefused() {
+            onChunkRefused();
+        }
+
+        @Override
+        boolean isCanceled() {
+            return isDone();
+        }
+    }//ChunkOperation
+
+    private final GattOperationScheduler mScheduler;
+    private final ChunkWriter mWriter;
+    private final UUID mCharacteristic;
+    private final byte mData[];
+    private final int mEnd;
+    private final int mChunkSize;
+    private final int mMaxInFlight;
+    private final long mByteToSend;
+    private final BulkWriteListener mListener;
+
+    /** offset of the next chunk to enqueue */
+    private int mNextOffset;
+    /** number of byte correctly written */
+    private long mByteSent;
+    /** number of chunks queued in the node */
+    private int mNInFlight;
+    /** current number of chunks that can be queued */
+    private int mWindow;
+    /** successful writes since the last window change */
+    private int mNSuccessInWindow;
+    /** number of writes refused by the stack */
+    private int mNRefused;
+    private long mStartTimeNs;
+    private long mEndTimeNs;
+    /** volatile since it is read by the scheduler without the transfer lock */
+    private volatile boolean mIsDone;
+    private boolean mSuccess;
+
+    /**
+     * @param scheduler gatt operations of the node
+     * @param writer object that write the chunks
+     * @param characteristic characteristic to write
+     * @param data data to send
+     * @param offset index of the first byte to send
+     * @param length number of byte to send
+     * @param chunkSize max size of each write
+     * @param maxInFlight max number of chunks queued in the node
+     * @param listener object where notify the progress, can be null
+     */
+    BulkWrite(@NonNull GattOperationScheduler scheduler, @NonNull ChunkWriter writer,
+              @NonNull UUID characteristic, @NonNull byte data[],
+              int offset, int length, int chunkSize, int maxInFlight,
+              @Nullable BulkWriteListener listener){
+        if(chunkSize<=0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        if(maxInFlight<=0)
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        if(offset<0 || length<0 || offset+length>data.length)
+            throw new IndexOutOfBoundsException("invalid data range");
+        mScheduler = scheduler;
+        mWriter = writer;
+        mCharacteristic = characteristic;
+        mData = data;
+        mNextOffset = offset;
+        mEnd = offset+length;
+        mChunkSize = chunkSize;
+        mMaxInFlight = maxInFlight;
+        mByteToSend = length;
+        mListener = listener;
+        mWindow = Math.min(2,maxInFlight);
+    }
+
+    /**
+     * start the transfer
+     */
+    void start(){
+        boolean isEmpty;
+        synchronized (this){
+            mStartTimeNs = System.nanoTime();
+            isEmpty = mByteToSend==0;
+            if(!isEmpty)
+                fillWindow();
+        }//synchronized
+        if(isEmpty)
+            finish(true);
+    }//start
+
+    /**
+     * enqueue the chunks until the window is full, have to be called with the lock
+     */
+    private void fillWindow(){
+        while(!mIsDone && mNInFlight < mWindow && mNextOffset < mEnd){
+            int chunkEnd = Math.min(mEnd, mNextOffset+mChunkSize);
+            byte chunk[] = Arrays.copyOfRange(mData,mNextOffset,chunkEnd);
+            mNextOffset = chunkEnd;
+            mNInFlight++;
+            mScheduler.enqueue(new ChunkOperation(chunk));
+        }//while
+    }//fillWindow
+
+    private void onChunkCompleted(int chunkLength, boolean success){
+        long byteSent;
+        boolean isLast;
+        synchronized (this){
+            if(mIsDone)
+                return;
+            mNInFlight--;
+            if(!success){
+                isLast=false;
+                byteSent=-1;
+            }else {
+                mByteSent += chunkLength;
+                byteSent = mByteSent;
+                isLast = mByteSent == mByteToSend;
+                mNSuccessInWindow++;
+                if (mNSuccessInWindow >= mWindow) {
+                    mWindow = Math.min(mMaxInFlight, mWindow + 1);
+                    mNSuccessInWindow = 0;
+                }//if
+                fillWindow();
+            }//if-else
+        }//synchronized
+
+        if(byteSent<0) {
+            finish(false);
+            return;
+        }//if
+        if(mListener!=null)
+            mListener.onProgress(this,byteSent,mByteToSend);
+        if(isLast)
+            finish(true);
+    }//onChunkCompleted
+
+    private void onChunkRefused(){
+        synchronized (this){
+            mNRefused++;
+            mNSuccessInWindow=0;
+            mWindow = Math.max(1,mWindow/2);
+        }//synchronized
+    }//onChunkRefused
+
+    /**
+     * set the transfer as ended and notify the listener
+     * @param success true if all the data are written
+     */
+    private void finish(boolean success){
+        synchronized (this){
+            if(mIsDone)
+                return;
+            mIsDone=true;
+            mSuccess=success;
+            mEndTimeNs=System.nanoTime();
+        }//synchronized
+        if(mListener!=null)
+            mListener.onComplete(this,success);
+    }//finish
+
+    /**
+     * stop the transfer, the chunks not yet started are discarded
+     */
+    public void cancel(){
+        finish(false);
+    }//cancel
+
+    /**
+     * @return true if the transfer is ended
+     */
+    public boolean isDone(){
+        return mIsDone;
+    }
+
+    /**
+     * @return true if the transfer is ended and all the data are written
+     */
+    public synchronized boolean isSuccess(){
+        return mIsDone && mSuccess;
+    }
+
+    /**
+     * @return number of byte correctly written
+     */
+    public synchronized long getByteSent(){
+        return mByteSent;
+    }
+
+    /**
+     * @return total number of byte to write
+     */
+    public long getByteToSend(){
+        return mByteToSend;
+    }
+
+    /**
+     * @return current number of chunks that can be queued in the node
+     */
+    public synchronized int getWindowSize(){
+        return mWindow;
+    }
+
+    /**
+     * @return number of chunks queued in the node
+     */
+    public synchronized int getNInFlight(){
+        return mNInFlight;
+    }
+
+    /**
+     * @return number of writes refused by the stack
+     */
+    public synchronized int getNRefusedWrite(){
+        return mNRefused;
+    }
+
+    /**
+     * @return ms from the transfer start, until the end if the transfer is ended
+     */
+    public synchronized long getElapsedTimeMs(){
+        long end = mIsDone ? mEndTimeNs : System.nanoTime();
+        return (end - mStartTimeNs)/1000000L;
+    }
+
+    /**
+     * @return mean number of byte written each second
+     */
+    public synchronized float getThroughput(){
+        long end = mIsDone ? mEndTimeNs : System.nanoTime();
+        long elapsedNs = end - mStartTimeNs;
+        if(elapsedNs<=0)
+            return 0;
+        return mByteSent * 1e9f / elapsedNs;
+    }
+
+}//BulkWrite
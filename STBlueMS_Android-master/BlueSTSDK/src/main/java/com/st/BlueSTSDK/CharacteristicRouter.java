@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index that associate each characteristic exported by the node to the object that handle its
+ * data.
+ * <p>
+ * The index is keyed by the characteristic UUID, as the transport callbacks, it is built once
+ * when the characteristics are discovered and it is read by the transport callback for each
+ * notification.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class CharacteristicRouter {
+
+    /**
+     * object that handle the data of a characteristic, the default implementation ignores all
+     * the events
+     */
+    static abstract class Handler{
+
+        /**
+         * called when the node notify a new value
+         * @param characteristic characteristic notified
+         * @param value new value
+         */
+        void onChanged(UUID characteristic, byte value[]){}
+
+        /**
+         * called when a read request is successfully completed
+         * @param characteristic characteristic read
+         * @param value read value
+         */
+        void onRead(UUID characteristic, byte value[]){}
+
+        /**
+         * called when a write request is completed
+         * @param characteristic characteristic that was written
+         * @param value written value
+         * @param success true if the write succeeded
+         */
+        void onWrite(UUID characteristic, byte value[], boolean success){}
+    }
+
+    private final Map<UUID,Handler> mHandlers;
+
+    /**
+     * build an empty router
+     */
+    CharacteristicRouter(){
+        mHandlers = new HashMap<>();
+    }
+
+    /**
+     * associate a handler to a characteristic, if the characteristic already has a handler it is
+     * replaced
+     * @param uuid characteristic uuid
+     * @param handler object that will handle the characteristic data
+     */
+    void add(@NonNull UUID uuid, @NonNull Handler handler){
+        mHandlers.put(uuid,handler);
+    }
+
+    /**
+     * @param uuid characteristic uuid
+     * @return object that handle the characteristic, null if the characteristic is not know
+     */
+    @Nullable Handler get(UUID uuid){
+        return mHandlers.get(uuid);
+    }
+
+    /**
+     * @return number of characteristics inside the index
+     */
+    int size(){
+        return mHandlers.size();
+    }
+
+    /**
+     * send the new value to the characteristic handler
+     * @param characteristic characteristic notified by the node
+     * @param value new value
+     * @return true if the characteristic has a handler
+     */
+    boolean onChanged(UUID characteristic, byte value[]){
+        Handler handler = mHandlers.get(characteristic);
+        if(handler==null)
+            return false;
+        handler.onChanged(characteristic,value);
+        return true;
+    }
+
+    /**
+     * send the read value to the characteristic handler
+     * @param characteristic characteristic read from the node
+     * @param value read value
+     * @return true if the characteristic has a handler
+     */
+    boolean onRead(UUID characteristic, byte value[]){
+        Handler handler = mHandlers.get(characteristic);
+        if(handler==null)
+            return false;
+        handler.onRead(characteristic,value);
+        return true;
+    }
+
+    /**
+     * send the write result to the characteristic handler
+     * @param characteristic characteristic written
+     * @param value written value
+     * @param success true if the write succeeded
+     * @return true if the characteristic has a handler
+     */
+    boolean onWrite(UUID characteristic, byte value[], boolean success){
+        Handler handler = mHandlers.get(characteristic);
+        if(handler==null)
+            return false;
+        handler.onWrite(characteristic,value,success);
+        return true;
+    }
+
+}
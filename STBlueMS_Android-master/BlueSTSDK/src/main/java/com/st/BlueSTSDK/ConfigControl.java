@@ -26,12 +26,11 @@
  ******************************************************************************/
 package com.st.BlueSTSDK;
 
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCharacteristic;
 
 import com.st.BlueSTSDK.Config.Command;
 import com.st.BlueSTSDK.Config.Register;
 
+import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -65,11 +64,7 @@ public class ConfigControl {
     /**
      * characteristics used for send/read Config register
      */
-    private final BluetoothGattCharacteristic mRegChar;
-    /**
-     * connection that can be used for send data to the remote device
-     */
-    private final BluetoothGatt mConnection;
+    private final UUID mRegChar;
     /**
      * list of listener for the feature change.
      * <p> is a thread safe list, so a listener can subscribe itself from a callback </p>
@@ -81,12 +76,10 @@ public class ConfigControl {
      *
      * @param node node that will be configurate
      * @param regChar characteristics used for access to the register
-     * @param connection connection with the node
      */
-    public ConfigControl(Node node, BluetoothGattCharacteristic regChar, BluetoothGatt connection) {
+    public ConfigControl(Node node, UUID regChar) {
         this.mNode = node;
         this.mRegChar = regChar;
-        this.mConnection = connection;
     }
 
     /**
@@ -126,10 +119,9 @@ public class ConfigControl {
      * <p>
      * if you extend the method update you have to call this method after that you update the data
      * </p>
-     * @param characteristic byte read from the register
+     * @param dataReg byte read from the register
      */
-    void characteristicsUpdate(BluetoothGattCharacteristic characteristic) {
-        byte [] dataReg = characteristic.getValue();
+    void characteristicsUpdate(byte dataReg[]) {
         if(dataReg==null)
             return;
         final Command cmd = new Command( dataReg);
@@ -156,11 +148,10 @@ public class ConfigControl {
      * <p>
      * if you extend the method update you have to call this method after that you update the data
      * </p>
-     * @param characteristic that contains the data command sent to the device
+     * @param dataReg command sent to the device
      * @param success true if the wrote command is send correctly
      */
-     void characteristicsWriteUpdate(BluetoothGattCharacteristic characteristic, final boolean success) {
-         byte[] dataReg = characteristic.getValue();
+     void characteristicsWriteUpdate(byte dataReg[], final boolean success) {
          if(dataReg==null)
              return;
         final Command cmd = new Command(dataReg);
@@ -179,8 +170,9 @@ public class ConfigControl {
      * @param cmd read command
      */
     public void read(Command cmd ) {
-        if (mRegChar != null && mConnection != null && cmd!=null) {
-            mNode.enqueueCharacteristicsWrite(mRegChar,cmd.ToReadPacket());
+        if (mRegChar != null && cmd!=null) {
+            mNode.enqueueCharacteristicsWrite(mRegChar,cmd.ToReadPacket(),
+                    GattOperationScheduler.Priority.CONFIG);
         }
     }
 
@@ -189,8 +181,9 @@ public class ConfigControl {
      * @param cmd write command
      */
     public void write(Command cmd ) {
-        if (mRegChar != null && mConnection != null && cmd!=null) {
-            mNode.enqueueCharacteristicsWrite(mRegChar,cmd.ToWritePacket());
+        if (mRegChar != null && cmd!=null) {
+            mNode.enqueueCharacteristicsWrite(mRegChar,cmd.ToWritePacket(),
+                    GattOperationScheduler.Priority.CONFIG);
         }
     }
 }
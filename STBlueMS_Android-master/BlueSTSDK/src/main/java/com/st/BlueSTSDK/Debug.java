@@ -26,7 +26,6 @@
  ******************************************************************************/
 package com.st.BlueSTSDK;
 
-import android.bluetooth.BluetoothGattCharacteristic;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.support.annotation.NonNull;
@@ -56,11 +55,11 @@ public class Debug {
     /**
      * characteristics used for send/read stdin/out
      */
-    private final BluetoothGattCharacteristic mTermChar;
+    private final UUID mTermChar;
     /**
      * characteristics used for read the stdErr
      */
-    private final BluetoothGattCharacteristic mErrChar;
+    private final UUID mErrChar;
 
     /**
      * thread used for call the user listener
@@ -73,10 +72,20 @@ public class Debug {
     private final CopyOnWriteArrayList<DebugOutputListener> mListener = new CopyOnWriteArrayList<>();
 
     /**
-     * Max size of string to sent in the input char
+     * Max size of string to sent in the input char with the default mtu, see
+     * {@link #getMaxMessageSize()} for the size of the current connection
      */
     public static final int MAX_STRING_SIZE_TO_SENT = 20;
 
+    /**
+     * get the max size of a single write in the input char, it depends on the mtu negotiated
+     * by the node
+     * @return max number of byte sent with a ble write
+     */
+    public int getMaxMessageSize(){
+        return Math.max(MAX_STRING_SIZE_TO_SENT,mNode.getMaxWritePayloadSize());
+    }
+
     private void initHandler(){
         HandlerThread temp = new HandlerThread(Debug.class.getCanonicalName());
         //if you send a lot of data through the debug interface, you need this for avoid delay that
@@ -91,8 +100,7 @@ public class Debug {
      * @param termChar   characteristic used for write/notify the stdin/out
      * @param errChar    characteristic used used for notify the stderr
      */
-    Debug(Node n, BluetoothGattCharacteristic termChar,
-          BluetoothGattCharacteristic errChar) {
+    Debug(Node n, UUID termChar, UUID errChar) {
         mNode = n;
         mTermChar = termChar;
         mErrChar = errChar;
@@ -129,11 +137,12 @@ public class Debug {
      */
     public int write(byte[] data,int offset, int byteToSend){
         int byteSend=offset;
-        //write the message with chunk of MAX_STRING_SIZE_TO_SENT bytes
-        while((byteToSend-byteSend) > MAX_STRING_SIZE_TO_SENT){
+        int messageSize = getMaxMessageSize();
+        //write the message with chunk of messageSize bytes
+        while((byteToSend-byteSend) > messageSize){
             mNode.enqueueCharacteristicsWrite(mTermChar,
-                    Arrays.copyOfRange(data,byteSend, byteSend + MAX_STRING_SIZE_TO_SENT));
-            byteSend+=MAX_STRING_SIZE_TO_SENT;
+                    Arrays.copyOfRange(data,byteSend, byteSend + messageSize));
+            byteSend+=messageSize;
         }//while
 
         //send the remaining data
@@ -144,6 +153,33 @@ public class Debug {
         return byteToSend;
     }
 
+    /**
+     * Write an array of byte into the stdIn without waiting the end of each ble write before
+     * sending the next one, use it for send a big amount of data
+     * @param data array to write
+     * @param chunkSize max number of byte for each ble write
+     * @param listener object where notify the transfer progress, can be null
+     * @return object that track the transfer, or null if the stdIn can not be written
+     */
+    public @Nullable BulkWrite writeBulk(byte[] data, int chunkSize,
+                                         @Nullable BulkWrite.BulkWriteListener listener){
+        return mNode.writeBulk(mTermChar,data,0,data.length,chunkSize,
+                BulkWrite.DEFAULT_MAX_IN_FLIGHT,listener);
+    }
+
+    /**
+     * Write an array of byte into the stdIn without waiting the end of each ble write before
+     * sending the next one, the data are split in messages of {@link #getMaxMessageSize()}
+     * bytes
+     * @param data array to write
+     * @param listener object where notify the transfer progress, can be null
+     * @return object that track the transfer, or null if the stdIn can not be written
+     */
+    public @Nullable BulkWrite writeBulk(byte[] data,
+                                         @Nullable BulkWrite.BulkWriteListener listener){
+        return writeBulk(data,getMaxMessageSize(),listener);
+    }
+
     public void addDebugOutputListener(@Nullable DebugOutputListener listener){
         if(listener==null)
             return;
@@ -186,13 +222,13 @@ public class Debug {
      * the node had received an update on this characteristics, if it is a debug characteristic we
      * sent its data to the listener
      *
-     * @param characteristic characteristic that has been updated
+     * @param charUuid characteristic that has been updated
+     * @param value      characteristic value
      */
-    void receiveCharacteristicsUpdate(final BluetoothGattCharacteristic characteristic) {
+    void receiveCharacteristicsUpdate(UUID charUuid, byte value[]) {
         if (mListener.isEmpty())
             return;
-        UUID charUuid = characteristic.getUuid();
-        final String msg = encodeMessageString(characteristic.getValue());
+        final String msg = encodeMessageString(value);
         if (charUuid.equals(BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID)) {
            // mListener.onStdErrReceived(Debug.this, characteristic.getStringValue(0));
             mNotifyThread.post(new Runnable() {
@@ -218,22 +254,22 @@ public class Debug {
     /**
      * the node had finish to write a characteristics
      *
-     * @param characteristic characteristic that has been write
-     * @param status         true if the write end correctly, false otherwise
+     * @param charUuid characteristic that has been write
+     * @param value    written data
+     * @param status   true if the write end correctly, false otherwise
      */
-    void receiveCharacteristicsWriteUpdate(final BluetoothGattCharacteristic characteristic,
-                                           final boolean status) {
+    void receiveCharacteristicsWriteUpdate(UUID charUuid, byte value[], final boolean status) {
         if (mListener.isEmpty())
             return;
-        UUID charUuid = characteristic.getUuid();
 
         if (charUuid.equals(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID)) {
-            final String str = encodeMessageString(characteristic.getValue());
-            if(str.length()>MAX_STRING_SIZE_TO_SENT) {
+            final String str = encodeMessageString(value);
+            final int messageSize = getMaxMessageSize();
+            if(str.length()>messageSize) {
                 mNotifyThread.post(new Runnable() {
                     @Override
                     public void run() {
-                    final String msg = str.substring(0,MAX_STRING_SIZE_TO_SENT);
+                    final String msg = str.substring(0,messageSize);
                     for(DebugOutputListener listener : mListener)
                         listener.onStdInSent(Debug.this, msg, status);
                     }
@@ -274,7 +274,7 @@ public class FeatureAccelerationEvent extends Feature {
     @SuppressWarnings("ResourceType") // we are secure that the int is an or of acceleration event
     public static @AccelerationEvent int getAccelerationEvent(Sample sample){
         if(hasValidIndex(sample,ACC_EVENT))
-            return sample.data[ACC_EVENT].intValue();
+            return sample.getInt(ACC_EVENT);
         return NO_EVENT;
     }//getAccelerationEvent
 
@@ -295,7 +295,7 @@ public class FeatureAccelerationEvent extends Feature {
      */
     public static int getPedometerSteps(Sample sample){
         if(hasValidIndex(sample,PEDOMETER_DATA))
-            return sample.data[PEDOMETER_DATA].intValue();
+            return sample.getInt(PEDOMETER_DATA);
         return -1;
     }//getPedometerSteps
 
@@ -348,7 +348,7 @@ public class FeatureAccelerationEvent extends Feature {
             throw new IllegalArgumentException("There are no 2 byte available to read");
 
         return new ExtractResult(
-                new Sample(timestamp,new Number[]{accEvent,nSteps},getFieldsDesc()),
+                new Sample(timestamp,new long[]{accEvent,nSteps},getFieldsDesc()),
                 readBytes);
     }//extractData
 
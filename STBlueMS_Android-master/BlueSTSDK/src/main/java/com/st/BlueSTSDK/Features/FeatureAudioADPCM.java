@@ -26,14 +26,21 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.support.annotation.Nullable;
-
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Node;
+import com.st.BlueSTSDK.Utils.ADPCMEngine;
 import com.st.BlueSTSDK.Utils.BVAudioSyncManager;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Feature that contains the compressed audio data acquired form a microphone.
+ * <p>
+ * The audio is decoded in a reused array and passed to the {@link AudioListener}, a
+ * {@link com.st.BlueSTSDK.Feature.Sample} is built for each package only if the feature has a
+ * generic listener or logger, otherwise it is built from the last package by
+ * {@link #getSample()}.
+ * </p>
  *
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
@@ -48,9 +55,49 @@ public class FeatureAudioADPCM extends Feature {
      */
     public static final int AUDIO_PACKAGE_SIZE=40;
 
+    /**
+     * size of the compressed audio package
+     */
+    private static final int AUDIO_PACKAGE_BYTES = AUDIO_PACKAGE_SIZE/2;
+
     private ADPCMEngine adpcmEngine = new ADPCMEngine();
     private BVAudioSyncManager mBVBvAudioSyncManager =null;
 
+    /**
+     * samples decoded from the last package, used only inside extractData
+     */
+    private final short mPcmData[] = new short[AUDIO_PACKAGE_SIZE];
+
+    /** true if the last package was decoded without build the sample, guarded by mWriteLock */
+    private boolean mLastSampleIsPcm;
+
+    /** true if the decoder was reset before decoding the last package */
+    private boolean mLastIsResync;
+
+    private final CopyOnWriteArrayList<AudioListener> mAudioListener =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * Interface used for receive the decoded audio without build a feature sample
+     */
+    public interface AudioListener{
+
+        /**
+         * called each time an audio package is decoded, in the thread that receives the ble
+         * notification, after the feature lock is released. The method must not block: copy
+         * the data, for example in a
+         * {@link com.st.BlueSTSDK.Utils.PcmRingBuffer}, and process them in another thread
+         * @param feature feature that decoded the audio
+         * @param pcmData decoded samples, the array is reused after the call
+         * @param nSamples number of samples in pcmData
+         * @param isResync true if the decoder state was reset with the synchronization sent by
+         *                 the node before decoding this package, the previous packages lost
+         *                 don't change the decoded audio
+         */
+        void onAudioUpdate(FeatureAudioADPCM feature, short pcmData[], int nSamples,
+                           boolean isResync);
+    }//AudioListener
+
     protected static final Field AUDIO_FIELD = new Field(FEATURE_DATA_NAME,null,Field.Type.ByteArray,-128,127);
 
     /**
@@ -78,8 +125,8 @@ public class FeatureAudioADPCM extends Feature {
      */
     public static short[] getAudio(Sample sample) {
 
-        if (sample != null && sample.data!=null){
-            int length = sample.data.length;
+        if (sample != null){
+            int length = sample.getDataLength();
             short[] audioPckt = new short[length];
             getAudio(sample,audioPckt);
             return audioPckt;
@@ -96,11 +143,11 @@ public class FeatureAudioADPCM extends Feature {
      * @return true if the sample is a valid sample
      */
     public static boolean getAudio(Sample sample, short outData[]){
-        if (sample != null && sample.data!=null){
-            int length = Math.min(sample.data.length,outData.length);
+        if (sample != null){
+            int length = Math.min(sample.getDataLength(),outData.length);
             for(int i = 0 ; i < length ; i++){
-                if (sample.data[i] != null)
-                    outData[i] = sample.data[i].shortValue();
+                if (sample.hasValue(i))
+                    outData[i] = sample.getShort(i);
             }
             return true;
         }
@@ -108,6 +155,23 @@ public class FeatureAudioADPCM extends Feature {
     }
 
 
+    /**
+     * add a listener that receives the decoded audio
+     * @param listener object to notify
+     */
+    public void addAudioListener(AudioListener listener){
+        if(listener!=null)
+            mAudioListener.addIfAbsent(listener);
+    }
+
+    /**
+     * remove an audio listener
+     * @param listener object to remove
+     */
+    public void removeAudioListener(AudioListener listener){
+        mAudioListener.remove(listener);
+    }
+
     /**
      * set the object synchronization parameters necessary to the decompression process
      * @param manager struct which contains the synchronization parameters
@@ -116,158 +180,103 @@ public class FeatureAudioADPCM extends Feature {
         mBVBvAudioSyncManager= manager;
     }
 
+    /**
+     * decode an audio package, resetting the decoder state if the node sent a new
+     * synchronization
+     * @param data compressed audio
+     * @param offset index of the first byte of the package
+     * @param out array where store the decoded samples
+     * @return true if the decoder state was reset before decoding the package
+     */
+    private boolean decode(byte data[], int offset, short out[]){
+        BVAudioSyncManager syncManager = mBVBvAudioSyncManager;
+        boolean isResync = false;
+        if(syncManager!=null && syncManager.isIntra()) {
+            adpcmEngine.setState(syncManager.getAdpcm_predsample_in(),
+                    syncManager.getAdpcm_index_in());
+            syncManager.reinitResetFlag();
+            isResync = true;
+        }
+        adpcmEngine.decode(data,offset,AUDIO_PACKAGE_BYTES,out,0);
+        return isResync;
+    }
+
+    /**
+     * build a sample with the last decoded package
+     * @return sample with the audio values
+     */
+    private Sample buildSample(){
+        long[] dataPkt = new long[AUDIO_PACKAGE_SIZE];
+        for (int i=0; i<AUDIO_PACKAGE_SIZE; i++)
+            dataPkt[i] = mPcmData[i];
+        return new Sample(0,dataPkt,getFieldsDesc());
+    }
+
+    @Override
+    public Sample getSample() {
+        mWriteLock.lock();
+        try {
+            if (mLastSampleIsPcm)
+                return buildSample();
+        } finally {
+            mWriteLock.unlock();
+        }
+        return super.getSample();
+    }
+
+    /**
+     * decode the package and then, outside the feature lock, pass the audio to the
+     * {@link AudioListener}
+     */
+    @Override
+    protected int update_priv(long timeStamp, byte[] data, int dataOffset) {
+        int nReadBytes = super.update_priv(timeStamp, data, dataOffset);
+        //the packages are updated by a single thread, the array contains the last one
+        for(AudioListener listener : mAudioListener)
+            listener.onAudioUpdate(this,mPcmData,AUDIO_PACKAGE_SIZE,mLastIsResync);
+        return nReadBytes;
+    }
+
     /**
      * extract the audio data from the node raw data, in this case it read an array of 40 shorts.
      *
      * @param data       array where read the Field data (a 20 bytes array)
      * @param dataOffset offset where start to read the data (0 by default)
-     * @return number of read bytes (20) and data extracted (the audio information, the 40 shorts array)
+     * @return number of read bytes (20) and data extracted (the audio information, the 40 shorts
+     * array), the sample is null if the feature doesn't have listeners or loggers: in this case
+     * nothing is notified
      * @throws IllegalArgumentException if the data array has not the correct number of elements
      */
     @Override
     protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
-        if(data.length == 20){
-            Number[] dataPkt = new Number[AUDIO_PACKAGE_SIZE];
-            for (int i=0; i<AUDIO_PACKAGE_SIZE/2; i++) {
-                dataPkt[2*i] = adpcmEngine.decode((byte)(data[i] & 0x0F), mBVBvAudioSyncManager);
-                dataPkt[(2*i)+1] = adpcmEngine.decode((byte)((data[i] >> 4) & 0x0F), mBVBvAudioSyncManager);
-            }
-            Sample audioData = new Sample(dataPkt,getFieldsDesc());
-            return new ExtractResult(audioData,20);
+        if(data.length == AUDIO_PACKAGE_BYTES){
+            mLastIsResync = decode(data,0,mPcmData);
+            mLastSampleIsPcm = !hasSampleListeners();
+            if(mLastSampleIsPcm)
+                return new ExtractResult(null,AUDIO_PACKAGE_BYTES);
+            return new ExtractResult(buildSample(),AUDIO_PACKAGE_BYTES);
         }
         else{
             throw new IllegalArgumentException("There are no 20 bytes available to read");
         }
     }//update
 
-    //avoid to notify on the thread pool since here the order notification order is important,
-    //keep the notification inside the main thread..
-    @Override
-    protected void notifyUpdate(final Sample sample) {
-        for (final FeatureListener listener : mFeatureListener)
-            listener.onUpdate(this,sample);
-    }//notifyUpdate
-
 
     @Override
     public String toString(){
         //create the string with the feature data
-        Sample sample = mLastSample; //keep a reference for be secure to be thread safe
+        Sample sample = getSample();
         if(sample==null)
             return FEATURE_NAME+":\n\tNo Data";
         //else
-        if(sample.data.length==0){
+        if(sample.getDataLength()==0){
             return FEATURE_NAME+":\n\tNo Data";
         }
         String temp =FEATURE_NAME+":\n\t";
 
-        for(Number n : sample.data){
-            temp += String.format("%04X",n.shortValue());
+        for(int i=0;i<sample.getDataLength();i++){
+            temp += String.format("%04X",sample.getShort(i));
         }
         return temp;
     }
-
-    /**
-     * ADPCM Engine class. It contains all the operations and parameters necessary to decompress the
-     * audio received.
-     */
-    private static class ADPCMEngine {
-
-        /** Quantizer step size lookup table */
-        private static final short[] StepSizeTable={7,8,9,10,11,12,13,14,16,17,
-                19,21,23,25,28,31,34,37,41,45,
-                50,55,60,66,73,80,88,97,107,118,
-                130,143,157,173,190,209,230,253,279,307,
-                337,371,408,449,494,544,598,658,724,796,
-                876,963,1060,1166,1282,1411,1552,1707,1878,2066,
-                2272,2499,2749,3024,3327,3660,4026,4428,4871,5358,
-                5894,6484,7132,7845,8630,9493,10442,11487,12635,13899,
-                15289,16818,18500,20350,22385,24623,27086,29794,32767};
-
-        /** Table of index changes */
-        private static final byte[] IndexTable = {-1,-1,-1,-1,2,4,6,8,-1,-1,-1,-1,2,4,6,8};
-
-        private short index;
-        private int predsample;
-
-        /**
-         * Default Constructor
-         */
-        public ADPCMEngine() {
-            this.index = 0;
-            this.predsample = 0;
-        }
-
-        /**
-         * ADPCM_Decode.
-         * @param code: a byte containing a 4-bit ADPCM sample.
-         * @return : a struct which contains a 16-bit ADPCM sample
-         */
-        public short decode(byte code,@Nullable BVAudioSyncManager syncManager) {
-            short step;
-            int diffq;
-
-            if(syncManager!=null && syncManager.isIntra()) {
-                predsample = syncManager.getAdpcm_predsample_in();
-                index = syncManager.getAdpcm_index_in();
-                syncManager.reinitResetFlag();
-            }
-            step = StepSizeTable[index];
-
-            /* 2. inverse code into diff */
-            diffq = step>> 3;
-            if ((code&4)!=0)
-            {
-                diffq += step;
-            }
-
-            if ((code&2)!=0)
-            {
-                diffq += step>>1;
-            }
-
-            if ((code&1)!=0)
-            {
-                diffq += step>>2;
-            }
-
-            /* 3. add diff to predicted sample*/
-            if ((code&8)!=0)
-            {
-                predsample -= diffq;
-            }
-            else
-            {
-                predsample += diffq;
-            }
-
-            /* check for overflow*/
-            if (predsample > 32767)
-            {
-                predsample = 32767;
-            }
-            else if (predsample < -32768)
-            {
-                predsample = -32768;
-            }
-
-            /* 4. find new quantizer step size */
-            index += IndexTable [code];
-            /* check for overflow*/
-            if (index < 0)
-            {
-                index = 0;
-            }
-            if (index > 88)
-            {
-                index = 88;
-            }
-
-            /* 5. save predict sample and index for next iteration */
-            /* done! static variables */
-
-            /* 6. return new speech sample*/
-            return (short)predsample;
-        }
-    }
 }
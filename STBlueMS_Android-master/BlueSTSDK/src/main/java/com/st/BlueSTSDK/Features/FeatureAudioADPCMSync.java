@@ -77,10 +77,10 @@ public class FeatureAudioADPCMSync extends Feature {
     protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
         if (data.length == 6) {
             //syncIn(data);
-            Number[] syncParams = new Number[2];
+            long[] syncParams = new long[2];
             syncParams[0] = getADPCMIndex(data);
             syncParams[1] = getADPCMPredsample(data);
-            Sample audioSyncParams = new Sample(syncParams,getFieldsDesc());
+            Sample audioSyncParams = new Sample(0,syncParams,getFieldsDesc());
             return new ExtractResult(audioSyncParams,6);
         } else {
             Log.e("FeatureAudioADPCM", "data length: " + data.length);
@@ -89,19 +89,15 @@ public class FeatureAudioADPCMSync extends Feature {
     }//update
 
     public static int getPredictedSample(Sample s){
-        if(s!=null)
-            if (s.data.length > ADPCM_PREDSAMPLE_INDEX)
-                if (s.data[ADPCM_PREDSAMPLE_INDEX] != null)
-                    return s.data[ADPCM_PREDSAMPLE_INDEX].intValue();
+        if(hasValidIndex(s,ADPCM_PREDSAMPLE_INDEX))
+            return s.getInt(ADPCM_PREDSAMPLE_INDEX);
         //else
         return 0;
     }
 
     public static short getIndex(Sample s){
-        if(s!=null)
-            if (s.data.length > ADPCM_INDEX_INDEX)
-                if (s.data[ADPCM_INDEX_INDEX] != null)
-                    return s.data[ADPCM_INDEX_INDEX].shortValue();
+        if(hasValidIndex(s,ADPCM_INDEX_INDEX))
+            return s.getShort(ADPCM_INDEX_INDEX);
         //else
         return -1;
     }
@@ -129,9 +125,4 @@ public class FeatureAudioADPCMSync extends Feature {
         adpcm_predsample_in |= ((int) buffer_in[5] << 24) & 0xFF000000;
         return adpcm_predsample_in;
     }
-
-    protected void notifyUpdate(final Sample sample) {
-        for (final FeatureListener listener : mFeatureListener)
-            listener.onUpdate(this,sample);
-    }//notifyUpdate
 }
@@ -26,11 +26,12 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Features;
 
-import android.bluetooth.BluetoothGattCharacteristic;
 
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Node;
 
+import java.util.UUID;
+
 /**
  * It is a special feature that is used during the development and doesn't follow the sdk schema.
  * <ul>
@@ -53,7 +54,7 @@ public class FeatureGenPurpose extends Feature {
     /**
      * characteristics that will export this data
      */
-    private BluetoothGattCharacteristic mChar; //we can store the characteristics inside the
+    private UUID mChar; //we can store the characteristics inside the
     // feature because we have one characteristics for each general purpose feature, for the
     // normal feature the data can be exported by multiple characteristics
 
@@ -62,8 +63,8 @@ public class FeatureGenPurpose extends Feature {
      * @param n node that export this data
      * @param characteristics characteristics that export this data
      */
-    public FeatureGenPurpose(Node n, BluetoothGattCharacteristic characteristics){
-        super("GenPurpose_"+characteristics.getUuid().toString().substring(0,Math.min(8,characteristics.getUuid().toString().length())),n,new Field[]{
+    public FeatureGenPurpose(Node n, UUID characteristics){
+        super("GenPurpose_"+characteristics.toString().substring(0,Math.min(8,characteristics.toString().length())),n,new Field[]{
                 new Field(FEATURE_DATA_NAME,FEATURE_UNIT, Field.Type.Int8,DATA_MAX,DATA_MIN)
         });
         mChar=characteristics;
@@ -78,9 +79,9 @@ public class FeatureGenPurpose extends Feature {
         if(s==null)
             return null;
 
-        byte rawData[] = new byte[s.data.length];
-        for(int i=0;i<s.data.length;i++){
-            rawData[i]=s.data[i].byteValue();
+        byte rawData[] = new byte[s.getDataLength()];
+        for(int i=0;i<s.getDataLength();i++){
+            rawData[i]=s.getByte(i);
         }//for i
 
         return rawData;
@@ -88,16 +89,16 @@ public class FeatureGenPurpose extends Feature {
 
     /**
      * get the characteristics that is associated with this general purpose
-     * @return characteristics to query for have update data
+     * @return uuid of the characteristics to query for have update data
      */
-    public BluetoothGattCharacteristic getFeatureChar(){
+    public UUID getFeatureChar(){
         return mChar;
     }
 
     @Override
     protected ExtractResult extractData(long timestamp,byte[] data, int offsetData) {
 
-        Number dataObj[] = new Number[data.length-offsetData];
+        long dataObj[] = new long[data.length-offsetData];
         for(int i=offsetData;i<data.length;i++){
             dataObj[i-offsetData]=data[i];
         }//for i
@@ -114,9 +115,8 @@ public class FeatureGenPurpose extends Feature {
         Sample sample = mLastSample;
         sb.append(getName()).append(":\n\tTimestamp: ").append(sample.timestamp).append('\n');
         sb.append('\t').append(FEATURE_DATA_NAME).append(": ");
-        Number data[] = sample.data;
-        for (Number n: data) {
-            sb.append(String.format("%X ",n.byteValue()));
+        for (int i=0;i<sample.getDataLength();i++) {
+            sb.append(String.format("%X ",sample.getByte(i)));
         }//for
         sb.append('\n');
 
@@ -143,7 +143,7 @@ public class FeatureMemsSensorFusionCompact extends FeatureMemsSensorFusion {
     private void notifySample(long timestamp, float qi,float qj,float qk,float qs,byte rawData[]){
         Sample newSample;
         mWriteLock.lock();
-            mLastSample = new Sample(timestamp,new Number[]{qi,qj,qk,qs},getFieldsDesc());
+            mLastSample = new Sample(timestamp,new float[]{qi,qj,qk,qs},getFieldsDesc());
             newSample = mLastSample;
         mWriteLock.unlock();
         notifyUpdate(newSample);
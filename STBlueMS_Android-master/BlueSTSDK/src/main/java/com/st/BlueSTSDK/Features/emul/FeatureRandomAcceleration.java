@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomAcceleration extends FeatureAcceleration implements NodeEmulator.EmulableFeature {
+public class FeatureRandomAcceleration extends FeatureAcceleration implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -61,4 +62,8 @@ public class FeatureRandomAcceleration extends FeatureAcceleration implements No
         return data;
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -40,7 +40,8 @@ import java.util.Random;
  * @version 1.0
  */
 public class FeatureRandomAccelerationEvent extends FeatureAccelerationEvent implements
-        NodeEmulator.EmulableFeature {
+        NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     Random mRandom = new Random();
 
@@ -78,4 +79,9 @@ public class FeatureRandomAccelerationEvent extends FeatureAccelerationEvent imp
 
             return new byte[]{(byte)mRandom.nextInt(), (byte)mRandom.nextInt(), (byte)mRandom.nextInt() };
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRandom.setSeed(seed);
+    }
 }
@@ -41,7 +41,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomActivityRecognition extends FeatureActivity implements NodeEmulator.EmulableFeature {
+public class FeatureRandomActivityRecognition extends FeatureActivity implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -62,5 +63,9 @@ public class FeatureRandomActivityRecognition extends FeatureActivity implements
         return ret;
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
 
@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomBattery extends FeatureBattery implements NodeEmulator.EmulableFeature {
+public class FeatureRandomBattery extends FeatureBattery implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     Random mRandom = new Random();
     int mCharge =5;
@@ -67,4 +68,9 @@ public class FeatureRandomBattery extends FeatureBattery implements NodeEmulator
 
         return data;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRandom.setSeed(seed);
+    }
 }
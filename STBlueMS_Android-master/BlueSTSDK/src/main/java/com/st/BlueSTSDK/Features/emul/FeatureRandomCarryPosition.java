@@ -38,7 +38,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomCarryPosition extends FeatureCarryPosition implements NodeEmulator.EmulableFeature {
+public class FeatureRandomCarryPosition extends FeatureCarryPosition implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -57,5 +58,9 @@ public class FeatureRandomCarryPosition extends FeatureCarryPosition implements
         return ret;
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
 
@@ -38,7 +38,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomFreeFall extends FeatureFreeFall implements NodeEmulator.EmulableFeature {
+public class FeatureRandomFreeFall extends FeatureFreeFall implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
         private Random mRnd = new Random();
 
@@ -57,5 +58,9 @@ public class FeatureRandomFreeFall extends FeatureFreeFall implements NodeEmulat
             return ret;
         }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
 
@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomGyroscope extends FeatureGyroscope implements NodeEmulator.EmulableFeature {
+public class FeatureRandomGyroscope extends FeatureGyroscope implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -61,5 +62,8 @@ public class FeatureRandomGyroscope extends FeatureGyroscope implements NodeEmul
         return data;
     }
 
-
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomMagnetometer extends FeatureMagnetometer implements NodeEmulator.EmulableFeature{
+public class FeatureRandomMagnetometer extends FeatureMagnetometer implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature{
 
     Random mRnd = new Random();
 
@@ -61,4 +62,8 @@ public class FeatureRandomMagnetometer extends FeatureMagnetometer implements No
         return data;
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomMemsSensorFusion extends FeatureMemsSensorFusion implements NodeEmulator.EmulableFeature {
+public class FeatureRandomMemsSensorFusion extends FeatureMemsSensorFusion implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -75,4 +76,9 @@ public class FeatureRandomMemsSensorFusion extends FeatureMemsSensorFusion imple
 
         return data;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -40,7 +40,8 @@ import java.util.Random;
  * @version 1.0
  */
 public class FeatureRandomMemsSensorFusionCompact extends FeatureMemsSensorFusionCompact
-        implements NodeEmulator.EmulableFeature {
+        implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -76,4 +77,9 @@ public class FeatureRandomMemsSensorFusionCompact extends FeatureMemsSensorFusio
         }
         return data;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -13,7 +13,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomMicLevel extends FeatureMicLevel implements NodeEmulator.EmulableFeature {
+public class FeatureRandomMicLevel extends FeatureMicLevel implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
     public static final int NUMBER_FAKE_MICROPHONE=3;
 
     private Random mRnd = new Random();
@@ -32,4 +33,9 @@ public class FeatureRandomMicLevel extends FeatureMicLevel implements NodeEmulat
 
         return data;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
\ No newline at end of file
@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomPedometer extends FeaturePedometer implements NodeEmulator.EmulableFeature {
+public class FeatureRandomPedometer extends FeaturePedometer implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
     private int nStep=0;
@@ -61,4 +62,9 @@ public class FeatureRandomPedometer extends FeaturePedometer implements NodeEmul
 
         return fakeData;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
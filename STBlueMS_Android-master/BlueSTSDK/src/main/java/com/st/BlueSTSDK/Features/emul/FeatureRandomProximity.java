@@ -39,7 +39,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomProximity extends FeatureProximity implements NodeEmulator.EmulableFeature {
+public class FeatureRandomProximity extends FeatureProximity implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
 
@@ -56,4 +57,8 @@ public class FeatureRandomProximity extends FeatureProximity implements NodeEmul
         return NumberConversion.LittleEndian.int16ToBytes(rndData);
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -38,7 +38,8 @@ import java.util.Random;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public class FeatureRandomProximityGesture extends FeatureProximityGesture implements NodeEmulator.EmulableFeature{
+public class FeatureRandomProximityGesture extends FeatureProximityGesture implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature{
 
     private Random mRnd = new Random();
 
@@ -57,4 +58,8 @@ public class FeatureRandomProximityGesture extends FeatureProximityGesture imple
         return data;
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
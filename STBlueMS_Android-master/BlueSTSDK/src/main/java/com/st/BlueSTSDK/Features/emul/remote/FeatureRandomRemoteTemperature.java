@@ -40,7 +40,8 @@ import java.util.Random;
  * @version 1.0
  */
 public class FeatureRandomRemoteTemperature extends RemoteFeatureTemperature implements
-        NodeEmulator.EmulableFeature {
+        NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
 
     private Random mRnd = new Random();
     private short timeStamp = 0;
@@ -69,4 +70,9 @@ public class FeatureRandomRemoteTemperature extends RemoteFeatureTemperature imp
 
         return data;
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
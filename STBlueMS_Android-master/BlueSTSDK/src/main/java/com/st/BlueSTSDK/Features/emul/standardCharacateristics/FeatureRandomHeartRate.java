@@ -39,7 +39,8 @@ import java.util.Random;
  * @version 1.0
  */
 public class FeatureRandomHeartRate extends FeatureHeartRate
-        implements NodeEmulator.EmulableFeature {
+        implements NodeEmulator.EmulableFeature,
+        NodeEmulator.SeedableFeature {
     /**
      * build a new disabled feature, that doesn't need to be initialized in the node side
      *
@@ -59,4 +60,9 @@ public class FeatureRandomHeartRate extends FeatureHeartRate
 
         return new byte[]{0,rate};
     }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        mRnd.setSeed(seed);
+    }
 }
@@ -32,7 +32,6 @@ import com.st.BlueSTSDK.Features.Field;
 import com.st.BlueSTSDK.Utils.NumberConversion;
 import com.st.BlueSTSDK.Utils.UnwrapTimestamp;
 
-import java.util.Arrays;
 
 /**
  * Utility/common function used to manage a remote feature, data exported by a node but that
@@ -72,10 +71,8 @@ public class RemoteFeatureUtil {
      * @return id of the remote node
      */
     public static int getNodeId(Feature.Sample sample,int index){
-        if(sample!=null)
-            if(sample.data.length>index)
-                if (sample.data[index] != null)
-                    return sample.data[index].intValue();
+        if(sample!=null && sample.hasValue(index))
+            return sample.getInt(index);
         //else
         return -1;
     }//getNodeId
@@ -91,9 +88,16 @@ public class RemoteFeatureUtil {
      */
     public static Feature.Sample appendRemoteId(Feature f, Feature.Sample remoteSample,
                                                 int remoteId){
-        Number remoteData[] = Arrays.copyOf(remoteSample.data, remoteSample.data.length + 1);
-        remoteData[remoteData.length-1]=remoteId;
-        return new Feature.Sample(remoteSample.timestamp,remoteData,f.getFieldsDesc());
+        int nData = remoteSample.getDataLength();
+        float floatData[] = new float[nData+1];
+        long longData[] = new long[nData+1];
+        for(int i=0;i<nData;i++){
+            floatData[i]=remoteSample.getFloat(i);
+            longData[i]=remoteSample.getLong(i);
+        }
+        floatData[nData]=remoteId;
+        longData[nData]=remoteId;
+        return new Feature.Sample(remoteSample.timestamp,floatData,longData,f.getFieldsDesc());
     } //appendRemoteId
 
     /**
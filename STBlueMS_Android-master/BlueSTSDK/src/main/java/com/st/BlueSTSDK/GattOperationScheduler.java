@@ -0,0 +1,432 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.st.BlueSTSDK.Utils.TimerWheel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Serialize the gatt operations (notification changes, characteristic writes and reads) of a node.
+ * <p>
+ * The android ble stack can handle only one operation at time, so the operations are queued
+ * and the next one is started when the gatt callback of the running one is received, or when
+ * its timeout expires. The operations are divided in priority classes: an operation is started
+ * only when all the operations with an higher priority are completed, inside the same class the
+ * operations are started in the insertion order.
+ * </p>
+ * <p>
+ * When the node is not connected the scheduler is paused: the operations are kept in the queue
+ * and started when the scheduler is resumed. The only polling left is for the operations that the
+ * stack refuses to start, they are retried after a delay.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class GattOperationScheduler {
+
+    private static final String TAG = GattOperationScheduler.class.getCanonicalName();
+
+    /** wait this time before retry to start an operation refused by the stack */
+    static final long RETRY_START_DELAY_MS = 300;
+
+    /** default time to wait the completion of an operation */
+    static final long DEFAULT_TIMEOUT_MS = 2000;
+
+    /**
+     * operation priority class, the operations are started in the enum order
+     */
+    enum Priority{
+        /** enable or disable a notification, the feature commands can depend on it */
+        NOTIFICATION,
+        /** configuration register commands */
+        CONFIG,
+        /** feature commands, writes, reads and debug console messages */
+        FEATURE
+    }
+
+    /**
+     * gatt operation to run
+     */
+    static abstract class Operation{
+
+        /** operation priority class */
+        private final Priority mPriority;
+
+        /** ms to wait the operation completion */
+        private final long mTimeoutMs;
+
+        /** id assigned when the operation is enqueued */
+        private long mSeqId;
+
+        /** task that release the operation if its callback is not received */
+        private Runnable mTimeoutTask;
+
+        /**
+         * @param priority operation priority class
+         * @param timeoutMs ms to wait the completion of the operation
+         */
+        Operation(@NonNull Priority priority, long timeoutMs){
+            mPriority=priority;
+            mTimeoutMs=timeoutMs;
+        }
+
+        /**
+         * @param priority operation priority class
+         */
+        Operation(@NonNull Priority priority){
+            this(priority,DEFAULT_TIMEOUT_MS);
+        }
+
+        Priority getPriority(){
+            return mPriority;
+        }
+
+        long getTimeoutMs(){
+            return mTimeoutMs;
+        }
+
+        /**
+         * @return sequential number assigned when the operation is enqueued
+         */
+        long getSeqId(){
+            return mSeqId;
+        }
+
+        /**
+         * send the operation request to the ble stack
+         * @return false if the stack refuses the operation, it will be retried
+         */
+        abstract boolean start();
+
+        /**
+         * tell if a transport callback is the completion of this operation
+         * @param target characteristic uuid, or other object, received by the callback
+         * @return true if the callback is the completion of this operation
+         */
+        abstract boolean isCompletedBy(Object target);
+
+        /**
+         * called when the gatt callback of the operation is received, without the scheduler lock
+         * @param success true if the callback reported a success
+         */
+        void onCompleted(boolean success){}
+
+        /**
+         * called when the operation is released because its callback didn't arrive in time,
+         * without the scheduler lock
+         */
+        void onTimeout(){}
+
+        /**
+         * called when the operation is removed by {@link #clear()}, without the scheduler lock
+         */
+        void onDropped(){}
+
+        /**
+         * called each time that the stack refuses to start the operation, before scheduling
+         * the retry
+         */
+        void onStartRefused(){}
+
+        /**
+         * a canceled operation is removed from the queue without start it
+         * @return true if the operation must not be started
+         */
+        boolean isCanceled(){
+            return false;
+        }
+
+    }//Operation
+
+    /** one queue for each priority class */
+    private final List<ArrayDeque<Operation>> mQueues;
+
+    /** executor where the operations are started */
+    private final Executor mStartExecutor;
+
+    /** timer used for the retries and the timeouts */
+    private final TimerWheel mTimer;
+
+    /** operation waiting its callback, null if no operation is running */
+    private Operation mRunningOp;
+
+    /** true if the stack accepted the running operation */
+    private boolean mRunningOpStarted;
+
+    /** true if the operation can be started */
+    private boolean mIsRunning;
+
+    /** id of the next enqueued operation */
+    private long mNextSeqId;
+
+    /** number of operations released by the timeout */
+    private long mNTimeout;
+
+    /** start the running operation */
+    private final Runnable mStartTask = new Runnable() {
+        @Override
+        public void run() {
+            startRunningOperation();
+        }//run
+    };
+
+    /** post the start task on the executor, it is scheduled when the stack refuses an operation */
+    private final Runnable mRetryTask = new Runnable() {
+        @Override
+        public void run() {
+            mStartExecutor.execute(mStartTask);
+        }//run
+    };
+
+    /**
+     * build a paused scheduler
+     * @param startExecutor executor where the operations are started, it should be the thread
+     *                      that handle the ble calls
+     * @param timer timer used for the timeouts and the retries
+     */
+    GattOperationScheduler(@NonNull Executor startExecutor, @NonNull TimerWheel timer){
+        mStartExecutor = startExecutor;
+        mTimer = timer;
+        Priority priorities[] = Priority.values();
+        mQueues = new ArrayList<>(priorities.length);
+        for(int i=0;i<priorities.length;i++)
+            mQueues.add(new ArrayDeque<Operation>());
+    }
+
+    /**
+     * add an operation to the queue, it will be started when all the previous operations with
+     * the same or higher priority are completed
+     * @param op operation to run
+     * @return id assigned to the operation
+     */
+    long enqueue(@NonNull Operation op){
+        long seqId;
+        synchronized (this) {
+            seqId = mNextSeqId++;
+            op.mSeqId = seqId;
+            mQueues.get(op.getPriority().ordinal()).add(op);
+            startNextIfIdle();
+        }//synchronized
+        return seqId;
+    }//enqueue
+
+    /**
+     * notify that a gatt callback is received, if it is the completion of the running operation
+     * the next one is started
+     * @param target characteristic uuid, or other object, received in the transport callback
+     * @param success true if the callback reported a success
+     * @return true if the callback completed the running operation
+     */
+    boolean onComplete(Object target, boolean success){
+        Operation op;
+        synchronized (this){
+            op = mRunningOp;
+            if(op==null || !op.isCompletedBy(target))
+                return false;
+            releaseRunningOperation();
+            startNextIfIdle();
+        }//synchronized
+        op.onCompleted(success);
+        return true;
+    }//onComplete
+
+    /**
+     * notify that a gatt callback is received with a success status
+     * @param target characteristic uuid, or other object, received in the transport callback
+     * @return true if the callback completed the running operation
+     */
+    boolean onComplete(Object target){
+        return onComplete(target,true);
+    }//onComplete
+
+    /**
+     * start to run the queued operations
+     */
+    void resume(){
+        synchronized (this){
+            mIsRunning=true;
+            if(mRunningOp!=null && !mRunningOpStarted){
+                //the start was skipped while paused
+                mTimer.cancel(mRetryTask);
+                mStartExecutor.execute(mStartTask);
+            }else
+                startNextIfIdle();
+        }//synchronized
+    }//resume
+
+    /**
+     * stop to start new operations, the running operation can still complete
+     */
+    void pause(){
+        synchronized (this){
+            mIsRunning=false;
+        }//synchronized
+    }//pause
+
+    /**
+     * remove all the queued operations and forget the running one
+     */
+    void clear(){
+        ArrayList<Operation> dropped = new ArrayList<>();
+        synchronized (this){
+            if(mRunningOp!=null)
+                dropped.add(mRunningOp);
+            for(ArrayDeque<Operation> queue : mQueues) {
+                dropped.addAll(queue);
+                queue.clear();
+            }//for
+            releaseRunningOperation();
+            mTimer.cancel(mRetryTask);
+        }//synchronized
+        for(Operation op : dropped)
+            op.onDropped();
+    }//clear
+
+    /**
+     * @return number of operations queued or running
+     */
+    synchronized int getNPendingOperation(){
+        int n = mRunningOp==null ? 0 : 1;
+        for(ArrayDeque<Operation> queue : mQueues)
+            n+=queue.size();
+        return n;
+    }//getNPendingOperation
+
+    /**
+     * @return number of operations released because their callback didn't arrive in time
+     */
+    synchronized long getNTimeout(){
+        return mNTimeout;
+    }
+
+    /**
+     * @return operation waiting its callback, or null
+     */
+    synchronized @Nullable Operation getRunningOperation(){
+        return mRunningOp;
+    }
+
+    /**
+     * if nothing is running, extract the operation with the highest priority and post its start
+     * have to be called with the lock
+     */
+    private void startNextIfIdle(){
+        if(!mIsRunning || mRunningOp!=null)
+            return;
+        for(ArrayDeque<Operation> queue : mQueues){
+            Operation op = queue.poll();
+            while(op!=null && op.isCanceled())
+                op = queue.poll();
+            if(op!=null){
+                mRunningOp=op;
+                mStartExecutor.execute(mStartTask);
+                return;
+            }//if
+        }//for
+    }//startNextIfIdle
+
+    /**
+     * forget the running operation and its timeout, have to be called with the lock
+     */
+    private void releaseRunningOperation(){
+        if(mRunningOp!=null && mRunningOp.mTimeoutTask!=null)
+            mTimer.cancel(mRunningOp.mTimeoutTask);
+        mRunningOp=null;
+        mRunningOpStarted=false;
+    }//releaseRunningOperation
+
+    /**
+     * send the running operation to the stack, if the stack refuses it a retry is scheduled,
+     * otherwise the timeout start to count
+     */
+    private void startRunningOperation(){
+        final Operation op;
+        synchronized (this){
+            op = mRunningOp;
+            if(op==null || mRunningOpStarted || !mIsRunning)
+                return;
+            if(op.isCanceled()){
+                releaseRunningOperation();
+                startNextIfIdle();
+                return;
+            }//if
+            //set before the start since the callback can arrive before start returns
+            mRunningOpStarted=true;
+        }//synchronized
+
+        //the stack can call the callback before start returns, so we don't keep the lock
+        if(!op.start()){
+            op.onStartRefused();
+            synchronized (this) {
+                if(mRunningOp==op) {
+                    mRunningOpStarted = false;
+                    mTimer.schedule(mRetryTask, RETRY_START_DELAY_MS);
+                }//if
+            }//synchronized
+            return;
+        }//if
+
+        synchronized (this){
+            if(mRunningOp!=op) //already completed
+                return;
+            op.mTimeoutTask = new Runnable() {
+                @Override
+                public void run() {
+                    onTimeout(op);
+                }//run
+            };
+            mTimer.schedule(op.mTimeoutTask,op.getTimeoutMs());
+        }//synchronized
+    }//startRunningOperation
+
+    /**
+     * release an operation that didn't receive its callback and start the next one
+     * @param op operation to release
+     */
+    private void onTimeout(Operation op){
+        synchronized (this){
+            if(mRunningOp!=op)
+                return;
+            Log.w(TAG,"Gatt operation "+op.getSeqId()+" timeout");
+            mNTimeout++;
+            releaseRunningOperation();
+            startNextIfIdle();
+        }//synchronized
+        op.onTimeout();
+    }//onTimeout
+
+}//GattOperationScheduler
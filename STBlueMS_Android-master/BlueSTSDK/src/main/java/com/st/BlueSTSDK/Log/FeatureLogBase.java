@@ -29,15 +29,19 @@ package com.st.BlueSTSDK.Log;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Features.Field;
 import com.st.BlueSTSDK.Node;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Formatter;
 import java.util.List;
@@ -49,7 +53,8 @@ import java.util.Locale;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  */
-public abstract class FeatureLogBase implements Feature.FeatureLoggerListener{
+public abstract class FeatureLogBase implements Feature.FeatureLoggerListener,
+        Feature.FeatureLoggerBatchListener{
     private final static String TAG = FeatureLogBase.class.getCanonicalName();
 
     final static SimpleDateFormat DATE_FORMAT_PREFIX = new SimpleDateFormat("yyyyMMdd_HHmmss",
@@ -77,6 +82,17 @@ public abstract class FeatureLogBase implements Feature.FeatureLoggerListener{
      * */
     protected List<Node> mNodeList;
 
+    /**
+     * policy used for split the log files
+     */
+    private volatile LogRotationPolicy mRotationPolicy = LogRotationPolicy.NONE;
+
+    /**
+     * object that compresses and deletes the closed segments, created when the first segment
+     * is closed
+     */
+    private LogSegmentArchiver mSegmentArchiver;
+
     /**
      * print the file header, with the node name the raw data and the feature field
      * @param out stream where write the feature data
@@ -129,6 +145,22 @@ public abstract class FeatureLogBase implements Feature.FeatureLoggerListener{
         }//for
     }
 
+    /**
+     * log each sample of the batch, the subclass can overwrite this method for store all the
+     * samples with a single operation
+     * @param feature feature that has updated
+     * @param rawData raw data that used for update the feature
+     * @param samples data extracted by the feature
+     */
+    @Override
+    public void logFeatureUpdate(Feature feature, List<byte[]> rawData,
+                                 List<Feature.Sample> samples) {
+        int nSample = samples.size();
+        for(int i=0;i<nSample;i++){
+            logFeatureUpdate(feature,rawData.get(i),samples.get(i));
+        }//for
+    }
+
     /**
      * create a logger
      * @param dumpDirectoryPath path where store the log data
@@ -150,10 +182,160 @@ public abstract class FeatureLogBase implements Feature.FeatureLoggerListener{
      * @return file path where store the log for that feature
      */
     protected String logFeatureFileName(Feature f) {
-        return String.format("%s/%s_%s.csv",
-                mDirectoryPath, logSessionPrefix(), f.getName());
+        return logFeatureFileName(f,"csv");
+    }
+
+    /**
+     * create a string with the path where store the log, with a specific file extension
+     * @param f feature to log
+     * @param extension file extension, without the dot
+     * @return file path where store the log for that feature
+     */
+    protected String logFeatureFileName(Feature f, String extension) {
+        return String.format("%s/%s_%s.%s",
+                mDirectoryPath, logSessionPrefix(), f.getName(), extension);
+    }
+
+    /**
+     * create a string with the path of a log segment
+     * @param f feature to log
+     * @param extension file extension, without the dot
+     * @param segment segment number
+     * @return file path where store the segment
+     */
+    protected String logFeatureFileName(Feature f, String extension, int segment) {
+        return String.format(Locale.US,"%s/%s_%s_%04d.%s",
+                mDirectoryPath, logSessionPrefix(), f.getName(), segment, extension);
+    }
+
+    /**
+     * set how split the log files, the policy is used for the files created after this call
+     * @param policy rotation policy, {@link LogRotationPolicy#NONE} for use a single file for
+     *               each feature
+     */
+    public void setRotationPolicy(LogRotationPolicy policy){
+        mRotationPolicy = policy;
+    }
+
+    /**
+     * @return policy used for split the log files
+     */
+    public LogRotationPolicy getRotationPolicy(){
+        return mRotationPolicy;
+    }
+
+    /**
+     * create the next file where store the feature data
+     * @param f feature to log
+     * @param extension file extension, without the dot
+     * @param previous current segment, null if it is the first file
+     * @return new file segment, if the rotation is disabled the file has the same name used by
+     * {@link #logFeatureFileName(Feature, String)}
+     * @throws IOException if the file can not be created
+     */
+    LogFileSegment openSegment(Feature f, String extension, @Nullable LogFileSegment previous)
+            throws IOException {
+        if(!mRotationPolicy.isEnabled() && previous==null)
+            return new LogFileSegment(new File(logFeatureFileName(f,extension)),0);
+        int index = previous==null ? 0 : previous.index+1;
+        return new LogFileSegment(new File(logFeatureFileName(f,extension,index)),index);
+    }//openSegment
+
+    /**
+     * close a segment and pass it to the archiver, if the rotation is enabled
+     * @param f feature logged in the segment
+     * @param segment segment to close
+     * @param out stream that writes the segment
+     */
+    void closeSegment(Feature f, LogFileSegment segment, Closeable out){
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.e(TAG,"Error closing the log file: "+e.toString());
+        }//try-catch
+        if(mRotationPolicy.isEnabled())
+            getSegmentArchiver().segmentClosed(f.getName(),segment.file);
+    }//closeSegment
+
+    /**
+     * @return object that handles the closed segments
+     */
+    synchronized LogSegmentArchiver getSegmentArchiver(){
+        if(mSegmentArchiver==null)
+            mSegmentArchiver = new LogSegmentArchiver(mRotationPolicy);
+        return mSegmentArchiver;
+    }
+
+    /**
+     * remove the current archiver, the next closed segment will create a new one
+     * @return the removed archiver, null if no segment was closed
+     */
+    private synchronized @Nullable LogSegmentArchiver detachSegmentArchiver(){
+        LogSegmentArchiver archiver = mSegmentArchiver;
+        mSegmentArchiver = null;
+        return archiver;
     }
 
+    /**
+     * wait that the segments closed until now are compressed and deleted, the archiver stays
+     * open. This method must not be called by the ui thread
+     */
+    void waitSegmentArchiver(){
+        LogSegmentArchiver archiver;
+        synchronized (this){
+            archiver = mSegmentArchiver;
+        }
+        if(archiver!=null)
+            archiver.waitArchived();
+    }//waitSegmentArchiver
+
+    /**
+     * stop the archiver without waiting it
+     * @param onArchived task run when all the closed segments are compressed and deleted, by
+     *                   the archiver thread or by the caller if no segment was closed
+     */
+    void closeSegmentArchiver(final Runnable onArchived){
+        LogSegmentArchiver archiver = detachSegmentArchiver();
+        if(archiver!=null)
+            archiver.close(onArchived);
+        else
+            onArchived.run();
+    }//closeSegmentArchiver
+
+    /**
+     * Interface used for notify that a logger wrote all the samples and closed its files
+     */
+    public interface CloseListener{
+
+        /**
+         * called by a background thread when all the files are closed and compressed
+         * @param log closed logger
+         */
+        void onLogClosed(FeatureLogBase log);
+    }//CloseListener
+
+    /**
+     * close the queue without waiting it, when all the samples are written the closed segments
+     * are archived and the listener is notified by the archiver thread
+     * @param queue queue used by the logger
+     * @param listener object to notify when the files are closed, can be null
+     */
+    void closeQueue(FeatureLogQueue queue, @Nullable final CloseListener listener){
+        final Runnable notifyClosed = new Runnable() {
+            @Override
+            public void run() {
+                if(listener!=null)
+                    listener.onLogClosed(FeatureLogBase.this);
+            }
+        };
+        queue.close(new Runnable() {
+            @Override
+            public void run() {
+                closeSegmentArchiver(notifyClosed);
+            }
+        });
+    }//closeQueue
+
     /**
      * Get the file prefix of current session
      * @return the file prefix of current session
@@ -170,31 +352,68 @@ public abstract class FeatureLogBase implements Feature.FeatureLoggerListener{
     /**
      * get all the log file in the directory
      * @param directoryPath path where search the file
-     * @return all file in the directory with an extension .csv
+     * @return all file in the directory with an extension .csv or .bin, also compressed
      */
     static public File[] getLogFiles(String directoryPath){
+        return getLogFiles(directoryPath,null);
+    }//getLogFiles
+
+    /**
+     * tell if the file is created by a logger
+     * @param name file name
+     * @return true if it is a csv or binary log, or a compressed log segment
+     */
+    static boolean isLogFile(String name){
+        if(name.endsWith(LogSegmentArchiver.ZIP_EXTENSION))
+            name = name.substring(0,name.length()-LogSegmentArchiver.ZIP_EXTENSION.length());
+        return name.endsWith(".csv") || name.endsWith(".bin");
+    }//isLogFile
+
+    /**
+     * get the log file of a session, the segments of a feature are sorted
+     * @param directoryPath path where search the file
+     * @param sessionPrefix session prefix returned by {@link #logSessionPrefix()}, null for all
+     *                      the sessions
+     * @return log files of the session, sorted by name
+     */
+    static public File[] getLogFiles(String directoryPath, @Nullable final String sessionPrefix){
         File directory = new File(directoryPath);
-        //find all the csv files
-        final FileFilter csvFilter = new FileFilter() {
+        final FileFilter logFilter = new FileFilter() {
             @Override
             public boolean accept(File pathname) {
-                return pathname.getName().endsWith(".csv");
+                String name = pathname.getName();
+                return isLogFile(name) &&
+                        (sessionPrefix==null || name.startsWith(sessionPrefix));
             }//accept
         };
-        return directory.listFiles(csvFilter);
+        File files[] = directory.listFiles(logFilter);
+        if(files!=null)
+            Arrays.sort(files);
+        return files;
     }//getLogFiles
 
     /**
-     * remove all the csv file in the directory
+     * remove all the log files in the directory, including the log segments
      * @param c context where the file were created
      * @param directoryPath directory where this class dumped the feature data
      */
     static public void clean(Context c, String directoryPath){
-        File files[] =getLogFiles(directoryPath);
+        clean(c,directoryPath,null);
+    }//clean
+
+    /**
+     * remove all the log files of a session, including the log segments
+     * @param c context where the file were created
+     * @param directoryPath directory where this class dumped the feature data
+     * @param sessionPrefix session prefix returned by {@link #logSessionPrefix()}, null for all
+     *                      the sessions
+     */
+    static public void clean(Context c, String directoryPath, @Nullable String sessionPrefix){
+        File files[] =getLogFiles(directoryPath,sessionPrefix);
         if(files==null || files.length==0) //nothing to do
             return;
 
-        for(File f: getLogFiles(directoryPath) ){
+        for(File f: files){
             if(!f.delete())
                 Log.e(TAG, "Error deleting the file " + f.getAbsolutePath());
             c.sendBroadcast(new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE, Uri.fromFile(f)));
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Node;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dump the feature samples in a compact binary file, one file for each feature.
+ * <p>
+ * The files are written with {@link BinaryLogWriter}: the values are stored in fixed width
+ * columns, the timestamps are delta encoded and each block of samples can be compressed.
+ * The raw data are not stored. Use {@link #convertToCsv(File)} for obtain a file with the same
+ * format of {@link FeatureLogCSVFile}.
+ * </p>
+ * <p>
+ * As the csv logger the samples are put in a queue and written by a single thread, call
+ * {@link #closeFiles(CloseListener)} for write all the pending samples.
+ * </p>
+ * <p>
+ * With a {@link LogRotationPolicy} the samples of a feature are split in more files, each one
+ * with its own header. The number of columns of a file is the length of its first sample: a
+ * longer sample, for the features with a variable number of values, starts a new file.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class FeatureLogBinary extends FeatureLogBase {
+    private final static String TAG = FeatureLogBinary.class.getCanonicalName();
+
+    /**
+     * extension of the binary log files
+     */
+    public static final String FILE_EXTENSION = "bin";
+
+    /**
+     * max time between a sample log and the write of its block
+     */
+    private static final long FLUSH_PERIOD_MS = 5000;
+
+    /**
+     * size of the buffer of each file
+     */
+    private static final int FILE_BUFFER_SIZE = 64*1024;
+
+    /**
+     * max number of rows written before checking the flush timeout
+     */
+    private static final int MAX_BATCH_SIZE = 512;
+
+    /**
+     * samples waiting to be written
+     */
+    private final FeatureLogQueue mQueue;
+
+    /**
+     * true for compress the sample blocks
+     */
+    private final boolean mCompress;
+
+    /**
+     * create a new logger that compresses the data
+     * @param dumpDirectoryPath directory path used for save the file
+     * @param nodes list of nodes connected
+     */
+    public FeatureLogBinary(String dumpDirectoryPath, List<Node> nodes){
+        this(dumpDirectoryPath,nodes,true);
+    }
+
+    /**
+     * create a new logger
+     * @param dumpDirectoryPath directory path used for save the file
+     * @param nodes list of nodes connected
+     * @param compress true for compress the sample blocks
+     */
+    public FeatureLogBinary(String dumpDirectoryPath, List<Node> nodes, boolean compress){
+        super(dumpDirectoryPath, nodes);
+        mCompress = compress;
+        mQueue = new FeatureLogQueue("FeatureLogBinary",new BinaryRowWriter(),MAX_BATCH_SIZE,
+                FLUSH_PERIOD_MS);
+    }//FeatureLogBinary
+
+    @Override
+    public void logFeatureUpdate(Feature feature, byte[] rawData, Feature.Sample data) {
+        mQueue.enqueue(feature,rawData,data);
+    }
+
+    /**
+     * put all the samples in the write queue
+     */
+    @Override
+    public void logFeatureUpdate(Feature feature, List<byte[]> rawData,
+                                 List<Feature.Sample> samples) {
+        mQueue.enqueue(feature,rawData,samples);
+    }
+
+    /**
+     * write all the pending samples and close all the open file in background, the samples
+     * logged after this call are dropped
+     * @param listener object notified when the files are closed and the closed segments
+     *                 compressed, can be null
+     */
+    public void closeFiles(@Nullable CloseListener listener){
+        closeQueue(mQueue,listener);
+    }//closeFiles
+
+    /**
+     * convert a binary log in a csv file, the csv file is created in the same directory
+     * @param binaryLog file created by this logger
+     * @return the csv file
+     * @throws IOException if the conversion fails
+     */
+    public static File convertToCsv(File binaryLog) throws IOException {
+        String name = binaryLog.getName();
+        if(name.endsWith("."+FILE_EXTENSION))
+            name = name.substring(0,name.length()-FILE_EXTENSION.length()-1);
+        File csvFile = new File(binaryLog.getParentFile(),name+".csv");
+        BinaryLogReader.convertToCsv(binaryLog,csvFile);
+        return csvFile;
+    }//convertToCsv
+
+    /**
+     * expose the values of a sample to the writer, without boxing them
+     */
+    private static class SampleAdapter implements BinaryLogWriter.SampleValues{
+
+        private Feature.Sample mSample;
+
+        void setSample(Feature.Sample sample){
+            mSample = sample;
+        }
+
+        @Override
+        public float getFloat(int column) {
+            return mSample.hasValue(column) ? mSample.getFloat(column) : 0.0f;
+        }
+
+        @Override
+        public long getLong(int column) {
+            return mSample.hasValue(column) ? mSample.getLong(column) : 0;
+        }
+    }//SampleAdapter
+
+    /**
+     * object that owns the files and writes the queued samples
+     */
+    private class BinaryRowWriter implements FeatureLogQueue.RowWriter{
+
+        /**
+         * map used for associate the current file to each feature
+         */
+        private final Map<String,BinarySegment> mFileCacheMap = new HashMap<>();
+
+        private final SampleAdapter mValues = new SampleAdapter();
+
+        /**
+         * create a new file for the feature or return an already opened file, if the current
+         * file reached the rotation limits or it has less columns than the sample values a new
+         * segment is created
+         * @param f feature that you want dump
+         * @param sample sample to write, used for know the number of columns
+         * @param now current time, in ms
+         * @return segment where write the feature data
+         * @throws IOException if there is an error during the header writing
+         */
+        private BinarySegment openDumpFile(Feature f, Feature.Sample sample, long now)
+                throws IOException {
+            BinarySegment current = mFileCacheMap.get(f.getName());
+            if(current!=null && !current.segment.isFull(getRotationPolicy(),now) &&
+                    sample.getDataLength()<=current.out.getNColumns())
+                return current;
+            LogFileSegment segment = openSegment(f,FILE_EXTENSION,
+                    current!=null ? current.segment : null);
+            if(current!=null)
+                closeSegment(f,current.segment,current.out);
+            List<String> nodeNames = new ArrayList<>();
+            if(mNodeList!=null)
+                for(Node n : mNodeList)
+                    nodeNames.add(n.getFriendlyName());
+            BinaryLogWriter out = new BinaryLogWriter(new BufferedOutputStream(
+                    segment.getOutputStream(),FILE_BUFFER_SIZE),
+                    f.getName(),f.getFieldsDesc(),sample.getDataLength(),
+                    mStartLog.getTime(),nodeNames,mCompress);
+            BinarySegment newSegment = new BinarySegment(f,segment,out);
+            mFileCacheMap.put(f.getName(), newSegment);
+            return newSegment;
+        }//openDumpFile
+
+        @Override
+        public void writeRows(List<FeatureLogQueue.Row> rows) {
+            int nRows = rows.size();
+            for(int i=0;i<nRows;i++){
+                FeatureLogQueue.Row row = rows.get(i);
+                Feature.Sample data = row.sample;
+                mValues.setSample(data);
+                try {
+                    BinarySegment file = openDumpFile(row.feature,data,
+                            System.currentTimeMillis());
+                    file.out.writeSample(data.notificationTime - mStartLog.getTime(),
+                            row.nodeName,data.timestamp,data.getDataLength(),mValues);
+                    file.segment.sampleWritten();
+                } catch (IOException e) {
+                    Log.e(TAG,"Error dumping data Feature: "+row.feature.getName()+"\n"+
+                            e.toString());
+                }//try-catch
+            }//for
+            mValues.setSample(null);
+        }//writeRows
+
+        @Override
+        public void flush(){
+            for(BinarySegment file : mFileCacheMap.values()){
+                try {
+                    file.out.flush();
+                } catch (IOException e) {
+                    Log.e(TAG,"Error flushing the log file: "+e.toString());
+                }//try-catch
+            }//for
+        }//flush
+
+        @Override
+        public void close(){
+            for(BinarySegment file : mFileCacheMap.values()){
+                closeSegment(file.feature,file.segment,file.out);
+            }//for
+            mFileCacheMap.clear();
+        }//close
+
+    }//BinaryRowWriter
+
+    /**
+     * file segment that is written by the binary writer
+     */
+    private static class BinarySegment{
+        final Feature feature;
+        final LogFileSegment segment;
+        final BinaryLogWriter out;
+
+        BinarySegment(Feature feature, LogFileSegment segment, BinaryLogWriter out) {
+            this.feature = feature;
+            this.segment = segment;
+            this.out = out;
+        }
+    }//BinarySegment
+
+}
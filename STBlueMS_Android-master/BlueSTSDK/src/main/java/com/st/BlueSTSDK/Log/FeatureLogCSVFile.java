@@ -26,13 +26,16 @@
  ******************************************************************************/
 package com.st.BlueSTSDK.Log;
 
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Node;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.List;
@@ -48,6 +51,15 @@ import java.util.Map;
  * This class can be used for dump more than a feature at time, each feature will be dumped in a
  * different file
  * </p>
+ * <p>
+ * The samples are put in a queue and written by a single thread, that formats the rows in a
+ * reused buffer and flushes the files every {@link #FLUSH_PERIOD_MS} ms, or when the buffer
+ * is full. Call {@link #closeFiles(CloseListener)} for write all the pending samples.
+ * </p>
+ * <p>
+ * With a {@link LogRotationPolicy} the samples of a feature are split in more files, each one
+ * with the csv header.
+ * </p>
  *
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
@@ -55,12 +67,25 @@ import java.util.Map;
 public class FeatureLogCSVFile extends FeatureLogBase {
     private final static String TAG = FeatureLogCSVFile.class.getCanonicalName();
 
+    /**
+     * max time between a sample log and the flush of its file
+     */
+    private static final long FLUSH_PERIOD_MS = 1000;
+
+    /**
+     * size of the buffer of each file, when it is full the data are written in the file
+     */
+    private static final int FILE_BUFFER_SIZE = 64*1024;
 
     /**
-     * map used for associate a file to each feature
+     * max number of rows written before checking the flush timeout
      */
-    private Map<String,Formatter> mFormatterCacheMap;
+    private static final int MAX_BATCH_SIZE = 256;
 
+    /**
+     * samples waiting to be written
+     */
+    private final FeatureLogQueue mQueue;
 
     /**
      * create a new logger
@@ -69,70 +94,152 @@ public class FeatureLogCSVFile extends FeatureLogBase {
      */
     public FeatureLogCSVFile(String dumpDirectoryPath, List<Node> nodes){
         super(dumpDirectoryPath, nodes);
-        mFormatterCacheMap = new HashMap<>();
+        mQueue = new FeatureLogQueue("FeatureLogCSVFile",new CSVRowWriter(),MAX_BATCH_SIZE,
+                FLUSH_PERIOD_MS);
     }//FeatureLogCSVFile
 
+    @Override
+    public void logFeatureUpdate(Feature feature, byte[] rawData, Feature.Sample data) {
+        mQueue.enqueue(feature,rawData,data);
+    }
 
     /**
-     * create a new file for the feature or return an already opened file,
-     * <p>
-     *   the file will be created in the directory passed to the constructor and with the feature
-     *   name
-     * </p>
-     * @param f feature that you want dump
-     * @return stream where write the feature data
-     * @throws IOException if there is an error during the stream writing
+     * put all the samples in the write queue
      */
-    private Formatter openDumpFile(Feature f) throws IOException {
-        Formatter temp = mFormatterCacheMap.get(f.getName());
-        if(temp!=null){
-            return temp;
-        }
-        //else
-        temp = new Formatter(new File(logFeatureFileName(f)));
-        synchronized (temp) {
-            printHeader(temp, f);
-            mFormatterCacheMap.put(f.getName(), temp);
-        }
-        return temp;
-    }
-
     @Override
-    public void logFeatureUpdate(Feature feature, byte[] rawData, Feature.Sample data) {
-        try {
-            Formatter out = openDumpFile(feature);
-            synchronized (out) { // be secure that only one call write on the file
-                out.format(Long.toString(data.notificationTime - mStartLog.getTime()));  //HostTimestamp
-                out.format(",");
-                out.format(feature.getParentNode().getFriendlyName()); //NodeName
-                out.format(",");
-                out.format(Long.toString(data.timestamp)); //NodeTimestamp
-                out.format(",");
-                if (rawData != null)
-                    storeBlobData(out, rawData);
-                out.format(",");
-                storeFeatureData(out, data.data);
-                out.format("\n");
-                out.flush();
-            }//synchronized
-        } catch (IOException e) {
-            Log.e(TAG,"Error dumping data Feature: "+feature.getName()+"\n"+e.toString());
-        }//try-catch
+    public void logFeatureUpdate(Feature feature, List<byte[]> rawData,
+                                 List<Feature.Sample> samples) {
+        mQueue.enqueue(feature,rawData,samples);
     }
 
     /**
-     * close all the open file
+     * write all the pending samples and close all the open file in background, the samples
+     * logged after this call are dropped
+     * @param listener object notified when the files are closed and the closed segments
+     *                 compressed, can be null
+     */
+    public void closeFiles(@Nullable CloseListener listener){
+        closeQueue(mQueue,listener);
+    }//closeFiles
+
+    /**
+     * append the bytes as hexadecimal string
+     * @param out string where append the data
+     * @param data bytes to append
+     */
+    static void appendHex(StringBuilder out, byte data[]){
+        CSVSampleFormat.appendHex(out,data);
+    }//appendHex
+
+    /**
+     * object that owns the files and writes the queued samples
      */
-    public void closeFiles(){
-            for (Formatter w : mFormatterCacheMap.values()) {
-                synchronized (w) {
-                    w.flush();
-                    w.close();
-                }
+    private class CSVRowWriter implements FeatureLogQueue.RowWriter{
+
+        /**
+         * map used for associate the current file to each feature
+         */
+        private final Map<String,CSVSegment> mFileCacheMap = new HashMap<>();
+
+        /** buffer where build the csv line */
+        private final StringBuilder mLine = new StringBuilder(256);
+
+        /** buffer used for pass the line to the file */
+        private char mLineChars[] = new char[256];
+
+        /**
+         * create a new file for the feature or return an already opened file, if the current
+         * file reached the rotation limits a new segment is created
+         * <p>
+         *   the file will be created in the directory passed to the constructor and with the
+         *   feature name, each segment starts with the csv header
+         * </p>
+         * @param f feature that you want dump
+         * @param now current time, in ms
+         * @return segment where write the feature data
+         * @throws IOException if there is an error during the stream writing
+         */
+        private CSVSegment openDumpFile(Feature f, long now) throws IOException {
+            CSVSegment current = mFileCacheMap.get(f.getName());
+            if(current!=null && !current.segment.isFull(getRotationPolicy(),now))
+                return current;
+            LogFileSegment segment = openSegment(f,"csv",
+                    current!=null ? current.segment : null);
+            if(current!=null)
+                closeSegment(f,current.segment,current.out);
+            Writer out = new BufferedWriter(new OutputStreamWriter(segment.getOutputStream()),
+                    FILE_BUFFER_SIZE);
+            printHeader(new Formatter(out), f);
+            CSVSegment newSegment = new CSVSegment(f,segment,out);
+            mFileCacheMap.put(f.getName(), newSegment);
+            return newSegment;
+        }//openDumpFile
+
+        /**
+         * write a csv line with the sample data
+         * @param row sample to write
+         */
+        private void writeSample(FeatureLogQueue.Row row){
+            Feature.Sample data = row.sample;
+            StringBuilder line = mLine;
+            line.setLength(0);
+            CSVSampleFormat.appendLine(line, data.notificationTime - mStartLog.getTime(),
+                    row.nodeName, row.rawData, data);
+
+            int length = line.length();
+            if(mLineChars.length<length)
+                mLineChars = new char[Math.max(length,2*mLineChars.length)];
+            line.getChars(0,length,mLineChars,0);
+            try {
+                CSVSegment file = openDumpFile(row.feature,System.currentTimeMillis());
+                file.out.write(mLineChars,0,length);
+                file.segment.sampleWritten();
+            } catch (IOException e) {
+                Log.e(TAG,"Error dumping data Feature: "+row.feature.getName()+"\n"+e.toString());
+            }//try-catch
+        }//writeSample
+
+        @Override
+        public void writeRows(List<FeatureLogQueue.Row> rows) {
+            int nRows = rows.size();
+            for(int i=0;i<nRows;i++)
+                writeSample(rows.get(i));
+        }//writeRows
+
+        @Override
+        public void flush(){
+            for(CSVSegment file : mFileCacheMap.values()){
+                try {
+                    file.out.flush();
+                } catch (IOException e) {
+                    Log.e(TAG,"Error flushing the log file: "+e.toString());
+                }//try-catch
             }//for
-        mFormatterCacheMap.clear();
-    }
+        }//flush
+
+        @Override
+        public void close(){
+            for(CSVSegment file : mFileCacheMap.values()){
+                closeSegment(file.feature,file.segment,file.out);
+            }//for
+            mFileCacheMap.clear();
+        }//close
 
+    }//CSVRowWriter
 
+    /**
+     * file segment that is written by the csv writer
+     */
+    private static class CSVSegment{
+        final Feature feature;
+        final LogFileSegment segment;
+        final Writer out;
+
+        CSVSegment(Feature feature, LogFileSegment segment, Writer out) {
+            this.feature = feature;
+            this.segment = segment;
+            this.out = out;
+        }
+    }//CSVSegment
 
 }
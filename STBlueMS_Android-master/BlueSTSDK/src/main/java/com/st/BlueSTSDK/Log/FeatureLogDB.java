@@ -28,11 +28,13 @@ package com.st.BlueSTSDK.Log;
 
 import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.os.AsyncTask;
 import android.provider.BaseColumns;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -41,15 +43,31 @@ import com.st.BlueSTSDK.Features.Field;
 import com.st.BlueSTSDK.Node;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Formatter;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
 
 /**
- * Store the feature data into a Db in ram, the data can be exported in a csv file when the
+ * Store the feature data into a Db, the data can be exported in a csv file when the
  * logging is finished
+ * <p>
+ * The db is a file in the log directory, opened in write ahead log mode so the export can read
+ * it while the samples are inserted. The file is deleted by {@link #closeFiles(CloseListener)}.
+ * </p>
+ * <p>
+ * The samples are queued and inserted by a single thread, using a precompiled insert statement
+ * for each feature table and a transaction for each group of samples.
+ * </p>
+ * <p>
+ * With a {@link LogRotationPolicy} the rows of a feature table are periodically moved in a
+ * csv segment file, so the db doesn't grow during a long log.
+ * </p>
  *
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
@@ -68,6 +86,26 @@ public class FeatureLogDB extends  FeatureLogBase {
 
     private List<Feature>  mAvailableFeatures;
 
+    /** db file name, with the log directory and the session prefix */
+    private static final String DATABASE_NAME = "%s/%s_FeatureLog.db";
+
+    /** max number of samples inserted with a single transaction */
+    private static final int MAX_BATCH_SIZE = 512;
+
+    /** the transactions are committed at each batch, the flush has nothing to do */
+    private static final long FLUSH_PERIOD_MS = 1000;
+
+    private static final Pattern NON_WORD_CHAR = Pattern.compile("\\W");
+
+    /** samples waiting to be inserted */
+    private final FeatureLogQueue mQueue;
+
+    /** index of the segment that is receiving the rows of each feature */
+    private final Map<String,Integer> mSegmentIndex = new ConcurrentHashMap<>();
+
+    /** estimated size of the columns that are not feature values */
+    private static final int ROW_OVERHEAD_SIZE = 3*8;
+
     /**
      * create a db for store the features list
      * @param c context to use for open the db
@@ -80,13 +118,290 @@ public class FeatureLogDB extends  FeatureLogBase {
         mAvailableFeatures=getAllFeatures();
         mDbHelper = new FeatureLogDBOpenHelper(c);
         mDb = mDbHelper.getWritableDatabase();
+        mQueue = new FeatureLogQueue("FeatureLogDB",new DBRowWriter(),MAX_BATCH_SIZE,
+                FLUSH_PERIOD_MS);
     }//FeatureLogDb
 
     @Override
     public void logFeatureUpdate(Feature feature, byte[] rawData, Feature.Sample data) {
-        mDb.insert(sanitizeString(feature.getName()),null,
-                getFeatureRow(feature, rawData, data));
+        mQueue.enqueue(feature,rawData,data);
+    }
+
+    /**
+     * insert all the pending samples, then close and delete the db in background. The samples
+     * received after this call are dropped and the db can not be exported anymore.
+     * @param listener object notified when the db is closed and the closed segments
+     *                 are archived, can be null
+     */
+    public void closeFiles(@Nullable final CloseListener listener){
+        closeQueue(mQueue, new CloseListener() {
+            @Override
+            public void onLogClosed(FeatureLogBase log) {
+                File dbFile = new File(mDb.getPath());
+                mDbHelper.close();
+                if(!SQLiteDatabase.deleteDatabase(dbFile))
+                    Log.e(TAG,"Error deleting the db "+dbFile.getAbsolutePath());
+                if(listener!=null)
+                    listener.onLogClosed(log);
+            }//onLogClosed
+        });
+    }//closeFiles
+
+    /**
+     * queue all the samples, they will be inserted inside a single transaction
+     */
+    @Override
+    public void logFeatureUpdate(Feature feature, List<byte[]> rawData,
+                                 List<Feature.Sample> samples) {
+        mQueue.enqueue(feature,rawData,samples);
     }
+
+    /**
+     * if the rotation is enabled the name of the current segment is returned
+     */
+    @Override
+    protected String logFeatureFileName(Feature f) {
+        if(!getRotationPolicy().isEnabled())
+            return super.logFeatureFileName(f);
+        Integer index = mSegmentIndex.get(f.getName());
+        return logFeatureFileName(f,"csv",index!=null ? index : 0);
+    }//logFeatureFileName
+
+    /**
+     * build the sql code for insert a row in the feature table
+     * @param feature feature that we have to dump
+     * @return insert statement with a parameter for each column
+     */
+    static String getFeatureInsert(Feature feature){
+        Field fields[] = feature.getFieldsDesc();
+        StringBuilder sqlInsert = new StringBuilder();
+        sqlInsert.append("INSERT INTO ").append(sanitizeString(feature.getName())).append(" (");
+        sqlInsert.append(HOST_TIMESTAMP_COLUMN).append(',');
+        sqlInsert.append(NODE_NAME_COLUMN).append(',');
+        sqlInsert.append(NODE_TIMESTAMP_COLUMN).append(',');
+        sqlInsert.append(NODE_RAW_DATA_COLUMN);
+        for(Field field : fields)
+            sqlInsert.append(',').append(sanitizeString(field.getName()));
+        sqlInsert.append(") VALUES (?,?,?,?");
+        for(int i=0;i<fields.length;i++)
+            sqlInsert.append(",?");
+        sqlInsert.append(')');
+        return sqlInsert.toString();
+    }//getFeatureInsert
+
+    /**
+     * rows of a feature table that are not yet moved in a segment file
+     */
+    private static class DBSegment{
+        final Feature feature;
+        final int index;
+        final long startTime;
+        long nSamples;
+        long size;
+        long lastRowId;
+
+        DBSegment(Feature feature, int index, long startTime) {
+            this.feature = feature;
+            this.index = index;
+            this.startTime = startTime;
+        }
+    }//DBSegment
+
+    /**
+     * insert the queued samples, it is used only by the queue thread
+     */
+    private class DBRowWriter implements FeatureLogQueue.RowWriter{
+
+        /** rows inserted in each feature table since the last rotation */
+        private final Map<String,DBSegment> mSegments = new HashMap<>();
+
+        /** segments closed during the current transaction */
+        private final List<DBSegment> mClosedSegments = new ArrayList<>();
+
+        /** precompiled insert statement for each feature name, null if the insert is not valid */
+        private final Map<String,SQLiteStatement> mInsertStatement = new HashMap<>();
+
+        /**
+         * get the insert statement for the feature table, compiling it if needed
+         * @param feature feature to insert
+         * @return statement for insert the feature data, null if the table is not valid
+         */
+        private SQLiteStatement getInsertStatement(Feature feature){
+            String name = feature.getName();
+            if(mInsertStatement.containsKey(name))
+                return mInsertStatement.get(name);
+            SQLiteStatement statement = null;
+            try {
+                statement = mDb.compileStatement(getFeatureInsert(feature));
+            }catch (SQLException e){
+                Log.e(TAG,"Impossible log the feature "+name+": "+e.getMessage());
+            }
+            mInsertStatement.put(name,statement);
+            return statement;
+        }//getInsertStatement
+
+        /**
+         * bind the sample data to the insert parameters
+         * @param insert feature insert statement
+         * @param row sample to insert
+         */
+        private void bindRow(SQLiteStatement insert, FeatureLogQueue.Row row){
+            Feature.Sample sample = row.sample;
+            Field fields[] = row.feature.getFieldsDesc();
+            insert.bindLong(1, sample.notificationTime - mStartLog.getTime());
+            if(row.nodeName!=null)
+                insert.bindString(2, row.nodeName);
+            else
+                insert.bindNull(2);
+            insert.bindLong(3, sample.timestamp);
+            if(row.rawData!=null)
+                insert.bindBlob(4, row.rawData);
+            else
+                insert.bindNull(4);
+            int nFeature = fields.length;
+            for(int i=0;i<nFeature;i++){
+                int index = i+5;
+                if(!sample.hasValue(i)){
+                    insert.bindNull(index);
+                    continue;
+                }
+                switch (fields[i].getType()){
+                    case Float:
+                        insert.bindDouble(index, sample.getFloat(i));
+                        break;
+                    case Int64:
+                    case UInt32:
+                        insert.bindLong(index, sample.getLong(i));
+                        break;
+                    case Int32:
+                    case UInt16:
+                        insert.bindLong(index, sample.getInt(i));
+                        break;
+                    case Int16:
+                    case UInt8:
+                        insert.bindLong(index, sample.getShort(i));
+                        break;
+                    case Int8:
+                        insert.bindLong(index, sample.getByte(i));
+                        break;
+                    default:
+                        insert.bindNull(index);
+                }//switch
+            }//for
+        }//bindRow
+
+        /**
+         * get the current segment of a feature, if it reached the rotation limits a new segment
+         * is started, the rows of the closed one are moved after the transaction commit
+         * @param feature feature to insert
+         * @param policy rotation policy
+         * @param now current time, in ms
+         * @return segment that will contain the new row
+         */
+        private DBSegment getSegment(Feature feature, LogRotationPolicy policy, long now){
+            String name = feature.getName();
+            DBSegment current = mSegments.get(name);
+            if(current!=null && (current.nSamples==0 ||
+                    !policy.needRotation(current.size,now-current.startTime,current.nSamples)))
+                return current;
+            int index = 0;
+            if(current!=null) {
+                mClosedSegments.add(current);
+                index = current.index+1;
+            }//if
+            DBSegment newSegment = new DBSegment(feature,index,now);
+            mSegments.put(name,newSegment);
+            mSegmentIndex.put(name,index);
+            return newSegment;
+        }//getSegment
+
+        /**
+         * ask to the archiver thread to export the segment rows in a file and remove them from
+         * the db, the rows must be already committed
+         * @param segment closed segment
+         */
+        private void moveToFile(DBSegment segment){
+            final Feature feature = segment.feature;
+            final int index = segment.index;
+            final long lastRowId = segment.lastRowId;
+            getSegmentArchiver().segmentClosed(feature.getName(),
+                    new LogSegmentArchiver.SegmentWriter() {
+                @Override
+                public File writeSegment() throws IOException {
+                    File segment = new File(logFeatureFileName(feature,"csv",index));
+                    new FeatureLogDBExporter(FeatureLogDB.this,mDb,false,null)
+                            .exportTable(feature,segment,lastRowId);
+                    mDb.delete(sanitizeString(feature.getName()),BaseColumns._ID+"<=?",
+                            new String[]{Long.toString(lastRowId)});
+                    return segment;
+                }//writeSegment
+            });
+        }//moveToFile
+
+        /**
+         * estimated size of a row in the db
+         */
+        private long getRowSize(FeatureLogQueue.Row row){
+            long size = ROW_OVERHEAD_SIZE + 8*row.sample.getDataLength();
+            if(row.rawData!=null)
+                size+=row.rawData.length;
+            if(row.nodeName!=null)
+                size+=row.nodeName.length();
+            return size;
+        }//getRowSize
+
+        /**
+         * insert all the rows inside a single transaction
+         */
+        @Override
+        public void writeRows(List<FeatureLogQueue.Row> rows) {
+            int nRows = rows.size();
+            LogRotationPolicy policy = getRotationPolicy();
+            boolean rotate = policy.isEnabled();
+            mDb.beginTransaction();
+            try {
+                for (int i = 0; i < nRows; i++) {
+                    FeatureLogQueue.Row row = rows.get(i);
+                    SQLiteStatement insert = getInsertStatement(row.feature);
+                    if(insert==null)
+                        continue;
+                    bindRow(insert, row);
+                    try {
+                        long rowId = insert.executeInsert();
+                        if(rotate && rowId>=0){
+                            DBSegment segment = getSegment(row.feature,policy,
+                                    System.currentTimeMillis());
+                            segment.lastRowId=rowId;
+                            segment.nSamples++;
+                            segment.size+=getRowSize(row);
+                        }//if
+                    }catch (SQLException e){
+                        Log.e(TAG,"Error inserting "+row.feature.getName()+": "+e.getMessage());
+                    }
+                }//for
+                mDb.setTransactionSuccessful();
+            } finally {
+                mDb.endTransaction();
+            }
+            int nClosedSegments = mClosedSegments.size();
+            for(int i=0;i<nClosedSegments;i++)
+                moveToFile(mClosedSegments.get(i));
+            mClosedSegments.clear();
+        }//writeRows
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() {
+            for(SQLiteStatement insert : mInsertStatement.values()){
+                if(insert!=null)
+                    insert.close();
+            }//for
+            mInsertStatement.clear();
+        }//close
+
+    }//DBRowWriter
     /**
      * prepare the feature data for be inserted in the db row
      * @param feature feature that we have to dump
@@ -106,22 +421,22 @@ public class FeatureLogDB extends  FeatureLogBase {
             String fieldName = sanitizeString(fields[i].getName());
             switch (fields[i].getType()){
                 case Float:
-                    cv.put(fieldName, sample.data[i].floatValue());
+                    cv.put(fieldName, sample.getFloat(i));
                     break;
                 case Int64:
                 case UInt32:
-                    cv.put(fieldName,sample.data[i].longValue());
+                    cv.put(fieldName,sample.getLong(i));
                     break;
                 case Int32:
                 case UInt16:
-                    cv.put(fieldName,sample.data[i].intValue());
+                    cv.put(fieldName,sample.getInt(i));
                     break;
                 case Int16:
                 case UInt8:
-                    cv.put(fieldName,sample.data[i].shortValue());
+                    cv.put(fieldName,sample.getShort(i));
                     break;
                 case Int8:
-                    cv.put(fieldName,sample.data[i].byteValue());
+                    cv.put(fieldName,sample.getByte(i));
                     break;
             }//switch
         }//for
@@ -165,7 +480,7 @@ public class FeatureLogDB extends  FeatureLogBase {
      * @return feature name containing only letter or number
      */
     public static String sanitizeString(String featureName){
-        return featureName.replaceAll("\\W","");
+        return NON_WORD_CHAR.matcher(featureName).replaceAll("");
     }
     /**
      * create the sql code for a table that can contain the feature data
@@ -214,112 +529,74 @@ public class FeatureLogDB extends  FeatureLogBase {
     }//getFeatureTable
 
 
+    /**
+     * Interface used for notify the progress of an export
+     */
+    public interface ExportListener {
+
+        /**
+         * called in the ui thread while the tables are exported
+         * @param log logger that is exporting the data
+         * @param nExportedRows number of rows written in the files
+         * @param nRows number of rows to export
+         */
+        void onExportProgress(FeatureLogDB log, long nExportedRows, long nRows);
+
+        /**
+         * called in the ui thread when the export ends
+         * @param log logger that exported the data
+         * @param files created files, null if the export fails
+         */
+        void onExportCompleted(FeatureLogDB log, @Nullable File[] files);
+    }//ExportListener
+
     /**
      * async task that dump the db tables in a file, each table will have a different file
      */
-    private class ExportDatabaseCSVTask extends AsyncTask<Feature, Void, File[]> {
+    private class ExportDatabaseCSVTask extends AsyncTask<Feature, Long, File[]>
+            implements FeatureLogDBExporter.ProgressListener {
 
-        /** directory where store the files */
-        private String baseDirName;
         /* context used for notify that the task is finish*/
         private Context context;
+        /** true for compress the files */
+        private boolean zip;
+        /** object to notify about the export progress */
+        private ExportListener listener;
 
-        ExportDatabaseCSVTask(Context c,String baseDirName){
-            this.baseDirName=baseDirName;
+        ExportDatabaseCSVTask(Context c,boolean zip, @Nullable ExportListener listener){
             context =c;
+            this.zip=zip;
+            this.listener=listener;
         }
 
-        /** for each feature find all the db row in the feature table and store the data in a
-         *  csv file
+        /** for each feature export all the rows of the feature table in a csv file, the samples
+         * received during the export are inserted in the db but they can be not exported
          * @param args list of feature to dump
-         * @return true if all the data are dump correctly
+         * @return the created files, null if some export fails or the db is closed
          */
         @Override
         protected File[] doInBackground(final Feature... args) {
+            if(mQueue.isClosed())
+                return null;
+            //insert the queued samples before the export
+            mQueue.flushAndWait();
+            //wait that the closed segments are moved in their files
+            waitSegmentArchiver();
             final SQLiteDatabase db = mDbHelper.getReadableDatabase();
-            File createdFile[] = new File[args.length];
-            int featureIdx=0;
-            for(Feature f:args) {
-                Field featureDesc[] = f.getFieldsDesc();
-                ArrayList<String> columName = new ArrayList<>(featureDesc.length+1);
-                columName.add(HOST_TIMESTAMP_COLUMN);
-                columName.add(NODE_NAME_COLUMN);
-                columName.add(NODE_TIMESTAMP_COLUMN);
-                columName.add(NODE_RAW_DATA_COLUMN);
-                for (Field desc: featureDesc){
-                    columName.add(sanitizeString(desc.getName()));
-                }
+            return new FeatureLogDBExporter(FeatureLogDB.this,db,zip,this)
+                    .export(Arrays.asList(args));
+        }//doInBackground
 
-                Cursor res = db.query(sanitizeString(f.getName()),
-                        //all the column + device name
-                        columName.toArray(new String[columName.size()]), //select
-                        null, null, //where
-                        null, //group by
-                        null, //having
-                        BaseColumns._ID, //sort by
-                        null //limit
-                );
-
-                Formatter out;
-                //Writer outW = new OutputStreamWriter(new FileOutputStream(logFeatureFileName(f),true));
-                try {
-                    createdFile[featureIdx]=new File(logFeatureFileName(f));
-                    out = new Formatter(createdFile[featureIdx]);
-                    featureIdx++;
-                } catch (FileNotFoundException e) {
-                    Log.e(TAG, "Impossible open the dumpFile: " + e);
-                    e.printStackTrace();
-                    continue;
-                }//try-catch
+        @Override
+        public void onProgress(long nExportedRows, long nRows) {
+            publishProgress(nExportedRows,nRows);
+        }
 
-                if (!res.moveToFirst()) {
-                    continue;
-                }
-                printHeader(out, f);
-
-                final int nColum = columName.size();
-                int columId[] = new int[nColum];
-                int typeId[] = new int[nColum];
-                for(int i=0;i<nColum;i++){
-                    String name = columName.get(i);
-                    columId[i] = res.getColumnIndex(name);
-                    typeId[i] = res.getType(columId[i]);
-                }
-                out.flush();
-
-                do {
-                    for(int i=0;i<nColum;++i) {
-                        switch (typeId[i]) {
-                            case Cursor.FIELD_TYPE_FLOAT:
-                                out.format("%f, ",res.getFloat(columId[i]));
-                                break;
-                            case Cursor.FIELD_TYPE_INTEGER:
-                                out.format("%d, ",res.getInt(columId[i]));
-                                break;
-                            case Cursor.FIELD_TYPE_STRING:
-                                out.format("%s, ",res.getString(columId[i]));
-                                break;
-                            case Cursor.FIELD_TYPE_NULL:
-                                out.format(",");
-                                break;
-                            case Cursor.FIELD_TYPE_BLOB:
-                                storeBlobData(out, res.getBlob(columId[i]));
-                                out.format(",");
-                                break;
-                        }//switch
-                    }//for
-                    out.format("\n");
-                    out.flush();
-                } while (res.moveToNext());
-                res.close();
-                out.flush();
-                out.close();
-            }
-            if(featureIdx==args.length)
-                return createdFile;
-            else
-                return null;
-        }//doInBackground
+        @Override
+        protected void onProgressUpdate(Long... values) {
+            if(listener!=null)
+                listener.onExportProgress(FeatureLogDB.this,values[0],values[1]);
+        }
 
         @Override
         protected void onPostExecute(File[] success) {
@@ -328,17 +605,19 @@ public class FeatureLogDB extends  FeatureLogBase {
             } else {
                 Toast.makeText(context,"Export Error",Toast.LENGTH_SHORT).show();
             }//if-else
+            if(listener!=null)
+                listener.onExportCompleted(FeatureLogDB.this,success);
         }//onPostExecute
-    }//doInBackground
+    }//ExportDatabaseCSVTask
 
     /**
-     * dump the db in csv files
+     * dump the db in csv files, waiting the end of the export
      * @param directoryPath directory where store the csv files
      * @return list of file where the db is dumped, each table will have its file
      */
     public File[] dumpToFile(String directoryPath){
         try {
-            return new ExportDatabaseCSVTask(mLogContext,directoryPath).execute(
+            return new ExportDatabaseCSVTask(mLogContext,false,null).execute(
                     mAvailableFeatures.toArray(new Feature[mAvailableFeatures.size()])).get();
         } catch (InterruptedException e) {
             Log.e(TAG,"Error exporting the logs");
@@ -349,6 +628,17 @@ public class FeatureLogDB extends  FeatureLogBase {
         }
     }
 
+    /**
+     * dump the db in csv files without blocking the caller, the progress and the created files
+     * are notified to the listener
+     * @param zip true for compress each csv file in a zip archive
+     * @param listener object to notify about the export progress
+     */
+    public void dumpToFile(boolean zip, @Nullable ExportListener listener){
+        new ExportDatabaseCSVTask(mLogContext,zip,listener).execute(
+                mAvailableFeatures.toArray(new Feature[mAvailableFeatures.size()]));
+    }//dumpToFile
+
     /**
      * create the db where store the feature data, each feature will have a different table with the
      * table
@@ -363,10 +653,11 @@ public class FeatureLogDB extends  FeatureLogBase {
 
 
         FeatureLogDBOpenHelper(Context context){
-      /*  super(context, String.format(DATABASE_NAME,features.get(0).getParentNode().getName()),
-                null,DATABASE_VERSION);*/
-            //TODO create a database with the node name and delete it each time?
-            super(context, null,null,DATABASE_VERSION);
+            //a file for each log session, the wal mode is not supported by an in memory db
+            super(context, String.format(DATABASE_NAME,mDirectoryPath,logSessionPrefix()),
+                    null,DATABASE_VERSION);
+            //readers and the inserting thread don't block each other
+            setWriteAheadLoggingEnabled(true);
         }
 
         /**
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.util.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+import com.st.BlueSTSDK.Utils.FastNumberFormat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export the tables of a {@link FeatureLogDB} in csv files, one file for each feature.
+ * <p>
+ * The tables are exported in parallel and each table is read in chunks of
+ * {@link #CHUNK_SIZE} rows, using the row id for find the next chunk, so the memory used doesn't
+ * depend on the table size.
+ * Each export thread opens its own read only connection to the db file: the db uses the write
+ * ahead log, so the readers don't wait each other or the logger that inserts the new samples.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class FeatureLogDBExporter {
+
+    private static final String TAG = FeatureLogDBExporter.class.getCanonicalName();
+
+    /** number of rows read with a single query */
+    static final int CHUNK_SIZE = 1000;
+
+    /** max number of tables exported at the same time */
+    private static final int MAX_EXPORT_THREAD = 3;
+
+    /** size of the buffer of each file */
+    private static final int FILE_BUFFER_SIZE = 64*1024;
+
+    /** number of decimal digits used for the float values */
+    private static final int FLOAT_DECIMALS = 6;
+
+    /** separator between two values */
+    private static final String SEPARATOR = ", ";
+
+    /**
+     * Interface used for notify the number of exported rows
+     */
+    interface ProgressListener {
+
+        /**
+         * called each time a chunk of rows is written, it can be called by different threads
+         * @param nExportedRows number of rows written in all the files
+         * @param nRows number of rows to export
+         */
+        void onProgress(long nExportedRows, long nRows);
+    }//ProgressListener
+
+    private final FeatureLogBase mLog;
+    private final SQLiteDatabase mDb;
+    private final boolean mZip;
+    private final ProgressListener mListener;
+
+    private final AtomicLong mNExportedRows = new AtomicLong(0);
+    private long mNRows;
+
+    /**
+     * @param log logger that owns the db, used for the file name and header
+     * @param db connection to the database to export, used for count the rows and by
+     *           {@link #exportTable(Feature, File, long)}: the export threads open their own
+     *           connections to the same file
+     * @param zip true for compress each file in a zip archive
+     * @param listener object to notify about the progress, can be null
+     */
+    FeatureLogDBExporter(FeatureLogBase log, SQLiteDatabase db, boolean zip,
+                         ProgressListener listener){
+        mLog = log;
+        mDb = db;
+        mZip = zip;
+        mListener = listener;
+    }
+
+    /**
+     * export the feature tables
+     * @param features features to export
+     * @return created files, in the same order of the features, null if an export fails
+     */
+    File[] export(final List<Feature> features){
+        if(features.isEmpty())
+            return new File[0];
+        mNRows=0;
+        for(Feature f : features)
+            mNRows += countRows(FeatureLogDB.sanitizeString(f.getName()));
+        mNExportedRows.set(0);
+
+        final File createdFiles[] = new File[features.size()];
+        final AtomicInteger nextFeature = new AtomicInteger(0);
+        final AtomicBoolean success = new AtomicBoolean(true);
+        int nThread = Math.min(features.size(), MAX_EXPORT_THREAD);
+        ExecutorService pool = Executors.newFixedThreadPool(nThread);
+        try {
+            List<Future<Void>> results = new ArrayList<>(nThread);
+            for (int i = 0; i < nThread; i++) {
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        exportTables(features,nextFeature,createdFiles,success);
+                        return null;
+                    }
+                }));
+            }//for
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Impossible export the tables: " + e.getCause());
+                    success.set(false);
+                }//try-catch
+            }//for
+            return success.get() ? createdFiles : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            pool.shutdownNow();
+        }//try-catch-finally
+    }//export
+
+    /**
+     * export thread: open a read only connection to the db and export the features not yet
+     * taken by the other threads
+     * @param features features to export
+     * @param nextFeature index of the next feature to export, shared between the threads
+     * @param createdFiles array where store the created files
+     * @param success set to false if an export fails
+     */
+    private void exportTables(List<Feature> features, AtomicInteger nextFeature,
+                              File createdFiles[], AtomicBoolean success){
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(mDb.getPath(),null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            int i;
+            while ((i = nextFeature.getAndIncrement()) < features.size()) {
+                Feature f = features.get(i);
+                try {
+                    createdFiles[i] = exportTable(db, f, new File(mLog.logFeatureFileName(f)),
+                            Long.MAX_VALUE);
+                } catch (IOException e) {
+                    Log.e(TAG, "Impossible export " + f.getName() + ": " + e);
+                    success.set(false);
+                }//try-catch
+            }//while
+        }finally {
+            db.close();
+        }//try-finally
+    }//exportTables
+
+    private long countRows(String table){
+        Cursor res = mDb.rawQuery("SELECT COUNT(*) FROM "+table,null);
+        try {
+            return res.moveToFirst() ? res.getLong(0) : 0;
+        }finally {
+            res.close();
+        }
+    }//countRows
+
+    /**
+     * names of the column to export, the first one is the row id
+     */
+    private static String[] getColumnNames(Feature f){
+        Field featureDesc[] = f.getFieldsDesc();
+        ArrayList<String> columnName = new ArrayList<>(featureDesc.length+5);
+        columnName.add(BaseColumns._ID);
+        columnName.add(FeatureLogBase.HOST_TIMESTAMP_COLUMN);
+        columnName.add(FeatureLogBase.NODE_NAME_COLUMN);
+        columnName.add(FeatureLogBase.NODE_TIMESTAMP_COLUMN);
+        columnName.add(FeatureLogBase.NODE_RAW_DATA_COLUMN);
+        for (Field desc: featureDesc){
+            columnName.add(FeatureLogDB.sanitizeString(desc.getName()));
+        }
+        return columnName.toArray(new String[columnName.size()]);
+    }//getColumnNames
+
+    /**
+     * open the file where export the feature data
+     * @param csvFile name of the csv file
+     * @return stream where write the csv data
+     * @throws IOException if the file can not be opened
+     */
+    private OutputStream openOutput(File csvFile, File outFile) throws IOException{
+        OutputStream out = new FileOutputStream(outFile);
+        if(!mZip)
+            return out;
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new ZipEntry(csvFile.getName()));
+        return zip;
+    }//openOutput
+
+    /**
+     * write the rows of the feature table with an id lower or equal to lastRowId in a file,
+     * using the connection passed in the constructor
+     * @param f feature to export
+     * @param csvFile file where write the csv data, if the zip is enabled the created file has
+     *                a .zip extension
+     * @param lastRowId id of the last row to export
+     * @return created file
+     * @throws IOException if the write fails
+     */
+    File exportTable(Feature f, File csvFile, long lastRowId) throws IOException {
+        return exportTable(mDb,f,csvFile,lastRowId);
+    }//exportTable
+
+    /**
+     * write the rows of the feature table with an id lower or equal to lastRowId in a file
+     * @param db connection used for read the table
+     * @param f feature to export
+     * @param csvFile file where write the csv data, if the zip is enabled the created file has
+     *                a .zip extension
+     * @param lastRowId id of the last row to export
+     * @return created file
+     * @throws IOException if the write fails
+     */
+    private File exportTable(SQLiteDatabase db, Feature f, File csvFile, long lastRowId)
+            throws IOException {
+        String table = FeatureLogDB.sanitizeString(f.getName());
+        String columns[] = getColumnNames(f);
+        File outFile = mZip ? new File(csvFile.getPath()+".zip") : csvFile;
+        Writer out = new BufferedWriter(new OutputStreamWriter(openOutput(csvFile,outFile)),
+                FILE_BUFFER_SIZE);
+        try {
+            StringBuilder line = new StringBuilder(256);
+            char lineChars[] = new char[256];
+            //the first parameter is the id of the last exported row
+            String idRange[] = new String[]{Long.toString(Long.MIN_VALUE),
+                    Long.toString(lastRowId)};
+            String chunkSize = Integer.toString(CHUNK_SIZE);
+            boolean headerWritten = false;
+            int nReadRows;
+            do {
+                Cursor res = db.query(table, columns,
+                        BaseColumns._ID + ">? AND " + BaseColumns._ID + "<=?", idRange, //where
+                        null, //group by
+                        null, //having
+                        BaseColumns._ID, //sort by
+                        chunkSize //limit
+                );
+                try {
+                    nReadRows = res.getCount();
+                    if (!res.moveToFirst())
+                        break;
+                    if (!headerWritten) {
+                        mLog.printHeader(new Formatter(out), f);
+                        headerWritten = true;
+                    }//if
+                    do {
+                        idRange[0] = Long.toString(res.getLong(0));
+                        line.setLength(0);
+                        appendRow(line, res, columns.length);
+                        int length = line.length();
+                        if(lineChars.length<length)
+                            lineChars = new char[Math.max(length,2*lineChars.length)];
+                        line.getChars(0,length,lineChars,0);
+                        out.write(lineChars,0,length);
+                    } while (res.moveToNext());
+                } finally {
+                    res.close();
+                }//try-finally
+                long nExported = mNExportedRows.addAndGet(nReadRows);
+                if (mListener != null)
+                    mListener.onProgress(nExported, mNRows);
+            } while (nReadRows == CHUNK_SIZE);
+        }finally {
+            out.close();
+        }//try-finally
+        return outFile;
+    }//exportTable
+
+    /**
+     * convert the current cursor row in a csv line, the first column (the row id) is skipped
+     * @param line string where append the row
+     * @param res cursor with the data
+     * @param nColumn number of column in the cursor
+     */
+    static void appendRow(StringBuilder line, Cursor res, int nColumn){
+        for(int i=1;i<nColumn;++i) {
+            switch (res.getType(i)) {
+                case Cursor.FIELD_TYPE_FLOAT:
+                    FastNumberFormat.appendFixed(line,res.getFloat(i),FLOAT_DECIMALS)
+                            .append(SEPARATOR);
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    line.append(res.getLong(i)).append(SEPARATOR);
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    line.append(res.getString(i)).append(SEPARATOR);
+                    break;
+                case Cursor.FIELD_TYPE_NULL:
+                    line.append(',');
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    FeatureLogCSVFile.appendHex(line, res.getBlob(i));
+                    line.append(',');
+                    break;
+            }//switch
+        }//for
+        line.append('\n');
+    }//appendRow
+
+}
@@ -115,7 +115,7 @@ public class FeatureLogLogCat implements Feature.FeatureLoggerListener {
         Field f[] = feature.getFieldsDesc();
         for(int i =0;i<f.length;i++){
             sb.append('\t').append(f[i].getName()).append(' ');
-            sb.append(sample.data[i]).append('\n');
+            sb.append(sample.getData()[i]).append('\n');
         }//for i
         Log.println(mPriority,mTag,sb.toString());
     }
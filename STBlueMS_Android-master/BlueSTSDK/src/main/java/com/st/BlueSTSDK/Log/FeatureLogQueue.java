@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.st.BlueSTSDK.Feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queue of samples to log, consumed by a single thread.
+ * <p>
+ * The samples are put in a lock-free queue by the thread that receives the feature update and
+ * they are passed to a {@link RowWriter} by a dedicated thread, in groups of at most
+ * {@code maxBatchSize} rows. The thread is started when the first sample arrives and it is
+ * stopped by {@link #close(Runnable)}, after that the queue drops the new samples.
+ * {@link #flushAndWait()} waits that the queued samples are written without closing the queue.
+ * </p>
+ * <p>
+ * The queue is bounded: when the writer can't keep up the new samples are discarded, and they
+ * are counted by {@link #getDroppedRows()} together with the rows that the writer fails to
+ * store. An exception thrown by the {@link RowWriter} is logged and the thread keeps writing.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class FeatureLogQueue {
+
+    private static final String TAG = FeatureLogQueue.class.getCanonicalName();
+
+    /**
+     * default max number of samples waiting to be written
+     */
+    static final int DEFAULT_MAX_PENDING_ROWS = 16*1024;
+
+    /**
+     * sample waiting to be written
+     */
+    static class Row{
+        final Feature feature;
+        final String nodeName;
+        final byte[] rawData;
+        final Feature.Sample sample;
+
+        Row(Feature feature, String nodeName, byte[] rawData, Feature.Sample sample) {
+            this.feature = feature;
+            this.nodeName = nodeName;
+            this.rawData = rawData;
+            this.sample = sample;
+        }
+    }//Row
+
+    /**
+     * object that stores the rows, all the methods are called by the queue thread
+     */
+    interface RowWriter{
+
+        /**
+         * store a group of rows
+         * @param rows rows to write, the list is reused after the call
+         */
+        void writeRows(List<Row> rows);
+
+        /**
+         * called periodically for store the written data
+         */
+        void flush();
+
+        /**
+         * called when the queue is closed, after that all the rows are written
+         */
+        void close();
+    }//RowWriter
+
+    private final String mName;
+    private final RowWriter mRowWriter;
+    private final int mMaxBatchSize;
+    private final long mFlushPeriodNs;
+    private final int mMaxPendingRows;
+
+    /**
+     * samples waiting to be written
+     */
+    private final ConcurrentLinkedQueue<Row> mPendingRows = new ConcurrentLinkedQueue<>();
+
+    /**
+     * number of samples inside the queue, used for wake up the writer only when the queue
+     * was empty
+     */
+    private final AtomicInteger mNPendingRows = new AtomicInteger(0);
+
+    /**
+     * number of samples discarded since the queue was full or the writer failed
+     */
+    private final AtomicLong mNDroppedRows = new AtomicLong(0);
+
+    /**
+     * thread that is writing the rows, null if no sample arrived or the queue is closed
+     */
+    private volatile WriterThread mWriter;
+
+    /**
+     * threads waiting that the samples queued before their request are written
+     */
+    private final ConcurrentLinkedQueue<CountDownLatch> mFlushRequests =
+            new ConcurrentLinkedQueue<>();
+
+    /** time between two checks that the writer is still alive, while waiting a flush */
+    private static final long FLUSH_WAIT_CHECK_MS = 100;
+
+    /**
+     * true when the queue doesn't accept new samples
+     */
+    private volatile boolean mClosed;
+
+    /**
+     * @param name name of the writer thread
+     * @param rowWriter object that stores the rows
+     * @param maxBatchSize max number of rows passed to a single
+     *                     {@link RowWriter#writeRows(List)} call
+     * @param flushPeriodMs time between two {@link RowWriter#flush()} call
+     */
+    FeatureLogQueue(String name, RowWriter rowWriter, int maxBatchSize, long flushPeriodMs){
+        this(name,rowWriter,maxBatchSize,flushPeriodMs,DEFAULT_MAX_PENDING_ROWS);
+    }
+
+    /**
+     * @param name name of the writer thread
+     * @param rowWriter object that stores the rows
+     * @param maxBatchSize max number of rows passed to a single
+     *                     {@link RowWriter#writeRows(List)} call
+     * @param flushPeriodMs time between two {@link RowWriter#flush()} call
+     * @param maxPendingRows max number of samples waiting to be written, the samples enqueued
+     *                       when the queue is full are dropped
+     * @throws IllegalArgumentException if maxPendingRows is not positive
+     */
+    FeatureLogQueue(String name, RowWriter rowWriter, int maxBatchSize, long flushPeriodMs,
+                    int maxPendingRows){
+        if(maxPendingRows<=0)
+            throw new IllegalArgumentException("maxPendingRows must be positive");
+        mName = name;
+        mRowWriter = rowWriter;
+        mMaxBatchSize = maxBatchSize;
+        mFlushPeriodNs = TimeUnit.MILLISECONDS.toNanos(flushPeriodMs);
+        mMaxPendingRows = maxPendingRows;
+    }
+
+    /**
+     * get the writer thread, starting it if needed
+     * @return thread that writes the samples, null if the queue is closed
+     */
+    private @Nullable WriterThread getWriter(){
+        WriterThread writer = mWriter;
+        if(writer!=null)
+            return writer;
+        synchronized (this){
+            if(mClosed)
+                return null;
+            if(mWriter==null){
+                mWriter = new WriterThread();
+                mWriter.start();
+            }//if
+            return mWriter;
+        }//synchronized
+    }//getWriter
+
+    /**
+     * put a sample in the write queue
+     */
+    private void enqueue(Feature feature, String nodeName, byte[] rawData, Feature.Sample data){
+        WriterThread writer = getWriter();
+        if(writer==null) //closed queue
+            return;
+        int nPendingRows = mNPendingRows.getAndIncrement();
+        if(nPendingRows>=mMaxPendingRows){
+            mNPendingRows.decrementAndGet();
+            mNDroppedRows.incrementAndGet();
+            return;
+        }//if
+        mPendingRows.offer(new Row(feature,nodeName,rawData,data));
+        //if the queue was empty the writer can be waiting
+        if(nPendingRows==0)
+            LockSupport.unpark(writer);
+    }//enqueue
+
+    /**
+     * put a sample in the write queue
+     * @param feature feature that produced the sample
+     * @param rawData raw data used for extract the sample, can be null
+     * @param data sample to write
+     */
+    void enqueue(Feature feature, byte[] rawData, Feature.Sample data){
+        enqueue(feature,feature.getParentNode().getFriendlyName(),rawData,data);
+    }
+
+    /**
+     * put a list of samples in the write queue
+     * @param feature feature that produced the samples
+     * @param rawData raw data used for extract each sample
+     * @param samples samples to write
+     */
+    void enqueue(Feature feature, List<byte[]> rawData, List<Feature.Sample> samples){
+        if(mClosed)
+            return;
+        String nodeName = feature.getParentNode().getFriendlyName();
+        int nSample = samples.size();
+        for(int i=0;i<nSample;i++)
+            enqueue(feature,nodeName,rawData.get(i),samples.get(i));
+    }//enqueue
+
+    /**
+     * stop the writer thread without waiting it, the thread writes all the pending samples
+     * before closing the row writer. The samples enqueued after this call are dropped.
+     * @param onClosed task run by the writer thread after {@link RowWriter#close()}, if the
+     *                 thread was never started it is run by the caller. Can be null
+     */
+    void close(@Nullable Runnable onClosed){
+        WriterThread writer;
+        synchronized (this){
+            if(mClosed)
+                return;
+            mClosed = true;
+            writer = mWriter;
+            mWriter = null;
+        }//synchronized
+        if(writer==null){
+            mRowWriter.close();
+            if(onClosed!=null)
+                onClosed.run();
+            return;
+        }//if
+        writer.stopWriting(onClosed);
+    }//close
+
+    /**
+     * wait that all the samples queued before this call are written and flushed, the queue
+     * stays open. This method must not be called by the ui thread
+     */
+    void flushAndWait(){
+        WriterThread writer = mWriter;
+        if(writer==null) //no samples or closed queue
+            return;
+        CountDownLatch written = new CountDownLatch(1);
+        mFlushRequests.offer(written);
+        LockSupport.unpark(writer);
+        try {
+            //if the writer exited, all the queued samples are already written
+            while(!written.await(FLUSH_WAIT_CHECK_MS,TimeUnit.MILLISECONDS) && writer.isAlive());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }//try-catch
+    }//flushAndWait
+
+    /**
+     * @return true if the queue doesn't accept new samples
+     */
+    boolean isClosed(){
+        return mClosed;
+    }
+
+    /**
+     * @return number of samples discarded since the queue was full or the row writer failed to
+     * store them
+     */
+    long getDroppedRows(){
+        return mNDroppedRows.get();
+    }
+
+    /**
+     * thread that passes the queued samples to the row writer
+     */
+    private class WriterThread extends Thread{
+
+        /** rows passed to the writer, reused between the calls */
+        private final List<Row> mBatch = new ArrayList<>(mMaxBatchSize);
+
+        private volatile boolean mStopWriting = false;
+
+        /** flush requests served by the current loop, reused between the loops */
+        private final List<CountDownLatch> mServedRequests = new ArrayList<>();
+
+        /** task to run after closing the row writer */
+        private volatile Runnable mOnClosed;
+
+        WriterThread(){
+            super(mName);
+        }
+
+        /**
+         * ask the thread to write the pending samples and exit
+         * @param onClosed task to run before exiting, can be null
+         */
+        void stopWriting(@Nullable Runnable onClosed){
+            mOnClosed=onClosed;
+            mStopWriting=true;
+            LockSupport.unpark(this);
+        }
+
+        /**
+         * write all the queued samples
+         * @return true if some rows are written
+         */
+        private boolean writePendingRows(){
+            boolean written = false;
+            Row row;
+            while((row = mPendingRows.poll())!=null){
+                mNPendingRows.decrementAndGet();
+                mBatch.add(row);
+                if(mBatch.size()==mMaxBatchSize)
+                    written |= writeBatch();
+            }//while
+            written |= writeBatch();
+            return written;
+        }//writePendingRows
+
+        /**
+         * take the flush requests, the rows queued before them will be written by the next
+         * {@link #writePendingRows()}
+         * @return true if someone is waiting a flush
+         */
+        private boolean takeFlushRequests(){
+            CountDownLatch request;
+            while((request = mFlushRequests.poll())!=null)
+                mServedRequests.add(request);
+            return !mServedRequests.isEmpty();
+        }//takeFlushRequests
+
+        private void releaseFlushRequests(){
+            for(CountDownLatch request : mServedRequests)
+                request.countDown();
+            mServedRequests.clear();
+        }//releaseFlushRequests
+
+        private boolean writeBatch(){
+            if(mBatch.isEmpty())
+                return false;
+            try {
+                mRowWriter.writeRows(mBatch);
+            }catch (RuntimeException e){
+                mNDroppedRows.addAndGet(mBatch.size());
+                Log.e(TAG,mName+": error writing "+mBatch.size()+" rows: "+e);
+            }finally {
+                mBatch.clear();
+            }//try-catch-finally
+            return true;
+        }//writeBatch
+
+        private void flushWriter(){
+            try {
+                mRowWriter.flush();
+            }catch (RuntimeException e){
+                Log.e(TAG,mName+": error flushing the rows: "+e);
+            }//try-catch
+        }//flushWriter
+
+        private void closeWriter(){
+            try {
+                mRowWriter.close();
+            }catch (RuntimeException e){
+                Log.e(TAG,mName+": error closing the writer: "+e);
+            }//try-catch
+            long nDropped = mNDroppedRows.get();
+            if(nDropped>0)
+                Log.w(TAG,mName+": "+nDropped+" rows dropped");
+        }//closeWriter
+
+        @Override
+        public void run() {
+            long lastFlush = System.nanoTime();
+            boolean dirty = false;
+            while (!mStopWriting){
+                boolean flushRequested = takeFlushRequests();
+                dirty |= writePendingRows();
+                long now = System.nanoTime();
+                if(flushRequested || now-lastFlush>=mFlushPeriodNs){
+                    if(dirty)
+                        flushWriter();
+                    dirty=false;
+                    lastFlush=now;
+                }//if
+                releaseFlushRequests();
+                //wait for new data or for the next flush
+                LockSupport.parkNanos(this, mFlushPeriodNs-(now-lastFlush));
+            }//while
+            takeFlushRequests();
+            writePendingRows();
+            closeWriter();
+            releaseFlushRequests();
+            Runnable onClosed = mOnClosed;
+            if(onClosed!=null)
+                onClosed.run();
+        }//run
+
+    }//WriterThread
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * File where a logger writes a part of the feature samples, it counts the written bytes and
+ * samples for tell when the {@link LogRotationPolicy} requires a new segment.
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class LogFileSegment {
+
+    /**
+     * stream that counts the bytes written in the file
+     */
+    private static class CountingOutputStream extends FilterOutputStream{
+
+        private long mNBytes = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            mNBytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            mNBytes+=len;
+        }
+    }//CountingOutputStream
+
+    /** segment file */
+    final File file;
+
+    /** segment number, starting from 0 */
+    final int index;
+
+    private final long mStartTime;
+    private final CountingOutputStream mOut;
+    private long mNSamples = 0;
+
+    /**
+     * create the segment file
+     * @param file file to create
+     * @param index segment number
+     * @throws IOException if the file can not be created
+     */
+    LogFileSegment(File file, int index) throws IOException {
+        this.file = file;
+        this.index = index;
+        mStartTime = System.currentTimeMillis();
+        mOut = new CountingOutputStream(new FileOutputStream(file));
+    }
+
+    /**
+     * @return stream where write the segment data, it has to be closed by the caller
+     */
+    OutputStream getOutputStream(){
+        return mOut;
+    }
+
+    /**
+     * notify that a sample was written in the segment
+     */
+    void sampleWritten(){
+        mNSamples++;
+    }
+
+    /**
+     * tell if the segment has to be closed before write a new sample, the data still inside the
+     * buffers of the caller are not counted
+     * @param policy rotation policy
+     * @param now current time, in ms
+     * @return true if a new segment has to be created
+     */
+    boolean isFull(LogRotationPolicy policy, long now){
+        return policy.needRotation(mOut.mNBytes, now - mStartTime, mNSamples);
+    }
+
+}
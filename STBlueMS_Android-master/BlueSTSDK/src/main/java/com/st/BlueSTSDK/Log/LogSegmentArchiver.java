@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Handle the closed log segments in a low priority thread: the segments are compressed, if
+ * requested by the {@link LogRotationPolicy}, and the oldest segments are deleted when a feature
+ * has more than {@link LogRotationPolicy#getMaxSegments()} segments.
+ * <p>The retention counts all the segments of the feature found in the log directory, also the
+ * ones written by the previous sessions, so the directory doesn't grow across the sessions.</p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+class LogSegmentArchiver {
+
+    private static final String TAG = LogSegmentArchiver.class.getCanonicalName();
+
+    /** extension added to the compressed segments */
+    static final String ZIP_EXTENSION = ".zip";
+
+    private static final int BUFFER_SIZE = 64*1024;
+
+    /**
+     * object that creates a segment file, called by the archiver thread
+     */
+    interface SegmentWriter{
+
+        /**
+         * @return the segment file
+         * @throws IOException if the segment can not be written
+         */
+        File writeSegment() throws IOException;
+    }//SegmentWriter
+
+    private final LogRotationPolicy mPolicy;
+
+    /** thread that handles the segments */
+    private final ExecutorService mExecutor;
+
+    /**
+     * name of a segment file: session prefix (yyyyMMdd_HHmmss), log name, segment index,
+     * extension and the optional zip extension
+     */
+    private static final String SEGMENT_NAME_FORMAT = "(\\d{8}_\\d{6})_%s_(\\d{4,})\\.%s(%s)?";
+
+    /**
+     * segment file with the fields used for sort the segments
+     */
+    private static class SegmentFile{
+        final File file;
+        final String sessionPrefix;
+        final long index;
+
+        SegmentFile(File file, String sessionPrefix, long index) {
+            this.file = file;
+            this.sessionPrefix = sessionPrefix;
+            this.index = index;
+        }
+    }//SegmentFile
+
+    /** sort the segments from the oldest: by session and then by index */
+    private static final Comparator<SegmentFile> OLDEST_FIRST = new Comparator<SegmentFile>() {
+        @Override
+        public int compare(SegmentFile a, SegmentFile b) {
+            int compareSession = a.sessionPrefix.compareTo(b.sessionPrefix);
+            if(compareSession!=0)
+                return compareSession;
+            return a.index < b.index ? -1 : (a.index == b.index ? 0 : 1);
+        }
+    };
+
+    /**
+     * @param policy policy that tells how handle the closed segments
+     */
+    LogSegmentArchiver(LogRotationPolicy policy){
+        mPolicy = policy;
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r,"LogSegmentArchiver");
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * compress and archive a closed segment
+     * @param logName name of the log that owns the segment, the retention is applied to the
+     *                segments with the same name
+     * @param segment closed segment file
+     */
+    void segmentClosed(String logName, final File segment){
+        segmentClosed(logName, new SegmentWriter() {
+            @Override
+            public File writeSegment() {
+                return segment;
+            }
+        });
+    }//segmentClosed
+
+    /**
+     * create a segment in the archiver thread, then compress and archive it
+     * @param logName name of the log that owns the segment, the retention is applied to the
+     *                segments with the same name
+     * @param writer object that creates the segment file
+     */
+    void segmentClosed(final String logName, final SegmentWriter writer){
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    File segment = writer.writeSegment();
+                    if(mPolicy.compressSegments())
+                        segment = compress(segment);
+                    applyRetention(logName, segment);
+                }catch (IOException e){
+                    Log.e(TAG,"Error archiving the segment of "+logName+": "+e.toString());
+                }//try-catch
+            }//run
+        });
+    }//segmentClosed
+
+    /**
+     * delete the oldest segments of the log, the segments are searched in the directory of the
+     * closed one and only the segments older than it are considered: the newer ones are still
+     * open
+     * @param logName name of the log that owns the segment
+     * @param segment last closed segment
+     */
+    private void applyRetention(String logName, File segment){
+        int maxSegments = mPolicy.getMaxSegments();
+        if(maxSegments==0)
+            return;
+        File directory = segment.getAbsoluteFile().getParentFile();
+        String name = segment.getName();
+        if(name.endsWith(ZIP_EXTENSION))
+            name = name.substring(0,name.length()-ZIP_EXTENSION.length());
+        String extension = name.substring(name.lastIndexOf('.')+1);
+        Pattern segmentName = Pattern.compile(String.format(SEGMENT_NAME_FORMAT,
+                Pattern.quote(logName),Pattern.quote(extension),Pattern.quote(ZIP_EXTENSION)));
+
+        SegmentFile closed = parseSegment(segmentName,segment);
+        File files[] = directory!=null ? directory.listFiles() : null;
+        if(closed==null || files==null)
+            return;
+        List<SegmentFile> segments = new ArrayList<>();
+        for(File f : files){
+            SegmentFile s = parseSegment(segmentName,f);
+            if(s!=null && OLDEST_FIRST.compare(s,closed)<=0)
+                segments.add(s);
+        }//for
+        Collections.sort(segments,OLDEST_FIRST);
+        for(int i=0;i<segments.size()-maxSegments;i++){
+            File oldest = segments.get(i).file;
+            if(!oldest.delete())
+                Log.e(TAG, "Error deleting the file " + oldest.getAbsolutePath());
+        }//for
+    }//applyRetention
+
+    /**
+     * @param segmentName pattern of the segment names of a log
+     * @param file file to check
+     * @return segment information, null if the file is not a segment of the log
+     */
+    private static @Nullable SegmentFile parseSegment(Pattern segmentName, File file){
+        Matcher matcher = segmentName.matcher(file.getName());
+        if(!matcher.matches())
+            return null;
+        try {
+            return new SegmentFile(file, matcher.group(1), Long.parseLong(matcher.group(2)));
+        }catch (NumberFormatException e){
+            return null;
+        }//try-catch
+    }//parseSegment
+
+    /**
+     * compress a file in a zip archive with the same name and the .zip extension, the original
+     * file is deleted
+     * @param file file to compress
+     * @return compressed file
+     * @throws IOException if the compression fails, in this case the original file is kept
+     */
+    static File compress(File file) throws IOException {
+        File zipFile = new File(file.getPath()+ZIP_EXTENSION);
+        InputStream in = new BufferedInputStream(new FileInputStream(file),BUFFER_SIZE);
+        try {
+            ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile));
+            try {
+                out.putNextEntry(new ZipEntry(file.getName()));
+                copy(in,out);
+                out.closeEntry();
+            }finally {
+                out.close();
+            }//try-finally
+        }catch (IOException e){
+            zipFile.delete();
+            throw e;
+        }finally {
+            in.close();
+        }//try-catch-finally
+        if(!file.delete())
+            Log.e(TAG, "Error deleting the file " + file.getAbsolutePath());
+        return zipFile;
+    }//compress
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte buffer[] = new byte[BUFFER_SIZE];
+        int n;
+        while((n=in.read(buffer))>0)
+            out.write(buffer,0,n);
+    }//copy
+
+    /**
+     * stop the thread without waiting it, the segments already closed are archived
+     * @param onArchived task run by the archiver thread after the last segment, can be null
+     */
+    void close(@Nullable Runnable onArchived){
+        if(onArchived!=null)
+            mExecutor.execute(onArchived);
+        mExecutor.shutdown();
+    }//close
+
+    /**
+     * wait that the segments closed until now are archived, the thread keeps running. This
+     * method must not be called by the ui thread
+     */
+    void waitArchived(){
+        try {
+            mExecutor.submit(new Runnable() {
+                @Override
+                public void run() { }
+            }).get();
+        } catch (RejectedExecutionException e) {
+            //closed archiver: the segments are archived before the thread stops
+        } catch (ExecutionException e) {
+            Log.e(TAG,"Error waiting the archiver: "+e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }//try-catch
+    }//waitArchived
+
+}
@@ -27,9 +27,18 @@
 package com.st.BlueSTSDK;
 
 import android.Manifest;
+import android.annotation.TargetApi;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.os.Build;
 import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RequiresPermission;
 import android.support.annotation.WorkerThread;
@@ -41,11 +50,15 @@ import com.st.BlueSTSDK.Utils.BtAdapterNotFound;
 import com.st.BlueSTSDK.Utils.InvalidBleAdvertiseFormat;
 import com.st.BlueSTSDK.Utils.InvalidFeatureBitMaskException;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -71,6 +84,19 @@ public class Manager {
      */
     static final Map<Byte, SparseArray<Class<? extends Feature>>> sFeatureMapDecoder =
             new HashMap<>();
+
+    /**
+     * map the device byte with the featureMask/factory array, it has the same keys of
+     * {@link #sFeatureMapDecoder}
+     */
+    static final Map<Byte, SparseArray<FeatureFactory>> sFeatureFactoryMap = new HashMap<>();
+
+    /**
+     * factory that use the class constructor, we build only one factory for each class
+     */
+    private static final Map<Class<? extends Feature>, FeatureFactory> sClassFactory =
+            new ConcurrentHashMap<>();
+
     static{
         sFeatureMapDecoder.put((byte) 0x00, BLENodeDefines.FeatureCharacteristics.genericDeviceFeatures);
         sFeatureMapDecoder.put((byte) 0x01, BLENodeDefines.FeatureCharacteristics.STEVAL_WESU1_DeviceFeatures);
@@ -81,6 +107,15 @@ public class Manager {
         sFeatureMapDecoder.put((byte) 0x80, BLENodeDefines.FeatureCharacteristics.Nucleo_Generic_Features);
         sFeatureMapDecoder.put((byte) 0x81, BLENodeDefines.FeatureCharacteristics
                 .Nucleo_Remote_Features);
+        for(Map.Entry<Byte, SparseArray<Class<? extends Feature>>> entry :
+                sFeatureMapDecoder.entrySet()){
+            SparseArray<Class<? extends Feature>> features = entry.getValue();
+            SparseArray<FeatureFactory> factories = new SparseArray<>(features.size());
+            for(int i=0;i<features.size();i++){
+                factories.append(features.keyAt(i),getFactoryForClass(features.valueAt(i)));
+            }//for
+            sFeatureFactoryMap.put(entry.getKey(),factories);
+        }//for
     }
 
 
@@ -104,6 +139,28 @@ public class Manager {
      */
     final private ArrayList<Node> mDiscoverNode = new ArrayList<>();
 
+    /**
+     * index of the discovered nodes by tag (ble address), it contains the same nodes of
+     * {@link #mDiscoverNode} and it is used for find the node of each advertise without lock
+     */
+    final private ConcurrentHashMap<String,Node> mNodeIndex = new ConcurrentHashMap<>();
+
+    /**
+     * max number of rejected advertise to remember
+     */
+    private static final int MAX_INVALID_ADVERTISE = 1024;
+
+    /**
+     * last advertise of the devices that are not compatible with the sdk, used for avoid to
+     * parse it again
+     */
+    final private ConcurrentHashMap<String,byte[]> mInvalidAdvertise = new ConcurrentHashMap<>();
+
+    /**
+     * callback of the BluetoothLeScanner, not null when the discovery uses it
+     */
+    private ScanCallback mLeScannerCallback;
+
     /**
      * object to use for notify the events
      */
@@ -167,29 +224,81 @@ public class Manager {
          */
         @Override
         public void onLeScan(final BluetoothDevice device, int rssi, byte[] advertisedData) {
-            final String deviceAddr = device.getAddress();
-            synchronized (mDiscoverNode) {
-                for (Node node : mDiscoverNode) {
-                    if (node.getTag().equals(deviceAddr)) {
-                        //we already add this node, we set that it is alive with a new rssi
-                        node.isAlive(rssi);
-                        node.upDateAdvertising(advertisedData);
-                        return;
-                    }//if
-                }//for
-            }//synchronized
-            //else we found a new node
-            try {
-                final Node newNode = new Node(device, rssi, advertisedData);
-                newNode.addNodeStateListener(mDebugNodeStatus);
-                addNode(newNode);
-            } catch (InvalidBleAdvertiseFormat e) {
-                //if the node is invalid we didn't insert it
-            }
+            onAdvertiseReceived(device,rssi,advertisedData);
         }//onLeScan
 
     };//LeScanCallback
 
+    /**
+     * class that receive the results of the BluetoothLeScanner, also in batch mode
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private class LeScannerCallback extends ScanCallback{
+
+        private void onScanResult(ScanResult result){
+            ScanRecord record = result.getScanRecord();
+            if(record==null)
+                return;
+            onAdvertiseReceived(result.getDevice(),result.getRssi(),record.getBytes());
+        }//onScanResult
+
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            onScanResult(result);
+        }//onScanResult
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            for(ScanResult result : results)
+                onScanResult(result);
+        }//onBatchScanResults
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.e("Manager","Scan failed, error: "+errorCode);
+            if(mLeScannerCallback==this)
+                stopDiscovery();
+        }//onScanFailed
+    }//LeScannerCallback
+
+    /**
+     * call when an advertise package is received,
+     * <p>it will notify a new node only the first time that the advertise is received,
+     * and only for the nodes with a compatible advertise message.
+     * if device is already build we update its the rssi value.
+     * </p>
+     * @param device Android remote ble device
+     * @param rssi signal power
+     * @param advertisedData device advertise package
+     */
+    private void onAdvertiseReceived(BluetoothDevice device, int rssi, byte[] advertisedData){
+        final String deviceAddr = device.getAddress();
+        Node node = mNodeIndex.get(deviceAddr);
+        if(node!=null){
+            //we already add this node, we set that it is alive with a new rssi
+            node.isAlive(rssi);
+            node.upDateAdvertising(advertisedData);
+            return;
+        }//if
+
+        //same advertise of a device that we already discard
+        if(Arrays.equals(mInvalidAdvertise.get(deviceAddr),advertisedData))
+            return;
+
+        //else we found a new node
+        try {
+            final Node newNode = new Node(device, rssi, advertisedData);
+            newNode.addNodeStateListener(mDebugNodeStatus);
+            addNode(newNode);
+            mInvalidAdvertise.remove(deviceAddr);
+        } catch (InvalidBleAdvertiseFormat e) {
+            //if the node is invalid we didn't insert it
+            if(mInvalidAdvertise.size()>=MAX_INVALID_ADVERTISE)
+                mInvalidAdvertise.clear();
+            mInvalidAdvertise.put(deviceAddr,advertisedData.clone());
+        }
+    }//onAdvertiseReceived
+
     /**
      * build the manager retrieving the system BluetoothAdapter.
      *
@@ -273,6 +382,71 @@ public class Manager {
         return false;
     }//startDiscovery
 
+    /**
+     * build the settings for a discovery that receive the advertise in batch, this reduce the
+     * cpu usage when there are a lot of devices in range
+     * @param reportDelayMs max time to wait before notify the collected advertise, if 0 or if
+     *                      the device doesn't support the batch every advertise is notified
+     *                      immediately
+     * @return settings to use in {@link #startDiscovery(int, ScanSettings, List)}
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public ScanSettings buildBatchScanSettings(long reportDelayMs){
+        ScanSettings.Builder settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_BALANCED);
+        if(mBtAdapter!=null && mBtAdapter.isOffloadedScanBatchingSupported())
+            settings.setReportDelay(reportDelayMs);
+        return settings.build();
+    }//buildBatchScanSettings
+
+    /**
+     * start a discovery process that use the BluetoothLeScanner, it will automatically stop after
+     * <code>timeoutMs</code> milliseconds
+     * @param timeoutMs time to wait before stop the discovery process, if negative the discovery
+     *                  doesn't stop
+     * @param settings scan settings, for example from {@link #buildBatchScanSettings(long)}
+     * @param filters filters that the advertise must match, can be null
+     * @return true if the process is started, false if a discovery is already running or if the
+     * scanner is not available
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @RequiresPermission(allOf = {
+            Manifest.permission.ACCESS_COARSE_LOCATION,
+            Manifest.permission.BLUETOOTH,
+            Manifest.permission.BLUETOOTH_ADMIN})
+    public boolean startDiscovery(int timeoutMs, @NonNull ScanSettings settings,
+                                  @Nullable List<ScanFilter> filters) {
+        if (mBtAdapter == null || !mBtAdapter.isEnabled() || mIsScanning)
+            return false;
+        BluetoothLeScanner scanner = mBtAdapter.getBluetoothLeScanner();
+        if(scanner==null)
+            return false;
+        mLeScannerCallback = new LeScannerCallback();
+        scanner.startScan(filters, settings, mLeScannerCallback);
+        notifyDiscoveryChange(true);
+
+        if (timeoutMs > 0) {
+            //stop scan after timeoutMs
+            mHandler.postDelayed(mStopScanning, timeoutMs);
+        }// if timeout
+        return true;
+    }//startDiscovery
+
+    /**
+     * stop the BluetoothLeScanner discovery
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void stopLeScanner(){
+        BluetoothLeScanner scanner = mBtAdapter.getBluetoothLeScanner();
+        //the scanner is null if the bluetooth is turned off, in this case the scan is already
+        //stopped
+        if(scanner!=null) {
+            scanner.flushPendingScanResults(mLeScannerCallback);
+            scanner.stopScan(mLeScannerCallback);
+        }//if
+        mLeScannerCallback=null;
+    }//stopLeScanner
+
 
     /**
      * Add a fake Node to the list
@@ -286,6 +460,44 @@ public class Manager {
         }//try-catch
     }//addVirtualNode
 
+    /**
+     * Add a fake Node that generate deterministic data at a specific rate, it can be used for
+     * test the data pipeline under load
+     * @param notificationRateHz number of sample per second generated by each feature
+     * @param seed seed used for generate the feature data
+     * @return the added node
+     * @throws IllegalArgumentException if the rate is not valid
+     * @see NodeEmulator#setNotificationRate(Class, float)
+     */
+    public NodeEmulator addVirtualNode(float notificationRateHz, long seed) {
+        try {
+            NodeEmulator node = new NodeEmulator(NodeEmulator.DEFAULT_EMULATED_FEATURE,seed);
+            node.setNotificationRate(notificationRateHz);
+            addNode(node);
+            return node;
+        }catch(InvalidBleAdvertiseFormat e){
+            //never throw from a NodeEmulator
+            return null;
+        }//try-catch
+    }//addVirtualNode
+
+    /**
+     * Add a set of fake Nodes that generate deterministic data at a specific rate
+     * @param nNodes number of node to add
+     * @param notificationRateHz number of sample per second generated by each feature
+     * @param seed seed used for generate the data, each node use a different seed derived from
+     *             this one
+     * @return the added nodes
+     * @throws IllegalArgumentException if the rate is not valid
+     */
+    public List<NodeEmulator> addVirtualNodes(int nNodes, float notificationRateHz, long seed) {
+        List<NodeEmulator> nodes = new ArrayList<>(nNodes);
+        for(int i=0;i<nNodes;i++){
+            nodes.add(addVirtualNode(notificationRateHz,seed+i));
+        }//for
+        return nodes;
+    }//addVirtualNodes
+
 
     /**
      * insert a node into this manager, the addition will be notify to all the listener
@@ -294,11 +506,8 @@ public class Manager {
      */
     public boolean addNode(final Node newNode){
         synchronized (mDiscoverNode) {
-            String newTag = newNode.getTag();
-            for(final Node n : mDiscoverNode){
-                if(newTag.equals(n.getTag()))
-                    return false;
-            }//for
+            if(mNodeIndex.putIfAbsent(newNode.getTag(),newNode)!=null)
+                return false;
             mDiscoverNode.add(newNode);
         }//synchronized
         notifyNewNodeDiscovered(newNode);
@@ -315,7 +524,10 @@ public class Manager {
             //remove the timeout
             mHandler.removeCallbacks(mStopScanning);
             //stop the scan
-            mBtAdapter.stopLeScan(mScanCallBack);
+            if(mLeScannerCallback!=null)
+                stopLeScanner();
+            else
+                mBtAdapter.stopLeScan(mScanCallBack);
             //notify to the user
             notifyDiscoveryChange(false);
             return true;
@@ -342,6 +554,8 @@ public class Manager {
                 }//if
             }//for
             mDiscoverNode.removeAll(removeMe);
+            for(Node n: removeMe)
+                mNodeIndex.remove(n.getTag());
         }//synchronized
     }//removeNodes
 
@@ -383,13 +597,9 @@ public class Manager {
      * @return the node with that tag or null if is not present on the list of the discovered node
      */
     public @Nullable Node getNodeWithTag(String tag) {
-        synchronized (mDiscoverNode) {
-            for (Node n : mDiscoverNode) {
-                if (n.getTag().equals(tag))
-                    return n;
-            }//for
-        } //synchronized
-        return null;
+        if(tag==null)
+            return null;
+        return mNodeIndex.get(tag);
     }//getNodeWithTag
 
     /**
@@ -451,6 +661,134 @@ public class Manager {
         void onNodeDiscovered(Manager m, Node node);
     }//ManagerListener
 
+    /**
+     * Object that build a feature for a node, it is used for avoid to search the feature
+     * constructor each time that a node needs its features
+     */
+    public interface FeatureFactory{
+
+        /**
+         * build a new feature
+         * @param node node that will export the feature
+         * @return the new feature or null if it is impossible build it
+         */
+        @Nullable Feature build(Node node);
+    }//FeatureFactory
+
+    /**
+     * factory that build the feature using the class constructor that has a node as parameter,
+     * the constructor is searched only one time.
+     * <p>The features of the core module have a constructor with a {@link FeatureNode}, the
+     * ones defined in the android module can have a constructor with a {@link Node}</p>
+     */
+    private static class ConstructorFeatureFactory implements FeatureFactory{
+
+        /** feature constructor, null if the class doesn't has a constructor with a node */
+        private final Constructor<? extends Feature> mConstructor;
+
+        ConstructorFeatureFactory(Class<? extends Feature> featureClass){
+            Constructor<? extends Feature> constructor;
+            try {
+                constructor = featureClass.getConstructor(Node.class);
+            } catch (NoSuchMethodException e) {
+                try {
+                    constructor = featureClass.getConstructor(FeatureNode.class);
+                } catch (NoSuchMethodException e1) {
+                    constructor = null;
+                }//try-catch
+            }//try-catch
+            mConstructor=constructor;
+        }
+
+        @Override
+        public @Nullable Feature build(Node node) {
+            if(mConstructor==null)
+                return null;
+            try {
+                return mConstructor.newInstance(node);
+            } catch (InvocationTargetException e) {
+                return null;
+            } catch (InstantiationException e) {
+                return null;
+            } catch (IllegalAccessException e) {
+                return null;
+            }//try-catch
+        }
+    }//ConstructorFeatureFactory
+
+    /**
+     * get the factory that build the feature using its class constructor
+     * @param featureClass feature to build
+     * @return factory that build object of type featureClass
+     */
+    static FeatureFactory getFactoryForClass(Class<? extends Feature> featureClass){
+        FeatureFactory factory = sClassFactory.get(featureClass);
+        if(factory==null){
+            factory = new ConstructorFeatureFactory(featureClass);
+            sClassFactory.put(featureClass,factory);
+        }//if
+        return factory;
+    }//getFactoryForClass
+
+    /**
+     * get the factory registered for a feature of a device
+     * @param deviceId device type
+     * @param featureMask feature bit
+     * @return the factory that build the feature or null if the feature is not registered
+     */
+    static @Nullable FeatureFactory getFeatureFactory(byte deviceId, int featureMask){
+        SparseArray<FeatureFactory> factories = sFeatureFactoryMap.get(deviceId);
+        if(factories!=null) {
+            FeatureFactory factory = factories.get(featureMask);
+            if (factory != null)
+                return factory;
+        }//if
+        //the class map can be changed without use addFeatureToNode
+        SparseArray<Class<? extends Feature>> decoder = sFeatureMapDecoder.get(deviceId);
+        if(decoder==null)
+            return null;
+        Class<? extends Feature> featureClass = decoder.get(featureMask);
+        if(featureClass==null)
+            return null;
+        return getFactoryForClass(featureClass);
+    }//getFeatureFactory
+
+    /**
+     * get the array where store the feature of a device, if the device is not present a new
+     * entry is created
+     * @param deviceId device type
+     * @return array where store the feature class for that device
+     */
+    private static SparseArray<Class<? extends Feature>> getOrCreateDeviceFeature(byte deviceId){
+        SparseArray<Class<? extends Feature>> features = sFeatureMapDecoder.get(deviceId);
+        if(features==null){
+            features = new SparseArray<>(32);
+            sFeatureMapDecoder.put(deviceId,features);
+        }//if
+        if(!sFeatureFactoryMap.containsKey(deviceId))
+            sFeatureFactoryMap.put(deviceId,new SparseArray<FeatureFactory>(32));
+        return features;
+    }//getOrCreateDeviceFeature
+
+    /**
+     * register a feature for a device id, the feature will be build using the factory
+     * <p>the change will affect only the node discover after this call</p>
+     * @param deviceId device type that will use the feature, it can be a new device id
+     * @param featureMask feature bit, it must have only one bit to 1
+     * @param featureClass class of the feature build by the factory
+     * @param factory object that build the feature
+     * @throws InvalidFeatureBitMaskException throw when the feature mask is not a power of 2
+     */
+    public static void addFeatureToNode(byte deviceId,int featureMask,
+                                        Class<? extends Feature> featureClass,
+                                        FeatureFactory factory)
+            throws InvalidFeatureBitMaskException {
+        if(featureMask==0 || (featureMask & (featureMask-1))!=0)
+            throw new InvalidFeatureBitMaskException("The feature mask must have a single bit");
+        getOrCreateDeviceFeature(deviceId).append(featureMask,featureClass);
+        sFeatureFactoryMap.get(deviceId).append(featureMask,factory);
+    }
+
     /**
      * register a new device id or add feature to an already defined device
      * <p>the change will affect only the node discover after this call</p>
@@ -462,13 +800,8 @@ public class Manager {
      */
     public static void addFeatureToNode(byte deviceId,SparseArray<Class<? extends Feature>> features)
             throws InvalidFeatureBitMaskException {
-        SparseArray<Class<? extends Feature>> updateMe;
-        if(!sFeatureMapDecoder.containsKey(deviceId)){
-            updateMe = new SparseArray<>(32);
-            sFeatureMapDecoder.put(deviceId,updateMe);
-        }else{
-            updateMe = sFeatureMapDecoder.get(deviceId);
-        }//if-else
+        SparseArray<Class<? extends Feature>> updateMe = getOrCreateDeviceFeature(deviceId);
+        SparseArray<FeatureFactory> updateFactory = sFeatureFactoryMap.get(deviceId);
 
         SparseArray<Class<? extends Feature>> addMe = features.clone();
 
@@ -478,6 +811,7 @@ public class Manager {
             Class<? extends Feature> featureClass = addMe.get((int)mask);
             if (featureClass != null) {
                 updateMe.append((int) mask, featureClass);
+                updateFactory.append((int) mask, getFactoryForClass(featureClass));
                 addMe.remove((int)mask);
             }
             mask=mask<<1;
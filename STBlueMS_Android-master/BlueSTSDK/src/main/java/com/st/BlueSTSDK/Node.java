@@ -29,14 +29,11 @@ package com.st.BlueSTSDK;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;
-import android.bluetooth.BluetoothGattService;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
@@ -46,27 +43,26 @@ import android.util.Log;
 import android.util.SparseArray;
 
 import com.st.BlueSTSDK.Features.FeatureGenPurpose;
+import com.st.BlueSTSDK.Transport.GattTransport;
+import com.st.BlueSTSDK.Transport.NodeTransport;
 import com.st.BlueSTSDK.Utils.BLENodeDefines;
 import com.st.BlueSTSDK.Utils.BleAdvertiseParser;
 import com.st.BlueSTSDK.Utils.InvalidBleAdvertiseFormat;
 import com.st.BlueSTSDK.Utils.NumberConversion;
+import com.st.BlueSTSDK.Utils.TimerWheel;
 import com.st.BlueSTSDK.Utils.UnwrapTimestamp;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /** Represent an object that can export some data (feature) using the ble connection
@@ -74,13 +70,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author STMicroelectronics - Central Labs.
  * @version 1.0
  * */
-public class Node{
+public class Node implements FeatureNode{
     private static final String TAG = Node.class.getCanonicalName();
     /**
      * wait this time before retry to send a command to the ble api
      */
     private static final long RETRY_COMMAND_DELAY_MS =300;
 
+    /** default ble mtu, used until a bigger one is negotiated */
+    public static final int DEFAULT_MTU = 23;
+
+    /** bytes of the mtu used by the att header of a write */
+    private static final int ATT_WRITE_HEADER_SIZE = 3;
+
 	/** Node type: type the board that is advertising connection */
     public enum Type {
         /** unknown board type */
@@ -117,6 +119,53 @@ public class Node{
         Dead
     }//State
 
+    /**
+     * Parameters to negotiate with the node after the connection, they are used only on
+     * android 5.0 or above
+     */
+    public static class ConnectionOption{
+
+        /** max mtu allowed by the ble specification */
+        public static final int MAX_MTU = 517;
+
+        /** keep the default mtu and the balanced connection interval */
+        public static final ConnectionOption DEFAULT = new ConnectionOption(DEFAULT_MTU,
+                BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+
+        /** ask the biggest mtu and a short connection interval, useful for big transfers */
+        public static final ConnectionOption HIGH_THROUGHPUT = new ConnectionOption(MAX_MTU,
+                BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+
+        private final int mMtu;
+        private final int mConnectionPriority;
+
+        /**
+         * @param mtu mtu to request, between {@link #DEFAULT_MTU} and {@link #MAX_MTU}
+         * @param connectionPriority one of the BluetoothGatt.CONNECTION_PRIORITY_* values
+         */
+        public ConnectionOption(int mtu, int connectionPriority){
+            if(mtu<DEFAULT_MTU || mtu>MAX_MTU)
+                throw new IllegalArgumentException("mtu must be between "+DEFAULT_MTU+" and "+
+                        MAX_MTU);
+            mMtu=mtu;
+            mConnectionPriority=connectionPriority;
+        }
+
+        /**
+         * @return mtu to request
+         */
+        public int getMtu(){
+            return mMtu;
+        }
+
+        /**
+         * @return connection priority to request
+         */
+        public int getConnectionPriority(){
+            return mConnectionPriority;
+        }
+    }//ConnectionOption
+
     /**
      * Interface used for notify change on the ble connection
      * @author STMicroelectronics - Central Labs.
@@ -157,14 +206,25 @@ public class Node{
     }//NodeStateListener
 
 
+    /**
+     * test if a characteristic of the current connection allows an operation
+     * @param characteristic characteristic to test
+     * @param property one of the NodeTransport.PROPERTY_* values
+     * @return true if the operation is allowed
+     */
+    private boolean charHasProperty(UUID characteristic, int property){
+        NodeTransport transport = mTransport;
+        return characteristic!=null && transport!=null &&
+                (transport.getCharacteristicProperties(characteristic) & property)!=0;
+    }//charHasProperty
+
     /**
      * test if a characteristics can be read
      * @param characteristic characteristic to read
      * @return true if we can read it
      */
-    private static boolean charCanBeRead(BluetoothGattCharacteristic characteristic){
-        return characteristic!=null &&
-                (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ )!=0;
+    private boolean charCanBeRead(UUID characteristic){
+        return charHasProperty(characteristic, NodeTransport.PROPERTY_READ);
     }//charCanBeRead
 
     /**
@@ -172,11 +232,9 @@ public class Node{
      * @param characteristic characteristic to write
      * @return true if we can write it
      */
-    private static boolean charCanBeWrite(BluetoothGattCharacteristic characteristic){
-        return characteristic!=null &&
-                (characteristic.getProperties() &
-                (BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE |
-                        BluetoothGattCharacteristic.PROPERTY_WRITE))!=0;
+    private boolean charCanBeWrite(UUID characteristic){
+        return charHasProperty(characteristic, NodeTransport.PROPERTY_WRITE_NO_RESPONSE |
+                NodeTransport.PROPERTY_WRITE);
     }//charCanBeWrite
 
     /**
@@ -185,115 +243,95 @@ public class Node{
      * @param characteristic characteristic to notify
      * @return true if we can receive notification from it
      */
-    private static boolean charCanBeNotify(BluetoothGattCharacteristic characteristic){
-        return characteristic!=null &&
-                (characteristic.getProperties() &
-                        (BluetoothGattCharacteristic.PROPERTY_NOTIFY))!=0;
+    private boolean charCanBeNotify(UUID characteristic){
+        return charHasProperty(characteristic, NodeTransport.PROPERTY_NOTIFY);
     }//charCanBeNotify
 
+    /**
+     * the writes are done without response when the characteristic allows it, as the default
+     * write type of the android characteristics
+     * @param characteristic characteristic to write
+     * @return true if the write must wait the node response
+     */
+    private boolean writeWithResponse(UUID characteristic){
+        return !charHasProperty(characteristic, NodeTransport.PROPERTY_WRITE_NO_RESPONSE);
+    }//writeWithResponse
+
 
     /**
      * check if the node is doing the pairing and set the mNodeWillPair variable
      * @return true if the node is doing the bonding, false otherwise
      */
     private boolean isPairing(){
-        return mDevice.getBondState()==BluetoothDevice.BOND_BONDING;
+        return mDevice!=null && mDevice.getBondState()==BluetoothDevice.BOND_BONDING;
     }
 
-    /** callback method to use when we send ble commands */
-    private class GattNodeConnection extends BluetoothGattCallback {
+    /** callback method to use when we send commands through the transport */
+    private class NodeConnection implements NodeTransport.Callback {
 
         private UnwrapTimestamp mUnwrapTimestamp = new UnwrapTimestamp();
 
         /**
-         * if we are connecting it start to scan the device service/characteristics otherwise it
-         * change the node status to idle or unreachable.
-         * if there is an error the node status go to dead
-         * @param gatt connection with the device
-         * @param status command status
-         * @param newState new node status
+         * if we are connecting it start to scan the device characteristics otherwise it
+         * change the node status to idle, unreachable or dead if the connection can not be
+         * opened
+         * @param transport connection with the device
+         * @param connected true if the connection is open
          */
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState){
-            Log.d(TAG,"Node: "+Node.this.getName()+" Status: "+status+" newState: " +
-                    ""+newState+" boundState:"+mDevice.getBondState());
-            if(status==BluetoothGatt.GATT_SUCCESS){
-                if(newState==BluetoothGatt.STATE_CONNECTED){
-                    if(!isPairing()) { //if it is pairing we do it when it finish
-                        //wait a bit for see if we will do the secure pairing or not,
-                        //if the device will be in pair status the scan is aborted and will be
-                        //done when the pairing will be completed
-                        mBleThread.postDelayed(mScanServicesTask, RETRY_COMMAND_DELAY_MS);
-                    }//if !pairing
-                }else if (newState == BluetoothGatt.STATE_DISCONNECTED){
-                    if(mConnection!=null) {
-                        mConnection.close();
-                        cleanConnectionData();
-                    }//if
-                    if (mUserAskToDisconnect){
-                        //disconnect completed
-                        Node.this.updateNodeStatus(State.Idle);
-                    }else{
-                        //we disconnect but the user didn't ask it
-                        Node.this.updateNodeStatus(State.Unreachable);
-                    }//if else
-                }//if-else
-            }else{
-                Node.this.updateNodeStatus(State.Dead);
-                if(mConnection!=null) {
-                    mConnection.close();
-                    cleanConnectionData();
-                }//if
-            }//if status
-        }//onConnectionStateChange
+        public void onConnectionChange(NodeTransport transport, boolean connected){
+            Log.d(TAG,"Node: "+Node.this.getName()+" connected: "+connected);
+            if(connected){
+                if(!isPairing()) { //if it is pairing we do it when it finish
+                    //wait a bit for see if we will do the secure pairing or not,
+                    //if the device will be in pair status the scan is aborted and will be
+                    //done when the pairing will be completed
+                    mBleThread.postDelayed(mScanServicesTask, RETRY_COMMAND_DELAY_MS);
+                }//if !pairing
+                return;
+            }//if
 
+            //the connection data are already free, it is an old connection
+            if(transport!=mTransport)
+                return;
+            cleanConnectionData();
+            if (mUserAskToDisconnect){
+                //disconnect completed
+                Node.this.updateNodeStatus(State.Idle);
+            }else if(mState==State.Connecting){
+                //the connection can not be opened
+                Node.this.updateNodeStatus(State.Dead);
+            }else{
+                //we disconnect but the user didn't ask it
+                Node.this.updateNodeStatus(State.Unreachable);
+            }//if else
+        }//onConnectionChange
 
         /**
-         * update the node rssi information
-         * @param gatt connection
-         * @param rssi rssi with the device
-         * @param status true if the read is successfully
+         * store the new mtu, it can be changed by our request or by the node
+         * @param transport connection
+         * @param mtu new mtu
+         * @param success true if the mtu exchange is successfully
          */
         @Override
-        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status){
-            if(status == BluetoothGatt.GATT_SUCCESS){
-                Node.this.updateRssi(rssi);
+        public void onMtuChange(NodeTransport transport, int mtu, boolean success) {
+            if(success){
+                Log.d(TAG,"Node: "+Node.this.getName()+" mtu: "+mtu);
+                mMtu=mtu;
             }else{
-                Log.e(TAG, "Impossible retrieve the rssi value");
+                Log.e(TAG, "Impossible change the mtu");
             }//if-else
-        }//onReadRemoteRssi
+            mGattOps.onComplete(MTU_REQUEST_TARGET,success);
+        }//onMtuChange
 
-        /**
-         * if present we build the debug service for be able to send/receive the debug information
-         * @param debugService debug service
-         * @return object that we can use for communicate with the debug console,
-         * can be null if we didn't find all the needed characteristics
-         */
-        private Debug buildDebugService(BluetoothGattService debugService){
-            List<BluetoothGattCharacteristic> charList = debugService.getCharacteristics();
-            BluetoothGattCharacteristic term=null,err=null;
-            //search the term and err characteristics
-            for(BluetoothGattCharacteristic temp : charList){
-                if(temp.getUuid().equals(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID))
-                    term=temp;
-                else if(temp.getUuid().equals(BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID))
-                    err=temp;
-            }//for
-            //if both are present we build the object
-            if(term!=null && err!=null)
-                return new Debug(Node.this,term,err);
-            else
-                return null;
-        }//buildDebugService
-
-        private void buildKnowUuid(BluetoothGattCharacteristic characteristic,
+        private void buildKnowUuid(UUID characteristic,
                                     List<Class<? extends Feature>> featureList){
             List<Feature> temp = new ArrayList<>();
             for(Class<? extends Feature> feature : featureList){
                 Feature f = buildFeatureFromClass(feature);
                 if(f!=null) {
                     f.setEnable(true);
-                    mAvailableFeature.add(f);
+                    getAvailableFeatures().add(f);
                     temp.add(f);
                 }
             }
@@ -306,29 +344,13 @@ public class Node{
          * build and add the exported features from a ble characteristics
          * @param characteristic characteristics that is handle by the sdk
          */
-        private void buildFeature(BluetoothGattCharacteristic characteristic){
+        private void buildFeature(UUID characteristic){
 
             //extract the part of the uuid that contains the feature inside this
             // characteristics
             int featureMask = BLENodeDefines.FeatureCharacteristics.extractFeatureMask
-                    (characteristic.getUuid());
-            List<Feature> temp = new ArrayList<>();
-
-            //we do the search in reverse order for have the feature in he correct order in case
-            //of characteristics that export multiple feature
-
-            long mask= 1L<<31; //1<<31
-            //we test all the 32bit of the feature mask
-            for(int i=0; i<32; i++ ) {
-                if ((featureMask & mask) != 0) { //if the bit is up
-                    Feature f =mMaskToFeature.get((int)mask);
-                    if (f != null) {
-                        f.setEnable(true);
-                        temp.add(f);
-                    }//if
-                }//if
-                mask = mask>>1;
-            }//for
+                    (characteristic);
+            List<Feature> temp = getFeaturesForMask(featureMask);
 
             //if it is a valid characteristics, we add it on the map
             if(temp.size()!=0){
@@ -340,19 +362,19 @@ public class Node{
          * build a generic feature from a compatible characteristics
          * @param characteristic characteristics that export the data
          */
-        private void buildGenericFeature(BluetoothGattCharacteristic characteristic){
+        private void buildGenericFeature(UUID characteristic){
             Feature f= null;
-            for (Feature fs:mAvailableFeature ) {
+            List<Feature> availableFeature = getAvailableFeatures();
+            for (Feature fs:availableFeature ) {
                 if (fs  instanceof FeatureGenPurpose){
-                    if(((FeatureGenPurpose)fs).getFeatureChar().getUuid().toString()
-                            .compareToIgnoreCase(characteristic.getUuid().toString()) == 0)
+                    if(((FeatureGenPurpose)fs).getFeatureChar().equals(characteristic))
                             f = fs;
                 }
             }
             if ( f == null) {
                 f = new FeatureGenPurpose(Node.this, characteristic);
                 f.setEnable(true);
-                mAvailableFeature.add(f);
+                availableFeature.add(f);
             }
             List<Feature> temp = new ArrayList<>(1);
             temp.add(f);
@@ -360,20 +382,16 @@ public class Node{
         }//buildGenericFeature
 
         /**
-         * scan all the service searching for know characteristics + enable the found feature
-         * @param gatt connection with the device
-         * @param status operation result
+         * scan all the characteristics searching for know characteristics + enable the found
+         * feature
+         * @param transport connection with the device
+         * @param characteristics characteristics exported by the node, empty if the discovery
+         *                        fails
          */
         @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status){
-            Log.d(TAG,"onServicesDiscovered status:"+status+" boundState:" + mDevice.getBondState());
-
-
-            if(status == BluetoothGatt.GATT_FAILURE) {
-                Node.this.updateNodeStatus(State.Dead);
-                mNScanRequest.decrementAndGet();
-                return;
-            }//if
+        public void onCharacteristicsDiscovered(NodeTransport transport,
+                                                List<UUID> characteristics){
+            Log.d(TAG,"onCharacteristicsDiscovered nChar:"+characteristics.size());
 
             //we are pairing -> avoid to do the scanning and wait to be paired
             if(isPairing()){
@@ -388,144 +406,167 @@ public class Node{
                 return;
             }//if
 
-            //List<BluetoothGattService> knowServices = filterKnowServices(gatt.getServices());
-            List<BluetoothGattService> nodeServices = gatt.getServices();
-            if(nodeServices.size()==0) { // the list is empty -> exit
+            if(characteristics.isEmpty()) { // the list is empty -> exit
                 Node.this.updateNodeStatus(State.Dead);
                 mNScanRequest.decrementAndGet();
                 return;
             }//if
 
             mCharFeatureMap.clear();
-            for(BluetoothGattService service : nodeServices){
-                //check if it is a specific service
-                if(service.getUuid().equals(BLENodeDefines.Services.Debug.DEBUG_SERVICE_UUID))
-                    mDebugConsole = buildDebugService(service);
-                else if(service.getUuid().equals(BLENodeDefines.Services.Config.CONFIG_CONTROL_SERVICE_UUID)) {
-                    List<BluetoothGattCharacteristic> controlChar = service.getCharacteristics();
-                    //check for the initialization characteristics
-                    for(BluetoothGattCharacteristic characteristic : controlChar) {
-                        if (characteristic.getUuid().equals(BLENodeDefines.Services.Config.FEATURE_COMMAND_UUID))
-                            mFeatureCommand = characteristic;
-                        if (characteristic.getUuid().equals(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID))
-                            mConfigControl = new ConfigControl(Node.this, characteristic,mConnection);
-                    }//for
-                }else {//otherwise will contains feature characteristics
-
-                    for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
-                        UUID uuid = characteristic.getUuid();
-                        if (BLENodeDefines.FeatureCharacteristics.isFeatureCharacteristics(uuid))
-                            buildFeature(characteristic);
-                        else if (BLENodeDefines.FeatureCharacteristics
-                                .isGeneralPurposeCharacteristics(uuid)) {
-                            buildGenericFeature(characteristic);
-                        }else if(mExternalCharFeatures!=null &&
-                                mExternalCharFeatures.containsKey(uuid))
-                            buildKnowUuid(characteristic,mExternalCharFeatures.get(uuid));
-                    }//for
-
-                }//if-else-if-else
-            }//for each service
+            boolean hasDebugTerm=false, hasDebugErr=false;
+            for(UUID uuid : characteristics){
+                //check if it is a specific characteristic
+                if(uuid.equals(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID))
+                    hasDebugTerm=true;
+                else if(uuid.equals(BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID))
+                    hasDebugErr=true;
+                else if (uuid.equals(BLENodeDefines.Services.Config.FEATURE_COMMAND_UUID))
+                    mFeatureCommand = uuid;
+                else if (uuid.equals(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID))
+                    mConfigControl = new ConfigControl(Node.this, uuid);
+                //otherwise it can be a feature characteristics
+                else if (BLENodeDefines.FeatureCharacteristics.isFeatureCharacteristics(uuid))
+                    buildFeature(uuid);
+                else if (BLENodeDefines.FeatureCharacteristics
+                        .isGeneralPurposeCharacteristics(uuid)) {
+                    buildGenericFeature(uuid);
+                }else if(mExternalCharFeatures!=null &&
+                        mExternalCharFeatures.containsKey(uuid))
+                    buildKnowUuid(uuid,mExternalCharFeatures.get(uuid));
+            }//for each characteristic
+
+            //if both are present we build the debug console
+            if(hasDebugTerm && hasDebugErr)
+                mDebugConsole = new Debug(Node.this,
+                        BLENodeDefines.Services.Debug.DEBUG_TERM_UUID,
+                        BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID);
+
+            mCharRouter = buildCharacteristicRouter();
+            negotiateConnectionOption(true);
 
            //move on the connected state only if all the discover services are finished
             if(mNScanRequest.decrementAndGet()==0)
                 Node.this.updateNodeStatus(State.Connected);
 
-        }//onServicesDiscovered
+        }//onCharacteristicsDiscovered
 
 
         /**
-         * we have to do a linear search into the hash map since the BluetoothGattCharacteristic
-         * keep in account the char values, and this can be different if are different
-         * characteristics with the same uuid, this happen when the node is bounded and not
-         * recreated afer a disconnection
-         * @param c characteristic to search
-         * @return list of feature send with this characteristics or null if it doesn't exist
+         * build the index used for find the object that handle a characteristic.
+         * @return index with the feature, command, config and debug characteristics
          */
-        List<Feature> getCorrespondingFeatures(BluetoothGattCharacteristic c) {
-            for (Map.Entry<BluetoothGattCharacteristic, List<Feature>> e : mCharFeatureMap.entrySet()) {
-                if(e.getKey().getUuid().equals(c.getUuid())){
-                    return e.getValue();
-                }//if
+        private CharacteristicRouter buildCharacteristicRouter(){
+            CharacteristicRouter router = new CharacteristicRouter();
+            for (Map.Entry<UUID, List<Feature>> e : mCharFeatureMap.entrySet()) {
+                router.add(e.getKey(), new FeatureCharHandler(e.getValue()));
             }//for
-            return null;
-        }//getCorrespondingFeatures
+            if(mFeatureCommand!=null)
+                router.add(mFeatureCommand,new CommandCharHandler());
+            final ConfigControl configControl = mConfigControl;
+            if(configControl!=null)
+                router.add(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID,
+                        new CharacteristicRouter.Handler() {
+                            @Override
+                            void onChanged(UUID characteristic, byte value[]) {
+                                configControl.characteristicsUpdate(value);
+                            }
+
+                            @Override
+                            void onRead(UUID characteristic, byte value[]) {
+                                configControl.characteristicsUpdate(value);
+                            }
+
+                            @Override
+                            void onWrite(UUID characteristic, byte value[], boolean success) {
+                                configControl.characteristicsWriteUpdate(value, success);
+                            }
+                        });
+            final Debug debugConsole = mDebugConsole;
+            if(debugConsole!=null){
+                CharacteristicRouter.Handler debugHandler = new CharacteristicRouter.Handler() {
+                    @Override
+                    void onChanged(UUID characteristic, byte value[]) {
+                        debugConsole.receiveCharacteristicsUpdate(characteristic, value);
+                    }
+
+                    @Override
+                    void onRead(UUID characteristic, byte value[]) {
+                        debugConsole.receiveCharacteristicsUpdate(characteristic, value);
+                    }
+
+                    @Override
+                    void onWrite(UUID characteristic, byte value[], boolean success) {
+                        debugConsole.receiveCharacteristicsWriteUpdate(characteristic, value,
+                                success);
+                    }
+                };
+                router.add(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID,debugHandler);
+                router.add(BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID,debugHandler);
+            }//if
+            return router;
+        }//buildCharacteristicRouter
 
         /**
-         * update all the feature inside this characteristic
-         * @param characteristic updated characteristic
-         * @return true if the characteristic is associated to some feature
+         * update the features exported by a characteristic when it is notified or read
          */
-        boolean updateFeature(BluetoothGattCharacteristic characteristic){
-            List<Feature> features = getCorrespondingFeatures(characteristic);
-            if(features!=null){
-                byte data[] = characteristic.getValue();
-                int timeStamp = NumberConversion.LittleEndian.bytesToUInt16(data);
-                long timeStampLong = mUnwrapTimestamp.unwrap(timeStamp);
-
-                int dataOffset =2;
-                for(Feature f: features){
-                    dataOffset += f.update(timeStampLong,data,dataOffset);
-                }//for features
-                return true;
-            }else
-                return false;
-            //if feature list != null
-        }
+        private class FeatureCharHandler extends CharacteristicRouter.Handler{
+
+            private final List<Feature> mFeatures;
+
+            FeatureCharHandler(List<Feature> features){
+                mFeatures = features;
+            }
+
+            @Override
+            void onChanged(UUID characteristic, byte value[]) {
+                updateFeatures(mUnwrapTimestamp,value,mFeatures);
+            }
+
+            @Override
+            void onRead(UUID characteristic, byte value[]) {
+                updateFeatures(mUnwrapTimestamp,value,mFeatures);
+            }
+        }//FeatureCharHandler
 
         /**
-         * send back to the feature the response of its command
-         * @param characteristic characteristics that contain the response data
+         * send the command response to the feature
          */
-        private void dispatchCommandResponseData(BluetoothGattCharacteristic characteristic){
-            byte data[] = characteristic.getValue();
-            if(data.length<7) //if we miss some data
-                return;
-            int timeStamps = NumberConversion.LittleEndian.bytesToUInt16(data);
-            int mask = NumberConversion.BigEndian.bytesToInt32(data,2);
-            byte reqType= data[6];
-            Feature f =mMaskToFeature.get(mask);
-            if(f!=null)
-                f.commandResponseReceived(timeStamps,reqType, Arrays.copyOfRange(data, 7,
-                        data.length));
-        }//dispatchCommandResponseData
+        private class CommandCharHandler extends CharacteristicRouter.Handler{
+            @Override
+            void onChanged(UUID characteristic, byte value[]) {
+                dispatchCommandResponseData(value);
+            }
+        }//CommandCharHandler
+
 
         /**
          * receive the notification change
-         * @param gatt connection with the device
+         * @param transport connection with the device
          * @param characteristic updated characteristic
+         * @param data new characteristic value
          */
         @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            //if it comes form the console service we send to it
-            if(mDebugConsole!=null &&
-                    BLENodeDefines.Services.Debug.isDebugCharacteristics(characteristic.getUuid()))
-                mDebugConsole.receiveCharacteristicsUpdate(characteristic);
-            else if(characteristic.equals(mFeatureCommand)) //if it is the commandCharacteristics
-                dispatchCommandResponseData(characteristic);
-            else if (mConfigControl != null && characteristic.getUuid().equals(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID))
-                mConfigControl.characteristicsUpdate(characteristic);
-            else //otherwise is a feature characteristics
-                updateFeature(characteristic);
+        public void onCharacteristicChanged(NodeTransport transport, UUID characteristic,
+                                            byte data[]) {
+            final NotificationRecorder recorder = mRecorder;
+            if(recorder!=null)
+                recorder.record(characteristic,data);
+            //debug, command, config and feature characteristics are all inside the router
+            mCharRouter.onChanged(characteristic,data);
         }//onCharacteristicChanged
 
         /**
          * receive the data after a reading
-         * @param gatt connection with the device
-         * @param characteristic characteristics that contain the response data
-         * @param status command status
+         * @param transport connection with the device
+         * @param characteristic characteristics read
+         * @param data read data, null if the read fails
          */
         @Override
-        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-//            Log.d(TAG,"Read Char: "+characteristic.getUuid().toString());
-            if(status == BluetoothGatt.GATT_SUCCESS) {
-                if (mDebugConsole != null &&
-                        BLENodeDefines.Services.Debug.isDebugCharacteristics(characteristic.getUuid()))
-                    mDebugConsole.receiveCharacteristicsUpdate(characteristic);
-                else if (mConfigControl != null && characteristic.getUuid().equals(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID))
-                    mConfigControl.characteristicsUpdate(characteristic);
-                else
-                    updateFeature(characteristic);
+        public void onCharacteristicRead(NodeTransport transport, UUID characteristic,
+                                         byte data[]) {
+            mGattOps.onComplete(characteristic,data!=null);
+            if(data!=null) {
+                mCharRouter.onRead(characteristic,data);
             }else{
                 if(!isPairing()) {
                     Log.e(TAG,"Error reading the characteristics: "+characteristic);
@@ -534,60 +575,61 @@ public class Node{
             }//if-else
         }
 
-
         @Override
-        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
-            //descriptor write -> remove from the queue
-            if(status == BluetoothGatt.GATT_SUCCESS)
-                dequeueWriteDesc(new WriteDescCommand(descriptor,descriptor.getValue()));
+        public void onNotificationChange(NodeTransport transport, UUID characteristic,
+                                         boolean success) {
+            //notification changed -> start the next operation
+            if(success)
+                mGattOps.onComplete(new NotificationTarget(characteristic));
             else{
                 if(!isPairing()) {
-                    Log.e(TAG,"onDescriptorWrite Error writing the descriptor: "+descriptor
-                            .getCharacteristic());
+                    Log.e(TAG,"onNotificationChange Error changing the notification: "+
+                            characteristic);
                     Node.this.updateNodeStatus(State.Dead);
                 }//if
             }//if-else
         }
 
+        /**
+         * the write result is sent to the router by the write operation, that knows the
+         * written data
+         */
         @Override
-        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            super.onCharacteristicWrite(gatt, characteristic, status);
-            //Log.d(TAG,"Characteristics Write "+status);
-            if (mDebugConsole != null &&
-                    BLENodeDefines.Services.Debug.isDebugCharacteristics(characteristic.getUuid()))
-                mDebugConsole.receiveCharacteristicsWriteUpdate(characteristic, status == BluetoothGatt.GATT_SUCCESS);
-            else if (mConfigControl != null && characteristic.getUuid().equals(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID))
-                mConfigControl.characteristicsWriteUpdate(characteristic, status == BluetoothGatt.GATT_SUCCESS);
-
-            WriteCharCommand writeOp = new WriteCharCommand(characteristic,characteristic.getValue());
-            dequeueCharacteristicsWrite(writeOp);
+        public void onCharacteristicWrite(NodeTransport transport, UUID characteristic,
+                                          boolean success) {
+            mGattOps.onComplete(characteristic, success);
         }
-    }//GattNodeConnection
+    }//NodeConnection
 
-    /** device associated with this node */
+    /** device associated with this node, null if the node uses a user transport */
     private BluetoothDevice mDevice;
-    /** gatt connection with the device */
-    private BluetoothGatt mConnection;
+    /** transport given by the user, if null a ble connection with mDevice is used */
+    private NodeTransport mUserTransport;
+    /** node tag when the node uses a user transport */
+    private String mTransportTag;
+    /** connection with the device */
+    private volatile NodeTransport mTransport;
     /** characteristics used for send command to a feature */
-    private BluetoothGattCharacteristic mFeatureCommand =null;
-    /** thread where we do all the ble commands */
+    private UUID mFeatureCommand =null;
+    /** thread where we do all the transport commands */
     private Handler mBleThread;
 
     /**
      * clear the data that are created during the connection
      */
     private void cleanConnectionData(){
-        mConnection=null;
-        mWriteDescQueue.clear();
-        mCharacteristicWriteQueue.clear();
+        mTransport=null;
+        mMtu=DEFAULT_MTU;
+        mGattOps.pause();
+        mGattOps.clear();
         mCharFeatureMap.clear();
+        mCharRouter = new CharacteristicRouter();
+        stopRssiPolling();
 
         //remove all the task queued for avoid to run an old task with a new
         //connection object
         mBleThread.removeCallbacks(mScanServicesTask);
         mBleThread.removeCallbacks(mUpdateRssiTask);
-        mBleThread.removeCallbacks(mWriteFeatureCommandTask);
-        mBleThread.removeCallbacks(mWriteDescriptorTask);
         mBleThread.removeCallbacks(mConnectionTask);
         mBleThread.removeCallbacks(mDisconnectTask);
 
@@ -605,21 +647,33 @@ public class Node{
     private Runnable mDisconnectTask = new Runnable() {
         @Override
         public void run() {
-            if(mState==State.Disconnecting) {
-                mConnection.disconnect();
-                //the data will be free in the onConnectionStateChange
+            NodeTransport transport = mTransport;
+            if(mState==State.Disconnecting && transport!=null) {
+                transport.disconnect();
+                //the data will be free in the onConnectionChange
             }// if
         } //run
     };
 
     /**
-     * task for ask an update rssi
+     * task for ask an update rssi, only the ble connection has the rssi
      */
     private Runnable mUpdateRssiTask = new Runnable() {
         @Override
         public void run() {
-            if(mConnection!=null)
-                mConnection.readRemoteRssi();
+            NodeTransport transport = mTransport;
+            if(transport instanceof GattTransport)
+                ((GattTransport) transport).readRemoteRssi();
+        }
+    };
+
+    /**
+     * store the rssi read by the ble connection
+     */
+    private final GattTransport.RssiListener mRssiListener = new GattTransport.RssiListener() {
+        @Override
+        public void onRssiRead(GattTransport transport, int rssi) {
+            Node.this.updateRssi(rssi);
         }
     };
 
@@ -633,20 +687,22 @@ public class Node{
     private AtomicInteger mNScanRequest = new AtomicInteger(0);
 
     /**
-     * task for ask to discover the device service, if the call fail this command will auto
-     * submit itself after {@code RETRY_COMMAND_DELAY_MS}
+     * task for ask to discover the device characteristics, if the call fail this command will
+     * auto submit itself after {@code RETRY_COMMAND_DELAY_MS}
      * if the device is doing a pairing the function will not run, reschedule it when the bonding
      * is complete
      */
     private Runnable mScanServicesTask = new Runnable() {
         @Override
         public void run() {
-            if (mConnection != null && !isPairing()){
-                if (mConnection.discoverServices()) {
-                    mNScanRequest.incrementAndGet();
-                }else
+            NodeTransport transport = mTransport;
+            if (transport != null && !isPairing()){
+                //the transport can answer before the call returns
+                mNScanRequest.incrementAndGet();
+                if (!transport.discoverCharacteristics()) {
+                    mNScanRequest.decrementAndGet();
                     mBleThread.postDelayed(this, RETRY_COMMAND_DELAY_MS);
-                //if-else
+                }//if
             }//if connection
         }//run
     };
@@ -666,47 +722,22 @@ public class Node{
      */
     private Context mContext;
 
-
-    private static final int MAX_REFRESH_DEVICE_CACHE_TRY=10;
-    /**
-     * invoke an hide method for clear the device cache, in this way we can have device with same
-     * name and mac that export different service/char in different connection (maybe because we
-     * are developing on it)
-     * @param gatt connection with the device
-     * @return tue il the call is invoke correctly
-     */
-    private static boolean refreshDeviceCache(BluetoothGatt gatt){
-        try {
-            Method localMethod = gatt.getClass().getMethod("refresh");
-            if (localMethod != null) {
-                boolean done =false;
-                int nTry =0;
-                while (!done && nTry<MAX_REFRESH_DEVICE_CACHE_TRY) {
-                    done=((Boolean) localMethod.invoke(gatt));
-                    nTry++;
-                }//while
-                Log.d(TAG, "Refreshing Device Cache: "+done);
-                return done;
-            }//if
-        } catch (Exception localException) {
-            Log.e(TAG, "An exception occurred while refreshing device cache.");
-        }//try-catch
-        return false;
-    }//refreshDeviceCache
-
     /**
      * task that open a connection with the remote device
      */
     private Runnable mConnectionTask = new Runnable() {
         @Override
         public void run() {
-            mConnection = mDevice.connectGatt(mContext,false,new GattNodeConnection());
-            if(mConnection==null){
+            boolean refreshCache = mIsFirstConnection && mResetCache;
+            NodeTransport transport = mUserTransport!=null ? mUserTransport :
+                    new GattTransport(mContext,mDevice,refreshCache,mRssiListener);
+            mTransport = transport;
+            if(!transport.connect(new NodeConnection())){
+                mTransport = null;
                 mBleThread.postDelayed(this, RETRY_COMMAND_DELAY_MS);
-            } else if(mIsFirstConnection && mResetCache) {
-                refreshDeviceCache(mConnection);
+            } else if(refreshCache) {
                 mIsFirstConnection=false;
-            }//
+            }//if-else
         }//run
     };
 
@@ -719,6 +750,12 @@ public class Node{
 
         @Override
         public void onStateChange(Node node, State newState, State prevState) {
+            //the gatt operations can run only when the node is connected, the notification
+            //are disabled also during the disconnection
+            if(newState == State.Connected)
+                mGattOps.resume();
+            else if(newState != State.Disconnecting)
+                mGattOps.pause();
             if(newState == State.Connected && mFeatureCommand !=null) {
                 changeNotificationStatus(mFeatureCommand,true);
             }//if
@@ -726,17 +763,13 @@ public class Node{
             if((prevState == State.Connecting || prevState== State.Connected ) && newState==State
                     .Dead){
                 Log.e(TAG,"Error connecting to the node:"+node.getName());
-                //we disconnect -> free the gatt resource and connect again
-                if(mConnection!=null){ mConnection.close();cleanConnectionData();}
+                //we disconnect -> free the connection resource and connect again
+                NodeTransport transport = mTransport;
+                if(transport!=null){ transport.disconnect();cleanConnectionData();}
                 //we stop the connection -> we have not notification enabled
                 mNotifyFeature.clear();
-                //remove the pending write request
-                synchronized (mWriteDescQueue) {
-                    mWriteDescQueue.clear();
-                }
-                synchronized (mCharacteristicWriteQueue) {
-                    mCharacteristicWriteQueue.clear();
-                }
+                //remove the pending gatt operations
+                mGattOps.clear();
             }
             if(newState==State.Dead  || newState==State.Disconnecting){
                 if(mBoundStateChange !=null) {
@@ -749,73 +782,148 @@ public class Node{
     };
 
     /**
-     * Helper class that contains the characteristic and the data that we have write on it
+     * gatt operation that write some data in a characteristic, the result is sent to the
+     * characteristic handler
      */
-    private class WriteCharCommand {
-        public BluetoothGattCharacteristic characteristic;
-        public byte data[];
+    private class WriteCharOperation extends GattOperationScheduler.Operation{
+        private final UUID mChar;
+        private final byte mData[];
 
-        WriteCharCommand(BluetoothGattCharacteristic c, byte d[]){
-            characteristic=c;
-            data=d;
+        WriteCharOperation(GattOperationScheduler.Priority priority, UUID c, byte d[]){
+            super(priority);
+            mChar=c;
+            mData=d;
         }
 
         @Override
-        public boolean equals(Object o) {
-            if(!(o instanceof WriteCharCommand))
-                return false;
-            WriteCharCommand other =(WriteCharCommand)o;
-            return characteristic.getUuid().equals(other.characteristic.getUuid()) &&
-                    Arrays.equals(data,other.data);
-        }//equals
-    }//WriteCharCommand
+        boolean start() {
+            NodeTransport transport = mTransport;
+            return transport!=null && !isPairing() &&
+                    transport.writeCharacteristic(mChar,mData,writeWithResponse(mChar));
+        }//start
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return mChar.equals(target);
+        }//isCompletedBy
+
+        @Override
+        void onCompleted(boolean success) {
+            mCharRouter.onWrite(mChar,mData,success);
+        }//onCompleted
+    }//WriteCharOperation
 
     /**
-     * helper class that contains the descriptor and the data that we have to write on it
+     * gatt operation that read a characteristic
      */
-    private class WriteDescCommand{
-        public BluetoothGattDescriptor desc;
-        public byte data[];
+    private class ReadCharOperation extends GattOperationScheduler.Operation{
+        private final UUID mChar;
 
-        WriteDescCommand(BluetoothGattDescriptor desc ,byte data[]){
-            this.desc=desc;
-            this.data=data;
+        ReadCharOperation(UUID c){
+            super(GattOperationScheduler.Priority.FEATURE);
+            mChar=c;
         }
 
         @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof WriteDescCommand))
-                return false;
-            WriteDescCommand other = (WriteDescCommand) o;
-            boolean dataEqual;
-            //if the other data is null we keep it as equal
-            /**
-             * in the samsung device sometime the onDescriptorWrite callback as a descriptor with
-             * null data.. so the descriptor is not dequeue
-             */
-            dataEqual = other.data == null || data==null || Arrays.equals(data, other.data);
-
-            //compare the desc uuid and the char uuid
-            return desc.getUuid().equals(other.desc.getUuid()) &&
-                    desc.getCharacteristic().getUuid().equals(
-                            other.desc.getCharacteristic().getUuid()) &&
-                    dataEqual;
-        }//equals
-    }
+        boolean start() {
+            NodeTransport transport = mTransport;
+            return transport != null && !isPairing() && transport.readCharacteristic(mChar);
+        }//start
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return mChar.equals(target);
+        }//isCompletedBy
+    }//ReadCharOperation
 
     /**
-     * we have to serialize the descriptor write, -> create a queue
-     * + use the enqueueWriteDesc/dequeueWriteDesc for insert element on it
+     * object used for match the notification change callback with the request, it is different
+     * from the uuid used by the read and the write of the same characteristic
      */
-    final private Queue<WriteDescCommand> mWriteDescQueue = new LinkedList<>();
+    private static class NotificationTarget{
+        private final UUID mChar;
 
-    /** we have to serialize also the write in the characteristic for avoid to lost
-     * some message you have to use enqueueWriteChar for add element to this queue
+        NotificationTarget(UUID c){
+            mChar=c;
+        }
+    }//NotificationTarget
+
+    /**
+     * gatt operation that enable/disable the notification of a characteristic
      */
-    final private Queue<WriteCharCommand> mCharacteristicWriteQueue = new LinkedList<>();
+    private class NotificationOperation extends GattOperationScheduler.Operation{
+        private final UUID mChar;
+        private final boolean mEnable;
+
+        NotificationOperation(UUID c, boolean enable){
+            super(GattOperationScheduler.Priority.NOTIFICATION);
+            mChar=c;
+            mEnable=enable;
+        }
+
+        @Override
+        boolean start() {
+            NodeTransport transport = mTransport;
+            return transport!=null && !isPairing() &&
+                    transport.setCharacteristicNotification(mChar,mEnable);
+        }//start
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return target instanceof NotificationTarget &&
+                    mChar.equals(((NotificationTarget) target).mChar);
+        }//isCompletedBy
+    }//NotificationOperation
+
+    /** object used for match the mtu change callback with the mtu request */
+    private static final Object MTU_REQUEST_TARGET = new Object();
+
+    /** number of times that the stack can refuse the mtu request before we give up */
+    private static final int MAX_MTU_REQUEST_ATTEMPTS = 5;
+
+    /**
+     * gatt operation that ask a new mtu, it is dropped if the stack refuses it
+     * {@link #MAX_MTU_REQUEST_ATTEMPTS} times, the connection continues with the current mtu
+     */
+    private class RequestMtuOperation extends GattOperationScheduler.Operation{
+        private final int mRequestMtu;
+        private int mNRefused;
+
+        RequestMtuOperation(int mtu){
+            super(GattOperationScheduler.Priority.NOTIFICATION);
+            mRequestMtu=mtu;
+        }
+
+        @Override
+        boolean start() {
+            NodeTransport transport = mTransport;
+            return transport != null && !isPairing() && transport.requestMtu(mRequestMtu);
+        }//start
+
+        @Override
+        void onStartRefused() {
+            mNRefused++;
+            if(mNRefused==MAX_MTU_REQUEST_ATTEMPTS)
+                Log.e(TAG,"Node: "+Node.this.getName()+" mtu request refused, keep mtu: "+mMtu);
+        }//onStartRefused
+
+        @Override
+        boolean isCanceled() {
+            return mNRefused>=MAX_MTU_REQUEST_ATTEMPTS || mTransport==null;
+        }//isCanceled
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return target == MTU_REQUEST_TARGET;
+        }//isCompletedBy
+    }//RequestMtuOperation
 
     /** node state */
     private State mState = State.Init;
+    /** mtu of the current connection */
+    private volatile int mMtu = DEFAULT_MTU;
+    /** parameters to negotiate after the connection */
+    private ConnectionOption mConnectionOption = ConnectionOption.DEFAULT;
     /** last node rssi */
     private int mRssi;
     /** last time that we update the rssi */
@@ -832,15 +940,32 @@ public class Node{
     /** class that contains the advertise information */
     private BleAdvertiseParser mAdvertise;
 
-    /** list of all the feature that are available in the advertise */
-    private ArrayList<Feature> mAvailableFeature;
+    /**
+     * raw data of the last parsed advertise, used for avoid to parse again the same advertise
+     */
+    private byte[] mLastAdvertiseData;
+
+    /**
+     * object where store the raw notifications, null if the node is not recording
+     */
+    private volatile NotificationRecorder mRecorder;
+
+    /** list of all the feature that are available in the advertise, it is build the first time
+     * that it is needed, see {@link #getAvailableFeatures()} */
+    private volatile ArrayList<Feature> mAvailableFeature;
     /** map that join the build feature with the bitmask that tell us that the feature is present*/
-    private Map<Integer,Feature> mMaskToFeature;
+    private volatile Map<Integer,Feature> mMaskToFeature;
     private Map<UUID,List<Class< ? extends Feature>>> mExternalCharFeatures;
     /**
      * map that tell us whit feature we can update when we receive an update from a characteristics
      */
-    private Map<BluetoothGattCharacteristic,List<Feature>> mCharFeatureMap= new HashMap<>();
+    private Map<UUID,List<Feature>> mCharFeatureMap= new HashMap<>();
+
+    /**
+     * index used by the gatt callback for find who handle a characteristic, it is rebuilt each
+     * time that the services are discovered
+     */
+    private volatile CharacteristicRouter mCharRouter = new CharacteristicRouter();
 
     /** set that contains the features that are in notify*/
     final private Set<Feature> mNotifyFeature=new HashSet<>();
@@ -859,10 +984,23 @@ public class Node{
 
     /** ms to wait before declare a node as lost */
     private static long NODE_LOST_TIMEOUT_MS=4000;
-    /** thread where wait the timeout */
-    private Handler mHandler;  //NOTE: since the handler is crate in a thread,
-    // is better check that the class is not null in the case we try to use it before the thread
-    // got exec
+    /**
+     * scheduler shared by all the nodes, used for the timeouts, the retries and for run the
+     * tasks that have to wait the ble operations */
+    private final TimerWheel mScheduler = TimerWheel.getSharedInstance();
+
+    /**
+     * serialize the descriptor writes, the characteristic writes and the reads, the operations
+     * are started in the ble thread
+     */
+    private final GattOperationScheduler mGattOps = new GattOperationScheduler(new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            Handler bleThread = mBleThread;
+            if(bleThread!=null)
+                bleThread.post(command);
+        }//execute
+    },mScheduler);
     /** task to run when the timeout expire, it will set the node status as lost */
     private Runnable mSetNodeLost = new Runnable() {
         @Override
@@ -907,68 +1045,148 @@ public class Node{
      * parameter
      */
     protected @Nullable <T extends Feature> T buildFeatureFromClass(Class<T> featureClass){
-        try {
-            Constructor<T> constructor = featureClass.getConstructor(Node.class);
-            return constructor.newInstance(this);
-        } catch (NoSuchMethodException e) {
-            return null;
-        } catch (InvocationTargetException e) {
-            return null;
-        } catch (InstantiationException e) {
-            return null;
-        } catch (IllegalAccessException e) {
-            return null;
-        }//try-catch
+        //the factory build an object of class featureClass
+        @SuppressWarnings("unchecked")
+        T feature = (T) Manager.getFactoryForClass(featureClass).build(this);
+        return feature;
     }//buildFeatureFromClass
 
     /**
      * using the advertise data, we build a list a possible feature that this node can export
+     * <p>the features are build only the first time that this method is called, in this way
+     * the node that are discovered but never used don't allocate its features</p>
      */
     private void buildAvailableFeatures(){
-        int featureMask = mAdvertise.getFeatureMap();
-        SparseArray<Class<? extends Feature>> decoder = Manager.sFeatureMapDecoder.get(
-                mAdvertise.getDeviceId());
-        mMaskToFeature = new HashMap<>(32);
-        mAvailableFeature = new ArrayList<>(32);
-        if(decoder==null){ // unknown board type -> no feature
+        if(mAvailableFeature!=null)
             return;
-        }
+        synchronized (this) {
+            if(mAvailableFeature!=null)
+                return;
+            int featureMask = mAdvertise.getFeatureMap();
+            byte deviceId = mAdvertise.getDeviceId();
+            Map<Integer,Feature> maskToFeature = new HashMap<>(32);
+            ArrayList<Feature> availableFeature = new ArrayList<>(32);
+            if(Manager.isValidDeviceId(deviceId)) { // unknown board type -> no feature
+                long mask = 1;
+                //we test all the 32bit of the feature mask
+                for (int i = 0; i < 32; i++) {
+                    if ((featureMask & mask) != 0) { //if the bit is up
+                        Manager.FeatureFactory factory = Manager.getFeatureFactory(deviceId,
+                                (int) mask);
+                        if (factory != null) { //and the decoder has a feature for that bit
+                            Feature f = factory.build(this);
+                            if (f != null) {
+                                availableFeature.add(f);
+                                maskToFeature.put((int) mask, f);
+                            } else {
+                                Log.e(TAG, "Impossible build the feature with mask: " +
+                                        Long.toHexString(mask));
+                            }//if-else
+                        }//if !=null
+                    }//if !=0
+                    mask = mask << 1;
+                }//for
+            }//if
+            mMaskToFeature = maskToFeature;
+            mAvailableFeature = availableFeature;
+        }//synchronized
+    }//buildAvailableFeatures
 
-        long mask=1;
+    /**
+     * get the list of feature exported by the node, building them if needed
+     * @return list of feature exported by the node
+     */
+    private ArrayList<Feature> getAvailableFeatures(){
+        buildAvailableFeatures();
+        return mAvailableFeature;
+    }//getAvailableFeatures
+
+    /**
+     * get the map feature mask - feature exported by the node, building the features if needed
+     * @return map that join the feature with its bit mask
+     */
+    Map<Integer,Feature> getMaskToFeature(){
+        buildAvailableFeatures();
+        return mMaskToFeature;
+    }//getMaskToFeature
+
+    /**
+     * get the features exported by a feature characteristic, and enable them
+     * @param featureMask feature mask extracted from the characteristic uuid
+     * @return list of features, in the order used inside the characteristic data
+     */
+    List<Feature> getFeaturesForMask(int featureMask){
+        List<Feature> temp = new ArrayList<>();
+
+        //we do the search in reverse order for have the feature in he correct order in case
+        //of characteristics that export multiple feature
+
+        Map<Integer,Feature> maskToFeature = getMaskToFeature();
+        long mask= 1L<<31; //1<<31
         //we test all the 32bit of the feature mask
-        for(int i=0; i<32; i++ ){
-            if((featureMask & mask)!=0) { //if the bit is up
-                Class<? extends Feature> featureClass = decoder.get((int)mask);
-                if (featureClass != null) { //and the decoder has a name for that bit
-                    Feature f = buildFeatureFromClass(featureClass);
-                    if(f!=null){
-                        mAvailableFeature.add(f);
-                        mMaskToFeature.put((int)mask, f);
-                    }else {
-                        Log.e(TAG,"Impossible build the feature: "+featureClass.getSimpleName());
-                    }//if-else
-                }//if !=null
-            }//if !=0
-            mask = mask << 1;
+        for(int i=0; i<32; i++ ) {
+            if ((featureMask & mask) != 0) { //if the bit is up
+                Feature f =maskToFeature.get((int)mask);
+                if (f != null) {
+                    f.setEnable(true);
+                    temp.add(f);
+                }//if
+            }//if
+            mask = mask>>1;
         }//for
-    }//buildAvailableFeatures
+        return temp;
+    }//getFeaturesForMask
 
     /**
-     * create a thread where run the handler that will contain the timeout for understand if the
-     * node go out of scope
+     * update all the feature inside a characteristic value
+     * @param unwrapTimestamp object used for build the timestamp of the characteristic
+     * @param data characteristic value: 2 bytes of timestamp and the features data
+     * @param features features exported by the characteristic
      */
-    private void initHandler(){
-        new Thread( new Runnable() {
-            @Override
-            public void run() {
-                Looper.prepare();
-                mHandler = new Handler(); //create the handler
-                //put the first item
-                mHandler.postDelayed(mSetNodeLost,NODE_LOST_TIMEOUT_MS);
-                Looper.loop(); //start exec the item in the queue
-            }//run
-        }).start(); //run the thread
-    }//initHandler
+    static void updateFeatures(UnwrapTimestamp unwrapTimestamp, byte data[],
+                               List<Feature> features){
+        int timeStamp = NumberConversion.LittleEndian.bytesToUInt16(data);
+        long timeStampLong = unwrapTimestamp.unwrap(timeStamp);
+
+        int dataOffset =2;
+        for(Feature f: features){
+            dataOffset += f.update(timeStampLong,data,dataOffset);
+        }//for features
+    }//updateFeatures
+
+    /**
+     * send back to the feature the response of its command
+     * @param data value of the command characteristic: timestamp, feature mask, command type
+     *             and response data
+     */
+    void dispatchCommandResponseData(byte data[]){
+        if(data==null || data.length<7) //if we miss some data
+            return;
+        int timeStamps = NumberConversion.LittleEndian.bytesToUInt16(data);
+        int mask = NumberConversion.BigEndian.bytesToInt32(data,2);
+        byte reqType= data[6];
+        Feature f =getMaskToFeature().get(mask);
+        if(f!=null)
+            f.commandResponseReceived(timeStamps,reqType, Arrays.copyOfRange(data, 7,
+                    data.length));
+    }//dispatchCommandResponseData
+
+    /**
+     * get the raw data of the last advertise received by the node
+     * @return advertise data
+     */
+    byte[] getAdvertiseData(){
+        return mLastAdvertiseData;
+    }//getAdvertiseData
+
+    /**
+     * store all the notifications received by the node inside a recorder.
+     * <p>the recorder receive the data in the ble thread, before the features are updated</p>
+     * @param recorder object where store the notifications, null for stop the recording
+     */
+    public void setNotificationRecorder(@Nullable NotificationRecorder recorder){
+        mRecorder = recorder;
+    }//setNotificationRecorder
 
     /**
      * create a new node
@@ -979,19 +1197,27 @@ public class Node{
      */
     public Node(BluetoothDevice device,int rssi,byte advertise[]) throws InvalidBleAdvertiseFormat{
         mAdvertise = new BleAdvertiseParser(advertise);
+        mLastAdvertiseData = advertise.clone();
         mDevice = device;
         mExternalCharFeatures= new HashMap<>();
         updateRssi(rssi);
         updateNodeStatus(State.Idle);
-        initHandler();
-        buildAvailableFeatures();
+        mScheduler.schedule(mSetNodeLost,NODE_LOST_TIMEOUT_MS);
         addNodeStateListener(mNotifyCommandChange);
         Log.i(TAG, mAdvertise.toString());
     }
 
+    /**
+     * update the node advertise, the message is parsed only if it is different from the last
+     * received
+     * @param advertise new advertise message for this node
+     */
     public void upDateAdvertising(byte advertise[]){
+        if(Arrays.equals(mLastAdvertiseData,advertise))
+            return;
         try {
             mAdvertise = new BleAdvertiseParser(advertise);
+            mLastAdvertiseData = advertise.clone();
         }catch (Exception e){Log.e(TAG,"Error updating advertising for:"+ getName());}
     }
 
@@ -1003,6 +1229,7 @@ public class Node{
      */
     public Node(byte advertise[]) throws InvalidBleAdvertiseFormat{
         mAdvertise = new BleAdvertiseParser(advertise);
+        mLastAdvertiseData = advertise.clone();
         String bleAddress = mAdvertise.getAddress();
         if(bleAddress==null){
             throw  new InvalidBleAdvertiseFormat("Device Address non present in the advertise");
@@ -1010,9 +1237,31 @@ public class Node{
         mDevice = BluetoothAdapter.getDefaultAdapter().getRemoteDevice(bleAddress);
         mExternalCharFeatures= new HashMap<>();
         updateNodeStatus(State.Idle);
-        initHandler();
+        mScheduler.schedule(mSetNodeLost,NODE_LOST_TIMEOUT_MS);
+        addNodeStateListener(mNotifyCommandChange);
+        Log.i(TAG, mAdvertise.toString());
+    }
 
-        buildAvailableFeatures();
+    /**
+     * create a node that exchanges the characteristic data through a transport instead of a
+     * ble connection.
+     * <p>the node works as a ble node: the features are built from the advertise and from the
+     * discovered characteristics, the read, write and notification requests are serialized by
+     * the same scheduler. The pairing, the rssi and the connection priority are available only
+     * with a ble connection</p>
+     * @param tag unique id of the node
+     * @param advertise advertise message for this node
+     * @param transport channel used for exchange the characteristic data
+     * @throws  InvalidBleAdvertiseFormat if the advertise is not well formed
+     */
+    public Node(String tag, byte advertise[], NodeTransport transport) throws
+            InvalidBleAdvertiseFormat{
+        mAdvertise = new BleAdvertiseParser(advertise);
+        mLastAdvertiseData = advertise.clone();
+        mTransportTag = tag;
+        mUserTransport = transport;
+        mExternalCharFeatures= new HashMap<>();
+        updateNodeStatus(State.Idle);
         addNodeStateListener(mNotifyCommandChange);
         Log.i(TAG, mAdvertise.toString());
     }
@@ -1027,7 +1276,8 @@ public class Node{
 
     /**
      * open a gatt connection
-     * @param c context to use for open the connection
+     * @param c context to use for open the connection, it can be null if the node uses a
+     *          transport
      */
     public void connect(Context c){
         connect(c, false,null);
@@ -1048,9 +1298,28 @@ public class Node{
      */
     public void connect(Context c,boolean resetCache,
                         @Nullable Map<UUID,List<Class< ? extends Feature>>> userDefineFeature){
+        connect(c,resetCache,userDefineFeature,null);
+    }//connect
+
+    /**
+     * open a gatt connection and negotiate the connection parameters
+     * @param c context to use for open the connection
+     * @param resetCache if true the handle cache for this device will be clear,
+     *                   the connection will be slower, it will done only the first time that you
+     *                   call this function with the parameter true
+     * @param userDefineFeature register the UUID in the map as know UUID that will be manage by
+     *                          the node class as feature
+     * @param option mtu and connection priority to request, if null
+     * {@link ConnectionOption#DEFAULT} is used
+     */
+    public void connect(Context c,boolean resetCache,
+                        @Nullable Map<UUID,List<Class< ? extends Feature>>> userDefineFeature,
+                        @Nullable ConnectionOption option){
+        mConnectionOption = option!=null ? option : ConnectionOption.DEFAULT;
         //we start the connection so we will stop to receive advertise, so we delete the timeout
-        if(mHandler!=null) mHandler.removeCallbacks(mSetNodeLost);
+        mScheduler.cancel(mSetNodeLost);
         mUserAskToDisconnect=false;
+        buildAvailableFeatures();
         updateNodeStatus(State.Connecting);
         /*
         HandlerThread thread = new HandlerThread("NodeConnection");
@@ -1059,12 +1328,48 @@ public class Node{
         */
         mBleThread = new Handler(Looper.getMainLooper());
         mContext=c;
-        setBoundListener(c.getApplicationContext());
+        if(mDevice!=null)
+            setBoundListener(c.getApplicationContext());
         mResetCache=resetCache;
         addExternalCharacteristics(userDefineFeature);
         mBleThread.post(mConnectionTask);
     }//connect
 
+    /**
+     * change the parameters negotiated with the node, if the node is connected they are
+     * requested immediately otherwise they are used by the next connection.
+     * <p>the mtu can not be reduced, if the option has a mtu smaller than the current one only
+     * the connection priority is changed</p>
+     * @param option mtu and connection priority to request, if null
+     * {@link ConnectionOption#DEFAULT} is used
+     */
+    public void setConnectionOption(@Nullable ConnectionOption option){
+        mConnectionOption = option!=null ? option : ConnectionOption.DEFAULT;
+        if(mTransport!=null && isConnected())
+            negotiateConnectionOption(false);
+    }//setConnectionOption
+
+    /**
+     * ask the connection priority and queue the mtu request as first gatt operation, the
+     * connection priority is used only by the ble connection
+     * @param newConnection true if the connection is just opened, the default connection
+     *                      priority is already used
+     */
+    private void negotiateConnectionOption(boolean newConnection){
+        NodeTransport transport = mTransport;
+        ConnectionOption option = mConnectionOption;
+        if(transport instanceof GattTransport) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP)
+                return;
+            if (!newConnection ||
+                    option.getConnectionPriority() != BluetoothGatt.CONNECTION_PRIORITY_BALANCED)
+                ((GattTransport) transport).requestConnectionPriority(
+                        option.getConnectionPriority());
+        }//if
+        if(option.getMtu()>mMtu)
+            mGattOps.enqueue(new RequestMtuOperation(option.getMtu()));
+    }//negotiateConnectionOption
+
     /**
      * describe as manage some specific UUID using a feature class, the uuid will be manage by
      * the node class only if is know before the connection
@@ -1115,16 +1420,24 @@ public class Node{
         mUserAskToDisconnect=true;
         updateNodeStatus(State.Disconnecting);
 
-        // run the waitCompleteAllWriteRequest in a different handler for avoid to block the
-        // ble/main thread, we use the handle used for update the rssi, since during disconnection
-        // is not used
-        mHandler.post(new Runnable() {
+        //the disconnection is done after the pending notification changes, the connection
+        //is closed in the onConnectionChange
+        mGattOps.enqueue(new GattOperationScheduler.Operation(
+                GattOperationScheduler.Priority.NOTIFICATION) {
             @Override
-            public void run() {
-                waitCompleteAllDescriptorWriteRequest(mDisconnectTask);
-                mHandler.postDelayed(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
-            }
+            boolean start() {
+                mDisconnectTask.run();
+                return true;
+            }//start
+
+            @Override
+            boolean isCompletedBy(Object target) {
+                return false;
+            }//isCompletedBy
         });
+        //a node with a transport is not discovered by the advertise, it can not be lost
+        if(mDevice!=null)
+            mScheduler.schedule(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
 
     }//disconnect
 
@@ -1168,7 +1481,7 @@ public class Node{
      * @return return the ble mac address
      */
     public String getTag(){
-        return mDevice.getAddress();
+        return mDevice!=null ? mDevice.getAddress() : mTransportTag;
     }//getTag
 
     /**
@@ -1190,6 +1503,7 @@ public class Node{
      * get the device name with some product tag info (BLE Address)
      * @return the device friendly Name
      */
+    @Override
     public String getFriendlyName(){
         if (mFriendlyName == null) {
             String strTagClean = "NA";
@@ -1214,7 +1528,7 @@ public class Node{
      * @return  list of feature that the node can export
      */
     public List<Feature> getFeatures(){
-        return java.util.Collections.unmodifiableList(mAvailableFeature);
+        return java.util.Collections.unmodifiableList(getAvailableFeatures());
     }
 
     /**
@@ -1225,7 +1539,7 @@ public class Node{
      */
     public @NonNull <T extends Feature> List<T> getFeatures(Class<T> type){
         List<T> temp = new ArrayList<>();
-        for (Feature f : mAvailableFeature) {
+        for (Feature f : getAvailableFeatures()) {
             if (f.getClass().isAssignableFrom(type)) {
                 @SuppressWarnings("unchecked") //we just  check that we can do the assign
                 T feature = (T)f; //needed for suppress the warnings
@@ -1267,13 +1581,13 @@ public class Node{
     }//removeNodeStateListener
 
     /**
-     * find the the gattCharacteristics corresponding to a feature
+     * find the the characteristics corresponding to a feature
      * @param feature feature to search
      * @return null if the feature is not handle by the node, the characteristics otherwise
      */
-    private BluetoothGattCharacteristic getCorrespondingChar(Feature feature){
-        ArrayList<BluetoothGattCharacteristic> candidateChar = new ArrayList<>();
-        for (Map.Entry<BluetoothGattCharacteristic,List<Feature>> e: mCharFeatureMap.entrySet()){
+    private UUID getCorrespondingChar(Feature feature){
+        ArrayList<UUID> candidateChar = new ArrayList<>();
+        for (Map.Entry<UUID,List<Feature>> e: mCharFeatureMap.entrySet()){
             List<Feature> featureList = e.getValue();
             if(featureList.contains(feature)){
                 candidateChar.add(e.getKey());
@@ -1285,8 +1599,8 @@ public class Node{
             return candidateChar.get(0);
         }else{ //we have to select the feature that permit us to have more data
             int maxNFeature=0;
-            BluetoothGattCharacteristic bestChar=null;
-            for(BluetoothGattCharacteristic characteristic: candidateChar){
+            UUID bestChar=null;
+            for(UUID characteristic: candidateChar){
                 int nFeature = mCharFeatureMap.get(characteristic).size();
                 if(nFeature>maxNFeature){
                     maxNFeature=nFeature;
@@ -1306,180 +1620,64 @@ public class Node{
     public boolean readFeature(Feature feature){
         if(!feature.isEnabled())
             return false;
-        final BluetoothGattCharacteristic characteristic = getCorrespondingChar(feature);
+        final UUID characteristic = getCorrespondingChar(feature);
         if(!charCanBeRead(characteristic))
             return false;
-        //since we have to wait that the write description are done, we have to wait a thread -> we
-        //can not run directly in the bleThread, so we use the handler for the rssi, since the
-        // load on that thread will be low
-        mHandler.post(new Runnable() {
-            @Override
-            public void run() {
-            final Runnable readChar = this;
-            if (mConnection != null && isConnected() && !isPairing()) {
-                //wait that the queue is empty and write the characteristics, if an error
-                // happen we enqueue again the command
-                waitCompleteAllDescriptorWriteRequest(new Runnable() {
-                    @Override
-                    public void run() {
-                        if (!mConnection.readCharacteristic(characteristic))
-                            mHandler.postDelayed(readChar, RETRY_COMMAND_DELAY_MS);
-                    }//run
-                });
-            }else{
-                mHandler.postDelayed(readChar, RETRY_COMMAND_DELAY_MS);
-            }
-        }//run
-    });
+        //the read is done after the pending notification changes
+        mGattOps.enqueue(new ReadCharOperation(characteristic));
 
         return true;
     }//readFeature
 
-    /* standard descriptor id used for enable/disable the notification */
-    private final static UUID NOTIFY_CHAR_DESC_UUID = UUID.fromString
-            ("00002902-0000-1000-8000-00805f9b34fb");
-
-    /**
-     * wait until all the task inside the @{code mWriteDescQueue} aren't completed
-     * don't call this method from the bleThread otherwise it will freeze the app!
-     * @param runWhenEmpty code that this function will post on the bleThread when the queue is
-     *                     empty
-     */
-    private void waitCompleteAllDescriptorWriteRequest(Runnable runWhenEmpty){
-        synchronized (mWriteDescQueue){
-            while(!mWriteDescQueue.isEmpty()) {
-                try {
-                    mWriteDescQueue.wait();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }//try-catch
-            }//while
-            if(runWhenEmpty!=null)
-                mBleThread.post(runWhenEmpty);
-        }//synchronized
-    }//waitCompleteAllDescriptorWriteRequest
-
-
-    /**
-     * take the fist element in the mWriteDescQueue and call the writeDescriptor, if it fail it
-     * will retry after {@code RETRY_COMMAND_DELAY_MS} ms.
-     */
-    private Runnable mWriteDescriptorTask = new Runnable() {
-        @Override
-        public void run() {
-        if(mConnection!=null &&  (isConnected() || mState==State.Disconnecting) && !isPairing()) {
-            synchronized (mWriteDescQueue) {
-                if(mConnection!=null && !mWriteDescQueue.isEmpty()) {
-                    WriteDescCommand command = mWriteDescQueue.peek();
-                    BluetoothGattDescriptor desc = command.desc;
-                    desc.setValue(command.data);
-                    if (Arrays.equals(desc.getValue(), BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE))
-                        mConnection.setCharacteristicNotification(desc.getCharacteristic(), true);
-                    if (Arrays.equals(desc.getValue(), BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE))
-                        mConnection.setCharacteristicNotification(desc.getCharacteristic(), false);
-                    if (!mConnection.writeDescriptor(desc))
-                        mBleThread.postDelayed(this, RETRY_COMMAND_DELAY_MS);
-                }//if size
-            }//synchronized
-        }else{ //we can execute the task, postpone it
-            mBleThread.postDelayed(this, RETRY_COMMAND_DELAY_MS);
-        }
-    }//run
-};
-
-
-    /**
-     * add a command to the queue of writes, this function automatically start to write the
-     * descriptor
-     * @param command descriptor and data to write, we have to keep it separate for avoid to
-     *                lost message writing multiple time in the same descriptor
-     */
-    private void enqueueWriteDesc(final WriteDescCommand command){
-        synchronized (mWriteDescQueue){
-            mWriteDescQueue.add(command);
-            //if the queue contains only the element that we just add
-            if(mWriteDescQueue.size()==1) {
-                mBleThread.post(mWriteDescriptorTask);
-            }//if
-        }//synchronized
-    }//enqueueWriteDesc
-
-    /**
-     * remove the descriptor from the queue and if present start a new write
-     * @param command that is completed
-     */
-    private void dequeueWriteDesc(WriteDescCommand command){
-        synchronized (mWriteDescQueue){
-            if(!mWriteDescQueue.remove(command))
-                Log.e(TAG,"No WriteDescCommand removed");
-            //if there still element in the queue, start write the head
-            if(!mWriteDescQueue.isEmpty()) {
-                mBleThread.post(mWriteDescriptorTask);
-            }else
-                mWriteDescQueue.notifyAll();
-        }//synchronized
-    }//dequeueWriteDesc
-
-
-    /**
-     * take the fist element in the mCharacteristicWriteQueue and call the writeCharacteristics
-     * note that the characteristic are write only when we write all the descriptor
-     */
-    private Runnable mWriteFeatureCommandTask = new Runnable() {
-        @Override
-        public void run() {
-            if(mConnection!=null &&  isConnected() && !isPairing()) {
-                synchronized (mCharacteristicWriteQueue) {
-                    if(!mCharacteristicWriteQueue.isEmpty()) {
-                        WriteCharCommand command = mCharacteristicWriteQueue.peek();
-                        command.characteristic.setValue(command.data);
-                        writeCharacteristics(command.characteristic);
-                    }//if size
-                }//synchronized
-            }else{ //we can execute the task, postpone it
-                mBleThread.postDelayed(this, RETRY_COMMAND_DELAY_MS);
-            }
-        }//run
-    };
-
-
     /**
-     * ad a command to the queue of work to do
-     * @param command characteristic and data to write
+     * add a characteristic write to the gatt operations
+     * @param characteristic characteristic to write
+     * @param data data to write
+     * @param priority priority class of the write
      */
-    private void enqueueCharacteristicsWrite(final WriteCharCommand command){
-        synchronized (mCharacteristicWriteQueue){
-            mCharacteristicWriteQueue.add(command);
-            //if the queue contains only the element that we just add
-            if(mCharacteristicWriteQueue.size()==1) {
-                mBleThread.post(mWriteFeatureCommandTask);
-            }//if
-        }//synchronized
-    }//enqueueWriteDesc
-
-    void enqueueCharacteristicsWrite(BluetoothGattCharacteristic characteristic, byte
-            data[]){
-        enqueueCharacteristicsWrite(new WriteCharCommand(characteristic,data));
+    void enqueueCharacteristicsWrite(UUID characteristic, byte data[],
+                                     GattOperationScheduler.Priority priority){
+        mGattOps.enqueue(new WriteCharOperation(priority, characteristic, data));
     }
 
     /**
-     * remove a command when complited
-     * @param writeOp command completed
+     * write a block of data into a characteristic, more chunks are queued at the same time and
+     * they are written without response when the characteristic allows it
+     * @param characteristic characteristic to write
+     * @param data data to write
+     * @param offset index of the first byte to write
+     * @param length number of byte to write
+     * @param chunkSize max size of each write
+     * @param maxInFlight max number of chunks queued at the same time
+     * @param listener object where notify the transfer progress, can be null
+     * @return object that track the transfer, or null if the characteristic can not be written
+     */
+    @Nullable BulkWrite writeBulk(UUID characteristic, byte data[],
+                                  int offset, int length, int chunkSize, int maxInFlight,
+                                  @Nullable BulkWrite.BulkWriteListener listener){
+        if(!charCanBeWrite(characteristic))
+            return null;
+        final boolean withResponse = writeWithResponse(characteristic);
+        BulkWrite write = new BulkWrite(mGattOps, new BulkWrite.ChunkWriter() {
+            @Override
+            public boolean write(UUID c, byte[] chunk) {
+                NodeTransport transport = mTransport;
+                return transport!=null && !isPairing() &&
+                        transport.writeCharacteristic(c,chunk,withResponse);
+            }//write
+        },characteristic,data,offset,length,chunkSize,maxInFlight,listener);
+        write.start();
+        return write;
+    }//writeBulk
+
+    /**
+     * add a feature write to the gatt operations
+     * @param characteristic characteristic to write
+     * @param data data to write
      */
-    private void dequeueCharacteristicsWrite(final WriteCharCommand writeOp){
-        synchronized (mCharacteristicWriteQueue){
-            if(mCharacteristicWriteQueue.contains(writeOp))
-                mCharacteristicWriteQueue.remove(writeOp);
-            else
-                Log.d(TAG,"Characteristics write not found: "+writeOp.characteristic.getUuid()+" Data: "+Arrays.toString(writeOp.data));
-            //if there still element in the queue, start write the head
-            if(!mCharacteristicWriteQueue.isEmpty()) {
-                mBleThread.post(mWriteFeatureCommandTask);
-            }
-        }//synchronized
-    }//dequeueWriteDesc
-
-
+    void enqueueCharacteristicsWrite(UUID characteristic, byte data[]){
+        enqueueCharacteristicsWrite(characteristic, data, GattOperationScheduler.Priority.FEATURE);
+    }
 
     /**
      * send a request for enable/disable the notification update on a specific characteristics
@@ -1487,21 +1685,10 @@ public class Node{
      * @param enable true if you want enable the notification, false if you want disable it
      * @return true if the request is correctly send, false otherwise
      */
-    boolean changeNotificationStatus(BluetoothGattCharacteristic characteristic,
-                                          boolean enable){
-
-        if(charCanBeNotify(characteristic) && mConnection!=null && isConnected()){
-            BluetoothGattDescriptor descriptor = characteristic.getDescriptor(NOTIFY_CHAR_DESC_UUID);
-
-            if(descriptor==null)
-                return false;
-
-            WriteDescCommand command= new WriteDescCommand(descriptor,
-                    enable ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE :
-                        BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
-
-            enqueueWriteDesc(command);
+    boolean changeNotificationStatus(UUID characteristic, boolean enable){
 
+        if(charCanBeNotify(characteristic) && mTransport!=null && isConnected()){
+            mGattOps.enqueue(new NotificationOperation(characteristic,enable));
             return true;
         }else
             return false;
@@ -1514,7 +1701,7 @@ public class Node{
      * @param currentFeature feature that we want to disable
      * @return true if we can disable the notification without disturb other feature
      */
-    private boolean characteristicsHasOtherEnabledFeatures(BluetoothGattCharacteristic characteristic,
+    private boolean characteristicsHasOtherEnabledFeatures(UUID characteristic,
                                                            Feature currentFeature){
         List<Feature> features = mCharFeatureMap.get(characteristic);
         if(features.size()==1)
@@ -1536,7 +1723,7 @@ public class Node{
     public boolean disableNotification(Feature feature){
         if(!feature.isEnabled() && feature.getParentNode()!=this)
             return false;
-        BluetoothGattCharacteristic featureChar =getCorrespondingChar(feature);
+        UUID featureChar =getCorrespondingChar(feature);
         if(charCanBeNotify(featureChar)) {
             mNotifyFeature.remove(feature);
             //other things are send using that characateristic, so we don't have to
@@ -1556,7 +1743,7 @@ public class Node{
     public boolean enableNotification(Feature feature){
         if(!feature.isEnabled() && feature.getParentNode()!=this)
             return false;
-        BluetoothGattCharacteristic featureChar =getCorrespondingChar(feature);
+        UUID featureChar =getCorrespondingChar(feature);
         if(charCanBeNotify(featureChar)) {
             mNotifyFeature.add(feature);
             return changeNotificationStatus(featureChar, true);
@@ -1575,54 +1762,49 @@ public class Node{
 
 
     /**
-     * enqueue the write command for be execute in the bleThread and only if we already do all the
-     * writeDescription request
-     * @param writeMe characteristics that we have to write
-     */
-    private void writeCharacteristics(final BluetoothGattCharacteristic writeMe){
-        //since we have to wait that the write description are done, we have to wait a thread -> we
-        //can not run directly in the bleThread, so we use the handler for the rssi, since the load
-        // on that thread will be low
-        mHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                final Runnable writeChar = this;
-                if(mConnection!=null &&  isConnected()&& ! isPairing()) {
-                    //wait that the queue is empty and write the characteristics, if an error
-                    // happen we enqueue again the command
-                    waitCompleteAllDescriptorWriteRequest(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (!mConnection.writeCharacteristic(writeMe)) {
-                                mHandler.postDelayed(writeChar, RETRY_COMMAND_DELAY_MS);
-                            }//if
-                        }//run
-                    });
-                }else{
-                    mHandler.postDelayed(writeChar, RETRY_COMMAND_DELAY_MS);
-                }//if-else
-            }//run
-        });
-    }
-
-    /**
-     * write some data to a feature characteristics, this method is accessible only by the
+     * write some data to a feature characteristics, this method should be used only by the
      * feature that know how the data interpreted in the node.
      * @param feature feature that will receive the data
      * @param data data that we have to send to the feature
      * @return true if the message is send without problem, false otherwise
      */
-    boolean writeFeatureData(Feature feature,byte data[]){
-        final BluetoothGattCharacteristic characteristic = getCorrespondingChar(feature);
+    @Override
+    public boolean writeFeatureData(Feature feature,byte data[]){
+        final UUID characteristic = getCorrespondingChar(feature);
         //not enable or not exist or not in write mode -> return false
         if(!charCanBeWrite(characteristic) || !feature.isEnabled())
             return false;
 
-        enqueueCharacteristicsWrite(new WriteCharCommand(characteristic, data));
+        int maxPayload = getMaxWritePayloadSize();
+        //the write without response is truncated by the stack -> split it
+        if(data.length>maxPayload &&
+                !writeWithResponse(characteristic)){
+            for(int offset=0;offset<data.length;offset+=maxPayload)
+                enqueueCharacteristicsWrite(characteristic, Arrays.copyOfRange(data,offset,
+                        Math.min(data.length,offset+maxPayload)));
+        }else
+            enqueueCharacteristicsWrite(characteristic, data);
 
         return true;
     }//writeFeatureData
 
+    /**
+     * get the mtu of the current connection, it is {@link #DEFAULT_MTU} until a bigger one is
+     * negotiated
+     * @return mtu of the connection
+     */
+    public int getMtu(){
+        return mMtu;
+    }//getMtu
+
+    /**
+     * get the max number of byte that can be sent with a single write
+     * @return max size of a write
+     */
+    public int getMaxWritePayloadSize(){
+        return mMtu - ATT_WRITE_HEADER_SIZE;
+    }//getMaxWritePayloadSize
+
     /**
      * compare two nodes. two nodes are equals if the tag function return the same value
      * @param node object to compare
@@ -1660,6 +1842,45 @@ public class Node{
             mBleThread.post(mUpdateRssiTask);
     }//readRssi
 
+    /** period of the rssi polling, 0 if the polling is not active */
+    private volatile long mRssiPollingPeriodMs = 0;
+
+    /** task that ask a new rssi and schedule the next request */
+    private final Runnable mPollRssiTask = new Runnable() {
+        @Override
+        public void run() {
+            long period = mRssiPollingPeriodMs;
+            if(period<=0)
+                return;
+            readRssi();
+            mScheduler.schedule(this,period);
+        }//run
+    };
+
+    /**
+     * periodically ask for a new rssi value, the values will be returned using the
+     * {@link com.st.BlueSTSDK.Node.BleConnectionParamUpdateListener#onRSSIChanged(Node, int)}
+     * callback.
+     * <p>the polling is done by the scheduler shared by all the nodes, it is stopped when the
+     * node disconnects</p>
+     * @param periodMs time between two requests
+     */
+    public void startRssiPolling(long periodMs){
+        if(periodMs<=0)
+            throw new IllegalArgumentException("periodMs must be positive");
+        mScheduler.cancel(mPollRssiTask);
+        mRssiPollingPeriodMs = periodMs;
+        mScheduler.schedule(mPollRssiTask,periodMs);
+    }//startRssiPolling
+
+    /**
+     * stop the rssi polling started with {@link Node#startRssiPolling(long)}
+     */
+    public void stopRssiPolling(){
+        mRssiPollingPeriodMs = 0;
+        mScheduler.cancel(mPollRssiTask);
+    }//stopRssiPolling
+
 
     /**
      * return the moment of the last rssi update that we received
@@ -1694,10 +1915,10 @@ public class Node{
      */
     void isAlive(int rssi){
         //remove the set lost task
-        if(mHandler!=null) mHandler.removeCallbacks(mSetNodeLost);
+        mScheduler.cancel(mSetNodeLost);
         updateRssi(rssi);
         //start a new set lost task
-        if(mHandler!=null) mHandler.postDelayed(mSetNodeLost,NODE_LOST_TIMEOUT_MS);
+        mScheduler.schedule(mSetNodeLost,NODE_LOST_TIMEOUT_MS);
 
     }//isAlive
 
@@ -1708,7 +1929,7 @@ public class Node{
      * @param data command parameters
      * @return data to send to the characteristics
      */
-    private byte[] packageCommandData(int mask,byte type,byte data[]){
+    static byte[] packageCommandData(int mask,byte type,byte data[]){
         byte calibPackage[] = new byte[data.length+4+1]; //4=sizeof(int) + 1 for the req type
         byte maskArray[] = NumberConversion.BigEndian.int32ToBytes(mask);
         System.arraycopy(maskArray, 0, calibPackage, 0, maskArray.length);
@@ -1718,7 +1939,12 @@ public class Node{
     }
 
 
-    private int extractFeatureMask(Feature f){
+    /**
+     * get the bit mask used by the node for identify a feature
+     * @param f feature exported by this node
+     * @return feature mask
+     */
+    int extractFeatureMask(Feature f){
         SparseArray<Class<? extends Feature>> decoder = Manager.sFeatureMapDecoder
                 .get(mAdvertise.getDeviceId());
         int index = decoder.indexOfValue(f.getClass());
@@ -1739,12 +1965,13 @@ public class Node{
      * @param data command parameters
      * @return true if the message is correctly send, false otherwise
      */
-    boolean sendCommandMessage(Feature feature,byte type,byte data[]) {
+    @Override
+    public boolean sendCommandMessage(Feature feature,byte type,byte data[]) {
         if (feature instanceof FeatureGenPurpose)
             return false;
 
-        final BluetoothGattCharacteristic characteristic = getCorrespondingChar(feature);
-        final BluetoothGattCharacteristic writeTo = mFeatureCommand != null ? mFeatureCommand :
+        final UUID characteristic = getCorrespondingChar(feature);
+        final UUID writeTo = mFeatureCommand != null ? mFeatureCommand :
                 characteristic;
 
         if (writeTo == null || characteristic == null || !charCanBeWrite(writeTo))
@@ -1753,13 +1980,12 @@ public class Node{
 
         if(writeTo==mFeatureCommand) {
             int mask = extractFeatureMask(feature);
-            enqueueCharacteristicsWrite(
-                    new WriteCharCommand(mFeatureCommand, packageCommandData(mask, type, data)));
+            enqueueCharacteristicsWrite(mFeatureCommand, packageCommandData(mask, type, data));
         }else{ //fail back write directly to the feature characteristics
             byte dataToWrite[] = new byte[1+data.length];
             dataToWrite[0]=type;
             System.arraycopy(data,0,dataToWrite,1,data.length);
-            enqueueCharacteristicsWrite(new WriteCharCommand(writeTo, dataToWrite));
+            enqueueCharacteristicsWrite(writeTo, dataToWrite);
         }//if-else
 
         return true;
@@ -1771,7 +1997,7 @@ public class Node{
      * @return true if the node is bonded with the device
      */
     boolean isBounded(){
-        return mDevice.getBondState()==BluetoothDevice.BOND_BONDED;
+        return mDevice!=null && mDevice.getBondState()==BluetoothDevice.BOND_BONDED;
     }
 
     /**
@@ -26,10 +26,7 @@
  ******************************************************************************/
 package com.st.BlueSTSDK;
 
-import android.bluetooth.BluetoothGattCharacteristic;
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.Nullable;
 
 import com.st.BlueSTSDK.Config.Command;
@@ -54,15 +51,18 @@ import com.st.BlueSTSDK.Features.emul.FeatureRandomProximity;
 import com.st.BlueSTSDK.Features.emul.FeatureRandomProximityGesture;
 import com.st.BlueSTSDK.Features.emul.FeatureRandomTemperature;
 import com.st.BlueSTSDK.Features.emul.standardCharacateristics.FeatureRandomHeartRate;
-import com.st.BlueSTSDK.Utils.BLENodeDefines;
 import com.st.BlueSTSDK.Utils.InvalidBleAdvertiseFormat;
+import com.st.BlueSTSDK.Utils.TimerWheel;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** This class represents a node that don't used a ble connection for extract the data but generate
  * fake data.
@@ -71,7 +71,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  *     .NodeEmulator.EmulableFeature}.
  * </p>
  * <p>
- *     The class will generate a new feature value each 1000ms
+ *     The class will generate a new feature value each 1000ms, the rate can be changed for
+ *     each feature with {@link #setNotificationRate(Class, float)} for use the node as a load
+ *     generator. The features that implement {@link NodeEmulator.SeedableFeature} generate
+ *     always the same data when the node is created with a seed.
  * </p>
  *
  * @author STMicroelectronics - Central Labs.
@@ -122,7 +125,7 @@ public class NodeEmulator extends Node {
     /**
      * static value of the Emulator node available
      */
-    private static int mEmulatorLastId = 0;
+    private static final AtomicInteger sEmulatorLastId = new AtomicInteger(0);
 
     /**
      * id of the Emulator Node
@@ -135,11 +138,9 @@ public class NodeEmulator extends Node {
     private static long NODE_LOST_TIMEOUT_MS = 2000;
 
     /**
-     * thread where wait the timeout
+     * scheduler shared by all the nodes, used for the timeout and for generate the data
      */
-    private Handler mHandler;  //NOTE: since the handler is crate in a thread,
-    // is better check that the class is not null in the case we try to use it before the thread
-    // got exec
+    private final TimerWheel mScheduler = TimerWheel.getSharedInstance();
     /**
      * task to run when the timeout expire, it will set the node status as lost
      */
@@ -152,23 +153,6 @@ public class NodeEmulator extends Node {
         }//run
     };
 
-    /**
-     * create a thread where run the handler that will contain the timeout for understand if the
-     * node go out of scope
-     */
-    private void initHandler() {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                Looper.prepare();
-                mHandler = new Handler(); //create the handler
-                //put the first item
-                mHandler.postDelayed(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
-                Looper.loop(); //start exec the item in the queue
-            }//run
-        }).start(); //run the thread
-    }//initHandler
-
     /**
      * list of all the feature that are available in the advertise
      */
@@ -209,13 +193,36 @@ public class NodeEmulator extends Node {
         super(null, 10, new byte[]{0x07, (byte) 0xFF, (byte) 0x01, (byte) 0x00, (byte) 0xFF,
                 (byte) 0xFF, (byte) 0xFF,
                 (byte) 0xFF});
-        initHandler();
+        mScheduler.schedule(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
         buildAvailableFeatures(emulFeature);
-        mEmulatorId = ++mEmulatorLastId;
+        mEmulatorId = sEmulatorLastId.incrementAndGet();
         mDebugConsole = null;
         mConfigControl = new ConfigControlEmul();
     }
 
+    /**
+     * create a node that generate deterministic data: the feature that implement the
+     * interface {@link com.st.BlueSTSDK.NodeEmulator.SeedableFeature} are initialized with a
+     * seed derived from <code>seed</code>
+     * @param emulFeature list of feature that this node will emulate. The class must extend
+     *                    feature and implement {@link com.st.BlueSTSDK.NodeEmulator.EmulableFeature}
+     * @param seed seed used for generate the feature data
+     * @throws InvalidBleAdvertiseFormat this eception is not throw since the advertise is a fake
+     * one
+     */
+    public NodeEmulator(Class<? extends Feature> emulFeature[], long seed) throws
+            InvalidBleAdvertiseFormat {
+        this(emulFeature);
+        Random seedGenerator = new Random(seed);
+        for (Feature f : mAvailableFeature) {
+            //the seed is generated also for the not seedable features, in this way the data of
+            // a feature doesn't depend on the other features
+            long featureSeed = seedGenerator.nextLong();
+            if (f instanceof SeedableFeature)
+                ((SeedableFeature) f).setRandomSeed(featureSeed);
+        }//for
+    }
+
     /**
      * create a emulate node that emulate the feature in the array {@link #DEFAULT_EMULATED_FEATURE}
      * @throws InvalidBleAdvertiseFormat never throw
@@ -292,27 +299,135 @@ public class NodeEmulator extends Node {
     /** generate a new data each second */
     final static int NOTIFICATION_DELAY_MS = 1000;
 
+    /** max notification rate that a feature can have */
+    public final static float MAX_NOTIFICATION_RATE_HZ = 10000.0f;
+
+    /**
+     * max number of sample generated by a single run of the update task, if the task is late
+     * of more than this number of samples the missing samples are skipped
+     */
+    private final static int MAX_SAMPLE_PER_RUN = 1000;
+
+    /** notification rate of the feature without a specific rate */
+    private volatile float mDefaultNotificationRateHz = 1000.0f/NOTIFICATION_DELAY_MS;
+
+    /** notification rate of each feature class */
+    private final Map<Class<? extends Feature>,Float> mNotificationRateHz =
+            new ConcurrentHashMap<>();
+
+    /** number of sample generated by the notification tasks */
+    private final AtomicLong mNGeneratedSample = new AtomicLong(0);
+
+    /** number of sample not generated because the notification tasks were late */
+    private final AtomicLong mNSkippedSample = new AtomicLong(0);
+
+    /**
+     * change the notification rate of all the features, the new rate is used when the
+     * notification is enabled
+     * @param rateHz number of sample per second
+     * @throws IllegalArgumentException if the rate is not in (0, {@link #MAX_NOTIFICATION_RATE_HZ}]
+     */
+    public void setNotificationRate(float rateHz){
+        checkNotificationRate(rateHz);
+        mDefaultNotificationRateHz = rateHz;
+        mNotificationRateHz.clear();
+    }//setNotificationRate
+
+    /**
+     * change the notification rate of a feature, the new rate is used when the notification is
+     * enabled
+     * @param feature feature class
+     * @param rateHz number of sample per second
+     * @throws IllegalArgumentException if the rate is not in (0, {@link #MAX_NOTIFICATION_RATE_HZ}]
+     */
+    public void setNotificationRate(Class<? extends Feature> feature, float rateHz){
+        checkNotificationRate(rateHz);
+        mNotificationRateHz.put(feature, rateHz);
+    }//setNotificationRate
+
+    /**
+     * get the notification rate used by a feature
+     * @param feature feature class
+     * @return number of sample per second
+     */
+    public float getNotificationRate(Class<? extends Feature> feature){
+        Float rate = mNotificationRateHz.get(feature);
+        return rate != null ? rate : mDefaultNotificationRateHz;
+    }//getNotificationRate
+
+    private static void checkNotificationRate(float rateHz){
+        if(!(rateHz>0) || rateHz> MAX_NOTIFICATION_RATE_HZ)
+            throw new IllegalArgumentException("Invalid notification rate: "+rateHz+
+                    " it must be in (0,"+MAX_NOTIFICATION_RATE_HZ+"]");
+    }//checkNotificationRate
+
+    /**
+     * get the number of sample generated by the feature notifications
+     * @return number of generated sample
+     */
+    public long getNGeneratedSample(){
+        return mNGeneratedSample.get();
+    }//getNGeneratedSample
+
+    /**
+     * get the number of sample that are not generated because the node was not able to keep
+     * the requested notification rate
+     * @return number of skipped sample
+     */
+    public long getNSkippedSample(){
+        return mNSkippedSample.get();
+    }//getNSkippedSample
+
     private class UpdateTask<T extends Feature & EmulableFeature> implements Runnable {
 
         /** object that will generate the data */
         private T mFeature;
 
+        /** ns between two samples */
+        private final long mPeriodNs;
+
+        /** time when the task started */
+        private final long mStartTimeNs;
+
+        /** index of the next sample to generate */
+        private long mNextSample;
+
         /** the user can set this variable to false for stop the execution of this task*/
         public volatile boolean mUpdate;
 
         /** build a new task, it will generate a new data as soon as possible */
         UpdateTask(T f) {
             mFeature = f;
+            mPeriodNs = (long)(1e9/getNotificationRate(f.getClass()));
+            mStartTimeNs = System.nanoTime();
+            mNextSample=0;
             mUpdate = true;
-            mHandler.post(this);
+            mScheduler.post(this);
         }
 
+        /**
+         * the task generate all the samples that should be sent from the last run, in this way
+         * the rate doesn't depend on the scheduler resolution
+         */
         @Override
         public void run() {
-            if (mUpdate){
+            if (!mUpdate)
+                return;
+            long lastSample = (System.nanoTime() - mStartTimeNs)/mPeriodNs;
+            if(lastSample - mNextSample >= MAX_SAMPLE_PER_RUN){
+                long newNextSample = lastSample - MAX_SAMPLE_PER_RUN + 1;
+                mNSkippedSample.addAndGet(newNextSample - mNextSample);
+                mNextSample = newNextSample;
+            }//if
+            for(; mNextSample<= lastSample && mUpdate; mNextSample++){
                 mFeature.update(mTimestamp.incrementAndGet(), mFeature.generateFakeData(), 0);
-                mHandler.postDelayed(this, NOTIFICATION_DELAY_MS);
-            }
+                mNGeneratedSample.incrementAndGet();
+            }//for
+            if(mUpdate) {
+                long nextSampleTimeNs = mStartTimeNs + mNextSample * mPeriodNs;
+                long delayMs = (nextSampleTimeNs - System.nanoTime()) / 1000000;
+                mScheduler.schedule(this, Math.max(delayMs, 1));
+            }//if
         }//run
     }
 
@@ -351,7 +466,7 @@ public class NodeEmulator extends Node {
 
     @Override
     public void readRssi() {
-        mHandler.postDelayed(new Runnable() {
+        mScheduler.schedule(new Runnable() {
             @Override
             public void run() {
                 updateRssi((int) (Math.random() * 100));
@@ -362,10 +477,10 @@ public class NodeEmulator extends Node {
     @Override
     void isAlive(int rssi) {
         //remove the set lost task
-        if (mHandler != null) mHandler.removeCallbacks(mSetNodeLost);
+        mScheduler.cancel(mSetNodeLost);
         updateRssi(rssi);
         //start a new set lost task
-        if (mHandler != null) mHandler.postDelayed(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
+        mScheduler.schedule(mSetNodeLost, NODE_LOST_TIMEOUT_MS);
 
     }//isAlive
 
@@ -384,6 +499,18 @@ public class NodeEmulator extends Node {
         return false;
     }
 
+    /**
+     * Interface implemented by the emulated feature that generate the data with a random
+     * generator
+     */
+    public interface SeedableFeature {
+        /**
+         * set the seed of the generator used for build the data
+         * @param seed generator seed
+         */
+        void setRandomSeed(long seed);
+    }
+
     /**
      * Interface that the emulated feature have to implement
      */
@@ -401,7 +528,7 @@ public class NodeEmulator extends Node {
     private class ConfigControlEmul extends ConfigControl{
         public ConfigControlEmul()
         {
-            super(null, null, null);
+            super(null, null);
 
 
             mRegPersistent[0]=258; //Version
@@ -460,9 +587,7 @@ public class NodeEmulator extends Node {
                         arr[4 + (2 * i) + 1] = (byte)(((mRegSession[r.getAddress() + i]) ) & 0xFF);
                     }
                 }
-                BluetoothGattCharacteristic virtualChar = new BluetoothGattCharacteristic(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID, 0 , 0);
-                virtualChar.setValue(arr);
-                characteristicsUpdate(virtualChar);
+                characteristicsUpdate(arr);
             }
         }
 
@@ -482,17 +607,13 @@ public class NodeEmulator extends Node {
                             mRegSession[r.getAddress() + (i >> 1)] = value;
                         }
                     }
-                    BluetoothGattCharacteristic virtualChar = new BluetoothGattCharacteristic(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID, 0 , 0);
-                    virtualChar.setValue(r.ToWritePacket(cmd.getTarget(), arr));
-                    characteristicsUpdate(virtualChar);
+                    characteristicsUpdate(r.ToWritePacket(cmd.getTarget(), arr));
                 }
                 else
                 {
                     byte [] arrNotify = r.ToWritePacket(cmd.getTarget(), arr);
                     arrNotify[2] = 1; //Error specific
-                    BluetoothGattCharacteristic virtualChar = new BluetoothGattCharacteristic(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID, 0 , 0);
-                    virtualChar.setValue(arrNotify);
-                    characteristicsUpdate(virtualChar);
+                    characteristicsUpdate(arrNotify);
                 }
             }//if
         }//write
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.st.BlueSTSDK.Utils.BLENodeDefines;
+import com.st.BlueSTSDK.Utils.InvalidBleAdvertiseFormat;
+import com.st.BlueSTSDK.Utils.UnwrapTimestamp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/** This class represents a node that doesn't use a ble connection for extract the data, but
+ * replays the notifications stored by a {@link NotificationRecorder}.
+ * <p>
+ *     The features are built from the recorded advertise and are updated with the recorded
+ *     data, using the same code used by a connected node. Only the notifications of the feature
+ *     characteristics that export at least a feature with the notification enabled are
+ *     replayed.
+ * </p>
+ * <p>
+ *     The replay starts when the node is connected and it can run at the recorded speed, at a
+ *     multiple of it or as fast as possible.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ * */
+public class NodeReplay extends Node {
+
+    private static final String TAG = NodeReplay.class.getCanonicalName();
+
+    /** replay the notifications with the recorded timing */
+    public static final float REAL_TIME = 1.0f;
+
+    /** replay the notifications without waiting between them */
+    public static final float MAX_SPEED = Float.POSITIVE_INFINITY;
+
+    /**
+     * Interface used for notify the end of the replay
+     */
+    public interface ReplayListener{
+
+        /**
+         * called when all the notification in the file are replayed
+         * @param node node that end the replay
+         * @param nNotification number of replayed notifications
+         * @param elapsedTimeNs time spent for the replay, in nanoseconds
+         */
+        void onReplayCompleted(NodeReplay node, long nNotification, long elapsedTimeNs);
+    }//ReplayListener
+
+    /** file that contains the notifications */
+    private final File mRecordFile;
+
+    /** replay speed, relative to the recorded one */
+    private final float mSpeed;
+
+    /** listener to notify at the end of the replay */
+    private volatile ReplayListener mReplayListener;
+
+    /** thread that is running the replay, null if the node is not connected */
+    private Thread mReplayThread;
+
+    /** number of notification replayed */
+    private volatile long mNReplayedNotification;
+
+    /** features with the notification enabled */
+    private final Set<Feature> mNotifyFeature = Collections.synchronizedSet(
+            new HashSet<Feature>());
+
+    /**
+     * read the advertise of the recorded node
+     * @param recordFile file created by a {@link NotificationRecorder}
+     * @return advertise stored in the file
+     * @throws IOException if the file is not valid
+     */
+    private static byte[] readAdvertise(File recordFile) throws IOException{
+        NotificationRecorder.Reader reader = new NotificationRecorder.Reader(recordFile);
+        try {
+            return reader.getAdvertise();
+        }finally {
+            reader.close();
+        }
+    }//readAdvertise
+
+    /**
+     * create a node that replays a record file
+     * @param recordFile file created by a {@link NotificationRecorder}
+     * @param speed replay speed relative to the recorded one, {@link #REAL_TIME} or
+     *              {@link #MAX_SPEED} for send the data as fast as possible
+     * @throws IOException if the file is not a valid record
+     * @throws InvalidBleAdvertiseFormat if the recorded advertise is not valid
+     */
+    public NodeReplay(File recordFile, float speed) throws IOException, InvalidBleAdvertiseFormat {
+        super(null, 10, readAdvertise(recordFile));
+        if(!(speed>0))
+            throw new IllegalArgumentException("The replay speed must be positive: "+speed);
+        mRecordFile = recordFile;
+        mSpeed = speed;
+    }
+
+    /**
+     * create a node that replays a record file with the recorded timing
+     * @param recordFile file created by a {@link NotificationRecorder}
+     * @throws IOException if the file is not a valid record
+     * @throws InvalidBleAdvertiseFormat if the recorded advertise is not valid
+     */
+    public NodeReplay(File recordFile) throws IOException, InvalidBleAdvertiseFormat {
+        this(recordFile, REAL_TIME);
+    }
+
+    /**
+     * set the listener to notify when the replay ends
+     * @param listener object to notify, null for remove the previous one
+     */
+    public void setReplayListener(@Nullable ReplayListener listener){
+        mReplayListener = listener;
+    }//setReplayListener
+
+    /**
+     * get the number of notifications replayed since the last connection
+     * @return number of replayed notifications
+     */
+    public long getNReplayedNotification(){
+        return mNReplayedNotification;
+    }//getNReplayedNotification
+
+    /**
+     * get the replay speed
+     * @return replay speed relative to the recorded one
+     */
+    public float getSpeed(){
+        return mSpeed;
+    }//getSpeed
+
+    @Override
+    public void connect(Context c, boolean resetCache,
+                        @Nullable Map<UUID, List<Class<? extends Feature>>> userDefineFeature,
+                        @Nullable ConnectionOption option) {
+        updateNodeStatus(State.Connecting);
+        updateNodeStatus(State.Connected);
+        synchronized (this) {
+            mReplayThread = new Thread(new ReplayTask(),"NodeReplay");
+            mReplayThread.start();
+        }//synchronized
+    }//connect
+
+    @Override
+    public void disconnect() {
+        updateNodeStatus(State.Disconnecting);
+        synchronized (this) {
+            if (mReplayThread != null) {
+                mReplayThread.interrupt();
+                mReplayThread = null;
+            }//if
+        }//synchronized
+        mNotifyFeature.clear();
+        updateNodeStatus(State.Idle);
+    }//disconnect
+
+    @Override
+    public String getTag() {
+        return "Replay " + mRecordFile.getName();
+    }//getTag
+
+    @Override
+    public String getName() {
+        String name = super.getName();
+        return name!=null ? name : mRecordFile.getName();
+    }//getName
+
+    @Override
+    public boolean readFeature(Feature feature) {
+        return false;
+    }//readFeature
+
+    @Override
+    public boolean enableNotification(Feature feature) {
+        return isConnected() && mNotifyFeature.add(feature);
+    }//enableNotification
+
+    @Override
+    public boolean disableNotification(Feature feature) {
+        return mNotifyFeature.remove(feature);
+    }//disableNotification
+
+    @Override
+    public boolean isEnableNotification(Feature feature) {
+        return mNotifyFeature.contains(feature);
+    }//isEnableNotification
+
+    @Override
+    boolean isBounded(){
+        return false;
+    }
+
+    /**
+     * task that reads the record file and updates the features
+     */
+    private class ReplayTask implements Runnable{
+
+        /** features exported by each characteristic */
+        private final Map<UUID,List<Feature>> mCharFeatures = new HashMap<>();
+
+        /** object used for build the feature timestamp */
+        private final UnwrapTimestamp mUnwrapTimestamp = new UnwrapTimestamp();
+
+        /**
+         * get the features exported by a characteristic
+         * @param uuid characteristic uuid
+         * @return features to update with the characteristic data, can be empty
+         */
+        private List<Feature> getCharFeatures(UUID uuid){
+            List<Feature> features = mCharFeatures.get(uuid);
+            if(features==null){
+                if(BLENodeDefines.FeatureCharacteristics.isFeatureCharacteristics(uuid))
+                    features = getFeaturesForMask(
+                            BLENodeDefines.FeatureCharacteristics.extractFeatureMask(uuid));
+                else
+                    features = Collections.emptyList();
+                mCharFeatures.put(uuid,features);
+            }//if
+            return features;
+        }//getCharFeatures
+
+        /**
+         * tell if the node has to notify the characteristic, as a connected node it is
+         * notified if one of its features has the notification enabled
+         * @param features features exported by the characteristic
+         * @return true if the characteristic data have to be replayed
+         */
+        private boolean isNotificationEnabled(List<Feature> features){
+            for(Feature f : features){
+                if(mNotifyFeature.contains(f))
+                    return true;
+            }//for
+            return false;
+        }//isNotificationEnabled
+
+        /**
+         * wait until the notification has to be replayed
+         * @param startTimeNs host time when the replay started
+         * @param recordTimeNs time of the notification from the first recorded one
+         * @throws InterruptedException if the node is disconnected
+         */
+        private void waitNotificationTime(long startTimeNs, long recordTimeNs) throws
+                InterruptedException {
+            if(Thread.interrupted())
+                throw new InterruptedException();
+            if(Float.isInfinite(mSpeed))
+                return;
+            long waitNs = startTimeNs + (long)(recordTimeNs/mSpeed) - System.nanoTime();
+            if(waitNs>0)
+                Thread.sleep(waitNs/1000000,(int)(waitNs%1000000));
+        }//waitNotificationTime
+
+        @Override
+        public void run() {
+            mNReplayedNotification=0;
+            long nNotification=0;
+            final long startTimeNs = System.nanoTime();
+            try {
+                NotificationRecorder.Reader reader = new NotificationRecorder.Reader(mRecordFile);
+                try {
+                    long firstTimestamp = 0;
+                    NotificationRecorder.Notification notification;
+                    while ((notification = reader.next()) != null) {
+                        if (nNotification == 0)
+                            firstTimestamp = notification.getTimestampNs();
+                        waitNotificationTime(startTimeNs,
+                                notification.getTimestampNs() - firstTimestamp);
+                        byte data[] = notification.getData();
+                        List<Feature> features = getCharFeatures(notification.getUuid());
+                        if (data.length >= 2 && isNotificationEnabled(features))
+                            updateFeatures(mUnwrapTimestamp, data, features);
+                        mNReplayedNotification = ++nNotification;
+                    }//while
+                } finally {
+                    reader.close();
+                }//try-finally
+            }catch (InterruptedException e){
+                //the node is disconnected
+                return;
+            }catch (IOException e){
+                Log.e(TAG,"Error reading the record: "+e.getMessage());
+                updateNodeStatus(State.Dead);
+                return;
+            }//try-catch
+            ReplayListener listener = mReplayListener;
+            if(listener!=null)
+                listener.onReplayCompleted(NodeReplay.this,nNotification,
+                        System.nanoTime()-startTimeNs);
+        }//run
+    }//ReplayTask
+
+}
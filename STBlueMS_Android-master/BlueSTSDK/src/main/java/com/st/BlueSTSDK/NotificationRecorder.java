@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Store the raw notifications received by a node inside an append only binary file.
+ * <p>
+ * The file starts with a header that contains the node advertise, followed by the records.
+ * Each characteristic uuid is written only once, with a 2 bytes id that is used by the following
+ * notifications: {@code id, host nano time, length, raw data}.
+ * A new recording appended to an existing file redefines the ids that it uses, the file must
+ * contain the record of the same node and a truncated record at its end is removed before
+ * appending the new data.
+ * </p>
+ * <p>
+ * The file can be read with {@link NotificationRecorder.Reader} or replayed with
+ * {@link NodeReplay}.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class NotificationRecorder implements Closeable {
+
+    private static final String TAG = NotificationRecorder.class.getCanonicalName();
+
+    /** first bytes of the file: "BLNR" */
+    static final int MAGIC = 0x424C4E52;
+    /** version of the file format */
+    static final byte VERSION = 1;
+    /** record that link an uuid with its id */
+    static final byte UUID_RECORD = 0;
+    /** record that contains a notification */
+    static final byte DATA_RECORD = 1;
+
+    private static final int BUFFER_SIZE = 8*1024;
+
+    /** stream where write the records */
+    private final DataOutputStream mOut;
+
+    /** id assigned to the characteristics already written in this recording */
+    private final Map<UUID,Integer> mUuidId = new HashMap<>();
+
+    /** number of notifications stored */
+    private long mNRecord;
+
+    /** true when the recorder can't store other data */
+    private boolean mIsClosed;
+
+    /**
+     * create a recorder for the node notifications, use
+     * {@link Node#setNotificationRecorder(NotificationRecorder)} for start the recording
+     * @param file file where append the notifications
+     * @param node node that will be recorded
+     * @throws IOException if the file can not be opened, or if it is not empty and it doesn't
+     * contain a notification record of the same node
+     */
+    public NotificationRecorder(File file, Node node) throws IOException {
+        this(file,node.getAdvertiseData());
+    }
+
+    /**
+     * create a recorder that store the advertise inside the file header
+     * @param file file where append the notifications
+     * @param advertise advertise of the recorded node
+     * @throws IOException if the file can not be opened, or if it is not empty and it doesn't
+     * contain a notification record with the same advertise
+     */
+    NotificationRecorder(File file, byte advertise[]) throws IOException {
+        boolean writeHeader = !file.exists() || file.length()==0;
+        if(!writeHeader)
+            prepareAppend(file,advertise);
+        mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file,true),
+                BUFFER_SIZE));
+        if(writeHeader){
+            mOut.writeInt(MAGIC);
+            mOut.writeByte(VERSION);
+            mOut.writeByte(advertise.length);
+            mOut.write(advertise);
+        }//if
+    }
+
+    /**
+     * check that the file contains a valid record of the same node and remove the last record
+     * if it was not completely written
+     * @param file file where append the notifications
+     * @param advertise advertise of the recorded node
+     * @throws IOException if the file is not valid or if it contains another node
+     */
+    private static void prepareAppend(File file, byte advertise[]) throws IOException{
+        long validLength;
+        Reader reader = new Reader(file);
+        try {
+            if (!Arrays.equals(reader.getAdvertise(), advertise))
+                throw new IOException("The file contains the record of another node");
+            validLength = reader.readValidLength();
+        }finally {
+            reader.close();
+        }//try-finally
+        if(validLength==file.length())
+            return;
+        Log.w(TAG,"Remove "+(file.length()-validLength)+" bytes of truncated record");
+        RandomAccessFile out = new RandomAccessFile(file,"rw");
+        try {
+            out.setLength(validLength);
+        }finally {
+            out.close();
+        }//try-finally
+    }//prepareAppend
+
+    /**
+     * store a notification using the current time
+     * @param uuid characteristic that sent the notification
+     * @param data notification data
+     */
+    void record(UUID uuid, byte data[]){
+        record(System.nanoTime(),uuid,data);
+    }//record
+
+    /**
+     * store a notification
+     * @param timestampNs host time when the notification is received, in nanoseconds
+     * @param uuid characteristic that sent the notification
+     * @param data notification data
+     */
+    synchronized void record(long timestampNs, UUID uuid, byte data[]){
+        if(mIsClosed || data==null)
+            return;
+        try {
+            Integer id = mUuidId.get(uuid);
+            if (id == null) {
+                id = mUuidId.size();
+                mUuidId.put(uuid, id);
+                mOut.writeByte(UUID_RECORD);
+                mOut.writeShort(id);
+                mOut.writeLong(uuid.getMostSignificantBits());
+                mOut.writeLong(uuid.getLeastSignificantBits());
+            }//if
+            mOut.writeByte(DATA_RECORD);
+            mOut.writeShort(id);
+            mOut.writeLong(timestampNs);
+            mOut.writeShort(data.length);
+            mOut.write(data);
+            mNRecord++;
+        }catch (IOException e){
+            Log.e(TAG,"Error recording the notification: "+e.getMessage());
+            close();
+        }//try-catch
+    }//record
+
+    /**
+     * get the number of stored notifications
+     * @return number of notifications written by this recorder
+     */
+    public synchronized long getNRecordedNotification(){
+        return mNRecord;
+    }//getNRecordedNotification
+
+    /**
+     * write the buffered notifications into the file
+     * @throws IOException if the write fails
+     */
+    public synchronized void flush() throws IOException {
+        if(!mIsClosed)
+            mOut.flush();
+    }//flush
+
+    /**
+     * write the buffered notifications and close the file, the following notifications are
+     * ignored
+     */
+    @Override
+    public synchronized void close(){
+        if(mIsClosed)
+            return;
+        mIsClosed=true;
+        try {
+            mOut.close();
+        } catch (IOException e) {
+            Log.e(TAG,"Error closing the record: "+e.getMessage());
+        }//try-catch
+    }//close
+
+    /**
+     * notification read from a record file
+     */
+    public static class Notification{
+        private final long mTimestampNs;
+        private final UUID mUuid;
+        private final byte mData[];
+
+        Notification(long timestampNs, UUID uuid, byte data[]){
+            mTimestampNs = timestampNs;
+            mUuid = uuid;
+            mData = data;
+        }
+
+        /**
+         * @return host time when the notification was received, in nanoseconds
+         */
+        public long getTimestampNs() {
+            return mTimestampNs;
+        }
+
+        /**
+         * @return characteristic that sent the notification
+         */
+        public UUID getUuid() {
+            return mUuid;
+        }
+
+        /**
+         * @return notification data
+         */
+        public byte[] getData() {
+            return mData;
+        }
+    }//Notification
+
+    /**
+     * read sequentially the notification stored by a {@link NotificationRecorder}
+     */
+    public static class Reader implements Closeable{
+
+        /** stream where read the records */
+        private final DataInputStream mIn;
+
+        /** advertise of the recorded node */
+        private final byte mAdvertise[];
+
+        /** characteristic uuid of each id */
+        private final Map<Integer,UUID> mIdUuid = new HashMap<>();
+
+        /** number of bytes of the header and of the records completely read */
+        private long mValidLength;
+
+        /**
+         * open a record file and read its header
+         * @param file file to read
+         * @throws IOException if the file can not be opened or if it is not a notification record
+         */
+        public Reader(File file) throws IOException{
+            mIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+                    BUFFER_SIZE));
+            try {
+                if (mIn.readInt() != MAGIC)
+                    throw new IOException("The file is not a notification record");
+                byte version = mIn.readByte();
+                if (version != VERSION)
+                    throw new IOException("Unsupported record version: " + version);
+                mAdvertise = new byte[mIn.readUnsignedByte()];
+                mIn.readFully(mAdvertise);
+                mValidLength = 4+1+1+mAdvertise.length;
+            }catch (IOException e){
+                mIn.close();
+                throw e;
+            }//try-catch
+        }
+
+        /**
+         * @return advertise of the recorded node
+         */
+        public byte[] getAdvertise(){
+            return mAdvertise.clone();
+        }//getAdvertise
+
+        /**
+         * read the next notification
+         * @return the next notification, or null when the file ends. A truncated record at the
+         * end of the file is ignored
+         * @throws IOException if the file can not be read or if it contains an invalid record
+         */
+        public @Nullable Notification next() throws IOException{
+            try {
+                while (true) {
+                    byte type = mIn.readByte();
+                    int id = mIn.readUnsignedShort();
+                    switch (type) {
+                        case UUID_RECORD:
+                            mIdUuid.put(id, new UUID(mIn.readLong(), mIn.readLong()));
+                            mValidLength += 1+2+8+8;
+                            break;
+                        case DATA_RECORD:
+                            long timestamp = mIn.readLong();
+                            byte data[] = new byte[mIn.readUnsignedShort()];
+                            mIn.readFully(data);
+                            UUID uuid = mIdUuid.get(id);
+                            if (uuid == null)
+                                throw new IOException("Unknown characteristic id: " + id);
+                            mValidLength += 1+2+8+2+data.length;
+                            return new Notification(timestamp, uuid, data);
+                        default:
+                            throw new IOException("Invalid record type: " + type);
+                    }//switch
+                }//while
+            }catch (EOFException e){
+                return null;
+            }//try-catch
+        }//next
+
+        /**
+         * read all the remaining records
+         * @return length of the file without the truncated record at its end
+         * @throws IOException if the file can not be read or if it contains an invalid record
+         */
+        long readValidLength() throws IOException{
+            while (next()!=null){
+                //skip the notification
+            }
+            return mValidLength;
+        }//readValidLength
+
+        @Override
+        public void close() throws IOException {
+            mIn.close();
+        }//close
+    }//Reader
+
+}
@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Transport;
+
+import android.annotation.TargetApi;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transport that uses the android ble gatt connection.
+ * <p>
+ * The characteristics are searched in all the node services, if two services export the same
+ * characteristic uuid the first one is used. The callbacks are called by the binder thread
+ * used by the ble stack.
+ * </p>
+ * <p>
+ * The rssi and the connection priority don't exist in the other transports, so they are
+ * available only through this class.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class GattTransport implements NodeTransport {
+
+    private static final String TAG = GattTransport.class.getCanonicalName();
+
+    /** standard descriptor used for enable/disable the notification */
+    private static final UUID NOTIFY_CHAR_DESC_UUID = UUID.fromString
+            ("00002902-0000-1000-8000-00805f9b34fb");
+
+    private static final int MAX_REFRESH_DEVICE_CACHE_TRY=10;
+
+    /**
+     * Interface used for notify the rssi read
+     */
+    public interface RssiListener{
+
+        /**
+         * called when the rssi read ends successfully
+         * @param transport transport that read the rssi
+         * @param rssi rssi with the device
+         */
+        void onRssiRead(GattTransport transport, int rssi);
+    }//RssiListener
+
+    private final Context mContext;
+    private final BluetoothDevice mDevice;
+    private final boolean mRefreshCache;
+    private final RssiListener mRssiListener;
+
+    private Callback mCallback;
+    /** gatt connection with the device, null if the connection is closed */
+    private volatile BluetoothGatt mConnection;
+    /** characteristics found by the last discovery */
+    private volatile Map<UUID,BluetoothGattCharacteristic> mCharacteristics =
+            Collections.emptyMap();
+
+    /**
+     * @param context context used for open the connection
+     * @param device device to connect
+     * @param refreshCache true for clear the android cache of the device services before the
+     *                     discovery
+     * @param rssiListener object where notify the rssi, can be null
+     */
+    public GattTransport(@NonNull Context context, @NonNull BluetoothDevice device,
+                         boolean refreshCache, @Nullable RssiListener rssiListener){
+        mContext = context;
+        mDevice = device;
+        mRefreshCache = refreshCache;
+        mRssiListener = rssiListener;
+    }
+
+    /**
+     * invoke an hide method for clear the device cache, in this way we can have device with same
+     * name and mac that export different service/char in different connection (maybe because we
+     * are developing on it)
+     * @param gatt connection with the device
+     * @return tue il the call is invoke correctly
+     */
+    private static boolean refreshDeviceCache(BluetoothGatt gatt){
+        try {
+            Method localMethod = gatt.getClass().getMethod("refresh");
+            if (localMethod != null) {
+                boolean done =false;
+                int nTry =0;
+                while (!done && nTry<MAX_REFRESH_DEVICE_CACHE_TRY) {
+                    done=((Boolean) localMethod.invoke(gatt));
+                    nTry++;
+                }//while
+                Log.d(TAG, "Refreshing Device Cache: "+done);
+                return done;
+            }//if
+        } catch (Exception localException) {
+            Log.e(TAG, "An exception occurred while refreshing device cache.");
+        }//try-catch
+        return false;
+    }//refreshDeviceCache
+
+    @Override
+    public boolean connect(Callback callback) {
+        mCallback = callback;
+        BluetoothGatt connection = mDevice.connectGatt(mContext,false,new GattCallback());
+        if(connection==null)
+            return false;
+        mConnection = connection;
+        if(mRefreshCache)
+            refreshDeviceCache(connection);
+        return true;
+    }//connect
+
+    @Override
+    public boolean discoverCharacteristics() {
+        BluetoothGatt connection = mConnection;
+        return connection!=null && connection.discoverServices();
+    }
+
+    @Override
+    public int getCharacteristicProperties(UUID characteristic) {
+        BluetoothGattCharacteristic c = mCharacteristics.get(characteristic);
+        if(c==null)
+            return 0;
+        int properties = c.getProperties() & PROPERTY_ALL;
+        //without the descriptor the notification can not be enabled
+        if(c.getDescriptor(NOTIFY_CHAR_DESC_UUID)==null)
+            properties &= ~PROPERTY_NOTIFY;
+        return properties;
+    }//getCharacteristicProperties
+
+    @Override
+    public boolean readCharacteristic(UUID characteristic) {
+        BluetoothGatt connection = mConnection;
+        BluetoothGattCharacteristic c = mCharacteristics.get(characteristic);
+        return connection!=null && c!=null && connection.readCharacteristic(c);
+    }//readCharacteristic
+
+    @Override
+    public boolean writeCharacteristic(UUID characteristic, byte[] data, boolean withResponse) {
+        BluetoothGatt connection = mConnection;
+        BluetoothGattCharacteristic c = mCharacteristics.get(characteristic);
+        if(connection==null || c==null)
+            return false;
+        //the characteristic is shared with the other writes: restore its write type
+        int oldWriteType = c.getWriteType();
+        c.setWriteType(withResponse ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT :
+                BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        c.setValue(data);
+        boolean started = connection.writeCharacteristic(c);
+        c.setWriteType(oldWriteType);
+        return started;
+    }//writeCharacteristic
+
+    @Override
+    public boolean setCharacteristicNotification(UUID characteristic, boolean enable) {
+        BluetoothGatt connection = mConnection;
+        BluetoothGattCharacteristic c = mCharacteristics.get(characteristic);
+        if(connection==null || c==null)
+            return false;
+        BluetoothGattDescriptor descriptor = c.getDescriptor(NOTIFY_CHAR_DESC_UUID);
+        if(descriptor==null)
+            return false;
+        connection.setCharacteristicNotification(c, enable);
+        descriptor.setValue(enable ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE :
+                BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
+        return connection.writeDescriptor(descriptor);
+    }//setCharacteristicNotification
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public boolean requestMtu(int mtu) {
+        BluetoothGatt connection = mConnection;
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP &&
+                connection!=null && connection.requestMtu(mtu);
+    }//requestMtu
+
+    /**
+     * ask a new rssi value, the result is notified to the {@link RssiListener}
+     * @return true if the request is sent
+     */
+    public boolean readRemoteRssi(){
+        BluetoothGatt connection = mConnection;
+        return connection!=null && connection.readRemoteRssi();
+    }//readRemoteRssi
+
+    /**
+     * change the connection interval, available only on android 5.0 or above
+     * @param connectionPriority one of the BluetoothGatt.CONNECTION_PRIORITY_* values
+     * @return true if the request is sent
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public boolean requestConnectionPriority(int connectionPriority){
+        BluetoothGatt connection = mConnection;
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP &&
+                connection!=null && connection.requestConnectionPriority(connectionPriority);
+    }//requestConnectionPriority
+
+    /**
+     * close the connection, the gatt resources are released when the stack notifies the
+     * disconnection
+     */
+    @Override
+    public void disconnect() {
+        BluetoothGatt connection = mConnection;
+        if(connection!=null)
+            connection.disconnect();
+    }//disconnect
+
+    /**
+     * release the gatt resources and notify that the connection is closed
+     */
+    private void onClosed(){
+        BluetoothGatt connection = mConnection;
+        mConnection = null;
+        mCharacteristics = Collections.emptyMap();
+        if(connection!=null)
+            connection.close();
+        mCallback.onConnectionChange(this, false);
+    }//onClosed
+
+    /**
+     * build the index of the characteristics exported by all the services
+     * @param services node services
+     * @return uuid of the characteristics, in the same order of the services
+     */
+    private List<UUID> buildCharacteristicsIndex(List<BluetoothGattService> services){
+        Map<UUID,BluetoothGattCharacteristic> characteristics = new HashMap<>();
+        List<UUID> uuids = new ArrayList<>();
+        for(BluetoothGattService service : services){
+            for(BluetoothGattCharacteristic c : service.getCharacteristics()){
+                if(characteristics.containsKey(c.getUuid()))
+                    continue;
+                characteristics.put(c.getUuid(),c);
+                uuids.add(c.getUuid());
+            }//for
+        }//for
+        mCharacteristics = characteristics;
+        return uuids;
+    }//buildCharacteristicsIndex
+
+    /** map the gatt callbacks in the transport callbacks */
+    private class GattCallback extends BluetoothGattCallback {
+
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState){
+            Log.d(TAG,"Device: "+mDevice.getAddress()+" Status: "+status+" newState: "+newState);
+            if(status==BluetoothGatt.GATT_SUCCESS &&
+                    newState==BluetoothProfile.STATE_CONNECTED) {
+                mCallback.onConnectionChange(GattTransport.this, true);
+            }else if(status!=BluetoothGatt.GATT_SUCCESS ||
+                    newState==BluetoothProfile.STATE_DISCONNECTED){
+                onClosed();
+            }//if-else
+        }//onConnectionStateChange
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status){
+            //a failed discovery is notified as a node without characteristics
+            List<UUID> characteristics = status==BluetoothGatt.GATT_SUCCESS ?
+                    buildCharacteristicsIndex(gatt.getServices()) :
+                    Collections.<UUID>emptyList();
+            mCallback.onCharacteristicsDiscovered(GattTransport.this, characteristics);
+        }//onServicesDiscovered
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt,
+                                            BluetoothGattCharacteristic characteristic) {
+            mCallback.onCharacteristicChanged(GattTransport.this, characteristic.getUuid(),
+                    characteristic.getValue());
+        }//onCharacteristicChanged
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt,
+                                         BluetoothGattCharacteristic characteristic, int status) {
+            mCallback.onCharacteristicRead(GattTransport.this, characteristic.getUuid(),
+                    status==BluetoothGatt.GATT_SUCCESS ? characteristic.getValue() : null);
+        }//onCharacteristicRead
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt,
+                                          BluetoothGattCharacteristic characteristic, int status) {
+            mCallback.onCharacteristicWrite(GattTransport.this, characteristic.getUuid(),
+                    status==BluetoothGatt.GATT_SUCCESS);
+        }//onCharacteristicWrite
+
+        /**
+         * the descriptor data are not checked: in the samsung device sometime the callback has
+         * a descriptor with null data
+         */
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor,
+                                      int status) {
+            if(!NOTIFY_CHAR_DESC_UUID.equals(descriptor.getUuid()))
+                return;
+            mCallback.onNotificationChange(GattTransport.this,
+                    descriptor.getCharacteristic().getUuid(),
+                    status==BluetoothGatt.GATT_SUCCESS);
+        }//onDescriptorWrite
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            mCallback.onMtuChange(GattTransport.this, mtu, status==BluetoothGatt.GATT_SUCCESS);
+        }//onMtuChanged
+
+        @Override
+        public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status){
+            if(status != BluetoothGatt.GATT_SUCCESS){
+                Log.e(TAG, "Impossible retrieve the rssi value");
+                return;
+            }//if
+            if(mRssiListener!=null)
+                mRssiListener.onRssiRead(GattTransport.this, rssi);
+        }//onReadRemoteRssi
+
+    }//GattCallback
+
+}
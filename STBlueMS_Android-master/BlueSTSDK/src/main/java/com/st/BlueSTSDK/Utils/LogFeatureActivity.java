@@ -29,6 +29,7 @@ package com.st.BlueSTSDK.Utils;
 import android.Manifest;
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.pm.PackageInfo;
@@ -36,6 +37,7 @@ import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
@@ -48,6 +50,7 @@ import android.view.ViewGroup;
 
 import com.st.BlueSTSDK.Feature;
 import com.st.BlueSTSDK.Log.FeatureLogBase;
+import com.st.BlueSTSDK.Log.FeatureLogBinary;
 import com.st.BlueSTSDK.Log.FeatureLogCSVFile;
 import com.st.BlueSTSDK.Log.FeatureLogDB;
 import com.st.BlueSTSDK.Node;
@@ -56,6 +59,7 @@ import com.st.BlueSTSDK.R;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Helper class for an activity that have to log the feature data, this code manage the permission
@@ -73,11 +77,57 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
      */
     private static final int REQUEST_WRITE_ACCESS=1;
 
+    /**
+     * max number of samples that the logger receives at time, if it supports the batch logging
+     */
+    private static final int LOG_BATCH_SIZE=64;
+
+    /**
+     * max time that a sample waits before being logged, if the logger supports the batch logging
+     */
+    private static final long LOG_BATCH_MAX_LATENCY_MS=1000;
+
     /**
      * object used for log the data
      */
     private static Feature.FeatureLoggerListener mCurrentLogger;
 
+    /**
+     * batch loggers removed while stopping the log, null if the log is not stopping
+     */
+    private @Nullable PendingLoggerRemoval mPendingRemoval;
+
+    /**
+     * count the features that still have to deliver their last batch to the logger and run a
+     * task when all of them have done it
+     */
+    private static class PendingLoggerRemoval implements Runnable{
+        /** one more than the features, the last count is removed when all the features are
+         * removed */
+        private final AtomicInteger mNPending = new AtomicInteger(1);
+        private final Runnable mOnRemoved;
+
+        PendingLoggerRemoval(Runnable onRemoved){
+            mOnRemoved = onRemoved;
+        }
+
+        /**
+         * add a feature to wait
+         */
+        void add(){
+            mNPending.incrementAndGet();
+        }
+
+        /**
+         * called when a feature delivered its last batch
+         */
+        @Override
+        public void run() {
+            if(mNPending.decrementAndGet()==0)
+                mOnRemoved.run();
+        }
+    }//PendingLoggerRemoval
+
     /**
      * return the list of nodes to log
      * @return node that we want to log
@@ -198,7 +248,11 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
     private void registerLoggerListener(Node n){
         List<Feature> features = n.getFeatures();
         for (Feature f : features) {
-            f.addFeatureLoggerListener(mCurrentLogger);
+            if(mCurrentLogger instanceof Feature.FeatureLoggerBatchListener)
+                f.addFeatureLoggerBatchListener((Feature.FeatureLoggerBatchListener) mCurrentLogger,
+                        LOG_BATCH_SIZE, LOG_BATCH_MAX_LATENCY_MS);
+            else
+                f.addFeatureLoggerListener(mCurrentLogger);
         }//for
     }//registerLoggerListener
 
@@ -223,6 +277,7 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
 
         //if api >23 and we will store on disk
         if((mCurrentLogger instanceof FeatureLogCSVFile ||
+                mCurrentLogger instanceof FeatureLogBinary ||
                 mCurrentLogger instanceof FeatureLogDB) &&
                 (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)) {
             if(checkWriteSDPermission()){
@@ -239,29 +294,123 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
      * remove the logging listener from all the nodes and ask to send a mail with the data
      * @param forceClose close the activity when the mail is send
      */
-    protected void stopLogging(boolean forceClose)
+    protected void stopLogging(final boolean forceClose)
     {
         if (mCurrentLogger==null)
             return;
+        final Feature.FeatureLoggerListener logger = mCurrentLogger;
+        //the logger is closed when all the features delivered their last batch
+        final PendingLoggerRemoval removal = new PendingLoggerRemoval(new Runnable() {
+            @Override
+            public void run() {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        closeLogger(logger,forceClose);
+                    }
+                });
+            }
+        });
+        mPendingRemoval = removal;
         for(Node n : getNodesToLog()) {
             stopLogging(n);
         }
+        mPendingRemoval = null;
+        removal.run();
+
+        mCurrentLogger=null;
+        invalidateOptionsMenu();
+
+    }
 
+    /**
+     * close the logger and export its files
+     * @param logger logger to close
+     * @param forceClose close the activity when the mail is send
+     */
+    private void closeLogger(Feature.FeatureLoggerListener logger, boolean forceClose){
         final String directoryPath =getLogDirectory();
-        File exportFiles[] = null;
-        if (mCurrentLogger instanceof FeatureLogCSVFile) {
-            ((FeatureLogCSVFile) mCurrentLogger).closeFiles();
-            exportFiles = FeatureLogCSVFile.getLogFiles(directoryPath);
+        final String sessionPrefix = logger instanceof FeatureLogBase ?
+                ((FeatureLogBase)logger).logSessionPrefix() : null;
+        if (logger instanceof FeatureLogCSVFile) {
+            ((FeatureLogCSVFile) logger).closeFiles(
+                    exportWhenClosed(directoryPath,sessionPrefix,forceClose));
         }//if
 
-        if (mCurrentLogger instanceof FeatureLogDB) {
-            FeatureLogDB db = (FeatureLogDB) mCurrentLogger;
-            exportFiles = db.dumpToFile(directoryPath);
+        if (logger instanceof FeatureLogBinary) {
+            ((FeatureLogBinary) logger).closeFiles(
+                    exportWhenClosed(directoryPath,sessionPrefix,forceClose));
+        }//if
+
+        if (logger instanceof FeatureLogDB) {
+            exportDB((FeatureLogDB) logger,sessionPrefix,forceClose);
         }
+    }//closeLogger
+
+    /**
+     * build a listener that exports the log files when the logger closes them
+     * @param directoryPath directory where the logger writes the files
+     * @param sessionPrefix prefix of the files created by the logger
+     * @param forceClose close the activity when the mail is send
+     * @return listener that moves the export in the ui thread
+     */
+    private FeatureLogBase.CloseListener exportWhenClosed(final String directoryPath,
+                                                         @Nullable final String sessionPrefix,
+                                                         final boolean forceClose){
+        return new FeatureLogBase.CloseListener() {
+            @Override
+            public void onLogClosed(FeatureLogBase log) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        exportLogFiles(FeatureLogBase.getLogFiles(directoryPath),sessionPrefix,
+                                forceClose);
+                    }
+                });
+            }
+        };
+    }//exportWhenClosed
 
+    /**
+     * export the db tables in background, showing the progress
+     * @param db logger to export
+     * @param sessionPrefix prefix of the files created by the logger
+     * @param forceClose close the activity when the mail is send
+     */
+    private void exportDB(FeatureLogDB db, @Nullable final String sessionPrefix,
+                          final boolean forceClose){
+        final ProgressDialog progress = new ProgressDialog(this);
+        progress.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progress.setMessage(getString(R.string.exportingLog));
+        progress.setCancelable(false);
+        progress.setMax(100);
+        progress.show();
+        db.dumpToFile(false, new FeatureLogDB.ExportListener() {
+            @Override
+            public void onExportProgress(FeatureLogDB log, long nExportedRows, long nRows) {
+                if(nRows>0)
+                    progress.setProgress((int) (100*nExportedRows/nRows));
+            }
+
+            @Override
+            public void onExportCompleted(FeatureLogDB log, @Nullable File[] files) {
+                progress.dismiss();
+                exportLogFiles(files,sessionPrefix,forceClose);
+            }
+        });
+    }//exportDB
+
+    /**
+     * ask to send a mail with the log files of the session
+     * @param exportFiles log files, can be null
+     * @param sessionPrefix prefix of the files created by the logger
+     * @param forceClose close the activity when the mail is send
+     */
+    private void exportLogFiles(@Nullable File exportFiles[], @Nullable String sessionPrefix,
+                                boolean forceClose){
         //if we have something to export
         if(exportFiles!=null && exportFiles.length>0) {
-            exportFiles = filterFileEmptyAndSession(exportFiles, ((FeatureLogBase)mCurrentLogger).logSessionPrefix());
+            exportFiles = filterFileEmptyAndSession(exportFiles, sessionPrefix);
             if(exportFiles.length>0) //if we have a non empty
 
             exportDataByMail(this,getLogDirectory(),exportFiles,forceClose);
@@ -270,11 +419,7 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
                         Uri.fromFile(f)));
             }//for
         }//if !=null
-
-        mCurrentLogger=null;
-        invalidateOptionsMenu();
-
-    }
+    }//exportLogFiles
 
     /**
      * true if the user is logging some data
@@ -334,7 +479,14 @@ public abstract class LogFeatureActivity extends AppCompatActivity {
     protected void stopLogging(Node n) {
         List<Feature> features = n.getFeatures();
         for (Feature f : features) {
-            f.removeFeatureLoggerListener(mCurrentLogger);
+            if(mCurrentLogger instanceof Feature.FeatureLoggerBatchListener) {
+                PendingLoggerRemoval removal = mPendingRemoval;
+                if(removal!=null)
+                    removal.add();
+                f.removeFeatureLoggerBatchListener(
+                        (Feature.FeatureLoggerBatchListener) mCurrentLogger, removal);
+            }else
+                f.removeFeatureLoggerListener(mCurrentLogger);
         }//for
     }
 
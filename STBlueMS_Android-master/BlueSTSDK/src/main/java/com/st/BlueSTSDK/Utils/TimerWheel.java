@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK.Utils;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler shared between all the nodes, used for the node lost timeouts, the rssi polling and
+ * the command retries.
+ * <p>
+ * The delayed tasks are stored in a hashed timer wheel: the time is divided in ticks and each
+ * task is inserted in the bucket of the tick when it expires, so schedule and cancel are O(1)
+ * also with hundreds of discovered nodes. A single thread move the wheel, and only when there are
+ * pending tasks; the expired tasks run on a small fixed pool of threads, since some tasks can
+ * block waiting the ble operations. In this way the number of threads doesn't depend on the
+ * number of nodes.
+ * </p>
+ * <p>
+ * A task is identified by its object as in the {@link android.os.Handler}: {@link #cancel(Runnable)}
+ * remove all the pending schedules of that object.
+ * </p>
+ *
+ * @author STMicroelectronics - Central Labs.
+ * @version 1.0
+ */
+public class TimerWheel {
+
+    private static final String TAG = TimerWheel.class.getCanonicalName();
+
+    /** default tick duration */
+    private static final long DEFAULT_TICK_MS = 10;
+
+    /** default number of buckets, with the default tick a round is ~5s */
+    private static final int DEFAULT_N_BUCKET = 512;
+
+    /** default number of threads that run the expired tasks */
+    private static final int DEFAULT_N_WORKER = 4;
+
+    private static TimerWheel sSharedInstance;
+
+    /**
+     * get the scheduler shared by all the nodes
+     * @return shared scheduler
+     */
+    public static synchronized TimerWheel getSharedInstance(){
+        if(sSharedInstance==null)
+            sSharedInstance = new TimerWheel(DEFAULT_TICK_MS,DEFAULT_N_BUCKET,DEFAULT_N_WORKER);
+        return sSharedInstance;
+    }
+
+    /**
+     * task scheduled inside the wheel, each bucket is a double linked list of timeouts
+     */
+    private static final class Timeout{
+        final Runnable task;
+        final long deadlineTick;
+        final int bucket;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(Runnable task, long deadlineTick, int bucket){
+            this.task=task;
+            this.deadlineTick=deadlineTick;
+            this.bucket=bucket;
+        }
+    }
+
+    private final long mTickMs;
+    private final int mMask;
+    private final Timeout[] mBuckets;
+
+    /** pending timeouts of each task, used for cancel a task without searching in the wheel */
+    private final Map<Runnable,List<Timeout>> mPendingTimeouts = new IdentityHashMap<>();
+    private int mNPending;
+
+    /** time when the wheel was created, the tick 0 */
+    private final long mStartTimeMs;
+    /** last tick processed by the wheel thread */
+    private long mLastTick;
+
+    /** thread that move the wheel, created the first time that a task is scheduled */
+    private Thread mWheelThread;
+
+    /** pool used for run the expired tasks */
+    private final Executor mWorkers;
+
+    /**
+     * create a new scheduler, use {@link #getSharedInstance()} for have the one used by the nodes
+     * @param tickMs duration of a tick, the delay are rounded up to the next tick
+     * @param nBucket number of buckets in the wheel, rounded to the next power of 2
+     * @param nWorker number of threads that run the expired tasks
+     */
+    public TimerWheel(long tickMs, int nBucket, int nWorker){
+        if(tickMs<=0 || nBucket<=0 || nWorker<=0)
+            throw new IllegalArgumentException("tickMs, nBucket and nWorker must be positive");
+        int size = Integer.highestOneBit(nBucket);
+        if(size<nBucket)
+            size = size<<1;
+        mTickMs = tickMs;
+        mMask = size-1;
+        mBuckets = new Timeout[size];
+        mStartTimeMs = now();
+        mLastTick = 0;
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(nWorker, nWorker, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("TimerWheelWorker"));
+        workers.allowCoreThreadTimeOut(true);
+        mWorkers = workers;
+    }
+
+    private static long now(){
+        return System.nanoTime()/1000000L;
+    }
+
+    /**
+     * run a task as soon as possible in one of the scheduler threads
+     * <p>a posted task is not affected by {@link #cancel(Runnable)}</p>
+     * @param task task to run
+     */
+    public void post(@NonNull Runnable task){
+        mWorkers.execute(task);
+    }
+
+    /**
+     * run a task after a delay
+     * @param task task to run
+     * @param delayMs time to wait, it is rounded up to the next tick
+     */
+    public void schedule(@NonNull Runnable task, long delayMs){
+        synchronized (mBuckets){
+            long deadlineTick = (now()+Math.max(delayMs,0)-mStartTimeMs+mTickMs-1)/mTickMs;
+            //the buckets up to mLastTick are already processed
+            if(deadlineTick<=mLastTick)
+                deadlineTick=mLastTick+1;
+            int bucket = (int) (deadlineTick & mMask);
+            Timeout timeout = new Timeout(task,deadlineTick,bucket);
+            timeout.next = mBuckets[bucket];
+            if(timeout.next!=null)
+                timeout.next.prev=timeout;
+            mBuckets[bucket]=timeout;
+
+            List<Timeout> taskTimeouts = mPendingTimeouts.get(task);
+            if(taskTimeouts==null){
+                taskTimeouts = new ArrayList<>(1);
+                mPendingTimeouts.put(task,taskTimeouts);
+            }
+            taskTimeouts.add(timeout);
+            mNPending++;
+            startWheelThread();
+            mBuckets.notifyAll();
+        }//synchronized
+    }
+
+    /**
+     * remove all the pending schedules of a task
+     * @param task task to remove
+     */
+    public void cancel(Runnable task){
+        synchronized (mBuckets){
+            List<Timeout> taskTimeouts = mPendingTimeouts.remove(task);
+            if(taskTimeouts==null)
+                return;
+            for(Timeout t : taskTimeouts){
+                unlink(t);
+            }
+            mNPending-=taskTimeouts.size();
+        }//synchronized
+    }
+
+    /**
+     * @return number of tasks waiting their deadline
+     */
+    public int getNPendingTask(){
+        synchronized (mBuckets){
+            return mNPending;
+        }
+    }
+
+    /**
+     * remove a timeout from its bucket, must be called with the lock
+     */
+    private void unlink(Timeout t){
+        if(t.prev!=null)
+            t.prev.next=t.next;
+        else
+            mBuckets[t.bucket]=t.next;
+        if(t.next!=null)
+            t.next.prev=t.prev;
+        t.prev=null;
+        t.next=null;
+    }
+
+    /**
+     * remove from the bucket all the expired timeouts, must be called with the lock
+     * @param bucket bucket to process
+     * @param tick current tick
+     * @param expired list where store the expired tasks
+     */
+    private void expireBucket(int bucket, long tick, List<Runnable> expired){
+        Timeout t = mBuckets[bucket];
+        while(t!=null){
+            Timeout next = t.next;
+            if(t.deadlineTick<=tick){
+                unlink(t);
+                List<Timeout> taskTimeouts = mPendingTimeouts.get(t.task);
+                taskTimeouts.remove(t);
+                if(taskTimeouts.isEmpty())
+                    mPendingTimeouts.remove(t.task);
+                mNPending--;
+                expired.add(t.task);
+            }//if
+            t=next;
+        }//while
+    }
+
+    private void startWheelThread(){
+        if(mWheelThread!=null)
+            return;
+        mWheelThread = new DaemonThreadFactory("TimerWheel").newThread(new Runnable() {
+            @Override
+            public void run() {
+                runWheel();
+            }
+        });
+        mWheelThread.start();
+    }
+
+    /**
+     * move the wheel, it sleeps when there aren't pending tasks
+     */
+    private void runWheel(){
+        List<Runnable> expired = new ArrayList<>();
+        while(true){
+            synchronized (mBuckets){
+                try {
+                    long currentTick = (now()-mStartTimeMs)/mTickMs;
+                    if(mNPending==0) {
+                        //nothing to do: move the wheel without processing the buckets
+                        mLastTick = currentTick;
+                        mBuckets.wait();
+                        continue;
+                    }//if
+                    long nTick = currentTick - mLastTick;
+                    if(nTick>mMask){
+                        //more than a round: each bucket is processed once
+                        for(int i=0;i<=mMask;i++)
+                            expireBucket(i,currentTick,expired);
+                    }else{
+                        for(long tick = mLastTick+1;tick<=currentTick;tick++)
+                            expireBucket((int)(tick & mMask),tick,expired);
+                    }
+                    mLastTick = currentTick;
+                    if(expired.isEmpty()) {
+                        long nextTickTime = mStartTimeMs + (currentTick + 1) * mTickMs;
+                        mBuckets.wait(Math.max(1,nextTickTime-now()));
+                    }
+                } catch (InterruptedException e) {
+                    Log.e(TAG,"Timer wheel interrupted");
+                    return;
+                }//try-catch
+            }//synchronized
+            for(Runnable task : expired)
+                mWorkers.execute(task);
+            expired.clear();
+        }//while
+    }
+
+    /**
+     * create daemon threads, so the scheduler doesn't keep alive the process
+     */
+    private static class DaemonThreadFactory implements ThreadFactory{
+
+        private final String mName;
+        private final AtomicInteger mNThread = new AtomicInteger(0);
+
+        DaemonThreadFactory(String name){
+            mName=name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread t = new Thread(runnable,mName+"-"+mNThread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
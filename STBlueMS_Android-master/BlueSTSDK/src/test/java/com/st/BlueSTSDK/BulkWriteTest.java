@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Utils.TimerWheel;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+public class BulkWriteTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * writer that store the chunks, the callback is sent by calling complete
+     */
+    private static class FakeWriter implements BulkWrite.ChunkWriter{
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        int nWrite=0;
+        int nRefuse=0;
+
+        @Override
+        public boolean write(UUID characteristic, byte[] data) {
+            if(nRefuse>0){
+                nRefuse--;
+                return false;
+            }
+            nWrite++;
+            written.write(data,0,data.length);
+            return true;
+        }
+    }
+
+    private static class ProgressCounter implements BulkWrite.BulkWriteListener{
+        long lastByteSent=0;
+        int nComplete=0;
+        boolean success=false;
+
+        @Override
+        public void onProgress(BulkWrite write, long byteSent, long byteToSend) {
+            Assert.assertTrue(byteSent > lastByteSent);
+            lastByteSent=byteSent;
+        }
+
+        @Override
+        public void onComplete(BulkWrite write, boolean success) {
+            nComplete++;
+            this.success=success;
+        }
+    }
+
+    private UUID mChar;
+    private GattOperationScheduler mScheduler;
+    private FakeWriter mWriter;
+    private ProgressCounter mListener;
+
+    @Before
+    public void setUp(){
+        mChar = UUID.randomUUID();
+        mScheduler = new GattOperationScheduler(DIRECT_EXECUTOR,new TimerWheel(5,8,1));
+        mScheduler.resume();
+        mWriter = new FakeWriter();
+        mListener = new ProgressCounter();
+    }
+
+    private static byte[] buildData(int length){
+        byte data[] = new byte[length];
+        for(int i=0;i<length;i++)
+            data[i]=(byte)i;
+        return data;
+    }
+
+    private void completeAll(){
+        while(mScheduler.onComplete(mChar,true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunkSizeMustBePositive(){
+        new BulkWrite(mScheduler,mWriter,mChar,new byte[10],0,10,0,1,null);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rangeMustBeInsideTheData(){
+        new BulkWrite(mScheduler,mWriter,mChar,new byte[10],5,10,2,1,null);
+    }
+
+    @Test
+    public void allTheDataAreWrittenInOrder(){
+        byte data[] = buildData(100);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,16,4,
+                mListener);
+        write.start();
+        completeAll();
+
+        Assert.assertArrayEquals(data, mWriter.written.toByteArray());
+        Assert.assertEquals(7, mWriter.nWrite);
+        Assert.assertTrue(write.isSuccess());
+        Assert.assertEquals(1, mListener.nComplete);
+        Assert.assertEquals(100, mListener.lastByteSent);
+        Assert.assertEquals(100, write.getByteSent());
+    }
+
+    @Test
+    public void onlyARangeIsWritten(){
+        byte data[] = buildData(100);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,10,20,16,4,mListener);
+        write.start();
+        completeAll();
+        Assert.assertArrayEquals(java.util.Arrays.copyOfRange(data,10,30),
+                mWriter.written.toByteArray());
+        Assert.assertTrue(write.isSuccess());
+    }
+
+    @Test
+    public void emptyTransferEndsImmediately(){
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,new byte[0],0,0,16,4,mListener);
+        write.start();
+        Assert.assertTrue(write.isSuccess());
+        Assert.assertEquals(1, mListener.nComplete);
+    }
+
+    @Test
+    public void windowGrowsUpToMaxInFlight(){
+        byte data[] = buildData(1000);
+        int maxInFlight=4;
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,10,
+                maxInFlight,mListener);
+        write.start();
+        for(int i=0;i<50;i++) {
+            Assert.assertTrue(write.getNInFlight() <= maxInFlight);
+            mScheduler.onComplete(mChar, true);
+        }
+        Assert.assertEquals(maxInFlight, write.getWindowSize());
+        Assert.assertEquals(maxInFlight, write.getNInFlight());
+    }
+
+    @Test
+    public void refusedWriteShrinksTheWindow(){
+        byte data[] = buildData(1000);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,10,
+                8,mListener);
+        write.start();
+        for(int i=0;i<50;i++)
+            mScheduler.onComplete(mChar, true);
+        int window = write.getWindowSize();
+        mWriter.nRefuse=1;
+        mScheduler.onComplete(mChar, true);
+        Assert.assertEquals(1, write.getNRefusedWrite());
+        Assert.assertTrue(write.getWindowSize() < window);
+    }
+
+    @Test
+    public void failedWriteStopsTheTransfer(){
+        byte data[] = buildData(100);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,10,4,
+                mListener);
+        write.start();
+        mScheduler.onComplete(mChar, false);
+        completeAll();
+        Assert.assertTrue(write.isDone());
+        Assert.assertFalse(write.isSuccess());
+        Assert.assertEquals(1, mListener.nComplete);
+        Assert.assertFalse(mListener.success);
+        Assert.assertEquals(0, mScheduler.getNPendingOperation());
+    }
+
+    @Test
+    public void clearTheSchedulerStopsTheTransfer(){
+        byte data[] = buildData(100);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,10,4,
+                mListener);
+        write.start();
+        mScheduler.clear();
+        Assert.assertTrue(write.isDone());
+        Assert.assertFalse(write.isSuccess());
+        Assert.assertEquals(1, mListener.nComplete);
+    }
+
+    @Test
+    public void canceledChunksAreNotWritten(){
+        byte data[] = buildData(100);
+        BulkWrite write = new BulkWrite(mScheduler,mWriter,mChar,data,0,data.length,10,4,
+                mListener);
+        write.start();
+        write.cancel();
+        completeAll();
+        Assert.assertEquals(1, mWriter.nWrite);
+        Assert.assertFalse(write.isSuccess());
+    }
+
+}
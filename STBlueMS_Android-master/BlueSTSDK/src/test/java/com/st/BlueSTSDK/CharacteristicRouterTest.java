@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Utils.BLENodeDefines;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class CharacteristicRouterTest {
+
+    private static final byte DATA[] = new byte[]{0x01,0x02};
+
+    private static class CountHandler extends CharacteristicRouter.Handler{
+        int nChanged;
+        int nRead;
+        int nWrite;
+
+        @Override
+        void onChanged(UUID characteristic, byte value[]) {
+            nChanged++;
+        }
+
+        @Override
+        void onRead(UUID characteristic, byte value[]) {
+            nRead++;
+        }
+
+        @Override
+        void onWrite(UUID characteristic, byte value[], boolean success) {
+            nWrite++;
+        }
+    }
+
+    private static UUID createFeatureChar(int featureMask){
+        return UUID.fromString(String.format("%08x-",featureMask)+
+                BLENodeDefines.FeatureCharacteristics.COMMON_FEATURE_UUID);
+    }
+
+    @Test
+    public void unknownCharIsNotHandled(){
+        CharacteristicRouter router = new CharacteristicRouter();
+        Assert.assertFalse(router.onChanged(createFeatureChar(1),DATA));
+        Assert.assertFalse(router.onRead(createFeatureChar(1),DATA));
+        Assert.assertFalse(router.onWrite(createFeatureChar(1),DATA,true));
+    }
+
+    @Test
+    public void eventsAreSentToTheHandler(){
+        CharacteristicRouter router = new CharacteristicRouter();
+        CountHandler handler = new CountHandler();
+        UUID characteristic = createFeatureChar(1);
+        router.add(characteristic,handler);
+
+        Assert.assertTrue(router.onChanged(characteristic,DATA));
+        Assert.assertTrue(router.onRead(characteristic,DATA));
+        Assert.assertTrue(router.onWrite(characteristic,DATA,false));
+        Assert.assertEquals(1,handler.nChanged);
+        Assert.assertEquals(1,handler.nRead);
+        Assert.assertEquals(1,handler.nWrite);
+    }
+
+    @Test
+    public void routeUseTheUuidNotTheObject(){
+        CharacteristicRouter router = new CharacteristicRouter();
+        CountHandler handler = new CountHandler();
+        router.add(createFeatureChar(1),handler);
+
+        //a new object with the same uuid, as after a reconnection of a bounded node
+        Assert.assertTrue(router.onChanged(createFeatureChar(1),DATA));
+        Assert.assertEquals(1,handler.nChanged);
+    }
+
+}
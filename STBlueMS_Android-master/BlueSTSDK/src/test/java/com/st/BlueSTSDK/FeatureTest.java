@@ -208,7 +208,7 @@ public class FeatureTest {
         Assert.assertEquals(new Feature.Sample(timestamp, new Number[]{data[0]}, new Field[]{}),
                 s);
 
-        s.data[0]=127-s.data[0].byteValue();
+        s.getData()[0]=127-s.getData()[0].byteValue();
 
         Assert.assertNotEquals(s, f.getSample());
     }
@@ -266,6 +266,49 @@ public class FeatureTest {
         Assert.assertNotEquals(s1,s2);
     }
 
+    @Test
+    public void samplePrimitiveEqualsBoxed(){
+
+        Feature.Sample s1 = new Feature.Sample(100,new Number[]{1,2,3,4}, new Field[]{});
+        Feature.Sample s2 = new Feature.Sample(100,new long[]{1,2,3,4}, new Field[]{});
+        Assert.assertEquals(s1,s2);
+        Assert.assertEquals(s2,s1);
+        Assert.assertEquals(s1.hashCode(),s2.hashCode());
+    }
+
+    @Test
+    public void samplePrimitiveTypedAccess(){
+        Field desc[] = new Field[]{
+                new Field("f", null, Field.Type.Float, 1, 0),
+                new Field("i", null, Field.Type.Int16, 1, 0)
+        };
+        Feature.Sample s = new Feature.Sample(100,new float[]{1.5f,0},new long[]{0,-2},desc);
+
+        Assert.assertEquals(2,s.getDataLength());
+        Assert.assertEquals(1.5f,s.getFloat(0),0.0f);
+        Assert.assertEquals(-2,s.getShort(1));
+        Assert.assertFalse(s.hasValue(2));
+    }
+
+    @Test
+    public void samplePrimitiveBoxedView(){
+        Field desc[] = new Field[]{
+                new Field("f", null, Field.Type.Float, 1, 0),
+                new Field("i", null, Field.Type.Int16, 1, 0)
+        };
+        Feature.Sample s = new Feature.Sample(100,new float[]{1.5f,0},new long[]{0,-2},desc);
+
+        Number data[] = s.getData();
+        Assert.assertEquals(1.5f,data[0]);
+        Assert.assertEquals((short)-2,data[1]);
+        Assert.assertSame(data,s.getData());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samplePrimitiveDifferentLength(){
+        new Feature.Sample(100,new float[]{1},new long[]{1,2},new Field[]{});
+    }
+
     @Test
     public void sampleEqualsDiffObj(){
 
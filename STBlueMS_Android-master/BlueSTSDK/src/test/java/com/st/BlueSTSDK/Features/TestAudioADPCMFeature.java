@@ -0,0 +1,60 @@
+package com.st.BlueSTSDK.Features;
+
+import com.st.BlueSTSDK.Feature;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAudioADPCMFeature {
+
+    /**
+     * feature that exports the lock state
+     */
+    private static class LockAudioFeature extends FeatureAudioADPCM{
+        LockAudioFeature(){
+            super(null);
+        }
+
+        boolean isLocked(){
+            return mWriteLock.isHeldByCurrentThread();
+        }
+    }
+
+    @Test(expected= IllegalArgumentException.class)
+    public void updateWithInvalidSize() throws Throwable {
+        Feature f = new FeatureAudioADPCM(null);
+        UpdateFeatureUtil.callUpdate(f, 100, new byte[10], 0);
+    }
+
+    @Test
+    public void withoutListenersTheSampleIsBuiltFromTheLastPackage() throws Throwable {
+        Feature f = new FeatureAudioADPCM(null);
+        Assert.assertNull(f.getSample());
+
+        UpdateFeatureUtil.callUpdate(f, 1, UpdateFeatureUtil.gerRandomArray(20), 0);
+
+        Feature.Sample sample = f.getSample();
+        Assert.assertNotNull(sample);
+        Assert.assertEquals(FeatureAudioADPCM.AUDIO_PACKAGE_SIZE,sample.getDataLength());
+    }
+
+    @Test
+    public void theAudioListenerIsCalledOutsideTheFeatureLock() throws Throwable {
+        final LockAudioFeature f = new LockAudioFeature();
+        final boolean called[] = new boolean[]{false};
+        f.addAudioListener(new FeatureAudioADPCM.AudioListener() {
+            @Override
+            public void onAudioUpdate(FeatureAudioADPCM feature, short[] pcmData, int nSamples,
+                                      boolean isResync) {
+                Assert.assertFalse(f.isLocked());
+                Assert.assertEquals(FeatureAudioADPCM.AUDIO_PACKAGE_SIZE,nSamples);
+                called[0]=true;
+            }
+        });
+
+        UpdateFeatureUtil.callUpdate(f, 1, UpdateFeatureUtil.gerRandomArray(20), 0);
+
+        Assert.assertTrue(called[0]);
+    }
+
+}
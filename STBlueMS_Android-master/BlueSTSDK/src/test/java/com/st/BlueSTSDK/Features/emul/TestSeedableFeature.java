@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Features.emul;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSeedableFeature {
+
+    @Test
+    public void sameSeedGenerateSameData(){
+        FeatureRandomAcceleration f1 = new FeatureRandomAcceleration(null);
+        FeatureRandomAcceleration f2 = new FeatureRandomAcceleration(null);
+        f1.setRandomSeed(42);
+        f2.setRandomSeed(42);
+        for(int i=0;i<10;i++)
+            Assert.assertArrayEquals(f1.generateFakeData(), f2.generateFakeData());
+    }
+
+    @Test
+    public void setSeedRestartTheSequence(){
+        FeatureRandomPressure f = new FeatureRandomPressure(null);
+        f.setRandomSeed(42);
+        byte first[] = f.generateFakeData();
+        f.generateFakeData();
+        f.setRandomSeed(42);
+        Assert.assertArrayEquals(first, f.generateFakeData());
+    }
+
+}
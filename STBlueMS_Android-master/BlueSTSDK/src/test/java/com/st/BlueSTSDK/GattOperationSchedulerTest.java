@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.TestUtil.MyTestRunner;
+import com.st.BlueSTSDK.Utils.TimerWheel;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * the scheduler uses the android log when an operation timeout expires, so the test runs with
+ * robolectric
+ */
+@RunWith(MyTestRunner.class)
+@Config(constants = BuildConfig.class,manifest = "src/main/AndroidManifest.xml", sdk = 23)
+public class GattOperationSchedulerTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static class FakeOperation extends GattOperationScheduler.Operation{
+
+        private final Object mTarget;
+        private final List<Object> mStartLog;
+        boolean acceptStart = true;
+        int nStart=0;
+
+        FakeOperation(GattOperationScheduler.Priority priority, Object target,
+                      List<Object> startLog,long timeoutMs){
+            super(priority,timeoutMs);
+            mTarget=target;
+            mStartLog=startLog;
+        }
+
+        FakeOperation(GattOperationScheduler.Priority priority, Object target,
+                      List<Object> startLog){
+            this(priority,target,startLog,GattOperationScheduler.DEFAULT_TIMEOUT_MS);
+        }
+
+        @Override
+        boolean start() {
+            nStart++;
+            if(acceptStart)
+                mStartLog.add(mTarget);
+            return acceptStart;
+        }
+
+        @Override
+        boolean isCompletedBy(Object target) {
+            return mTarget.equals(target);
+        }
+    }
+
+    private List<Object> mStartLog;
+    private GattOperationScheduler mScheduler;
+
+    @Before
+    public void setUp(){
+        mStartLog = new ArrayList<>();
+        mScheduler = new GattOperationScheduler(DIRECT_EXECUTOR,new TimerWheel(5,8,1));
+    }
+
+    @Test
+    public void pausedSchedulerDoesNotStartOperation(){
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog));
+        Assert.assertTrue(mStartLog.isEmpty());
+        Assert.assertEquals(1, mScheduler.getNPendingOperation());
+        mScheduler.resume();
+        Assert.assertEquals(1, mStartLog.size());
+    }
+
+    @Test
+    public void onlyOneOperationIsRunning(){
+        mScheduler.resume();
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"b",
+                mStartLog));
+        Assert.assertEquals(1, mStartLog.size());
+        Assert.assertTrue(mScheduler.onComplete("a"));
+        Assert.assertEquals(2, mStartLog.size());
+        Assert.assertEquals("b", mStartLog.get(1));
+    }
+
+    @Test
+    public void wrongCallbackDoesNotCompleteTheOperation(){
+        mScheduler.resume();
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"b",
+                mStartLog));
+        Assert.assertFalse(mScheduler.onComplete("b"));
+        Assert.assertEquals(1, mStartLog.size());
+        Assert.assertEquals(2, mScheduler.getNPendingOperation());
+    }
+
+    @Test
+    public void operationsAreStartedByPriority(){
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"feature",
+                mStartLog));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.CONFIG,"config",
+                mStartLog));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.NOTIFICATION,
+                "notification", mStartLog));
+        mScheduler.resume();
+        mScheduler.onComplete("notification");
+        mScheduler.onComplete("config");
+        mScheduler.onComplete("feature");
+
+        Assert.assertEquals(3, mStartLog.size());
+        Assert.assertEquals("notification", mStartLog.get(0));
+        Assert.assertEquals("config", mStartLog.get(1));
+        Assert.assertEquals("feature", mStartLog.get(2));
+        Assert.assertEquals(0, mScheduler.getNPendingOperation());
+    }
+
+    @Test
+    public void sequenceIdsAreIncreasing(){
+        long first = mScheduler.enqueue(new FakeOperation(
+                GattOperationScheduler.Priority.FEATURE,"a", mStartLog));
+        long second = mScheduler.enqueue(new FakeOperation(
+                GattOperationScheduler.Priority.NOTIFICATION,"b", mStartLog));
+        Assert.assertTrue(second > first);
+    }
+
+    @Test
+    public void refusedOperationIsRetried() throws InterruptedException {
+        FakeOperation op = new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog);
+        op.acceptStart=false;
+        mScheduler.resume();
+        mScheduler.enqueue(op);
+        Assert.assertEquals(1, op.nStart);
+        op.acceptStart=true;
+        Thread.sleep(GattOperationScheduler.RETRY_START_DELAY_MS*3);
+        Assert.assertEquals(2, op.nStart);
+        Assert.assertEquals(1, mStartLog.size());
+    }
+
+    @Test
+    public void refusedOperationCanGiveUp() throws InterruptedException {
+        FakeOperation op = new FakeOperation(GattOperationScheduler.Priority.NOTIFICATION,"a",
+                mStartLog){
+            int nRefused=0;
+
+            @Override
+            void onStartRefused() {
+                nRefused++;
+            }
+
+            @Override
+            boolean isCanceled() {
+                return nRefused>=2;
+            }
+        };
+        op.acceptStart=false;
+        mScheduler.resume();
+        mScheduler.enqueue(op);
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"b",
+                mStartLog));
+        Thread.sleep(GattOperationScheduler.RETRY_START_DELAY_MS*4);
+        Assert.assertEquals(2, op.nStart);
+        Assert.assertEquals(1, mStartLog.size());
+        Assert.assertEquals("b", mStartLog.get(0));
+    }
+
+    @Test
+    public void timeoutReleaseTheOperation() throws InterruptedException {
+        mScheduler.resume();
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog,20));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"b",
+                mStartLog));
+        Thread.sleep(200);
+        Assert.assertEquals(1, mScheduler.getNTimeout());
+        Assert.assertEquals(2, mStartLog.size());
+        Assert.assertEquals("b", mStartLog.get(1));
+    }
+
+    @Test
+    public void clearRemoveAllTheOperations(){
+        mScheduler.resume();
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"a",
+                mStartLog));
+        mScheduler.enqueue(new FakeOperation(GattOperationScheduler.Priority.FEATURE,"b",
+                mStartLog));
+        mScheduler.clear();
+        Assert.assertEquals(0, mScheduler.getNPendingOperation());
+        Assert.assertFalse(mScheduler.onComplete("a"));
+    }
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+import com.st.BlueSTSDK.Node;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FeatureLogBinaryTest {
+
+    private static final String NODE_NAME = "Node";
+
+    private static final Field FIELDS[] = new Field[]{
+            new Field("Int", null, Field.Type.Int16, 0, 0),
+            new Field("Float", "g", Field.Type.Float, 0, 0)
+    };
+
+    private static class LogFeatureTest extends Feature{
+
+        LogFeatureTest(Node node) {
+            super("LogTest", node, FIELDS);
+        }
+
+        @Override
+        protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
+            return new ExtractResult(null,0);
+        }
+    }
+
+    private File mDirectory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        mDirectory = File.createTempFile("binLog","");
+        Assert.assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void deleteDirectory(){
+        File files[] = mDirectory.listFiles();
+        if(files!=null)
+            for(File f : files)
+                f.delete();
+        mDirectory.delete();
+    }
+
+    private static List<String> readLines(File f) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(f));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+        }finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    /**
+     * close the logger files and wait the end of the background close
+     */
+    private static void closeFiles(FeatureLogBinary logger) throws InterruptedException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        logger.closeFiles(new FeatureLogBase.CloseListener() {
+            @Override
+            public void onLogClosed(FeatureLogBase log) {
+                closed.countDown();
+            }
+        });
+        Assert.assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void convertedFileHasAllTheSamples() throws IOException, InterruptedException {
+        Node node = mock(Node.class);
+        when(node.getFriendlyName()).thenReturn(NODE_NAME);
+        Feature feature = new LogFeatureTest(node);
+        FeatureLogBinary logger = new FeatureLogBinary(mDirectory.getAbsolutePath(),
+                Collections.<Node>emptyList());
+        final int nSample = 10000;
+        for(int i=0;i<nSample;i++){
+            logger.logFeatureUpdate(feature,new byte[]{(byte)i},
+                    new Feature.Sample(i, new float[]{0, 0.5f}, new long[]{-(i%100), 0}, FIELDS));
+        }
+        closeFiles(logger);
+
+        File files[] = FeatureLogBase.getLogFiles(mDirectory.getAbsolutePath());
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].getName().endsWith("_LogTest.bin"));
+        File csv = FeatureLogBinary.convertToCsv(files[0]);
+        Assert.assertTrue(csv.getName().endsWith("_LogTest.csv"));
+        List<String> lines = readLines(csv);
+        //4 header lines
+        Assert.assertEquals(nSample+4, lines.size());
+        Assert.assertEquals("Feature,LogTest", lines.get(1));
+        Assert.assertEquals("HostTimestamp (ms),NodeName,NodeTimestamp,RawData,Int,Float (g),",
+                lines.get(3));
+        String lastRow[] = lines.get(lines.size()-1).split(",",-1);
+        Assert.assertEquals(NODE_NAME, lastRow[1]);
+        Assert.assertEquals(Integer.toString(nSample-1), lastRow[2]);
+        Assert.assertEquals("", lastRow[3]);
+        Assert.assertEquals(Integer.toString(-((nSample-1)%100)), lastRow[4]);
+        Assert.assertEquals("0.5", lastRow[5]);
+    }
+
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+import com.st.BlueSTSDK.Node;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FeatureLogCSVFileTest {
+
+    private static final String NODE_NAME = "Node";
+
+    private static final Field FIELDS[] = new Field[]{
+            new Field("Int", null, Field.Type.Int16, 0, 0),
+            new Field("Float", "g", Field.Type.Float, 0, 0)
+    };
+
+    private static class LogFeatureTest extends Feature{
+
+        LogFeatureTest(Node node) {
+            super("LogTest", node, FIELDS);
+        }
+
+        @Override
+        protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
+            return new ExtractResult(null,0);
+        }
+    }
+
+    private File mDirectory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        mDirectory = File.createTempFile("csvLog","");
+        Assert.assertTrue(mDirectory.delete());
+    }
+
+    @After
+    public void deleteDirectory(){
+        File files[] = mDirectory.listFiles();
+        if(files!=null)
+            for(File f : files)
+                f.delete();
+        mDirectory.delete();
+    }
+
+    private static List<String> readLines(File f) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(f));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+        }finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    /**
+     * close the logger files and wait the end of the background close
+     */
+    private static void closeFiles(FeatureLogCSVFile logger) throws InterruptedException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        logger.closeFiles(new FeatureLogBase.CloseListener() {
+            @Override
+            public void onLogClosed(FeatureLogBase log) {
+                closed.countDown();
+            }
+        });
+        Assert.assertTrue(closed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void primitiveSampleIsWrittenAsTheBoxedOne(){
+        Feature.Sample boxed = new Feature.Sample(0, new Number[]{(short) -3, 1.5f}, FIELDS);
+        Feature.Sample primitive = new Feature.Sample(0, new float[]{0, 1.5f},
+                new long[]{-3, 0}, FIELDS);
+        for(int i=0;i<FIELDS.length;i++){
+            Assert.assertEquals(boxed.getData()[i].toString(),
+                    primitive.appendValue(new StringBuilder(),i).toString());
+            Assert.assertEquals(boxed.getData()[i].toString(),
+                    boxed.appendValue(new StringBuilder(),i).toString());
+        }
+    }
+
+    @Test
+    public void hexDataIsUpperCase(){
+        StringBuilder out = new StringBuilder();
+        FeatureLogCSVFile.appendHex(out, new byte[]{0x00, 0x0A, (byte) 0xFF, 0x7B});
+        Assert.assertEquals("000AFF7B", out.toString());
+    }
+
+    @Test
+    public void allTheSamplesAreWrittenAfterClose() throws IOException, InterruptedException {
+        Node node = mock(Node.class);
+        when(node.getFriendlyName()).thenReturn(NODE_NAME);
+        Feature feature = new LogFeatureTest(node);
+        FeatureLogCSVFile logger = new FeatureLogCSVFile(mDirectory.getAbsolutePath(),
+                Collections.<Node>emptyList());
+        final int nSample = 5000;
+        for(int i=0;i<nSample;i++){
+            logger.logFeatureUpdate(feature,new byte[]{(byte)i},
+                    new Feature.Sample(i, new float[]{0, 0.5f}, new long[]{i%100, 0}, FIELDS));
+        }
+        closeFiles(logger);
+
+        File files[] = FeatureLogBase.getLogFiles(mDirectory.getAbsolutePath());
+        Assert.assertEquals(1, files.length);
+        List<String> lines = readLines(files[0]);
+        //4 header lines
+        Assert.assertEquals(nSample+4, lines.size());
+        Assert.assertEquals("HostTimestamp (ms),NodeName,NodeTimestamp,RawData,Int,Float (g),",
+                lines.get(3));
+        String lastRow[] = lines.get(lines.size()-1).split(",");
+        Assert.assertEquals(NODE_NAME, lastRow[1]);
+        Assert.assertEquals(Integer.toString(nSample-1), lastRow[2]);
+        Assert.assertEquals(String.format("%02X",(byte)(nSample-1)), lastRow[3]);
+        Assert.assertEquals(Integer.toString((nSample-1)%100), lastRow[4]);
+        Assert.assertEquals("0.5", lastRow[5]);
+    }
+
+    @Test
+    public void samplesLoggedAfterCloseAreDropped() throws IOException, InterruptedException {
+        Node node = mock(Node.class);
+        when(node.getFriendlyName()).thenReturn(NODE_NAME);
+        Feature feature = new LogFeatureTest(node);
+        FeatureLogCSVFile logger = new FeatureLogCSVFile(mDirectory.getAbsolutePath(),
+                Collections.<Node>emptyList());
+        logger.logFeatureUpdate(feature,new byte[]{0},
+                new Feature.Sample(0, new float[]{0, 0.5f}, new long[]{0, 0}, FIELDS));
+        closeFiles(logger);
+        logger.logFeatureUpdate(feature,new byte[]{1},
+                new Feature.Sample(1, new float[]{0, 0.5f}, new long[]{1, 0}, FIELDS));
+
+        File files[] = FeatureLogBase.getLogFiles(mDirectory.getAbsolutePath());
+        Assert.assertEquals(1, files.length);
+        //4 header lines and the sample logged before the close
+        Assert.assertEquals(5, readLines(files[0]).size());
+    }
+
+    @Test
+    public void rotatedSegmentsAreCompressedAndTheOldestDeleted() throws IOException, InterruptedException {
+        Node node = mock(Node.class);
+        when(node.getFriendlyName()).thenReturn(NODE_NAME);
+        Feature feature = new LogFeatureTest(node);
+        FeatureLogCSVFile logger = new FeatureLogCSVFile(mDirectory.getAbsolutePath(),
+                Collections.<Node>emptyList());
+        logger.setRotationPolicy(LogRotationPolicy.bySampleCount(100)
+                .withMaxSegments(3).withCompression(true));
+        final int nSample = 1050;
+        for(int i=0;i<nSample;i++){
+            logger.logFeatureUpdate(feature,new byte[]{(byte)i},
+                    new Feature.Sample(i, new float[]{0, 0.5f}, new long[]{i%100, 0}, FIELDS));
+        }
+        closeFiles(logger);
+
+        File files[] = FeatureLogBase.getLogFiles(mDirectory.getAbsolutePath(),
+                logger.logSessionPrefix());
+        //11 segments, only the last 3 are kept
+        Assert.assertEquals(3, files.length);
+        Assert.assertTrue(files[0].getName().endsWith("_LogTest_0008.csv.zip"));
+        Assert.assertTrue(files[1].getName().endsWith("_LogTest_0009.csv.zip"));
+        Assert.assertTrue(files[2].getName().endsWith("_LogTest_0010.csv.zip"));
+    }
+
+}
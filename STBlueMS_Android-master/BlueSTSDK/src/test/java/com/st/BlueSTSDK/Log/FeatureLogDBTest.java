@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK.Log;
+
+import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Features.Field;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FeatureLogDBTest {
+
+    private static class DBFeatureTest extends Feature{
+
+        DBFeatureTest() {
+            super("Test Feature", null, new Field[]{
+                    new Field("X-Axis", null, Field.Type.Int16, 0, 0),
+                    new Field("Temp", "C", Field.Type.Float, 0, 0)
+            });
+        }
+
+        @Override
+        protected ExtractResult extractData(long timestamp, byte[] data, int dataOffset) {
+            return new ExtractResult(null,0);
+        }
+    }
+
+    @Test
+    public void sanitizeRemovesNonWordChars(){
+        Assert.assertEquals("TestFeature_1", FeatureLogDB.sanitizeString("Test Feature_1 (%)"));
+    }
+
+    @Test
+    public void insertHasAParameterForEachColumn(){
+        Assert.assertEquals("INSERT INTO TestFeature (HostTimestamp,NodeName,NodeTimestamp," +
+                        "RawData,XAxis,Temp) VALUES (?,?,?,?,?,?)",
+                FeatureLogDB.getFeatureInsert(new DBFeatureTest()));
+    }
+
+}
@@ -211,6 +211,31 @@ public class ManagerTest {
         Assert.assertEquals(null, mManager.getNodeWithTag(nodeTag));
     }
 
+    @Test
+    public void removedNodeIsNotFoundByTag() {
+        Node node = buildMockNode();
+        final String tag = node.getTag();
+
+        mManager.addNode(node);
+        Assert.assertEquals(node, mManager.getNodeWithTag(tag));
+
+        mManager.resetDiscovery();
+        Assert.assertEquals(null, mManager.getNodeWithTag(tag));
+        //the node can be add again
+        Assert.assertEquals(true, mManager.addNode(node));
+    }
+
+    @Test
+    public void addSameTagTwice() {
+        Node node1 = buildMockNode();
+        Node node2 = buildMockNode();
+        when(node2.getTag()).thenReturn(node1.getTag());
+
+        Assert.assertEquals(true, mManager.addNode(node1));
+        Assert.assertEquals(false, mManager.addNode(node2));
+        Assert.assertEquals(node1, mManager.getNodeWithTag(node1.getTag()));
+    }
+
     @Test
     public void TestGetNodeByName() {
         final String nodeName1 = "TestNode1";
@@ -319,6 +344,32 @@ public class ManagerTest {
 
     }
 
+    @Test(expected = InvalidFeatureBitMaskException.class)
+    public void addInvalidFeatureFactoryMask() throws InvalidFeatureBitMaskException{
+        Manager.addFeatureToNode((byte) 0x00, 3, Feature.class, mock(Manager.FeatureFactory.class));
+    }
+
+    @Test
+    public void featureAreBuildWhenNeeded() throws InvalidFeatureBitMaskException,
+            InvalidBleAdvertiseFormat {
+        final Feature feature = mock(Feature.class);
+        final int nBuild[] = new int[]{0};
+        Manager.addFeatureToNode((byte) 0xFE, 0x01, Feature.class, new Manager.FeatureFactory() {
+            @Override
+            public Feature build(Node node) {
+                nBuild[0]++;
+                return feature;
+            }
+        });
+
+        Node node = buildNodeWithId((byte) 0xFE);
+        Assert.assertEquals(0, nBuild[0]);
+
+        Assert.assertEquals(1, node.getFeatures().size());
+        Assert.assertSame(feature, node.getFeatures().get(0));
+        Assert.assertEquals(1, nBuild[0]);
+    }
+
     @Test(expected = InvalidBleAdvertiseFormat.class)
     public void checkInvalidDeviceType() throws InvalidBleAdvertiseFormat {
         buildNodeWithId((byte) 0xFD);
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import android.util.SparseArray;
+
+import com.st.BlueSTSDK.Config.Command;
+import com.st.BlueSTSDK.Config.Register;
+import com.st.BlueSTSDK.TestUtil.MyTestRunner;
+import com.st.BlueSTSDK.Transport.LoopbackTransport;
+import com.st.BlueSTSDK.Utils.BLENodeDefines;
+import com.st.BlueSTSDK.Utils.InvalidBleAdvertiseFormat;
+import com.st.BlueSTSDK.Utils.InvalidFeatureBitMaskException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * drive a node through a loopback transport: the connection, the gatt operations scheduler,
+ * the characteristic router, the debug console and the config control run as with a ble node
+ */
+@RunWith(MyTestRunner.class)
+@Config(constants = BuildConfig.class,manifest = "src/main/AndroidManifest.xml", sdk = 23)
+public class NodeLoopbackTest {
+
+    private static final long TIMEOUT_MS = 2000;
+
+    private static final UUID FEATURE_CHAR = UUID.fromString(String.format("%08x-",1)+
+            BLENodeDefines.FeatureCharacteristics.COMMON_FEATURE_UUID);
+
+    private static final List<UUID> DEVICE_CHARS = Arrays.asList(FEATURE_CHAR,
+            BLENodeDefines.Services.Debug.DEBUG_TERM_UUID,
+            BLENodeDefines.Services.Debug.DEBUG_STDERR_UUID,
+            BLENodeDefines.Services.Config.FEATURE_COMMAND_UUID,
+            BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID);
+
+    /**
+     * device that answers to the reads with a fixed value and stores the last write of each
+     * characteristic
+     */
+    private static class FakeDevice implements LoopbackTransport.DeviceHandler{
+        final ConcurrentHashMap<UUID,byte[]> lastWrite = new ConcurrentHashMap<>();
+
+        @Override
+        public byte[] onRead(UUID characteristic) {
+            return new byte[]{0x01,0x02,0x03,0x04};
+        }
+
+        @Override
+        public boolean onWrite(UUID characteristic, byte[] data) {
+            lastWrite.put(characteristic,data);
+            return true;
+        }
+    }
+
+    private FakeDevice mDevice;
+    private LoopbackTransport mTransport;
+    private Node mNode;
+
+    /**
+     * run the node tasks until the condition is true or the timeout expires
+     */
+    private interface Condition{
+        boolean isTrue();
+    }
+
+    private static boolean waitFor(Condition condition){
+        long end = System.currentTimeMillis()+TIMEOUT_MS;
+        while(!condition.isTrue()){
+            if(System.currentTimeMillis()>end)
+                return false;
+            Robolectric.flushForegroundThreadScheduler();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean waitForState(final Node.State state){
+        return waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mNode.getState()==state;
+            }
+        });
+    }
+
+    @Before
+    public void connectNode() throws InvalidBleAdvertiseFormat, InvalidFeatureBitMaskException {
+        SparseArray <Class <? extends Feature> > temp = new SparseArray<>();
+        temp.append(0x01,NodeTest.FakeFeature.class);
+        Manager.addFeatureToNode((byte)0x00,temp);
+
+        mDevice = new FakeDevice();
+        mTransport = new LoopbackTransport(DEVICE_CHARS,mDevice);
+        mNode = new Node("loopback",new byte[]{0x07, (byte) 0xFF, (byte) 0x01, (byte) 0x00,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF},mTransport);
+        Assert.assertEquals(Node.State.Idle, mNode.getState());
+        mNode.connect(null);
+        Assert.assertTrue(waitForState(Node.State.Connected));
+    }
+
+    @After
+    public void disconnectNode(){
+        mNode.disconnect();
+    }
+
+    @Test
+    public void theNodeIsBuiltFromTheTransportCharacteristics(){
+        Assert.assertEquals("loopback",mNode.getTag());
+        Assert.assertNotNull(mNode.getDebug());
+        Assert.assertNotNull(mNode.getConfigRegister());
+        Assert.assertNotNull(mNode.getFeature(NodeTest.FakeFeature.class));
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mTransport.isNotificationEnabled(
+                        BLENodeDefines.Services.Config.FEATURE_COMMAND_UUID);
+            }
+        }));
+    }
+
+    @Test
+    public void featureNotificationIsChangedThroughTheTransport(){
+        Feature f = mNode.getFeature(NodeTest.FakeFeature.class);
+        Assert.assertTrue(mNode.enableNotification(f));
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mTransport.isNotificationEnabled(FEATURE_CHAR);
+            }
+        }));
+        Assert.assertTrue(mNode.disableNotification(f));
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return !mTransport.isNotificationEnabled(FEATURE_CHAR);
+            }
+        }));
+    }
+
+    @Test
+    public void readAndNotificationUpdateTheFeature(){
+        Feature.FeatureListener listener = mock(Feature.FeatureListener.class);
+        final Feature f = mNode.getFeature(NodeTest.FakeFeature.class);
+        f.addFeatureListener(listener);
+
+        Assert.assertTrue(mNode.readFeature(f));
+        waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return f.getSample()!=null;
+            }
+        });
+        verify(listener,timeout(TIMEOUT_MS)).onUpdate(eq(f),any(Feature.Sample.class));
+
+        mNode.enableNotification(f);
+        waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mTransport.isNotificationEnabled(FEATURE_CHAR);
+            }
+        });
+        Assert.assertTrue(mTransport.notify(FEATURE_CHAR,new byte[]{0x00,0x02,0x05}));
+        verify(listener,timeout(TIMEOUT_MS).times(2)).onUpdate(eq(f),any(Feature.Sample.class));
+    }
+
+    @Test
+    public void debugMessageIsWrittenThroughTheTransport(){
+        final Debug debug = mNode.getDebug();
+        Debug.DebugOutputListener listener = mock(Debug.DebugOutputListener.class);
+        debug.addDebugOutputListener(listener);
+
+        debug.write("help");
+
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mDevice.lastWrite.containsKey(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID);
+            }
+        }));
+        Assert.assertArrayEquals("help".getBytes(),
+                mDevice.lastWrite.get(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID));
+        verify(listener,timeout(TIMEOUT_MS)).onStdInSent(debug,"help",true);
+
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mTransport.isNotificationEnabled(
+                        BLENodeDefines.Services.Debug.DEBUG_TERM_UUID);
+            }
+        }));
+        Assert.assertTrue(mTransport.notify(BLENodeDefines.Services.Debug.DEBUG_TERM_UUID,
+                "ok".getBytes()));
+        verify(listener,timeout(TIMEOUT_MS)).onStdOutReceived(debug,"ok");
+    }
+
+    @Test
+    public void configCommandIsWrittenThroughTheTransport(){
+        ConfigControl control = mNode.getConfigRegister();
+        ConfigControl.ConfigControlListener listener =
+                mock(ConfigControl.ConfigControlListener.class);
+        control.addConfigListener(listener);
+        Command cmd = new Command(new Register(0x10,1,Register.Access.RW),
+                Register.Target.SESSION,new byte[]{0x01,0x02});
+
+        control.write(cmd);
+
+        Assert.assertTrue(waitFor(new Condition() {
+            @Override
+            public boolean isTrue() {
+                return mDevice.lastWrite.containsKey(
+                        BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID);
+            }
+        }));
+        Assert.assertArrayEquals(cmd.ToWritePacket(),
+                mDevice.lastWrite.get(BLENodeDefines.Services.Config.REGISTERS_ACCESS_UUID));
+        verify(listener,timeout(TIMEOUT_MS)).onRequestResult(eq(control),any(Command.class),
+                eq(true));
+    }
+
+    @Test
+    public void userDisconnectionMovesTheNodeInIdle(){
+        mNode.disconnect();
+        Assert.assertTrue(waitForState(Node.State.Idle));
+        Assert.assertFalse(mTransport.isConnected());
+    }
+
+    @Test
+    public void linkLossMovesTheNodeInUnreachable(){
+        mTransport.dropConnection();
+        Assert.assertTrue(waitForState(Node.State.Unreachable));
+    }
+
+}
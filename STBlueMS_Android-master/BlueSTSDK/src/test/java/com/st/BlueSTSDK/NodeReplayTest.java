@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.Features.FeatureTemperature;
+import com.st.BlueSTSDK.TestUtil.MyTestRunner;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MyTestRunner.class)
+@Config(constants = BuildConfig.class,manifest = "src/main/AndroidManifest.xml", sdk = 23)
+public class NodeReplayTest {
+
+    /** nucleo node that exports only the temperature */
+    private static final byte ADVERTISE[] = new byte[]{0x07, (byte) 0xFF, 0x01, (byte) 0x80,
+            0x00, 0x04, 0x00, 0x00};
+
+    /** characteristic that exports the temperature */
+    private static final UUID TEMPERATURE_CHAR =
+            UUID.fromString("00040000-0001-11e1-ac36-0002a5d5c51b");
+
+    private File mFile;
+
+    private static class RecordFeatureListener implements Feature.FeatureListener{
+        final List<Float> values = new ArrayList<>();
+
+        @Override
+        public synchronized void onUpdate(Feature f, Feature.Sample sample) {
+            values.add(FeatureTemperature.getTemperature(sample));
+        }
+    }
+
+    private static class WaitReplayEnd implements NodeReplay.ReplayListener{
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onReplayCompleted(NodeReplay node, long nNotification, long elapsedTimeNs) {
+            completed.countDown();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        //dispatch the updates in the caller thread
+        FeatureDispatcher.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        mFile = File.createTempFile("record", ".bin");
+        Assert.assertTrue(mFile.delete());
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, TEMPERATURE_CHAR, new byte[]{1, 0, (byte) 0xE8, 0x00});
+        recorder.record(20, TEMPERATURE_CHAR, new byte[]{2, 0, (byte) 0xF2, 0x00});
+        recorder.close();
+    }
+
+    @After
+    public void tearDown(){
+        FeatureDispatcher.setExecutor(null);
+        mFile.delete();
+    }
+
+    @Test
+    public void featureWithoutNotificationIsNotUpdated() throws Exception {
+        NodeReplay node = new NodeReplay(mFile, NodeReplay.MAX_SPEED);
+        FeatureTemperature temperature = node.getFeature(FeatureTemperature.class);
+        Assert.assertNotNull(temperature);
+        RecordFeatureListener listener = new RecordFeatureListener();
+        temperature.addFeatureListener(listener);
+        WaitReplayEnd replayEnd = new WaitReplayEnd();
+        node.setReplayListener(replayEnd);
+
+        node.connect(null);
+        Assert.assertTrue(replayEnd.completed.await(1, TimeUnit.SECONDS));
+
+        Assert.assertEquals(2, node.getNReplayedNotification());
+        synchronized (listener) {
+            Assert.assertTrue(listener.values.isEmpty());
+        }
+    }
+
+    @Test
+    public void enabledFeatureIsUpdatedInOrder() throws Exception {
+        final NodeReplay node = new NodeReplay(mFile, NodeReplay.MAX_SPEED);
+        final FeatureTemperature temperature = node.getFeature(FeatureTemperature.class);
+        Assert.assertNotNull(temperature);
+        RecordFeatureListener listener = new RecordFeatureListener();
+        temperature.addFeatureListener(listener);
+        WaitReplayEnd replayEnd = new WaitReplayEnd();
+        node.setReplayListener(replayEnd);
+        //enable the notification before the replay starts
+        node.addNodeStateListener(new Node.NodeStateListener() {
+            @Override
+            public void onStateChange(Node node, Node.State newState, Node.State prevState) {
+                if(newState==Node.State.Connected)
+                    node.enableNotification(temperature);
+            }
+        });
+
+        node.connect(null);
+        Assert.assertTrue(replayEnd.completed.await(1, TimeUnit.SECONDS));
+
+        synchronized (listener) {
+            Assert.assertEquals(2, listener.values.size());
+            Assert.assertEquals(23.2f, listener.values.get(0), 0.0001f);
+            Assert.assertEquals(24.2f, listener.values.get(1), 0.0001f);
+        }
+    }
+
+    @Test
+    public void disconnectStopsTheReplay() throws Exception {
+        NodeReplay node = new NodeReplay(mFile, NodeReplay.MAX_SPEED);
+        FeatureTemperature temperature = node.getFeature(FeatureTemperature.class);
+        node.connect(null);
+        node.disconnect();
+        Assert.assertFalse(node.isConnected());
+        Assert.assertFalse(node.isEnableNotification(temperature));
+        Assert.assertFalse(node.enableNotification(temperature));
+    }
+
+}
@@ -122,6 +122,19 @@ public class NodeTest {
         createNode(null).connect();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void connectionOptionMtuMustBeValid(){
+        new Node.ConnectionOption(Node.ConnectionOption.MAX_MTU+1,
+                BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+    }
+
+    @Test
+    public void notConnectedNodeHasDefaultMtu(){
+        Node node = createNode(null);
+        Assert.assertEquals(Node.DEFAULT_MTU, node.getMtu());
+        Assert.assertEquals(Node.DEFAULT_MTU-3, node.getMaxWritePayloadSize());
+    }
+
     @Test
     public void connectEmptyNode(){
 
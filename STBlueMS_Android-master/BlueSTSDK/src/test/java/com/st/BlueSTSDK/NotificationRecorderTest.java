@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+package com.st.BlueSTSDK;
+
+import com.st.BlueSTSDK.TestUtil.MyTestRunner;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+/**
+ * the recorder uses the android log when it removes a truncated record, so the test runs with
+ * robolectric
+ */
+@RunWith(MyTestRunner.class)
+@Config(constants = BuildConfig.class,manifest = "src/main/AndroidManifest.xml", sdk = 23)
+public class NotificationRecorderTest {
+
+    private static final byte ADVERTISE[] = new byte[]{0x07, (byte) 0xFF, 0x01, 0x00,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+
+    private static final UUID CHAR_1 = UUID.fromString("00040000-0001-11e1-ac36-0002a5d5c51b");
+    private static final UUID CHAR_2 = UUID.fromString("00e00000-0001-11e1-ac36-0002a5d5c51b");
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws IOException {
+        mFile = File.createTempFile("record", ".bin");
+        Assert.assertTrue(mFile.delete());
+    }
+
+    @After
+    public void deleteFile(){
+        mFile.delete();
+    }
+
+    @Test
+    public void recordedDataAreReadInOrder() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, CHAR_1, new byte[]{1, 2, 3});
+        recorder.record(20, CHAR_2, new byte[]{4});
+        recorder.record(30, CHAR_1, new byte[]{5, 6});
+        Assert.assertEquals(3, recorder.getNRecordedNotification());
+        recorder.close();
+
+        NotificationRecorder.Reader reader = new NotificationRecorder.Reader(mFile);
+        Assert.assertArrayEquals(ADVERTISE, reader.getAdvertise());
+
+        NotificationRecorder.Notification n = reader.next();
+        Assert.assertEquals(10, n.getTimestampNs());
+        Assert.assertEquals(CHAR_1, n.getUuid());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, n.getData());
+
+        n = reader.next();
+        Assert.assertEquals(20, n.getTimestampNs());
+        Assert.assertEquals(CHAR_2, n.getUuid());
+        Assert.assertArrayEquals(new byte[]{4}, n.getData());
+
+        n = reader.next();
+        Assert.assertEquals(30, n.getTimestampNs());
+        Assert.assertEquals(CHAR_1, n.getUuid());
+        Assert.assertArrayEquals(new byte[]{5, 6}, n.getData());
+
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void newRecordingIsAppended() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, CHAR_1, new byte[]{1});
+        recorder.close();
+
+        recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(20, CHAR_2, new byte[]{2});
+        recorder.close();
+
+        NotificationRecorder.Reader reader = new NotificationRecorder.Reader(mFile);
+        Assert.assertArrayEquals(ADVERTISE, reader.getAdvertise());
+        Assert.assertEquals(CHAR_1, reader.next().getUuid());
+        //the id 0 is redefined by the second recording
+        Assert.assertEquals(CHAR_2, reader.next().getUuid());
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void recordOfAnotherNodeIsNotAppended() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, CHAR_1, new byte[]{1});
+        recorder.close();
+
+        new NotificationRecorder(mFile, new byte[]{0x07});
+    }
+
+    @Test
+    public void truncatedRecordIsRemovedBeforeAppend() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, CHAR_1, new byte[]{1, 2, 3});
+        recorder.record(20, CHAR_1, new byte[]{4, 5, 6});
+        recorder.close();
+
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(file.length() - 2);
+        file.close();
+
+        recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(30, CHAR_2, new byte[]{7});
+        recorder.close();
+
+        NotificationRecorder.Reader reader = new NotificationRecorder.Reader(mFile);
+        Assert.assertEquals(10, reader.next().getTimestampNs());
+        NotificationRecorder.Notification n = reader.next();
+        Assert.assertEquals(30, n.getTimestampNs());
+        Assert.assertEquals(CHAR_2, n.getUuid());
+        Assert.assertArrayEquals(new byte[]{7}, n.getData());
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void truncatedRecordIsIgnored() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.record(10, CHAR_1, new byte[]{1, 2, 3});
+        recorder.record(20, CHAR_1, new byte[]{4, 5, 6});
+        recorder.close();
+
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(file.length() - 2);
+        file.close();
+
+        NotificationRecorder.Reader reader = new NotificationRecorder.Reader(mFile);
+        Assert.assertEquals(10, reader.next().getTimestampNs());
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void closedRecorderIgnoreTheData() throws IOException {
+        NotificationRecorder recorder = new NotificationRecorder(mFile, ADVERTISE);
+        recorder.close();
+        recorder.record(10, CHAR_1, new byte[]{1});
+        Assert.assertEquals(0, recorder.getNRecordedNotification());
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidFileIsNotRead() throws IOException {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[]{1, 2, 3, 4, 5, 6});
+        out.close();
+        new NotificationRecorder.Reader(mFile);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidFileIsNotAppended() throws IOException {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[]{1, 2, 3, 4, 5, 6});
+        out.close();
+        new NotificationRecorder(mFile, ADVERTISE);
+    }
+
+}
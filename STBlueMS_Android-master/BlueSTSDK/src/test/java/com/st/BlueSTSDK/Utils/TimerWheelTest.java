@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * COPYRIGHT(c) 2015 STMicroelectronics
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright notice,
+ *      this list of conditions and the following disclaimer in the documentation
+ *      and/or other materials provided with the distribution.
+ *   3. Neither the name of STMicroelectronics nor the names of its contributors
+ *      may be used to endorse or promote products derived from this software
+ *      without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ ******************************************************************************/
+
+package com.st.BlueSTSDK.Utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimerWheelTest {
+
+    private static final long TICK_MS = 5;
+
+    private static Runnable countDown(final CountDownLatch latch){
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tickMustBePositive(){
+        new TimerWheel(0,8,1);
+    }
+
+    @Test
+    public void postRunTheTask() throws InterruptedException {
+        TimerWheel wheel = new TimerWheel(TICK_MS,8,1);
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.post(countDown(latch));
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void taskRunAfterTheDelay() throws InterruptedException {
+        TimerWheel wheel = new TimerWheel(TICK_MS,8,1);
+        CountDownLatch latch = new CountDownLatch(1);
+        final long delay = 100;
+        long start = System.nanoTime();
+        wheel.schedule(countDown(latch), delay);
+        Assert.assertEquals(1,wheel.getNPendingTask());
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start);
+        Assert.assertTrue(elapsedMs>=delay-TICK_MS);
+        Assert.assertEquals(0,wheel.getNPendingTask());
+    }
+
+    @Test
+    public void delayLongerThanARound() throws InterruptedException {
+        //8 buckets of 5ms -> a round is 40ms
+        TimerWheel wheel = new TimerWheel(TICK_MS,8,1);
+        CountDownLatch latch = new CountDownLatch(1);
+        final long delay = 150;
+        long start = System.nanoTime();
+        wheel.schedule(countDown(latch), delay);
+
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start);
+        Assert.assertTrue(elapsedMs>=delay-TICK_MS);
+    }
+
+    @Test
+    public void cancelRemoveAllTheSchedules() throws InterruptedException {
+        TimerWheel wheel = new TimerWheel(TICK_MS,8,1);
+        final AtomicInteger nRun = new AtomicInteger(0);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                nRun.incrementAndGet();
+            }
+        };
+        wheel.schedule(task,50);
+        wheel.schedule(task,60);
+        Assert.assertEquals(2,wheel.getNPendingTask());
+        wheel.cancel(task);
+        Assert.assertEquals(0,wheel.getNPendingTask());
+
+        Thread.sleep(150);
+        Assert.assertEquals(0,nRun.get());
+    }
+
+    @Test
+    public void threadCountDoesNotDependOnTheTasks() throws InterruptedException {
+        final int N_TASK = 500;
+        final int N_WORKER = 2;
+        TimerWheel wheel = new TimerWheel(TICK_MS,64,N_WORKER);
+        int nThreadBefore = Thread.activeCount();
+        CountDownLatch latch = new CountDownLatch(N_TASK);
+        for(int i=0;i<N_TASK;i++){
+            wheel.schedule(countDown(latch),i%100);
+        }
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        //the wheel thread + the workers
+        Assert.assertTrue(Thread.activeCount()-nThreadBefore<=N_WORKER+1);
+    }
+
+}
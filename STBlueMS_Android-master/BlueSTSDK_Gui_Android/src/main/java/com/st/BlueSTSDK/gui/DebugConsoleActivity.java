@@ -128,6 +128,8 @@ public class DebugConsoleActivity extends ActivityWithNode {
     private Debug.DebugOutputListener mDebugListener = new UpdateConsole();
     private String mToSent=null;
     private int mNextPartToSent = -1;
+    /** size of the parts of the message, it depends on the node mtu */
+    private int mMessagePartSize = Debug.MAX_STRING_SIZE_TO_SENT;
 
 
 
@@ -206,6 +208,7 @@ public class DebugConsoleActivity extends ActivityWithNode {
             if (message != null && !message.isEmpty()) {
                 mToSent = message;
                 mNextPartToSent = 0;
+                mMessagePartSize = mDebugService.getMaxMessageSize();
                 bRet = writeNextMessage();
             }
         }
@@ -221,10 +224,10 @@ public class DebugConsoleActivity extends ActivityWithNode {
     private String previousPartSent() {
         String strRet = "";
         int prevPart = mNextPartToSent -1;
-        int startIndex = prevPart * Debug.MAX_STRING_SIZE_TO_SENT;
+        int startIndex = prevPart * mMessagePartSize;
 
         if (prevPart >= 0 && mToSent != null && startIndex < mToSent.length() ) {
-            int endIndex = Math.min(mToSent.length(), (prevPart + 1) * Debug.MAX_STRING_SIZE_TO_SENT);
+            int endIndex = Math.min(mToSent.length(), (prevPart + 1) * mMessagePartSize);
             strRet = mToSent.substring(startIndex, endIndex);
         }
         return strRet;
@@ -235,10 +238,10 @@ public class DebugConsoleActivity extends ActivityWithNode {
      */
     private boolean writeNextMessage() {
 
-        int startIndex = mNextPartToSent * Debug.MAX_STRING_SIZE_TO_SENT;
+        int startIndex = mNextPartToSent * mMessagePartSize;
 
         if (mToSent != null && (startIndex < mToSent.length())) {
-            int endIndex = Math.min(mToSent.length(), (mNextPartToSent + 1) * Debug.MAX_STRING_SIZE_TO_SENT);
+            int endIndex = Math.min(mToSent.length(), (mNextPartToSent + 1) * mMessagePartSize);
             mNextPartToSent++;
 
             String partToSent = mToSent.substring(startIndex, endIndex);
@@ -282,11 +285,22 @@ public class DebugConsoleActivity extends ActivityWithNode {
     public void onStart() {
         super.onStart();
         Node node = getNode();
-        if(node!=null && node.isConnected()) {
-            setUpConsoleService(node.getDebug());
+        if(node!=null) {
+            //the long messages are sent with less writes
+            node.setConnectionOption(Node.ConnectionOption.HIGH_THROUGHPUT);
+            if(node.isConnected())
+                setUpConsoleService(node.getDebug());
         }
     }
 
+    @Override
+    public void onStop() {
+        Node node = getNode();
+        if(node!=null)
+            node.setConnectionOption(Node.ConnectionOption.DEFAULT);
+        super.onStop();
+    }
+
     @Override
     public void onDestroy(){
         if(mDebugService!=null)
@@ -61,9 +61,12 @@ import android.widget.Toast;
 
 import com.st.BlueSTSDK.Debug;
 import com.st.BlueSTSDK.Feature;
+import com.st.BlueSTSDK.Log.FeatureLogBase;
+import com.st.BlueSTSDK.Log.FeatureLogBinary;
 import com.st.BlueSTSDK.Log.FeatureLogCSVFile;
 import com.st.BlueSTSDK.Log.FeatureLogDB;
 import com.st.BlueSTSDK.Log.FeatureLogLogCat;
+import com.st.BlueSTSDK.Log.LogRotationPolicy;
 import com.st.BlueSTSDK.Manager;
 import com.st.BlueSTSDK.Node;
 import com.st.BlueSTSDK.Utils.LogFeatureActivity;
@@ -462,18 +465,41 @@ public abstract class DemosActivity extends LogFeatureActivity implements NodeCo
         SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(this);
         String logType = sharedPref.getString(LogPreferenceFragment.KEY_PREF_LOG_STORE, "LogCat");
         String dumpPath = getLogDirectory();
+        FeatureLogBase fileLogger;
         switch (logType) {
             case "LogCat":
                 return new FeatureLogLogCat();
             case "DB":
-                return new FeatureLogDB(this,dumpPath,getNodesToLog());
+                fileLogger = new FeatureLogDB(this,dumpPath,getNodesToLog());
+                break;
             case "File":
-                return new FeatureLogCSVFile(dumpPath,getNodesToLog());
+                fileLogger = new FeatureLogCSVFile(dumpPath,getNodesToLog());
+                break;
+            case "Binary":
+                fileLogger = new FeatureLogBinary(dumpPath,getNodesToLog());
+                break;
             default:
                 return null;
         }//switch
+        fileLogger.setRotationPolicy(getLogRotationPolicy(sharedPref));
+        return fileLogger;
     }//getFeatureLogger
 
+    /**
+     * build the log rotation policy selected by the user
+     * @param sharedPref preferences where read the log settings
+     * @return policy to use for split the log files
+     */
+    private static LogRotationPolicy getLogRotationPolicy(SharedPreferences sharedPref){
+        long segmentSizeMB = Long.parseLong(
+                sharedPref.getString(LogPreferenceFragment.KEY_PREF_LOG_SEGMENT_SIZE, "0"));
+        if(segmentSizeMB<=0)
+            return LogRotationPolicy.NONE;
+        boolean compress = sharedPref.getBoolean(
+                LogPreferenceFragment.KEY_PREF_LOG_COMPRESS_SEGMENTS, false);
+        return LogRotationPolicy.bySize(segmentSizeMB*1024*1024).withCompression(compress);
+    }//getLogRotationPolicy
+
     protected List<Node> getNodesToLog(){
         return Collections.singletonList(mNode);
     }
@@ -355,6 +355,8 @@ public class FwUpgradeActivity extends ActivityWithNode {
 
     private void startFwUpgrade(){
         keepConnectionOpen(true,false);
+        //the firmware is sent with the biggest mtu and the shortest connection interval
+        mNode.setConnectionOption(Node.ConnectionOption.HIGH_THROUGHPUT);
         startActivityForResult(getFileSelectIntent(), CHOOSE_BOARD_FILE_REQUESTCODE);
     }
 
@@ -39,6 +39,7 @@ package com.st.BlueSTSDK.gui.fwUpgrade.fwUpgradeConsole;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.st.BlueSTSDK.BulkWrite;
 import com.st.BlueSTSDK.Debug;
 import com.st.BlueSTSDK.Utils.FwVersion;
 import com.st.BlueSTSDK.Utils.NumberConversion;
@@ -59,23 +60,12 @@ import java.util.zip.Checksum;
  * In this case the protocol is:
  * mobile:upgrade[Ble|Fw]+length+fileCrc
  * node:fileCrc
- * mobile: file data, the file is spited in message of 16bytes
+ * mobile: file data, the file is spited in message of 16bytes or a bigger multiple of 8 if the
+ * mtu allows it, sent without waiting the end of each write
  * node: when all the byte are write return 1 if the crc is ok, -1 otherwise
  */
 public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
 
-    /**
-     * for not stress the ble stack it sends 10 package at times, when the packages are sent
-     * it send a new set a package
-     */
-    private static final int BLOCK_PKG_SIZE = 10;
-    //every time there is a fail we decease the number of block to send
-    private static int sNFail=0;
-
-    private static int getBlockPkgSize(){
-        return Math.max(1,BLOCK_PKG_SIZE/(1<<(sNFail)));
-    }
-
     static private final String GET_VERSION_BOARD_FW="versionFw\n";
     static private final String GET_VERSION_BLE_FW="versionBle\n";
     static private final byte[] UPLOAD_BOARD_FW={'u','p','g','r','a','d','e','F','w'};
@@ -88,6 +78,16 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
      */
     static private final int MAX_MSG_SIZE=16;
 
+    /**
+     * size of the file messages, the biggest multiple of 8 that fit in a console message, at
+     * least {@link #MAX_MSG_SIZE}
+     * @return number of byte of the file to send in a message
+     */
+    private int getFileMessageSize(){
+        int size = mConsole.getMaxMessageSize();
+        return Math.max(MAX_MSG_SIZE, size - size%8);
+    }
+
     /**
      * if all the messages are not send in 1s an error is fired
      */
@@ -228,16 +228,9 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
         private boolean mNodeReadyToReceiveFile;
 
         /**
-         * counter of package that are sent
+         * transfer of the file data, null if the file is not yet sent
          */
-        private int mNPackageReceived;
-
-        /**
-         * size of the last package send
-         */
-        private byte[] mLastPackageSend = new byte[MAX_MSG_SIZE];
-
-        private int mNBlockPackage= getBlockPkgSize();
+        private BulkWrite mBulkWrite;
 
         /**
          * if the timeout is rise, fire an error of type
@@ -247,7 +240,32 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
             @Override
             public void run() {
                 onLoadFail(FwUpgradeCallback.ERROR_TRANSMISSION);
-                sNFail++;
+            }
+        };
+
+        /**
+         * notify the upload progress and wait the node answer when all the file is sent
+         */
+        private BulkWrite.BulkWriteListener mFileTransferListener = new BulkWrite
+                .BulkWriteListener() {
+            @Override
+            public void onProgress(BulkWrite write, long byteSent, long byteToSend) {
+                //reset the timeout
+                mTimeout.removeCallbacks(onTimeout);
+                mTimeout.postDelayed(onTimeout,FW_UPLOAD_MSG_TIMEOUT_MS);
+                mByteSend = byteSent;
+                if(mCallback!=null)
+                    mCallback.onLoadFwProgressUpdate(FwUpgradeConsoleNucleo.this,mFile,
+                            byteToSend-byteSent);
+            }
+
+            @Override
+            public void onComplete(BulkWrite write, boolean success) {
+                if(!success){
+                    mTimeout.removeCallbacks(onTimeout);
+                    onLoadFail(FwUpgradeCallback.ERROR_TRANSMISSION);
+                }//if
+                //else wait the node answer, the timeout is still running
             }
         };
 
@@ -257,6 +275,10 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
          * @param errorCode type of error
          */
         private void onLoadFail(@FwUpgradeCallback.UpgradeErrorType int errorCode){
+            if(mBulkWrite!=null) {
+                mBulkWrite.cancel();
+                mBulkWrite=null;
+            }//if
             if(mCallback!=null)
                 mCallback.onLoadFwError(FwUpgradeConsoleNucleo.this,mFile,errorCode);
             setConsoleListener(null);
@@ -266,6 +288,7 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
          * notify to the user that the upload is correctly finished
          */
         private void onLoadComplete(){
+            mBulkWrite=null;
             if(mCallback!=null)
                 mCallback.onLoadFwComplete(FwUpgradeConsoleNucleo.this,mFile);
             setConsoleListener(null);
@@ -329,6 +352,8 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
             mFile=file;
             mNodeReadyToReceiveFile =false;
             mByteToSend = file.getLength();
+            mByteSend = 0;
+            mBulkWrite = null;
 
             try {
                 mCrc = computeCrc32(file);
@@ -352,46 +377,38 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
         }
 
         /**
-         * read the data from the file and send it to the node
-         * @return true if the package is correctly sent
+         * read all the file and start to send it to the node
+         * @return true if the transfer is started
          */
-        private boolean sendFwPackage(){
-            int lastPackageSize = (int) Math.min(mByteToSend - mByteSend, MAX_MSG_SIZE);
-            int byteRead;
+        private boolean sendFile(){
+            byte fileData[] = new byte[(int)mByteToSend];
+            int byteRead=0;
             try {
-                byteRead = mFileData.read(mLastPackageSend, 0, lastPackageSize);
+                while(byteRead<fileData.length) {
+                    int read = mFileData.read(fileData, byteRead, fileData.length - byteRead);
+                    if(read<0)
+                        break;
+                    byteRead+=read;
+                }//while
             } catch (IOException e) {
                 e.printStackTrace();
                 return false;
             }
-            if (lastPackageSize == byteRead) {
-                mByteSend += byteRead;
-                return mConsole.write(mLastPackageSend, 0, lastPackageSize)==lastPackageSize;
-            } else
-                //it read an unexpected number of byte, something bad happen
+            //it read an unexpected number of byte, something bad happen
+            if(byteRead!=fileData.length)
                 return false;
-        }//sendFwPackage
-
-        /**
-         * send a block of message, the function will stop at the first error
-         * @return true if all the message are send correctly
-         */
-        private boolean sendPackageBlock(){
-            for(int i = 0; i< mNBlockPackage; i++){
-                if(!sendFwPackage())
-                    return false;
-            }//for
-            return true;
-        }//sendPackageBlock
-
+            mTimeout.postDelayed(onTimeout,FW_UPLOAD_MSG_TIMEOUT_MS);
+            mBulkWrite = mConsole.writeBulk(fileData,getFileMessageSize(),mFileTransferListener);
+            return mBulkWrite!=null;
+        }//sendFile
 
         @Override
         public void onStdOutReceived(Debug debug, String message) {
             if(!mNodeReadyToReceiveFile){
                 if(checkCrc(message)) {
                     mNodeReadyToReceiveFile = true;
-                    mNPackageReceived=0;
-                    sendPackageBlock();
+                    if(!sendFile())
+                        onLoadFail(FwUpgradeCallback.ERROR_TRANSMISSION);
                 }else
                     onLoadFail(FwUpgradeCallback.ERROR_TRANSMISSION);
             }else { //transfer complete
@@ -403,30 +420,10 @@ public class FwUpgradeConsoleNucleo extends FwUpgradeConsole {
             }
         }//onStdOutReceived
 
-        /**
-         * notify to the user that a block of data is correctly send and send a new one
-         */
-        private void notifyNodeReceivedFwMessage(){
-            mNPackageReceived++;
-            //if we finish to send all the message
-            if(mNPackageReceived % mNBlockPackage ==0){
-                if(mCallback!=null)
-                    mCallback.onLoadFwProgressUpdate(FwUpgradeConsoleNucleo.this,mFile,
-                            mByteToSend-mByteSend);
-                sendPackageBlock();
-            }//if
-        }
-
         @Override
         public void onStdInSent(Debug debug, String message, boolean writeResult) {
-            if(writeResult){
-                if(mNodeReadyToReceiveFile){
-                    //reset the timeout
-                    mTimeout.removeCallbacks(onTimeout);
-                    notifyNodeReceivedFwMessage();
-                    mTimeout.postDelayed(onTimeout,FW_UPLOAD_MSG_TIMEOUT_MS);
-                }
-            }else{
+            //the file data errors are notified by the transfer listener
+            if(!writeResult && mBulkWrite==null){
                 onLoadFail(FwUpgradeCallback.ERROR_TRANSMISSION);
             }
         }
@@ -39,22 +39,18 @@ package com.st.BlueSTSDK.gui.preferences;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
-import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.Uri;
 import android.os.Bundle;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceScreen;
 import android.support.annotation.NonNull;
-import android.util.Log;
 
 import com.st.BlueSTSDK.Log.FeatureLogBase;
 import com.st.BlueSTSDK.Utils.LogFeatureActivity;
 import com.st.BlueSTSDK.gui.R;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -67,11 +63,13 @@ import java.util.regex.Pattern;
 
 public class LogPreferenceFragment extends PreferenceFragment {
 
-    private static final String EXPORT_LOG_FILE_EXTENSION = ".csv";
-    private static final Pattern PATTERN_FILE_NAME_SESSION = Pattern.compile("^(\\d{8})_(\\d{6})_.*csv$");
+    private static final Pattern PATTERN_FILE_NAME_SESSION =
+            Pattern.compile("^(\\d{8})_(\\d{6})_.*\\.(csv|bin)(\\.zip)?$");
 
     public final static String KEY_PREF_LOG_STORE="prefLog_logStore";
     public final static String KEY_PREF_LOG_DUMP_PATH="prefLog_exportPath";
+    public final static String KEY_PREF_LOG_SEGMENT_SIZE="prefLog_segmentSize";
+    public final static String KEY_PREF_LOG_COMPRESS_SEGMENTS="prefLog_compressSegments";
     private static final String TAG = LogPreferenceFragment.class.getCanonicalName();
 
     /** preference widget */
@@ -98,39 +96,21 @@ public class LogPreferenceFragment extends PreferenceFragment {
     /**
      * get all the log file in the directory
      * @param directoryPath path where search the file
-     * @return all file in the directory with an extension .csv
+     * @param session session prefix, null for all the sessions
+     * @return all the log files and segments of the session
      */
     static public File[] getLogFiles(String directoryPath, final String session){
-        File directory = new File(directoryPath);
-        //find all the csv files
-        final FileFilter csvFilter = new FileFilter() {
-            @Override
-            public boolean accept(File pathname) {
-                final String fileName = pathname.getName();
-                if (session != null)
-                    return fileName.endsWith(EXPORT_LOG_FILE_EXTENSION) && fileName.startsWith(session);
-                else
-                    return fileName.endsWith(EXPORT_LOG_FILE_EXTENSION);
-            }//accept
-        };
-        return directory.listFiles(csvFilter);
+        return FeatureLogBase.getLogFiles(directoryPath,session);
     }//getLogFiles
 
     /**
-     * remove all the csv file in the directory
+     * remove all the log files and segments of a session
      * @param c context where the file were created
      * @param directoryPath directory where this class dumped the feature data
+     * @param session session prefix
      */
     static public void deleteSession(Context c, String directoryPath, String session){
-        File files[] =getLogFiles(directoryPath, session);
-        if(files==null || files.length==0) //nothing to do
-            return;
-
-        for(File f: files ){
-            if(!f.delete())
-                Log.e(TAG, "Error deleting the file " + f.getAbsolutePath());
-            c.sendBroadcast(new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE, Uri.fromFile(f)));
-        }//for
+        FeatureLogBase.clean(c,directoryPath,session);
     }//clean
 
     private String getLogPath(){